@@ -30,6 +30,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.naming.NamingException;
 import javax.naming.directory.Attribute;
@@ -91,6 +92,7 @@ public class OStorageRemote extends OStorageAbstract {
 	private int																			connectionRetryDelay;
 
 	private static List<OChannelBinaryClient>				networkPool									= new ArrayList<OChannelBinaryClient>();
+	private static final AtomicInteger							requestSerialId							= new AtomicInteger();
 	protected List<String>													serverURLs									= new ArrayList<String>();
 	protected final Map<String, Integer>						clustersIds									= new HashMap<String, Integer>();
 	protected final Map<String, String>							clustersTypes								= new HashMap<String, String>();
@@ -126,6 +128,13 @@ public class OStorageRemote extends OStorageAbstract {
 		OStorageRemoteThreadLocal.INSTANCE.get().sessionId = iSessionId;
 	}
 
+	/**
+	 * Returns the id of the last request sent by the current thread.
+	 */
+	public int getRequestId() {
+		return OStorageRemoteThreadLocal.INSTANCE.get().requestId;
+	}
+
 	public List<ORemoteServerEventListener> getRemoteServerEventListeners() {
 		return remoteServerEventListeners;
 	}
@@ -320,11 +329,12 @@ public class OStorageRemote extends OStorageAbstract {
 						endResponse(network);
 					}
 				else {
+					final int requestId = getRequestId();
 					Callable<Object> response = new Callable<Object>() {
 						public Object call() throws Exception {
 							final Long result;
 
-							beginResponse(network);
+							beginResponse(network, requestId);
 							try {
 								result = network.readLong();
 							} finally {
@@ -336,6 +346,7 @@ public class OStorageRemote extends OStorageAbstract {
 
 					};
 					asynchExecutor.submit(new FutureTask<Object>(response));
+					return iRid.clusterPosition;
 				}
 
 			} catch (OException e) {
@@ -399,6 +410,63 @@ public class OStorageRemote extends OStorageAbstract {
 		} while (true);
 	}
 
+	/**
+	 * Reads a batch of records with a single request. The server sends the records in the same order of the identities, then the
+	 * records to put in the local cache according to the fetch plan.
+	 */
+	public ORawBuffer[] readRecords(final ORecordId[] iRids, final String iFetchPlan) {
+		checkConnection();
+
+		if (OStorageRemoteThreadLocal.INSTANCE.get().commandExecuting)
+			// PENDING NETWORK OPERATION, CAN'T EXECUTE IT NOW
+			return new ORawBuffer[iRids.length];
+
+		do {
+			try {
+
+				OChannelBinaryClient network = null;
+				try {
+					network = beginRequest(OChannelBinaryProtocol.REQUEST_RECORD_LOAD_MULTI);
+					network.writeInt(iRids.length);
+					for (ORecordId rid : iRids)
+						network.writeRID(rid);
+					network.writeString(iFetchPlan != null ? iFetchPlan : "");
+
+				} finally {
+					endRequest(network);
+				}
+
+				try {
+					beginResponse(network);
+
+					final ORawBuffer[] buffers = new ORawBuffer[iRids.length];
+					for (int i = 0; i < buffers.length; ++i)
+						if (network.readByte() == 1)
+							buffers[i] = new ORawBuffer(network.readBytes(), network.readInt(), network.readByte());
+
+					final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.get();
+					ORecordInternal<?> record;
+					while (network.readByte() == 2) {
+						record = (ORecordInternal<?>) readIdentifiable(network);
+
+						// PUT IN THE CLIENT LOCAL CACHE
+						database.getLevel1Cache().updateRecord(record);
+					}
+					return buffers;
+				} finally {
+					endResponse(network);
+				}
+
+			} catch (OException e) {
+				// PASS THROUGH
+				throw e;
+			} catch (Exception e) {
+				handleException("Error on read " + iRids.length + " records", e);
+
+			}
+		} while (true);
+	}
+
 	public int updateRecord(final ORecordId iRid, final byte[] iContent, final int iVersion, final byte iRecordType,
 			final ORecordCallback<Integer> iCallback) {
 		checkConnection();
@@ -424,11 +492,12 @@ public class OStorageRemote extends OStorageAbstract {
 						endResponse(network);
 					}
 				else {
+					final int requestId = getRequestId();
 					Callable<Object> response = new Callable<Object>() {
 						public Object call() throws Exception {
 							int result;
 
-							beginResponse(network);
+							beginResponse(network, requestId);
 							try {
 								result = network.readInt();
 							} finally {
@@ -441,6 +510,7 @@ public class OStorageRemote extends OStorageAbstract {
 
 					};
 					asynchExecutor.submit(new FutureTask<Object>(response));
+					return iVersion;
 				}
 			} catch (OException e) {
 				// PASS THROUGH
@@ -475,11 +545,12 @@ public class OStorageRemote extends OStorageAbstract {
 						endResponse(network);
 					}
 				else {
+					final int requestId = getRequestId();
 					Callable<Object> response = new Callable<Object>() {
 						public Object call() throws Exception {
 							Boolean result;
 
-							beginResponse(network);
+							beginResponse(network, requestId);
 							try {
 								result = network.readByte() == 1;
 							} finally {
@@ -492,6 +563,7 @@ public class OStorageRemote extends OStorageAbstract {
 
 					};
 					asynchExecutor.submit(new FutureTask<Object>(response));
+					return false;
 				}
 			} catch (OException e) {
 				// PASS THROUGH
@@ -1355,7 +1427,7 @@ public class OStorageRemote extends OStorageAbstract {
 						if (debug)
 							System.out.println("-> req (waiting) : " + getSessionId());
 
-						final long startToWait = System.currentTimeMillis();
+						final long startToWait = OProfiler.getInstance().startChrono();
 						try {
 							networkPool.wait(5000);
 							OProfiler.getInstance().updateCounter("network.connectionPool.timeout", +1);
@@ -1366,39 +1438,58 @@ public class OStorageRemote extends OStorageAbstract {
 						final long elapsed = OProfiler.getInstance().stopChrono("network.connectionPool.waitingTime", startToWait);
 
 						if (debug)
-							System.out.println("Waiting for connection = elapsed: " + elapsed);
+							System.out.println("Waiting for connection = elapsed: " + elapsed + "ns");
 					}
 				}
 			}
 		}
 
+		final int requestId = requestSerialId.incrementAndGet() & Integer.MAX_VALUE;
+		OStorageRemoteThreadLocal.INSTANCE.get().requestId = requestId;
+
 		network.writeByte(iCommand);
 		network.writeInt(getSessionId());
+		network.writeInt(requestId);
+
+		if (getSessionId() > -1 && OChannelBinaryProtocol.isPipelined(iCommand))
+			// THE CONTENT IS SENT AS ONE CHUNK TO LET THE SERVER READ THE NEXT REQUEST WHILE EXECUTING THIS ONE
+			network.beginContent();
 
 		return network;
 	}
 
 	/**
-	 * Ends the request and unlock the write lock
+	 * Ends the request and unlock the write lock. The lock of the requests not framed is kept until the response has been read: see
+	 * {@link #endResponse(OChannelBinaryClient)}.
 	 */
 	public void endRequest(final OChannelBinaryClient iNetwork) throws IOException {
 		if (iNetwork == null)
 			return;
 
+		boolean hold = false;
 		try {
+			final boolean framed = iNetwork.isBufferingContent();
+			iNetwork.endContent();
 			iNetwork.flush();
+
+			// IF THE SERVER FAILS READING A NOT FRAMED REQUEST IT DISCARDS THE INPUT: DON'T SEND OTHER REQUESTS UNTIL THE RESPONSE
+			hold = !framed;
 			// } catch (IOException e) {
 			// IGNORE IT BECAUSE IT COULD BE CALLED AFTER A NETWORK ERROR TO RELEASE THE SOCKET
 		} finally {
 
-			iNetwork.getLockWrite().unlock();
+			if (hold)
+				iNetwork.holdWriteLock();
+			else {
+				iNetwork.getLockWrite().unlock();
+
+				synchronized (networkPool) {
+					networkPool.notifyAll();
+				}
+			}
 
 			if (debug)
 				System.out.println("<- req: " + getSessionId());
-
-			synchronized (networkPool) {
-				networkPool.notifyAll();
-			}
 		}
 	}
 
@@ -1416,13 +1507,21 @@ public class OStorageRemote extends OStorageAbstract {
 	}
 
 	/**
-	 * Starts listening the response.
+	 * Starts listening the response of the last request sent by the current thread.
 	 */
 	protected void beginResponse(final OChannelBinaryClient iNetwork) throws IOException {
-		iNetwork.beginResponse(getSessionId());
+		beginResponse(iNetwork, getRequestId());
+	}
+
+	/**
+	 * Starts listening the response of the request. Responses of the other requests in flight on the same channel are left to
+	 * their requesters.
+	 */
+	protected void beginResponse(final OChannelBinaryClient iNetwork, final int iRequestId) throws IOException {
+		iNetwork.beginResponse(iRequestId);
 
 		if (debug)
-			System.out.println("-> res: " + getSessionId());
+			System.out.println("-> res: " + getSessionId() + " request: " + iRequestId);
 	}
 
 	/**
@@ -1431,6 +1530,11 @@ public class OStorageRemote extends OStorageAbstract {
 	public void endResponse(final OChannelBinaryClient iNetwork) {
 		iNetwork.endResponse();
 
+		if (iNetwork.releaseWriteHold())
+			synchronized (networkPool) {
+				networkPool.notifyAll();
+			}
+
 		if (debug)
 			System.out.println("<- res: " + getSessionId());
 	}
@@ -24,7 +24,8 @@ import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProt
 import com.orientechnologies.orient.enterprise.channel.distributed.OChannelDistributedProtocol;
 
 /**
- * Service thread that catches internal messages sent by the server
+ * Service thread that catches internal messages sent by the server. While waiting for them it reads the headers of the responses
+ * and wakes up the threads waiting for them.
  * 
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
  */
@@ -43,7 +44,8 @@ public class OStorageRemoteServiceThread extends OSoftThread {
 	protected void execute() throws Exception {
 		try {
 			try {
-				storage.beginResponse(network);
+				// READ THE RESPONSES ON BEHALF OF THE REQUESTERS UNTIL A PUSH FROM THE SERVER ARRIVES
+				network.beginResponse(Integer.MIN_VALUE);
 			} catch (IOException ioe) {
 				// EXCEPTION RECEIVED (THE SOCKET HAS BEEN CLOSED?) ASSURE TO UNLOCK THE READ AND EXIT THIS THREAD
 				sendShutdown();
@@ -134,7 +134,7 @@ public class OStorageRemoteThread implements OStorage {
 
 	public long createRecord(final ORecordId iRid, final byte[] iContent, final byte iRecordType, ORecordCallback<Long> iCallback) {
 		delegate.setSessionId(sessionId);
-		return delegate.createRecord(iRid, iContent, iRecordType, null);
+		return delegate.createRecord(iRid, iContent, iRecordType, iCallback);
 	}
 
 	public ORawBuffer readRecord(final ORecordId iRid, final String iFetchPlan, ORecordCallback<ORawBuffer> iCallback) {
@@ -142,10 +142,15 @@ public class OStorageRemoteThread implements OStorage {
 		return delegate.readRecord(iRid, iFetchPlan, null);
 	}
 
+	public ORawBuffer[] readRecords(final ORecordId[] iRids, final String iFetchPlan) {
+		delegate.setSessionId(sessionId);
+		return delegate.readRecords(iRids, iFetchPlan);
+	}
+
 	public int updateRecord(final ORecordId iRid, final byte[] iContent, final int iVersion, final byte iRecordType,
 			ORecordCallback<Integer> iCallback) {
 		delegate.setSessionId(sessionId);
-		return delegate.updateRecord(iRid, iContent, iVersion, iRecordType, null);
+		return delegate.updateRecord(iRid, iContent, iVersion, iRecordType, iCallback);
 	}
 
 	public String toString() {
@@ -155,7 +160,7 @@ public class OStorageRemoteThread implements OStorage {
 
 	public boolean deleteRecord(final ORecordId iRid, final int iVersion, ORecordCallback<Boolean> iCallback) {
 		delegate.setSessionId(sessionId);
-		return delegate.deleteRecord(iRid, iVersion, null);
+		return delegate.deleteRecord(iRid, iVersion, iCallback);
 	}
 
 	public long count(final int iClusterId) {
@@ -23,6 +23,7 @@ public class OStorageRemoteThreadLocal extends ThreadLocal<OStorageRemoteSession
 	public class OStorageRemoteSession {
 		public boolean	commandExecuting	= false;
 		public Integer	sessionId					= -1;
+		public int			requestId					= -1;
 	}
 
 	@Override
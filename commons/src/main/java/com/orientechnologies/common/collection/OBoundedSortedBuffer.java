@@ -0,0 +1,127 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.common.collection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps only the first N items of a stream following the order of a comparator. Internally uses a heap with the worst item on top,
+ * so memory is bounded to the capacity and every insertion costs O(log N). Items considered equal by the comparator keep their
+ * insertion order, like a stable sort of the whole stream followed by a truncation would do.
+ *
+ * @author Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ */
+public class OBoundedSortedBuffer<T> {
+	private final int																capacity;
+	private final Comparator<? super T>							comparator;
+	private final PriorityQueue<OBufferedItem<T>>	heap;
+	private long																		sequence;
+
+	private static final class OBufferedItem<T> {
+		private final T			item;
+		private final long	sequence;
+
+		private OBufferedItem(final T iItem, final long iSequence) {
+			item = iItem;
+			sequence = iSequence;
+		}
+	}
+
+	public OBoundedSortedBuffer(final int iCapacity, final Comparator<? super T> iComparator) {
+		if (iCapacity < 1)
+			throw new IllegalArgumentException("Capacity must be > 0");
+
+		capacity = iCapacity;
+		comparator = iComparator;
+
+		// REVERSED ORDER: THE HEAD OF THE QUEUE IS THE WORST ITEM, THE FIRST TO BE DISCARDED
+		heap = new PriorityQueue<OBufferedItem<T>>(Math.min(iCapacity, 1024) + 1, new Comparator<OBufferedItem<T>>() {
+			public int compare(final OBufferedItem<T> o1, final OBufferedItem<T> o2) {
+				return -compareItems(o1, o2);
+			}
+		});
+	}
+
+	/**
+	 * Offers an item to the buffer.
+	 *
+	 * @return true if the item has been retained, otherwise false
+	 */
+	public boolean add(final T iItem) {
+		final OBufferedItem<T> bufferedItem = new OBufferedItem<T>(iItem, sequence++);
+
+		if (heap.size() < capacity) {
+			heap.add(bufferedItem);
+			return true;
+		}
+
+		if (compareItems(bufferedItem, heap.peek()) >= 0)
+			// WORSE THAN THE WORST RETAINED ITEM: DISCARD IT
+			return false;
+
+		heap.poll();
+		heap.add(bufferedItem);
+		return true;
+	}
+
+	public int size() {
+		return heap.size();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public boolean isEmpty() {
+		return heap.isEmpty();
+	}
+
+	public void clear() {
+		heap.clear();
+		sequence = 0;
+	}
+
+	/**
+	 * Returns the retained items sorted following the comparator.
+	 */
+	public List<T> toSortedList() {
+		final List<OBufferedItem<T>> items = new ArrayList<OBufferedItem<T>>(heap);
+		Collections.sort(items, new Comparator<OBufferedItem<T>>() {
+			public int compare(final OBufferedItem<T> o1, final OBufferedItem<T> o2) {
+				return compareItems(o1, o2);
+			}
+		});
+
+		final List<T> result = new ArrayList<T>(items.size());
+		for (OBufferedItem<T> i : items)
+			result.add(i.item);
+		return result;
+	}
+
+	private int compareItems(final OBufferedItem<T> o1, final OBufferedItem<T> o2) {
+		final int result = comparator.compare(o1.item, o2.item);
+		if (result != 0)
+			return result;
+
+		// SAME VALUE: THE FIRST INSERTED WINS
+		return o1.sequence < o2.sequence ? -1 : (o1.sequence == o2.sequence ? 0 : 1);
+	}
+}
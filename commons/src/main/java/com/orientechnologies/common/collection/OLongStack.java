@@ -0,0 +1,62 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.common.collection;
+
+/**
+ * Stack of primitive longs backed by an array that grows on demand. It avoids the boxing of the values. Not thread safe.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OLongStack {
+	private long[]	values;
+	private int			size	= 0;
+
+	public OLongStack() {
+		this(16);
+	}
+
+	public OLongStack(final int iInitialCapacity) {
+		values = new long[Math.max(iInitialCapacity, 1)];
+	}
+
+	public void push(final long iValue) {
+		if (size == values.length) {
+			final long[] newValues = new long[values.length << 1];
+			System.arraycopy(values, 0, newValues, 0, size);
+			values = newValues;
+		}
+		values[size++] = iValue;
+	}
+
+	public long pop() {
+		if (size == 0)
+			throw new IllegalStateException("Stack is empty");
+		return values[--size];
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+}
@@ -270,6 +270,88 @@ public abstract class OMVRBTree<K, V> extends AbstractMap<K, V> implements ONavi
 		}
 	}
 
+	/**
+	 * Returns the value associated to the key like {@link #get(Object)}, but without changing the state of the tree used by the
+	 * sequential navigation (current page index and last search). This allows multiple threads to search at the same time as long
+	 * as nobody is changing the tree. Implementations that load nodes lazily must load them in thread-safe way.
+	 * 
+	 * @param key
+	 *          Key to search
+	 * @return The value if found, otherwise null
+	 */
+	public V getConcurrent(final Object key) {
+		if (key == null || size() == 0)
+			return null;
+
+		final long timer = OProfiler.getInstance().startChrono();
+
+		try {
+			OMVRBTreeEntry<K, V> p = getBestEntryPointConcurrent((K) key);
+			OMVRBTreeEntry<K, V> lastNode = p;
+			OMVRBTreeEntry<K, V> prevNode = null;
+			OMVRBTreeEntry<K, V> tmpNode;
+			int beginKey;
+			int endKey;
+
+			// SEARCH THE NODE THAT COULD CONTAIN THE KEY
+			while (p != null && p.getSize() > 0) {
+				lastNode = p;
+
+				beginKey = compareKeys(key, p.getKeyAt(0));
+				if (beginKey == 0)
+					// EXACT MATCH WITH THE FIRST KEY
+					return p.getValueAt(0);
+
+				endKey = compareKeys(key, p.getKeyAt(p.getSize() - 1));
+
+				if (beginKey < 0 && endKey < 0) {
+					tmpNode = predecessor(p);
+					if (tmpNode != null && tmpNode != prevNode) {
+						// MINOR THAN THE CURRENT: GET THE LEFT NODE
+						prevNode = p;
+						p = tmpNode;
+						continue;
+					}
+				} else if (beginKey > 0 && endKey > 0) {
+					tmpNode = successor(p);
+					if (tmpNode != null && tmpNode != prevNode) {
+						// MAJOR THAN THE CURRENT: GET THE RIGHT NODE
+						prevNode = p;
+						p = tmpNode;
+						continue;
+					}
+				}
+				break;
+			}
+
+			if (lastNode == null)
+				return null;
+
+			// BINARY SEARCH INSIDE THE NODE
+			int low = 0;
+			int high = lastNode.getSize() - 1;
+			int mid;
+			int cmp;
+			while (low <= high) {
+				mid = (low + high) >>> 1;
+				cmp = compareKeys(key, lastNode.getKeyAt(mid));
+
+				if (cmp == 0)
+					return lastNode.getValueAt(mid);
+
+				if (cmp > 0)
+					low = mid + 1;
+				else
+					high = mid - 1;
+			}
+
+			return null;
+
+		} finally {
+			OProfiler.getInstance().stopChrono("OMVRBTree.getConcurrent", timer);
+		}
+	}
+
 	public Comparator<? super K> comparator() {
 		return comparator;
 	}
@@ -470,6 +552,20 @@ public abstract class OMVRBTree<K, V> extends AbstractMap<K, V> implements ONavi
 		return root;
 	}
 
+	/**
+	 * Returns the best entry point to start a search executed by {@link #getConcurrent(Object)}. Implementations that change the entry
+	 * points while loading nodes must override it to read them in thread-safe way.
+	 */
+	protected OMVRBTreeEntry<K, V> getBestEntryPointConcurrent(final K key) {
+		return getBestEntryPoint(key);
+	}
+
+	private int compareKeys(final Object iKey, final K iOther) {
+		if (comparator != null)
+			return comparator.compare((K) iKey, iOther);
+		return ((Comparable<? super K>) iKey).compareTo(iOther);
+	}
+
 	/**
 	 * Gets the entry corresponding to the specified key; if no such entry exists, returns the entry for the least key greater than
 	 * the specified key; if no such entry exists (i.e., the greatest key in the Tree is less than the specified key), returns
@@ -481,15 +577,23 @@ public abstract class OMVRBTree<K, V> extends AbstractMap<K, V> implements ONavi
 	 *          In case of {@link OCompositeKey} key is passed in this parameter will be used to find preferred one.
 	 */
 	public final OMVRBTreeEntry<K, V> getCeilingEntry(final K key, final PartialSearchMode partialSearchMode) {
-		final OMVRBTreeEntry<K, V> p = getEntry(key, true, partialSearchMode);
+		OMVRBTreeEntry<K, V> p = getEntry(key, true, partialSearchMode);
 
 		if (p == null)
 			return null;
 
 		if (pageItemFound)
 			return p;
+
+		if (pageIndex >= p.getSize()) {
+			// AFTER THE LAST KEY OF THE NODE: MOVE TO THE FIRST KEY OF THE NEXT NODE
+			p = next(p);
+			if (p == null)
+				return null;
+		}
+
 		// NOT MATCHED, POSITION IS ALREADY TO THE NEXT ONE
-		else if (pageIndex < p.getSize())
+		if (pageIndex < p.getSize())
 			if (key instanceof OCompositeKey) {
 				final OCompositeKey keyToSearch = (OCompositeKey) key;
 				final OCompositeKey foundKey = (OCompositeKey) p.getKey();
@@ -553,7 +657,8 @@ public abstract class OMVRBTree<K, V> extends AbstractMap<K, V> implements ONavi
 			// NOT MATCHED, POSITION IS ALREADY TO THE NEXT ONE
 			return p;
 
-		return null;
+		// AFTER THE LAST KEY OF THE NODE: RETURN THE FIRST KEY OF THE NEXT NODE
+		return next(p);
 	}
 
 	/**
@@ -684,15 +789,23 @@ public abstract class OMVRBTree<K, V> extends AbstractMap<K, V> implements ONavi
 				// INSERT INTO THE PAGE
 				parentNode.insert(pageIndex, key, value);
 			} else {
-				// CREATE NEW NODE AND COPY HALF OF VALUES FROM THE ORIGIN TO THE NEW ONE IN ORDER TO GET VALUES BALANCED
-				final OMVRBTreeEntry<K, V> newNode = createEntry(parentNode);
-
-				if (pageIndex < parentNode.getPageSplitItems())
-					// INSERT IN THE ORIGINAL NODE
-					parentNode.insert(pageIndex, key, value);
-				else
-					// INSERT IN THE NEW NODE
-					newNode.insert(pageIndex - parentNode.getPageSplitItems(), key, value);
+				final OMVRBTreeEntry<K, V> newNode;
+
+				if (pageIndex == parentNode.getSize() && successor(parentNode) == null)
+					// APPEND AFTER THE LAST KEY OF THE TREE: START A NEW NODE LEAVING THE LAST ONE FULL. THIS KEEPS THE NODES FULL ON
+					// INSERTIONS IN KEY ORDER, LIKE THE BULK LOADING OF INDEXES
+					newNode = createEntry(key, value);
+				else {
+					// CREATE NEW NODE AND COPY HALF OF VALUES FROM THE ORIGIN TO THE NEW ONE IN ORDER TO GET VALUES BALANCED
+					newNode = createEntry(parentNode);
+
+					if (pageIndex < parentNode.getPageSplitItems())
+						// INSERT IN THE ORIGINAL NODE
+						parentNode.insert(pageIndex, key, value);
+					else
+						// INSERT IN THE NEW NODE
+						newNode.insert(pageIndex - parentNode.getPageSplitItems(), key, value);
+				}
 
 				OMVRBTreeEntry<K, V> node = parentNode.getRight();
 				OMVRBTreeEntry<K, V> prevNode = parentNode;
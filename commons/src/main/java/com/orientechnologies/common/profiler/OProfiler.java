@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Profiling utility class. Handles chronos (times), statistics and counters. By default it's used as Singleton but you can create
@@ -30,23 +31,34 @@ import java.util.Map.Entry;
  * 
  * To start the recording use call startRecording(). By default record is turned off to avoid a run-time execution cost.
  * 
+ * Updates never lock: counters are striped per thread (see {@link OProfilerCounter}) and chronos and statistics feed lock-free
+ * histograms (see {@link OProfilerHistogram}) that give the percentiles of the values. Chronos are measured in nanoseconds.
+ * 
  * @author Luca Garulli
  * @copyrights Orient Technologies.com
  */
 public class OProfiler implements OProfilerMBean {
-	private long														recording	= -1;
-	private Map<String, Long>								counters;
-	private Map<String, OProfilerEntry>			chronos;
-	private Map<String, OProfilerEntry>			stats;
-	private Map<String, OProfilerHookValue>	hooks;
-	private Date														lastReset;
+	/**
+	 * Returned by {@link #startChrono()} while not recording. System.nanoTime() can be negative, so -1 can't be used.
+	 */
+	public static final long																NOT_RECORDING	= Long.MIN_VALUE;
 
-	protected static final OProfiler				instance	= new OProfiler();
+	private volatile long																		recording	= -1;
+	private ConcurrentHashMap<String, OProfilerCounter>			counters;
+	private ConcurrentHashMap<String, OProfilerHistogram>		chronos;
+	private ConcurrentHashMap<String, OProfilerHistogram>		stats;
+	private Map<String, OProfilerHookValue>									hooks;
+	private Date																						lastReset;
+
+	protected static final OProfiler												instance	= new OProfiler();
 
 	public interface OProfilerHookValue {
 		public Object getValue();
 	}
 
+	/**
+	 * Snapshot of a chrono or a statistic.
+	 */
 	public class OProfilerEntry {
 		public String	name		= null;
 		public long		items		= 0;
@@ -55,11 +67,14 @@ public class OProfiler implements OProfilerMBean {
 		public long		max			= 0;
 		public long		average	= 0;
 		public long		total		= 0;
+		public long		p50			= 0;
+		public long		p99			= 0;
+		public long		p999		= 0;
 
 		@Override
 		public String toString() {
 			return "Chrono [average=" + average + ", items=" + items + ", last=" + last + ", max=" + max + ", min=" + min + ", name="
-					+ name + ", total=" + total + "]";
+					+ name + ", total=" + total + ", p50=" + p50 + ", p99=" + p99 + ", p999=" + p999 + "]";
 		}
 	}
 
@@ -86,15 +101,16 @@ public class OProfiler implements OProfilerMBean {
 		if (recording < 0)
 			return;
 
-		synchronized (counters) {
-			Long stat = counters.get(iStatName);
-
-			long oldValue = stat == null ? 0 : stat.longValue();
-
-			stat = new Long(oldValue + iPlus);
-
-			counters.put(iStatName, stat);
+		OProfilerCounter counter = counters.get(iStatName);
+		if (counter == null) {
+			// REGISTER THE COUNTER THE FIRST TIME
+			final OProfilerCounter newCounter = new OProfilerCounter();
+			counter = counters.putIfAbsent(iStatName, newCounter);
+			if (counter == null)
+				counter = newCounter;
 		}
+
+		counter.add(iPlus);
 	}
 
 	// ----------------------------------------------------------------------------
@@ -111,14 +127,11 @@ public class OProfiler implements OProfilerMBean {
 		if (recording < 0)
 			return -1;
 
-		synchronized (counters) {
-			Long stat = counters.get(iStatName);
-
-			if (stat == null)
-				return -1;
+		final OProfilerCounter counter = counters.get(iStatName);
+		if (counter == null)
+			return -1;
 
-			return stat.longValue();
-		}
+		return counter.get();
 	}
 
 	/*
@@ -160,35 +173,37 @@ public class OProfiler implements OProfilerMBean {
 	public void reset() {
 		lastReset = new Date();
 
-		if (counters != null) {
-			synchronized (counters) {
-				counters.clear();
-			}
-		}
-
-		if (chronos != null) {
-			synchronized (chronos) {
-				chronos.clear();
-			}
-		}
-
-		if (stats != null) {
-			synchronized (stats) {
-				stats.clear();
-			}
-		}
+		counters.clear();
+		chronos.clear();
+		stats.clear();
 	}
 
+	/**
+	 * Starts a chrono.
+	 * 
+	 * @return The start time in nanoseconds to pass to {@link #stopChrono(String, long)}, or {@link #NOT_RECORDING}
+	 */
 	public long startChrono() {
 		// CHECK IF CHRONOS ARE ACTIVED
 		if (recording < 0)
-			return -1;
+			return NOT_RECORDING;
 
-		return System.currentTimeMillis();
+		return System.nanoTime();
 	}
 
+	/**
+	 * Records the time elapsed from the start of the chrono.
+	 * 
+	 * @param iStartTime
+	 *          The value returned by {@link #startChrono()}
+	 * @return The elapsed time in nanoseconds
+	 */
 	public long stopChrono(final String iName, final long iStartTime) {
-		return updateEntry(chronos, iName, System.currentTimeMillis() - iStartTime);
+		if (iStartTime == NOT_RECORDING)
+			// STARTED WHILE NOT RECORDING
+			return 0;
+
+		return updateEntry(chronos, iName, System.nanoTime() - iStartTime);
 	}
 
 	public long updateStat(final String iName, final long iValue) {
@@ -207,20 +222,16 @@ public class OProfiler implements OProfilerMBean {
 
 		final StringBuilder buffer = new StringBuilder();
 
-		synchronized (counters) {
-			buffer.append("DUMPING COUNTERS (last reset on: " + lastReset.toString() + ")...");
+		buffer.append("DUMPING COUNTERS (last reset on: " + lastReset.toString() + ")...");
 
-			buffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
-			buffer.append(String.format("\n%50s | Value                                                             |", "Name"));
-			buffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
-
-			final List<String> keys = new ArrayList<String>(counters.keySet());
-			Collections.sort(keys);
+		buffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
+		buffer.append(String.format("\n%50s | Value                                                             |", "Name"));
+		buffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
 
-			for (String k : keys) {
-				final Long stat = counters.get(k);
-				buffer.append(String.format("\n%-50s | %-65d |", k, stat));
-			}
+		for (String k : getCounters()) {
+			final OProfilerCounter counter = counters.get(k);
+			if (counter != null)
+				buffer.append(String.format("\n%-50s | %-65d |", k, counter.get()));
 		}
 
 		buffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
@@ -228,11 +239,11 @@ public class OProfiler implements OProfilerMBean {
 	}
 
 	public String dumpChronos() {
-		return dumpEntries(chronos, new StringBuilder("DUMPING CHRONOS (last reset on: " + lastReset.toString() + "). Times in ms..."));
+		return dumpEntries(chronos, new StringBuilder("DUMPING CHRONOS (last reset on: " + lastReset.toString() + "). Times in ns..."));
 	}
 
 	public String dumpStats() {
-		return dumpEntries(stats, new StringBuilder("DUMPING STATISTICS (last reset on: " + lastReset.toString() + "). Times in ms..."));
+		return dumpEntries(stats, new StringBuilder("DUMPING STATISTICS (last reset on: " + lastReset.toString() + ")..."));
 	}
 
 	public String dumpHookValues() {
@@ -276,36 +287,18 @@ public class OProfiler implements OProfilerMBean {
 	 * @see com.orientechnologies.common.profiler.ProfileMBean#getStatistics()
 	 */
 	public String[] getCountersAsString() {
-		synchronized (counters) {
-			final String[] output = new String[counters.size()];
-			int i = 0;
-			for (Entry<String, Long> entry : counters.entrySet()) {
-				output[i++] = entry.getKey() + ": " + entry.getValue().toString();
-			}
-			return output;
-		}
+		final List<String> output = new ArrayList<String>();
+		for (Entry<String, OProfilerCounter> entry : counters.entrySet())
+			output.add(entry.getKey() + ": " + entry.getValue().get());
+		return output.toArray(new String[output.size()]);
 	}
 
 	public String[] getChronosAsString() {
-		synchronized (chronos) {
-			final String[] output = new String[chronos.size()];
-			int i = 0;
-			for (Entry<String, OProfilerEntry> entry : chronos.entrySet()) {
-				output[i++] = entry.getKey() + ": " + entry.getValue().toString();
-			}
-			return output;
-		}
+		return getEntriesAsString(chronos);
 	}
 
 	public String[] getStatsAsString() {
-		synchronized (stats) {
-			final String[] output = new String[stats.size()];
-			int i = 0;
-			for (Entry<String, OProfilerEntry> entry : stats.entrySet()) {
-				output[i++] = entry.getKey() + ": " + entry.getValue().toString();
-			}
-			return output;
-		}
+		return getEntriesAsString(stats);
 	}
 
 	public Date getLastReset() {
@@ -313,11 +306,9 @@ public class OProfiler implements OProfilerMBean {
 	}
 
 	public List<String> getCounters() {
-		synchronized (counters) {
-			final List<String> list = new ArrayList<String>(counters.keySet());
-			Collections.sort(list);
-			return list;
-		}
+		final List<String> list = new ArrayList<String>(counters.keySet());
+		Collections.sort(list);
+		return list;
 	}
 
 	public List<String> getHooks() {
@@ -329,31 +320,23 @@ public class OProfiler implements OProfilerMBean {
 	}
 
 	public List<String> getChronos() {
-		synchronized (chronos) {
-			final List<String> list = new ArrayList<String>(chronos.keySet());
-			Collections.sort(list);
-			return list;
-		}
+		final List<String> list = new ArrayList<String>(chronos.keySet());
+		Collections.sort(list);
+		return list;
 	}
 
 	public List<String> getStats() {
-		synchronized (stats) {
-			final List<String> list = new ArrayList<String>(stats.keySet());
-			Collections.sort(list);
-			return list;
-		}
+		final List<String> list = new ArrayList<String>(stats.keySet());
+		Collections.sort(list);
+		return list;
 	}
 
 	public OProfilerEntry getStat(final String iStatName) {
-		synchronized (stats) {
-			return stats.get(iStatName);
-		}
+		return getEntry(stats, iStatName);
 	}
 
 	public OProfilerEntry getChrono(final String iChronoName) {
-		synchronized (chronos) {
-			return chronos.get(iChronoName);
-		}
+		return getEntry(chronos, iChronoName);
 	}
 
 	public boolean isRecording() {
@@ -387,69 +370,85 @@ public class OProfiler implements OProfilerMBean {
 	}
 
 	private void init() {
-		counters = new HashMap<String, Long>();
-		chronos = new HashMap<String, OProfilerEntry>();
-		stats = new HashMap<String, OProfilerEntry>();
+		counters = new ConcurrentHashMap<String, OProfilerCounter>();
+		chronos = new ConcurrentHashMap<String, OProfilerHistogram>();
+		stats = new ConcurrentHashMap<String, OProfilerHistogram>();
 		hooks = new HashMap<String, OProfiler.OProfilerHookValue>();
 
 		lastReset = new Date();
 	}
 
-	private synchronized long updateEntry(Map<String, OProfilerEntry> iValues, final String iName, final long iValue) {
+	private long updateEntry(final ConcurrentHashMap<String, OProfilerHistogram> iValues, final String iName, final long iValue) {
 		if (recording < 0)
 			return iValue;
 
-		synchronized (iValues) {
-			OProfilerEntry c = iValues.get(iName);
-
-			if (c == null) {
-				// CREATE NEW CHRONO
-				c = new OProfilerEntry();
-				iValues.put(iName, c);
-			}
-
-			c.name = iName;
-			c.items++;
-			c.last = iValue;
-			c.total += c.last;
-			c.average = c.total / c.items;
-
-			if (c.last < c.min)
-				c.min = c.last;
-
-			if (c.last > c.max)
-				c.max = c.last;
+		OProfilerHistogram histogram = iValues.get(iName);
+		if (histogram == null) {
+			// CREATE NEW CHRONO
+			final OProfilerHistogram newHistogram = new OProfilerHistogram();
+			histogram = iValues.putIfAbsent(iName, newHistogram);
+			if (histogram == null)
+				histogram = newHistogram;
+		}
 
-			return c.last;
+		histogram.record(iValue);
+		return iValue;
+	}
+
+	private OProfilerEntry getEntry(final Map<String, OProfilerHistogram> iValues, final String iName) {
+		final OProfilerHistogram histogram = iValues.get(iName);
+		if (histogram == null)
+			return null;
+
+		final OProfilerEntry entry = new OProfilerEntry();
+		entry.name = iName;
+		entry.items = histogram.getItems();
+		entry.last = histogram.getLast();
+		entry.min = histogram.getMin();
+		entry.max = histogram.getMax();
+		entry.total = histogram.getTotal();
+		entry.average = entry.items > 0 ? entry.total / entry.items : 0;
+		entry.p50 = histogram.getPercentile(0.5);
+		entry.p99 = histogram.getPercentile(0.99);
+		entry.p999 = histogram.getPercentile(0.999);
+		return entry;
+	}
+
+	private String[] getEntriesAsString(final Map<String, OProfilerHistogram> iValues) {
+		final List<String> output = new ArrayList<String>();
+		for (String k : iValues.keySet()) {
+			final OProfilerEntry entry = getEntry(iValues, k);
+			if (entry != null)
+				output.add(k + ": " + entry.toString());
 		}
+		return output.toArray(new String[output.size()]);
 	}
 
-	private synchronized String dumpEntries(final Map<String, OProfilerEntry> iValues, final StringBuilder iBuffer) {
+	private String dumpEntries(final Map<String, OProfilerHistogram> iValues, final StringBuilder iBuffer) {
 		// CHECK IF CHRONOS ARE ACTIVED
 		if (recording < 0)
 			return "<no recording>";
 
-		synchronized (iValues) {
-			if (iValues.size() == 0)
-				return "";
+		if (iValues.size() == 0)
+			return "";
 
-			OProfilerEntry c;
+		OProfilerEntry c;
 
-			iBuffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
-			iBuffer.append(String.format("\n%50s | %10s %10s %10s %10s %10s %10s |", "Name", "last", "total", "min", "max", "average",
-					"items"));
-			iBuffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
+		iBuffer.append(String.format("\n%50s +------------------------------------------------------------------------------------------------------------------------+", ""));
+		iBuffer.append(String.format("\n%50s | %12s %14s %12s %12s %12s %12s %12s %12s %12s |", "Name", "last", "total", "min", "max",
+				"average", "items", "p50", "p99", "p999"));
+		iBuffer.append(String.format("\n%50s +------------------------------------------------------------------------------------------------------------------------+", ""));
 
-			final List<String> keys = new ArrayList<String>(iValues.keySet());
-			Collections.sort(keys);
+		final List<String> keys = new ArrayList<String>(iValues.keySet());
+		Collections.sort(keys);
 
-			for (String k : keys) {
-				c = iValues.get(k);
-				iBuffer.append(String.format("\n%-50s | %10d %10d %10d %10d %10d %10d |", k, c.last, c.total, c.min, c.max, c.average,
-						c.items));
-			}
-			iBuffer.append(String.format("\n%50s +-------------------------------------------------------------------+", ""));
-			return iBuffer.toString();
+		for (String k : keys) {
+			c = getEntry(iValues, k);
+			if (c != null)
+				iBuffer.append(String.format("\n%-50s | %12d %14d %12d %12d %12d %12d %12d %12d %12d |", k, c.last, c.total, c.min, c.max,
+						c.average, c.items, c.p50, c.p99, c.p999));
 		}
+		iBuffer.append(String.format("\n%50s +------------------------------------------------------------------------------------------------------------------------+", ""));
+		return iBuffer.toString();
 	}
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.common.profiler;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter that can be updated by many threads without contention: every thread adds to its own cell, picked by the thread id, and
+ * the cells are summed on reading. Cells are padded to stay on different cache lines.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OProfilerCounter {
+	// LONGS IN A CACHE LINE OF 64 BYTES
+	private static final int			PADDING	= 8;
+	private static final int			STRIPES;
+
+	static {
+		int stripes = 1;
+		while (stripes < Runtime.getRuntime().availableProcessors() * 2)
+			stripes <<= 1;
+		STRIPES = stripes;
+	}
+
+	private final AtomicLongArray	cells		= new AtomicLongArray(STRIPES * PADDING);
+
+	public void add(final long iValue) {
+		// THREAD IDS ARE SEQUENTIAL: THREADS CREATED TOGETHER GO ON DIFFERENT CELLS
+		cells.addAndGet(((int) Thread.currentThread().getId() & (STRIPES - 1)) * PADDING, iValue);
+	}
+
+	public long get() {
+		long sum = 0;
+		for (int i = 0; i < STRIPES; ++i)
+			sum += cells.get(i * PADDING);
+		return sum;
+	}
+
+	@Override
+	public String toString() {
+		return String.valueOf(get());
+	}
+}
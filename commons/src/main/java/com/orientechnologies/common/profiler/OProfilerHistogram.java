@@ -0,0 +1,120 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.common.profiler;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of values with logarithmic buckets: values up to 15 have their own bucket, bigger values are split in 8
+ * buckets per power of 2, so percentiles are approximated by less than 12.5%. Used by the profiler to keep the distribution of
+ * chronos and statistics.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OProfilerHistogram {
+	private static final int			SUB_BITS		= 3;
+	private static final int			SUB_BUCKETS	= 1 << SUB_BITS;
+	private static final int			LINEAR			= 16;
+	private static final int			BUCKETS			= LINEAR + (Long.SIZE - 4) * SUB_BUCKETS;
+
+	private final AtomicLongArray	buckets			= new AtomicLongArray(BUCKETS);
+	private final OProfilerCounter	items				= new OProfilerCounter();
+	private final OProfilerCounter	total				= new OProfilerCounter();
+	private final AtomicLong			min					= new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong			max					= new AtomicLong(Long.MIN_VALUE);
+	private volatile long					last;
+
+	public void record(final long iValue) {
+		buckets.incrementAndGet(getBucket(iValue));
+		items.add(1);
+		total.add(iValue);
+		last = iValue;
+
+		// CAS ONLY WHEN THE VALUE IS A NEW MINIMUM OR MAXIMUM
+		long current;
+		while (iValue < (current = min.get()) && !min.compareAndSet(current, iValue))
+			;
+		while (iValue > (current = max.get()) && !max.compareAndSet(current, iValue))
+			;
+	}
+
+	public long getItems() {
+		return items.get();
+	}
+
+	public long getTotal() {
+		return total.get();
+	}
+
+	public long getLast() {
+		return last;
+	}
+
+	public long getMin() {
+		final long value = min.get();
+		return value == Long.MAX_VALUE ? 0 : value;
+	}
+
+	public long getMax() {
+		final long value = max.get();
+		return value == Long.MIN_VALUE ? 0 : value;
+	}
+
+	/**
+	 * Returns the value under which the percentage of recorded values is, as the upper bound of its bucket.
+	 * 
+	 * @param iPercentile
+	 *          Percentile between 0 and 1, such as 0.99
+	 */
+	public long getPercentile(final double iPercentile) {
+		final long[] snapshot = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; ++i)
+			count += snapshot[i] = buckets.get(i);
+
+		if (count == 0)
+			return 0;
+
+		final long target = Math.max(1, (long) Math.ceil(count * iPercentile));
+		long cumulated = 0;
+		for (int i = 0; i < BUCKETS; ++i) {
+			cumulated += snapshot[i];
+			if (cumulated >= target)
+				return Math.min(getBucketUpperBound(i), getMax());
+		}
+		return getMax();
+	}
+
+	private static int getBucket(final long iValue) {
+		if (iValue < LINEAR)
+			return iValue < 0 ? 0 : (int) iValue;
+
+		final int exponent = 63 - Long.numberOfLeadingZeros(iValue);
+		final int sub = (int) (iValue >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+	}
+
+	private static long getBucketUpperBound(final int iBucket) {
+		if (iBucket < LINEAR)
+			return iBucket;
+
+		final int exponent = (iBucket - LINEAR) / SUB_BUCKETS + 4;
+		final int sub = (iBucket - LINEAR) % SUB_BUCKETS;
+		return ((long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS)) + (1L << (exponent - SUB_BITS)) - 1;
+	}
+}
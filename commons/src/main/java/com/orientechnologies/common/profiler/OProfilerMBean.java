@@ -34,10 +34,21 @@ public interface OProfilerMBean {
 
 	public String dumpChronos();
 
+	public String dumpStats();
+
 	public String[] getCountersAsString();
 
+	/**
+	 * Returns the snapshot of every chrono with the percentiles of the times in nanoseconds.
+	 */
 	public String[] getChronosAsString();
 
+	/**
+	 * Returns the snapshot of every statistic with the percentiles of the values passed to updateStat(), in the unit of the
+	 * statistic.
+	 */
+	public String[] getStatsAsString();
+
 	public Date getLastReset();
 
 	public boolean isRecording();
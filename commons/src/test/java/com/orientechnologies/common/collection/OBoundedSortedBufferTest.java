@@ -0,0 +1,90 @@
+package com.orientechnologies.common.collection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class OBoundedSortedBufferTest {
+    private static final Comparator<Integer> NATURAL = new Comparator<Integer>() {
+        public int compare(Integer o1, Integer o2) {
+            return o1.compareTo(o2);
+        }
+    };
+
+    @Test
+    public void testKeepsFirstItems() {
+        final OBoundedSortedBuffer<Integer> buffer = new OBoundedSortedBuffer<Integer>(3, NATURAL);
+
+        for (int i : new int[]{9, 4, 7, 1, 8, 3, 6})
+            buffer.add(i);
+
+        assertEquals(buffer.size(), 3);
+        assertEquals(buffer.toSortedList(), Arrays.asList(1, 3, 4));
+    }
+
+    @Test
+    public void testLessItemsThanCapacity() {
+        final OBoundedSortedBuffer<Integer> buffer = new OBoundedSortedBuffer<Integer>(10, NATURAL);
+        buffer.add(2);
+        buffer.add(1);
+
+        assertEquals(buffer.toSortedList(), Arrays.asList(1, 2));
+    }
+
+    @Test
+    public void testDiscardWorse() {
+        final OBoundedSortedBuffer<Integer> buffer = new OBoundedSortedBuffer<Integer>(1, NATURAL);
+
+        assertTrue(buffer.add(5));
+        assertFalse(buffer.add(6));
+        assertFalse(buffer.add(5));
+        assertTrue(buffer.add(4));
+        assertEquals(buffer.toSortedList(), Collections.singletonList(4));
+    }
+
+    @Test
+    public void testStableOnEqualItems() {
+        final Comparator<String> firstChar = new Comparator<String>() {
+            public int compare(String o1, String o2) {
+                return o1.charAt(0) - o2.charAt(0);
+            }
+        };
+
+        final OBoundedSortedBuffer<String> buffer = new OBoundedSortedBuffer<String>(3, firstChar);
+        for (String s : new String[]{"b1", "a1", "b2", "a2", "b3", "a3", "a4"})
+            buffer.add(s);
+
+        assertEquals(buffer.toSortedList(), Arrays.asList("a1", "a2", "a3"));
+    }
+
+    @Test
+    public void testSameResultOfSortAndTruncate() {
+        final Random random = new Random(7);
+        final List<Integer> all = new ArrayList<Integer>();
+        final OBoundedSortedBuffer<Integer> buffer = new OBoundedSortedBuffer<Integer>(20, NATURAL);
+
+        for (int i = 0; i < 10000; ++i) {
+            final int value = random.nextInt(500);
+            all.add(value);
+            buffer.add(value);
+        }
+
+        Collections.sort(all);
+        assertEquals(buffer.toSortedList(), all.subList(0, 20));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidCapacity() {
+        new OBoundedSortedBuffer<Integer>(0, NATURAL);
+    }
+}
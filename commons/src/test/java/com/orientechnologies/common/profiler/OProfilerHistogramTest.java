@@ -0,0 +1,75 @@
+package com.orientechnologies.common.profiler;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+public class OProfilerHistogramTest {
+
+	public void testPercentiles() {
+		final OProfilerHistogram histogram = new OProfilerHistogram();
+		for (int i = 1; i <= 100000; ++i)
+			histogram.record(i);
+
+		Assert.assertEquals(histogram.getItems(), 100000);
+		Assert.assertEquals(histogram.getTotal(), 100000L * 100001 / 2);
+		Assert.assertEquals(histogram.getMin(), 1);
+		Assert.assertEquals(histogram.getMax(), 100000);
+		Assert.assertEquals(histogram.getLast(), 100000);
+
+		assertApproximated(histogram.getPercentile(0.5), 50000);
+		assertApproximated(histogram.getPercentile(0.99), 99000);
+		assertApproximated(histogram.getPercentile(0.999), 99900);
+	}
+
+	public void testSmallValues() {
+		final OProfilerHistogram histogram = new OProfilerHistogram();
+		for (int i = 0; i < 10; ++i)
+			histogram.record(i);
+
+		Assert.assertEquals(histogram.getPercentile(0.5), 4);
+		Assert.assertEquals(histogram.getPercentile(1), 9);
+	}
+
+	public void testConcurrentUpdates() throws InterruptedException {
+		final OProfiler profiler = new OProfiler("true");
+
+		final Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; ++t) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 10000; ++i) {
+						final long timer = profiler.startChrono();
+						profiler.updateCounter("test.counter", 2);
+						profiler.stopChrono("test.chrono", timer);
+					}
+				}
+			};
+			threads[t].start();
+		}
+
+		for (Thread t : threads)
+			t.join();
+
+		Assert.assertEquals(profiler.getCounter("test.counter"), 160000);
+		Assert.assertEquals(profiler.getChrono("test.chrono").items, 80000);
+		Assert.assertTrue(profiler.getChrono("test.chrono").p99 >= profiler.getChrono("test.chrono").p50);
+	}
+
+	public void testNegativeStartTime() {
+		final OProfiler profiler = new OProfiler("false");
+		Assert.assertEquals(profiler.startChrono(), OProfiler.NOT_RECORDING);
+		Assert.assertEquals(profiler.stopChrono("test.chrono", OProfiler.NOT_RECORDING), 0);
+
+		// SYSTEM.NANOTIME() HAS AN ARBITRARY ORIGIN: THE START TIMES CAN BE NEGATIVE
+		profiler.startRecording();
+		profiler.stopChrono("test.chrono", -1);
+		Assert.assertNotNull(profiler.getChrono("test.chrono"));
+		Assert.assertEquals(profiler.getChrono("test.chrono").items, 1);
+	}
+
+	private void assertApproximated(final long iValue, final long iExpected) {
+		Assert.assertTrue(iValue >= iExpected && iValue <= iExpected * 1.125, "Value " + iValue + " expected ~" + iExpected);
+	}
+}
@@ -36,6 +36,7 @@ import com.orientechnologies.orient.core.db.ODatabaseLifecycleListener;
 import com.orientechnologies.orient.core.engine.OEngine;
 import com.orientechnologies.orient.core.engine.local.OEngineLocal;
 import com.orientechnologies.orient.core.engine.memory.OEngineMemory;
+import com.orientechnologies.orient.core.engine.memory.OEngineMemoryDirect;
 import com.orientechnologies.orient.core.exception.OConfigurationException;
 import com.orientechnologies.orient.core.memory.OMemoryWatchDog;
 import com.orientechnologies.orient.core.record.ORecordFactoryManager;
@@ -64,6 +65,7 @@ public class Orient extends OSharedResourceAbstract {
 		// REGISTER THE EMBEDDED ENGINE
 		registerEngine(new OEngineLocal());
 		registerEngine(new OEngineMemory());
+		registerEngine(new OEngineMemoryDirect());
 		registerEngine("com.orientechnologies.orient.client.remote.OEngineRemote");
 
 		if (OGlobalConfiguration.PROFILER_ENABLED.getValueAsBoolean())
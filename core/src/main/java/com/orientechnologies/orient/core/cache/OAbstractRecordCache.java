@@ -220,29 +220,7 @@ public abstract class OAbstractRecordCache extends OSharedResourceAbstract {
 	public void startup() {
 		watchDogListener = Orient.instance().getMemoryWatchDog().addListener(new Listener() {
 			public void memoryUsageLow(final long iFreeMemory, final long iFreeMemoryPercentage) {
-				acquireExclusiveLock();
-				try {
-					if (iFreeMemoryPercentage < 10) {
-						OLogManager.instance().debug(this, "Free memory is low (%d%%): clearing %d resources", iFreeMemoryPercentage,
-								entries.size());
-						entries.clear();
-					} else {
-						final int oldSize = entries.size();
-						if (oldSize == 0)
-							// UNACTIVE
-							return;
-
-						final int threshold = (int) (oldSize * 0.9f);
-
-						entries.removeEldestItems(threshold);
-						OLogManager.instance().debug(this, "Low memory (%d%%): auto reduce the record cache size from %d to %d",
-								iFreeMemoryPercentage, oldSize, threshold);
-					}
-				} catch (Exception e) {
-					OLogManager.instance().error(this, "Error while freeing resources", e);
-				} finally {
-					releaseExclusiveLock();
-				}
+				freeMemory(iFreeMemoryPercentage);
 			}
 		});
 
@@ -254,12 +232,7 @@ public abstract class OAbstractRecordCache extends OSharedResourceAbstract {
 
 		OProfiler.getInstance().registerHookValue(profilerPrefix + ".cache.current", new OProfilerHookValue() {
 			public Object getValue() {
-				acquireSharedLock();
-				try {
-					return entries.size();
-				} finally {
-					releaseSharedLock();
-				}
+				return getSize();
 			}
 		});
 
@@ -270,6 +243,36 @@ public abstract class OAbstractRecordCache extends OSharedResourceAbstract {
 		});
 	}
 
+	/**
+	 * Called by the memory watch dog when the free memory is low: removes the less used records, or all of them if the free memory
+	 * is under 10%.
+	 */
+	protected void freeMemory(final long iFreeMemoryPercentage) {
+		acquireExclusiveLock();
+		try {
+			if (iFreeMemoryPercentage < 10) {
+				OLogManager.instance().debug(this, "Free memory is low (%d%%): clearing %d resources", iFreeMemoryPercentage,
+						entries.size());
+				entries.clear();
+			} else {
+				final int oldSize = entries.size();
+				if (oldSize == 0)
+					// UNACTIVE
+					return;
+
+				final int threshold = (int) (oldSize * 0.9f);
+
+				entries.removeEldestItems(threshold);
+				OLogManager.instance().debug(this, "Low memory (%d%%): auto reduce the record cache size from %d to %d",
+						iFreeMemoryPercentage, oldSize, threshold);
+			}
+		} catch (Exception e) {
+			OLogManager.instance().error(this, "Error while freeing resources", e);
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
 	public int getExcludedCluster() {
 		return excludedCluster;
 	}
@@ -42,6 +42,16 @@ public class OLevel2RecordCache extends OAbstractRecordCache {
 		setStrategy(OGlobalConfiguration.CACHE_LEVEL2_STRATEGY.getValueAsInteger());
 	}
 
+	/**
+	 * Creates the level-2 cache of the storage using the implementation configured in <code>cache.level2.impl</code>.
+	 */
+	public static OLevel2RecordCache create(final OStorage iStorage) {
+		final String impl = OGlobalConfiguration.CACHE_LEVEL2_IMPL.getValueAsString();
+		if (OLevel2RecordCacheConcurrent.NAME.equalsIgnoreCase(impl))
+			return new OLevel2RecordCacheConcurrent(iStorage);
+		return new OLevel2RecordCache(iStorage);
+	}
+
 	/**
 	 * Moves records to the Level2 cache. Update only the records already present to avoid to put a non-updated record.
 	 * 
@@ -0,0 +1,423 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.cache;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.common.profiler.OProfiler.OProfilerHookValue;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+/**
+ * Level-2 cache split in segments by RID. Every segment has its own lock and evicts its less recently used records, so the database
+ * instances that share the storage don't contend a single lock for every cache hit. The size is bounded by the number of records
+ * and, optionally, by the memory estimated by their serialized size. Selected by setting <code>cache.level2.impl</code> to
+ * "concurrent".
+ *
+ * @author Luca Garulli
+ *
+ */
+public class OLevel2RecordCacheConcurrent extends OLevel2RecordCache {
+	public static final String	NAME						= "concurrent";
+
+	private static final int		SEGMENTS				= 16;
+	// ESTIMATED MEMORY USED BY THE RECORD INSTANCE AND THE CACHE ENTRY BESIDE THE CONTENT
+	private static final int		ENTRY_OVERHEAD	= 128;
+
+	private final OSegment[]		segments				= new OSegment[SEGMENTS];
+	private volatile int				maxSegmentSize;
+	private volatile long				maxSegmentMemory;
+
+	private final AtomicLong		hits						= new AtomicLong();
+	private final AtomicLong		misses					= new AtomicLong();
+	private final AtomicLong		evictions				= new AtomicLong();
+
+	private static class OSegment extends LinkedHashMap<ORID, OEntry> {
+		private static final long	serialVersionUID	= 1L;
+		private long							memory;
+
+		private OSegment() {
+			super(16, 0.75f, true);
+		}
+	}
+
+	private static class OEntry {
+		private final ORecordInternal<?>	record;
+		private final int									memory;
+
+		private OEntry(final ORecordInternal<?> iRecord) {
+			record = iRecord;
+			memory = iRecord.getSize() + ENTRY_OVERHEAD;
+		}
+	}
+
+	public OLevel2RecordCacheConcurrent(final OStorage iStorage) {
+		super(iStorage);
+
+		for (int i = 0; i < SEGMENTS; ++i)
+			segments[i] = new OSegment();
+
+		setMaxSize(maxSize);
+		setMaxMemory(OGlobalConfiguration.CACHE_LEVEL2_MAX_MEMORY.getValueAsLong());
+	}
+
+	@Override
+	public void setMaxSize(final int iMaxSize) {
+		super.setMaxSize(iMaxSize);
+		maxSegmentSize = iMaxSize > -1 ? (iMaxSize + SEGMENTS - 1) / SEGMENTS : -1;
+	}
+
+	/**
+	 * Sets the maximum memory in bytes used by the cached records. -1 means unlimited.
+	 */
+	public void setMaxMemory(final long iMaxMemory) {
+		maxSegmentMemory = iMaxMemory > -1 ? (iMaxMemory + SEGMENTS - 1) / SEGMENTS : -1;
+	}
+
+	@Override
+	public void setEnable(final boolean iValue) {
+		enabled = iValue;
+		if (!iValue)
+			clearSegments();
+	}
+
+	@Override
+	public void moveRecords(final Collection<ORecordInternal<?>> iValues) {
+		if (!enabled)
+			return;
+
+		for (ORecordInternal<?> record : iValues) {
+			if (record == null || record.isDirty() || record.getIdentity().isNew())
+				continue;
+
+			if (record.getIdentity().getClusterId() == excludedCluster)
+				continue;
+
+			final OSegment segment = getSegment(record.getIdentity());
+			synchronized (segment) {
+				if (record.isPinned()) {
+					final OEntry prevEntry = segment.get(record.getIdentity());
+					if (prevEntry != null && prevEntry.record.getVersion() >= record.getVersion())
+						// UPDATE ONLY RECORDS NOT PRESENT OR WITH VERSION HIGHER THAN CURRENT
+						continue;
+
+					record.detach();
+					put(segment, record.getIdentity(), record);
+
+				} else
+					remove(segment, record.getIdentity());
+			}
+		}
+	}
+
+	@Override
+	public void updateRecord(final ORecordInternal<?> iRecord) {
+		if (!enabled || iRecord == null || iRecord.isDirty() || iRecord.getIdentity().isNew())
+			// PRECONDITIONS
+			return;
+
+		if (iRecord.getIdentity().getClusterId() == excludedCluster)
+			return;
+
+		final OSegment segment = getSegment(iRecord.getIdentity());
+		synchronized (segment) {
+			if (iRecord.isPinned()) {
+				final OEntry prevEntry = segment.get(iRecord.getIdentity());
+				if (prevEntry != null && prevEntry.record.getVersion() >= iRecord.getVersion())
+					// TRY TO UPDATE AN OLD RECORD, DISCARD IT
+					return;
+
+				if ((!ODatabaseRecordThreadLocal.INSTANCE.check() || iRecord.getDatabase().isClosed())) {
+					// DB CLOSED: MAKE THE RECORD INSTANCE AS REUSABLE AFTER A DETACH
+					iRecord.detach();
+					put(segment, iRecord.getIdentity(), iRecord);
+				} else
+					// DB OPEN: SAVES A COPY TO AVOID CHANGES IF THE SAME RECORD INSTANCE IS USED AGAIN
+					put(segment, iRecord.getIdentity(), (ORecordInternal<?>) iRecord.flatCopy());
+			} else
+				remove(segment, iRecord.getIdentity());
+		}
+	}
+
+	@Override
+	protected ORecordInternal<?> retrieveRecord(final ORID iRID) {
+		if (!enabled)
+			// PRECONDITIONS
+			return null;
+
+		if (iRID.getClusterId() == excludedCluster)
+			return null;
+
+		final OSegment segment = getSegment(iRID);
+		synchronized (segment) {
+			final ORecordInternal<?> record = remove(segment, iRID);
+			if (record == null || record.isDirty()) {
+				// NULL OR DIRTY RECORD: IGNORE IT
+				misses.incrementAndGet();
+				return null;
+			}
+
+			hits.incrementAndGet();
+
+			if (getStrategy() == STRATEGY.COPY_RECORD)
+				// PUT BACK A CLONE (THIS UPDATE ALSO THE LRU)
+				put(segment, iRID, (ORecordInternal<?>) record.flatCopy());
+
+			return record;
+		}
+	}
+
+	@Override
+	public ORecordInternal<?> freeRecord(final ORID iRID) {
+		if (!enabled)
+			// PRECONDITIONS
+			return null;
+
+		final OSegment segment = getSegment(iRID);
+		synchronized (segment) {
+			return remove(segment, iRID);
+		}
+	}
+
+	@Override
+	public void freeCluster(final int clusterId) {
+		if (!enabled)
+			// PRECONDITIONS
+			return;
+
+		for (OSegment segment : segments)
+			synchronized (segment) {
+				for (Iterator<OEntry> it = segment.values().iterator(); it.hasNext();) {
+					final OEntry entry = it.next();
+					if (entry.record.getIdentity().getClusterId() == clusterId) {
+						segment.memory -= entry.memory;
+						it.remove();
+					}
+				}
+			}
+	}
+
+	@Override
+	public void removeRecords(final Collection<ORID> iRecords) {
+		if (!enabled)
+			// PRECONDITIONS
+			return;
+
+		for (ORID id : iRecords)
+			freeRecord(id);
+	}
+
+	@Override
+	public void deleteRecord(final ORID iRecord) {
+		freeRecord(iRecord);
+	}
+
+	@Override
+	public boolean existsRecord(final ORID iRID) {
+		if (!enabled)
+			// PRECONDITIONS
+			return false;
+
+		final OSegment segment = getSegment(iRID);
+		synchronized (segment) {
+			return segment.containsKey(iRID);
+		}
+	}
+
+	@Override
+	public void clear() {
+		if (!enabled)
+			// PRECONDITIONS
+			return;
+
+		clearSegments();
+	}
+
+	@Override
+	public int getSize() {
+		int size = 0;
+		for (OSegment segment : segments)
+			synchronized (segment) {
+				size += segment.size();
+			}
+		return size;
+	}
+
+	/**
+	 * Returns the memory in bytes used by the cached records, estimated by their serialized size.
+	 */
+	public long getMemory() {
+		long memory = 0;
+		for (OSegment segment : segments)
+			synchronized (segment) {
+				memory += segment.memory;
+			}
+		return memory;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	@Override
+	public void shutdown() {
+		clearSegments();
+		super.shutdown();
+	}
+
+	@Override
+	public void startup() {
+		super.startup();
+
+		OProfiler.getInstance().registerHookValue(profilerPrefix + ".cache.hits", new OProfilerHookValue() {
+			public Object getValue() {
+				return hits.get();
+			}
+		});
+
+		OProfiler.getInstance().registerHookValue(profilerPrefix + ".cache.misses", new OProfilerHookValue() {
+			public Object getValue() {
+				return misses.get();
+			}
+		});
+
+		OProfiler.getInstance().registerHookValue(profilerPrefix + ".cache.evictions", new OProfilerHookValue() {
+			public Object getValue() {
+				return evictions.get();
+			}
+		});
+
+		OProfiler.getInstance().registerHookValue(profilerPrefix + ".cache.memory", new OProfilerHookValue() {
+			public Object getValue() {
+				return getMemory();
+			}
+		});
+	}
+
+	@Override
+	protected void freeMemory(final long iFreeMemoryPercentage) {
+		if (iFreeMemoryPercentage < 10) {
+			OLogManager.instance().debug(this, "Free memory is low (%d%%): clearing %d resources", iFreeMemoryPercentage, getSize());
+			clearSegments();
+		} else {
+			final int oldSize = getSize();
+			if (oldSize == 0)
+				// UNACTIVE
+				return;
+
+			// REMOVE THE 10% OF THE LESS USED RECORDS FROM EVERY SEGMENT
+			for (OSegment segment : segments)
+				synchronized (segment) {
+					evict(segment, segment.size() - (int) (segment.size() * 0.9f));
+				}
+
+			OLogManager.instance().debug(this, "Low memory (%d%%): auto reduce the record cache size from %d to %d",
+					iFreeMemoryPercentage, oldSize, getSize());
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "STORAGE level2 concurrent cache records=" + getSize() + ", maxSize=" + maxSize + ", memory=" + getMemory();
+	}
+
+	private OSegment getSegment(final ORID iRID) {
+		// SPREAD THE HASH CODE TO USE ALSO THE HIGHER BITS
+		int h = iRID.hashCode();
+		h ^= (h >>> 20) ^ (h >>> 12);
+		h ^= (h >>> 7) ^ (h >>> 4);
+		return segments[h & (SEGMENTS - 1)];
+	}
+
+	/**
+	 * Puts the record in the segment and evicts the less used records if the segment is full. Must be called holding the segment's
+	 * lock.
+	 */
+	private void put(final OSegment iSegment, final ORID iRID, final ORecordInternal<?> iRecord) {
+		final OEntry entry = new OEntry(iRecord);
+		final OEntry prevEntry = iSegment.put(iRID, entry);
+		if (prevEntry != null)
+			iSegment.memory -= prevEntry.memory;
+		iSegment.memory += entry.memory;
+
+		// EVICT THE LESS RECENTLY USED RECORDS UNTIL BOTH SIZE AND MEMORY ARE UNDER THE THRESHOLDS
+		int evicted = 0;
+		for (Iterator<OEntry> it = iSegment.values().iterator(); it.hasNext() && isFull(iSegment);) {
+			iSegment.memory -= it.next().memory;
+			it.remove();
+			evicted++;
+		}
+
+		if (evicted > 0)
+			evictions.addAndGet(evicted);
+	}
+
+	private boolean isFull(final OSegment iSegment) {
+		return (maxSegmentSize > -1 && iSegment.size() > maxSegmentSize)
+				|| (maxSegmentMemory > -1 && iSegment.memory > maxSegmentMemory);
+	}
+
+	/**
+	 * Removes the record from the segment. Must be called holding the segment's lock.
+	 */
+	private ORecordInternal<?> remove(final OSegment iSegment, final ORID iRID) {
+		final OEntry entry = iSegment.remove(iRID);
+		if (entry == null)
+			return null;
+
+		iSegment.memory -= entry.memory;
+		return entry.record;
+	}
+
+	/**
+	 * Evicts the iCount less recently used records from the segment. Must be called holding the segment's lock.
+	 */
+	private void evict(final OSegment iSegment, final int iCount) {
+		int evicted = 0;
+		for (Iterator<OEntry> it = iSegment.values().iterator(); it.hasNext() && evicted < iCount;) {
+			iSegment.memory -= it.next().memory;
+			it.remove();
+			evicted++;
+		}
+
+		if (evicted > 0)
+			evictions.addAndGet(evicted);
+	}
+
+	private void clearSegments() {
+		for (OSegment segment : segments)
+			synchronized (segment) {
+				segment.clear();
+				segment.memory = 0;
+			}
+	}
+}
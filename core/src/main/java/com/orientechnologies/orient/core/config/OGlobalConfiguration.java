@@ -43,6 +43,10 @@ public enum OGlobalConfiguration {
 	MEMORY_OPTIMIZE_THRESHOLD("memory.optimizeThreshold", "Threshold for heap memory at which optimization of memory usage starts. ",
 			Float.class, 0.70),
 
+	MEMORY_DIRECT_SLAB_SIZE("memory.direct.slabSize",
+			"Size in bytes of the off-heap slabs allocated by the 'directmemory' storage engine to store the record contents",
+			Integer.class, 4194304),
+
 	// STORAGE
 	STORAGE_KEEP_OPEN(
 			"storage.keepOpen",
@@ -52,6 +56,13 @@ public enum OGlobalConfiguration {
 	STORAGE_RECORD_LOCK_TIMEOUT("storage.record.lockTimeout", "Maximum timeout in milliseconds to lock a shared record",
 			Integer.class, 5000),
 
+	STORAGE_COMPRESSION("storage.compression",
+			"Compression of the records of new physical clusters: 'none' or 'lzf'. Can be changed per cluster with ALTER CLUSTER",
+			String.class, "none"),
+
+	STORAGE_COMPRESSION_MIN_SIZE("storage.compression.minSize", "Minimum size in bytes of the records to compress", Integer.class,
+			128),
+
 	// CACHE
 	CACHE_LEVEL1_ENABLED("cache.level1.enabled", "Use the level-1 cache", Boolean.class, true),
 
@@ -61,6 +72,14 @@ public enum OGlobalConfiguration {
 
 	CACHE_LEVEL2_SIZE("cache.level2.size", "Size of the cache that keeps the record in memory", Integer.class, -1),
 
+	CACHE_LEVEL2_IMPL("cache.level2.impl",
+			"Implementation of the level-2 cache: 'default' uses one lock for the entire cache, 'concurrent' splits it in segments with own lock",
+			String.class, "default"),
+
+	CACHE_LEVEL2_MAX_MEMORY("cache.level2.maxMemory",
+			"Maximum memory in bytes used by the level-2 cache, estimated by the size of the records. Used only by the 'concurrent' implementation. -1 = unlimited",
+			Long.class, -1),
+
 	CACHE_LEVEL2_STRATEGY("cache.level2.strategy",
 			"Strategy to use when a database requests a record: 0 = pop the record, 1 = copy the record", Integer.class, 0,
 			new OConfigurationChangeCallback() {
@@ -79,6 +98,38 @@ public enum OGlobalConfiguration {
 
 	DB_VALIDATION("db.validation", "Enables or disables validation of records", Boolean.class, true),
 
+	INDEX_REBUILD_SORT_BUFFER("index.rebuild.sortBuffer",
+			"Number of index entries sorted in memory by the rebuild of an index. When exceeded the sorted entries are written in temporary files and merged at the end",
+			Integer.class, 200000),
+
+	INDEX_ONLINE_BUILD("index.onlineBuild",
+			"Builds and rebuilds the indexes without blocking the changes to the indexed records. The index is built aside and replaces the current one at the end",
+			Boolean.class, false),
+
+	DB_DOCUMENT_SERIALIZER("db.document.serializer",
+			"Format used to write the documents: 'csv' or 'binary'. Documents are read in both formats, so the existing ones are converted"
+					+ " the next time they are saved", String.class, "csv"),
+
+	// QUERY
+	QUERY_PARALLEL_SCAN_THREADS("query.parallelScan.threads",
+			"Number of threads used to browse clusters in parallel when a query cannot use indexes. 0 or 1 = disabled", Integer.class, 0),
+
+	QUERY_PARALLEL_SCAN_RANGE("query.parallelScan.rangeSize",
+			"Number of cluster positions browsed by each task of a parallel scan", Integer.class, 50000),
+
+	QUERY_SCAN_BULK("query.scan.bulk",
+			"Browse the clusters reading the storage in bulk and in physical order, without passing by the record caches, when a query"
+					+ " cannot use indexes. Faster on big scans, but the records cached by the database are not used", Boolean.class, false),
+
+	QUERY_SCAN_RANGE("query.scan.rangeSize", "Number of cluster positions read at once by the bulk scans", Integer.class, 10000),
+
+	QUERY_SCAN_BUFFER_SIZE("query.scan.bufferSize",
+			"Size in bytes of the buffer used by the bulk scans to read the data segments sequentially", Integer.class, 1048576),
+
+	QUERY_STATEMENT_CACHE_SIZE("query.statementCache.size",
+			"Number of parsed SQL SELECT statements kept to be reused by the next executions of the same text. 0 = disabled",
+			Integer.class, 100),
+
 	// TRANSACTIONS
 	TX_USE_LOG("tx.useLog", "Transactions use log file to store temporary data to be rolled back in case of crash", Boolean.class,
 			true),
@@ -90,7 +141,28 @@ public enum OGlobalConfiguration {
 			"Executes a synch against the file-system at every log entry. This slows down transactions but guarantee transaction reliability on unreliable drives",
 			Boolean.class, Boolean.FALSE),
 
-	TX_COMMIT_SYNCH("tx.commit.synch", "Synchronizes the storage after transaction commit", Boolean.class, false),
+	TX_LOG_CHECKPOINT_INTERVAL(
+			"tx.log.checkpointInterval",
+			"Interval in ms between the background checkpoints: the segments modified since the last checkpoint are synchronized and the transaction log is truncated. 0 = disabled",
+			Integer.class, 5000),
+
+	TX_LOG_CHECKPOINT_SIZE("tx.log.checkpointSize", "Size in bytes of the transaction log that forces a checkpoint at commit time",
+			Integer.class, 67108864),
+
+	TX_COMMIT_SYNCH("tx.commit.synch",
+			"Forces the transaction log to disk at every commit. The segments are synchronized by the checkpoints", Boolean.class,
+			false),
+
+	TX_COMMIT_GROUP(
+			"tx.commit.group",
+			"Forces the transaction log once for a group of concurrent transactions instead of once per transaction. Used only if tx.commit.synch is true",
+			Boolean.class, Boolean.FALSE),
+
+	TX_COMMIT_GROUP_MAX_SIZE("tx.commit.groupMaxSize", "Maximum number of transactions synchronized together by the group commit",
+			Integer.class, 64),
+
+	TX_COMMIT_GROUP_MAX_WAIT("tx.commit.groupMaxWait",
+			"Maximum time in ms the group commit waits for other running transactions before synchronizing the storage", Integer.class, 5),
 
 	// GRAPH
 	BLUEPRINTS_TX_MODE("blueprints.graph.txMode",
@@ -125,6 +197,14 @@ public enum OGlobalConfiguration {
 	MVRBTREE_ENTRY_VALUES_IN_MEMORY("mvrbtree.entryValuesInMemory", "Keep unserialized values in memory", Boolean.class,
 			Boolean.FALSE),
 
+	MVRBTREE_CONCURRENT_LOOKUPS("mvrbtree.concurrentLookups",
+			"Execute the lookups by key against indexes with a shared lock, so multiple threads can search at the same time",
+			Boolean.class, Boolean.TRUE),
+
+	MVRBTREE_CURSOR_PREFETCH("mvrbtree.cursorPrefetch",
+			"Number of keys fetched at every access to the index by the cursors. The index is unlocked between the fetches", Integer.class,
+			256),
+
 	// TREEMAP OF RIDS
 	MVRBTREE_RID_BINARY_THRESHOLD(
 			"mvrbtree.ridBinaryThreshold",
@@ -137,6 +217,18 @@ public enum OGlobalConfiguration {
 	MVRBTREE_RID_NODE_SAVE_MEMORY("mvrbtree.ridNodeSaveMemory",
 			"Save memory usage by avoid keeping RIDs in memory but creating them at every access", Boolean.class, Boolean.FALSE),
 
+	// HASH INDEXES
+	HASHTABLE_BUCKET_SIZE("hashTable.bucketSize",
+			"Entries of each bucket of the hash indexes. When a bucket is full it's split in two", Integer.class, 128),
+
+	HASHTABLE_CACHED_BUCKETS("hashTable.cachedBuckets",
+			"Number of buckets of each hash index kept in memory. The least recently used ones are unloaded when exceeded",
+			Integer.class, 2000),
+
+	HASHTABLE_LAZY_UPDATES("hashTable.lazyUpdates",
+			"Configure the hash indexes as buffered or not. -1 means buffered until tx.commit() or db.close() are called",
+			Integer.class, 20000),
+
 	// COLLECTIONS
 	LAZYSET_WORK_ON_STREAM("lazyset.workOnStream", "Upon add avoid unmarshalling set", Boolean.class, true),
 
@@ -206,6 +298,12 @@ public enum OGlobalConfiguration {
 	NETWORK_SOCKET_RETRY_DELAY("network.retryDelay", "Number of ms the client waits before reconnecting to the server on failure",
 			Integer.class, 500),
 
+	NETWORK_NIO_SELECTORS("network.nio.selectors",
+			"Number of threads of a NIO listener that wait for the requests of all its connections", Integer.class, 2),
+
+	NETWORK_NIO_WORKERS("network.nio.workers", "Maximum number of threads of a NIO listener that execute the requests",
+			Integer.class, 32),
+
 	NETWORK_BINARY_DNS_LOADBALANCING_ENABLED("network.binary.loadBalancing.enabled",
 			"Asks for DNS TXT record to determine if load balancing is supported", Boolean.class, Boolean.FALSE),
 
@@ -222,6 +320,12 @@ public enum OGlobalConfiguration {
 
 	NETWORK_HTTP_CONTENT_CHARSET("network.http.charset", "Http response charset", String.class, "utf-8"),
 
+	NETWORK_HTTP_CHUNK_SIZE("network.http.chunkSize", "Size in bytes of the chunks used to stream the records of HTTP responses",
+			Integer.class, 8192),
+
+	NETWORK_HTTP_GZIP("network.http.gzip", "Compress the streamed HTTP responses with gzip when the client accepts it",
+			Boolean.class, true),
+
 	NETWORK_HTTP_SESSION_EXPIRE_TIMEOUT("network.http.sessionExpireTimeout",
 			"Timeout after which an http session is considered tp have expired (seconds)", Integer.class, 300),
 
@@ -34,7 +34,7 @@ import com.orientechnologies.orient.core.storage.OStorage;
 public class OStorageConfiguration implements OSerializableStream {
 	public static final ORecordId							CONFIG_RID			= new ORecordId(0, 0);
 
-	public static final int										CURRENT_VERSION	= 2;
+	public static final int										CURRENT_VERSION	= 3;
 
 	public int																version					= -1;
 	public String															name;
@@ -170,6 +170,11 @@ public class OStorageConfiguration implements OSerializableStream {
 				index = phySegmentFromStream(values, index, phyCluster);
 				phyCluster.holeFile = new OStorageClusterHoleConfiguration(phyCluster, read(values[index++]), read(values[index++]),
 						read(values[index++]));
+
+				// @COMPATIBILTY
+				if (version > 2)
+					phyCluster.compression = read(values[index++]);
+
 				currentCluster = phyCluster;
 			} else if (clusterType.equals("l"))
 				// LOGICAL CLUSTER
@@ -249,6 +254,7 @@ public class OStorageConfiguration implements OSerializableStream {
 				write(buffer, "p");
 				phySegmentToStream(buffer, (OStoragePhysicalClusterConfiguration) c);
 				fileToStream(buffer, ((OStoragePhysicalClusterConfiguration) c).holeFile);
+				write(buffer, ((OStoragePhysicalClusterConfiguration) c).compression);
 			} else if (c instanceof OStorageLogicalClusterConfiguration) {
 				// LOGICAL
 				write(buffer, "l");
@@ -18,6 +18,7 @@ package com.orientechnologies.orient.core.config;
 public class OStoragePhysicalClusterConfiguration extends OStorageSegmentConfiguration implements OStorageClusterConfiguration {
 
 	public OStorageFileConfiguration	holeFile;
+	public String											compression	= "none";
 
 	private static final String				START_SIZE	= "1Mb";
 
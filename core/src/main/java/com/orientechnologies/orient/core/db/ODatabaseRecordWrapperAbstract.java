@@ -15,6 +15,7 @@
  */
 package com.orientechnologies.orient.core.db;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -197,6 +198,10 @@ public abstract class ODatabaseRecordWrapperAbstract<DB extends ODatabaseRecord>
 		return (RET) underlying.load(iRecord);
 	}
 
+	public List<ORecordInternal<?>> loadAll(final Collection<? extends OIdentifiable> iRecords, final String iFetchPlan) {
+		return underlying.loadAll(iRecords, iFetchPlan);
+	}
+
 	public <RET extends ORecordInternal<?>> RET load(final ORecordInternal<?> iRecord, final String iFetchPlan) {
 		return (RET) underlying.load(iRecord, iFetchPlan);
 	}
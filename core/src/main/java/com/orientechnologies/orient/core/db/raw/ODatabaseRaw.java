@@ -215,6 +215,20 @@ public class ODatabaseRaw implements ODatabase {
 		}
 	}
 
+	public ORawBuffer[] read(final ORecordId[] iRids, final String iFetchPlan) {
+		OFetchHelper.checkFetchPlanValid(iFetchPlan);
+
+		try {
+			return storage.readRecords(iRids, iFetchPlan);
+
+		} catch (OException e) {
+			// PASS THROUGH
+			throw e;
+		} catch (Throwable t) {
+			throw new ODatabaseException("Error on retrieving " + iRids.length + " records", t);
+		}
+	}
+
 	public long save(final ORecordId iRid, final byte[] iContent, final int iVersion, final byte iRecordType) {
 		// CHECK IF RECORD TYPE IS SUPPORTED
 		Orient.instance().getRecordFactoryManager().getRecordTypeClass(iRecordType);
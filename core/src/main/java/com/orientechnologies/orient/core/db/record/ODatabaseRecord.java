@@ -15,6 +15,9 @@
  */
 package com.orientechnologies.orient.core.db.record;
 
+import java.util.Collection;
+import java.util.List;
+
 import com.orientechnologies.orient.core.db.ODatabaseComplex;
 import com.orientechnologies.orient.core.iterator.ORecordIteratorCluster;
 import com.orientechnologies.orient.core.record.ORecordInternal;
@@ -55,6 +58,18 @@ public interface ODatabaseRecord extends ODatabaseComplex<ORecordInternal<?>> {
 	 */
 	public <RET extends ORecordInternal<?>> RET getRecord(OIdentifiable iIdentifiable);
 
+	/**
+	 * Loads a batch of records. The records not found in the current transaction or in the level1 cache are read from the storage
+	 * with one call, that is a single request in client/server mode, and are put in the level1 cache.
+	 * 
+	 * @param iRecords
+	 *          Identities of the records to load
+	 * @param iFetchPlan
+	 *          Fetch plan used to load the records
+	 * @return The records in the same order of the identities, with null in place of the records not found
+	 */
+	public List<ORecordInternal<?>> loadAll(Collection<? extends OIdentifiable> iRecords, String iFetchPlan);
+
 	/**
 	 * Returns the default record type for this kind of database.
 	 */
@@ -15,11 +15,15 @@
  */
 package com.orientechnologies.orient.core.db.record;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 import com.orientechnologies.common.exception.OException;
@@ -125,6 +129,38 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
 		return (DB) this;
 	}
 
+	/**
+	 * Opens the database for a user already authenticated by another instance against the same embedded storage. An instance can't be
+	 * used by multiple threads at the same time, so the internal worker threads open their own instances in this way.
+	 */
+	public <DB extends ODatabase> DB open(final OUser iUser) {
+		setCurrentDatabaseinThreadLocal();
+
+		try {
+			super.open(iUser != null ? iUser.getName() : null, null);
+			level1Cache.startup();
+
+			metadata = new OMetadata();
+			metadata.load();
+
+			recordFormat = DEF_RECORD_FORMAT;
+
+			if (!(getStorage() instanceof OStorageEmbedded))
+				throw new ODatabaseException("Only embedded databases can be opened for an already authenticated user");
+
+			user = iUser;
+			registerHook(new OUserTrigger());
+			registerHook(new OClassIndexManager());
+		} catch (OException e) {
+			close();
+			throw e;
+		} catch (Exception e) {
+			close();
+			throw new ODatabaseException("Cannot open database", e);
+		}
+		return (DB) this;
+	}
+
 	@Override
 	public <DB extends ODatabase> DB create() {
 		setCurrentDatabaseinThreadLocal();
@@ -495,6 +531,88 @@ public abstract class ODatabaseRecordAbstract extends ODatabaseWrapperAbstract<O
 		return null;
 	}
 
+	public List<ORecordInternal<?>> loadAll(final Collection<? extends OIdentifiable> iRecords, final String iFetchPlan) {
+		checkOpeness();
+		OFetchHelper.checkFetchPlanValid(iFetchPlan);
+
+		final List<ORecordInternal<?>> result = new ArrayList<ORecordInternal<?>>(iRecords.size());
+
+		// POSITIONS IN THE RESULT OF THE RECORDS TO READ FROM THE STORAGE
+		final Map<ORecordId, List<Integer>> toRead = new HashMap<ORecordId, List<Integer>>();
+
+		try {
+			for (OIdentifiable id : iRecords) {
+				ORecordInternal<?> record = null;
+
+				final ORecordId rid = id != null ? (ORecordId) id.getIdentity() : null;
+				if (rid != null && rid.isValid() && !rid.isNew()) {
+					checkSecurity(ODatabaseSecurityResources.CLUSTER, ORole.PERMISSION_READ, getClusterNameById(rid.getClusterId()));
+
+					// SEARCH IN LOCAL TX AND THEN INTO THE CACHE
+					record = getTransaction().getRecord(rid);
+					if (record == null)
+						record = getLevel1Cache().findRecord(rid);
+
+					if (record != null) {
+						callbackHooks(TYPE.BEFORE_READ, record);
+
+						if (record.getInternalStatus() == ORecordElement.STATUS.NOT_LOADED)
+							record.reload();
+
+						callbackHooks(TYPE.AFTER_READ, record);
+					} else {
+						List<Integer> positions = toRead.get(rid);
+						if (positions == null) {
+							positions = new ArrayList<Integer>(1);
+							toRead.put(rid, positions);
+						}
+						positions.add(result.size());
+					}
+				}
+
+				result.add(record);
+			}
+
+			if (toRead.isEmpty())
+				return result;
+
+			final ORecordId[] rids = toRead.keySet().toArray(new ORecordId[toRead.size()]);
+			final ORawBuffer[] buffers = underlying.read(rids, iFetchPlan);
+
+			for (int i = 0; i < rids.length; ++i) {
+				if (buffers[i] == null)
+					// NOT FOUND
+					continue;
+
+				final ORecordInternal<?> record = Orient.instance().getRecordFactoryManager().newInstance(buffers[i].recordType);
+				record.fill(new ORecordId(rids[i]), buffers[i].version, buffers[i].buffer, false);
+
+				callbackHooks(TYPE.BEFORE_READ, record);
+
+				record.fromStream(buffers[i].buffer);
+				record.setInternalStatus(ORecordElement.STATUS.LOADED);
+
+				callbackHooks(TYPE.AFTER_READ, record);
+
+				getLevel1Cache().updateRecord(record);
+
+				for (int pos : toRead.get(rids[i]))
+					result.set(pos, record);
+			}
+
+			return result;
+
+		} catch (OException e) {
+			// RE-THROW THE EXCEPTION
+			throw e;
+
+		} catch (Exception e) {
+			// WRAP IT AS ODATABASE EXCEPTION
+			OLogManager.instance().exception("Error on retrieving " + iRecords.size() + " records", e, ODatabaseException.class);
+		}
+		return null;
+	}
+
 	public void executeSaveRecord(final ORecordInternal<?> iRecord, String iClusterName, final int iVersion, final byte iRecordType) {
 		checkOpeness();
 
@@ -20,12 +20,12 @@ import java.util.List;
 import java.util.Map.Entry;
 import java.util.concurrent.Callable;
 
+import com.orientechnologies.common.concur.resource.OSharedResource;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.db.ODatabaseListener;
 import com.orientechnologies.orient.core.exception.OTransactionException;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.index.OIndex;
-import com.orientechnologies.orient.core.index.OIndexMVRBTreeAbstract;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.storage.OStorageEmbedded;
@@ -232,15 +232,17 @@ public class ODatabaseRecordTx extends ODatabaseRecordAbstract {
 		else {
 			final List<String> involvedIndexes = currentTx.getInvolvedIndexes();
 
+			final OStorageEmbedded storage = (OStorageEmbedded) getStorage();
+			storage.beginCommit();
+
 			// LOCK INVOLVED INDEXES
-			List<OIndexMVRBTreeAbstract<?>> lockedIndexes = null;
+			List<OSharedResource> lockedIndexes = null;
 			try {
 				if (involvedIndexes != null)
 					for (String indexName : involvedIndexes) {
-						final OIndexMVRBTreeAbstract<?> index = (OIndexMVRBTreeAbstract<?>) getMetadata().getIndexManager().getIndexInternal(
-								indexName);
+						final OSharedResource index = (OSharedResource) getMetadata().getIndexManager().getIndexInternal(indexName);
 						if (lockedIndexes == null)
-							lockedIndexes = new ArrayList<OIndexMVRBTreeAbstract<?>>();
+							lockedIndexes = new ArrayList<OSharedResource>();
 
 						index.acquireExclusiveLock();
 						lockedIndexes.add(index);
@@ -268,9 +270,11 @@ public class ODatabaseRecordTx extends ODatabaseRecordAbstract {
 				// RELEASE INDEX LOCKS IF ANY
 				if (lockedIndexes != null)
 					// DON'T USE GENERICS TO AVOID OpenJDK CRASH :-(
-					for (OIndexMVRBTreeAbstract index : lockedIndexes) {
+					for (OSharedResource index : lockedIndexes) {
 						index.releaseExclusiveLock();
 					}
+
+				storage.endCommit();
 			}
 		}
 	}
@@ -15,6 +15,7 @@
  */
 package com.orientechnologies.orient.core.db.record;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -22,6 +23,7 @@ import java.util.List;
 import com.orientechnologies.common.collection.OLazyIterator;
 import com.orientechnologies.common.collection.OLazyIteratorListWrapper;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.record.ORecordMultiValueHelper.MULTIVALUE_CONTENT_TYPE;
 import com.orientechnologies.orient.core.exception.ORecordNotFoundException;
 import com.orientechnologies.orient.core.id.ORID;
@@ -266,6 +268,9 @@ public class ORecordLazyList extends ORecordTrackedList implements ORecordLazyMu
 			// PRECONDITIONS
 			return;
 
+		if (!ridOnly)
+			loadLinks();
+
 		for (int i = 0; i < size(); ++i) {
 			try {
 				convertLink2Record(i);
@@ -298,6 +303,37 @@ public class ORecordLazyList extends ORecordTrackedList implements ORecordLazyMu
 		return allConverted;
 	}
 
+	/**
+	 * Loads all the linked records with one call instead of one by one. The records not found are left as links to let the
+	 * conversion item by item handle them as usual.
+	 */
+	private void loadLinks() {
+		final List<Integer> positions = new ArrayList<Integer>();
+		final List<ORecordId> rids = new ArrayList<ORecordId>();
+		for (int i = 0; i < super.size(); ++i) {
+			final OIdentifiable o = super.get(i);
+			if (o instanceof ORecordId && !((ORecordId) o).isNew()) {
+				positions.add(i);
+				rids.add((ORecordId) o);
+			}
+		}
+
+		if (rids.size() < 2)
+			// NOTHING TO GAIN
+			return;
+
+		final List<ORecordInternal<?>> records = ODatabaseRecordThreadLocal.INSTANCE.get().loadAll(rids, null);
+
+		marshalling = true;
+		try {
+			for (int i = 0; i < records.size(); ++i)
+				if (records.get(i) != null)
+					super.set(positions.get(i), records.get(i));
+		} finally {
+			marshalling = false;
+		}
+	}
+
 	/**
 	 * Convert the item requested from link to record.
 	 * 
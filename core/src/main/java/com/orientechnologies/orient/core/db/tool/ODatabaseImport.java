@@ -35,7 +35,9 @@ import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.exception.OConfigurationException;
 import com.orientechnologies.orient.core.exception.OSchemaException;
 import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.hook.ORecordHook;
 import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.OClassIndexManager;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
@@ -89,6 +91,7 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
 	}
 
 	public ODatabaseImport importDatabase() {
+		final List<ORecordHook> indexHooks = new ArrayList<ORecordHook>();
 		try {
 			listener.onMessage("\nStarted import of database '" + database.getURL() + "' from " + fileName + "...");
 
@@ -103,6 +106,13 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
 
 			database.setStatus(STATUS.IMPORTING);
 
+			// DON'T UPDATE THE INDEXES RECORD BY RECORD: THEY ARE REBUILT IN BULK AT THE END
+			for (ORecordHook hook : new ArrayList<ORecordHook>(database.getHooks()))
+				if (hook instanceof OClassIndexManager) {
+					database.unregisterHook(hook);
+					indexHooks.add(hook);
+				}
+
 			String tag;
 			while (jsonReader.hasNext() && jsonReader.lastChar() != '}') {
 				tag = jsonReader.readString(OJSONReader.FIELD_ASSIGNMENT);
@@ -119,6 +129,9 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
 
 			deleteHoleRecords();
 
+			restoreIndexHooks(indexHooks);
+			rebuildIndexes();
+
 			database.setStatus(STATUS.OPEN);
 
 			listener.onMessage("\n\nDatabase import completed in " + ((System.currentTimeMillis() - time)) + " ms");
@@ -129,12 +142,43 @@ public class ODatabaseImport extends ODatabaseImpExpAbstract {
 			e.printStackTrace();
 			throw new ODatabaseExportException("Error on importing database '" + database.getName() + "' from file: " + fileName, e);
 		} finally {
+			restoreIndexHooks(indexHooks);
 			close();
 		}
 
 		return this;
 	}
 
+	private void restoreIndexHooks(final List<ORecordHook> iHooks) {
+		for (ORecordHook hook : iHooks)
+			database.registerHook(hook);
+		iHooks.clear();
+	}
+
+	/**
+	 * Rebuilds the automatic indexes once all the records are imported. This is much faster than updating them at every record and
+	 * the trees are rewritten with full nodes.
+	 */
+	private void rebuildIndexes() {
+		listener.onMessage("\nRebuilding indexes...");
+
+		// RELOAD THE INDEX DEFINITIONS JUST IMPORTED
+		database.getMetadata().getIndexManager().load();
+
+		int rebuilt = 0;
+		for (OIndex<?> index : database.getMetadata().getIndexManager().getIndexes()) {
+			if (!index.isAutomatic())
+				continue;
+
+			listener.onMessage("\n- Index '" + index.getName() + "'...");
+			final long indexed = index.rebuild();
+			listener.onMessage("OK (" + indexed + " records)");
+			++rebuilt;
+		}
+
+		listener.onMessage("\nDone. Rebuilt " + rebuilt + " indexes");
+	}
+
 	/**
 	 * Delete all the temporary records created to fill the holes and to mantain the same record ID
 	 */
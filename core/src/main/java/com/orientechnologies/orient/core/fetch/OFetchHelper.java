@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Map;
 
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.db.record.ORecordLazyMultiValue;
 import com.orientechnologies.orient.core.exception.ORecordNotFoundException;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.record.impl.ODocument;
@@ -112,6 +113,10 @@ public class OFetchHelper {
 					}
 
 				} else if (fieldValue instanceof Collection<?>) {
+					if (fieldValue instanceof ORecordLazyMultiValue)
+						// LOAD ALL THE LINKED RECORDS WITH ONE CALL INSTEAD OF ONE BY ONE WHILE BROWSING THEM
+						((ORecordLazyMultiValue) fieldValue).convertLinks2Records();
+
 					final Collection<ODocument> linked = (Collection<ODocument>) fieldValue;
 					userObject = iListener.fetchLinked(iRootRecord, iUserObject, fieldName, linked);
 					if (userObject != null)
@@ -126,6 +126,26 @@ public interface OIndex<T> {
   public Collection<OIdentifiable> getValuesBetween(Object iRangeFrom, boolean iFromInclusive,
                                                     Object iRangeTo, boolean iToInclusive, int maxValuesToFetch);
 
+	/**
+	 * Returns a cursor to browse the entries with key between the range passed as parameter. The entries are fetched lazily while
+	 * browsing, so big ranges don't need to be loaded in memory.
+	 * <p/>
+	 * In case of {@link com.orientechnologies.common.collection.OCompositeKey}s partial keys can be used as range boundaries.
+	 * 
+	 * @param iRangeFrom
+	 *          Starting range, or null to start from the first key
+	 * @param iFromInclusive
+	 *          Indicates whether start range boundary is included in result.
+	 * @param iRangeTo
+	 *          Ending range, or null to end to the last key
+	 * @param iToInclusive
+	 *          Indicates whether end range boundary is included in result.
+	 * @param iAscending
+	 *          true to browse the keys in ascending order, false in descending order
+	 * @return The cursor positioned before the first entry of the range
+	 */
+	public OIndexCursor cursor(Object iRangeFrom, boolean iFromInclusive, Object iRangeTo, boolean iToInclusive, boolean iAscending);
+
 	/**
 	 * Returns a set of records with keys greater than passed parameter.
 	 * 
@@ -224,6 +244,11 @@ public interface OIndex<T> {
 	 */
 	public long rebuild(final OProgressListener iProgressListener);
 
+	/**
+	 * Tells if the index is being built online. In this case its content could be incomplete and the queries must not use it.
+	 */
+	public boolean isRebuilding();
+
 	public ODocument getConfiguration();
 
 	public ORID getIdentity();
@@ -110,6 +110,11 @@ public class OIndexAbstractDelegate<T> implements OIndex<T> {
 		return delegate.getValuesMajor(fromKey, isInclusive);
 	}
 
+	public OIndexCursor cursor(final Object iRangeFrom, final boolean iFromInclusive, final Object iRangeTo,
+			final boolean iToInclusive, final boolean iAscending) {
+		return delegate.cursor(iRangeFrom, iFromInclusive, iRangeTo, iToInclusive, iAscending);
+	}
+
 	public Collection<ODocument> getEntriesMajor(final Object fromKey, final boolean isInclusive) {
 		return delegate.getEntriesMajor(fromKey, isInclusive);
 	}
@@ -146,6 +151,10 @@ public class OIndexAbstractDelegate<T> implements OIndex<T> {
 		return delegate.isAutomatic();
 	}
 
+	public boolean isRebuilding() {
+		return delegate.isRebuilding();
+	}
+
 	public ODocument getConfiguration() {
 		return delegate.getConfiguration();
 	}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+
+/**
+ * Browses the entries of an index in key order without loading the whole range in memory. Every entry is a pair key/record: keys
+ * with multiple values are returned once per value. The entries are fetched lazily, so the browsing can be stopped at any time at
+ * no cost.
+ * 
+ * @author Luca Garulli
+ * @see OIndex#cursor(Object, boolean, Object, boolean, boolean)
+ */
+public interface OIndexCursor extends Iterator<Entry<Object, OIdentifiable>>, Iterable<Entry<Object, OIdentifiable>> {
+	/**
+	 * Returns the key of the last entry returned by {@link #next()}, or null if the browsing is not started. Can be used to resume
+	 * the browsing later by opening a new cursor from it, excluding it.
+	 */
+	public Object getLastKey();
+}
@@ -16,6 +16,7 @@
 package com.orientechnologies.orient.core.index;
 
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.tx.OTransactionIndexChanges.OPERATION;
 
 /**
  * Dictionary index similar to unique index but does not check for updates, just executes changes. Last put always wins and override
@@ -33,6 +34,7 @@ public class OIndexDictionary extends OIndexOneValue {
 		acquireExclusiveLock();
 		try {
 			checkForKeyType(iKey);
+			logChange(OPERATION.PUT, iKey, iSingleValue);
 
 			final OIdentifiable value = map.get(iKey);
 
@@ -0,0 +1,223 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import com.orientechnologies.common.collection.OSimpleImmutableEntry;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializer;
+
+/**
+ * Sorts the entries to put in an index by key with bounded memory. The entries are collected in a buffer that, once full, is sorted
+ * and written in a temporary file (a run). At the end the runs are merged. Putting the entries in key order fills the nodes of the
+ * tree and avoids the rebalancing caused by random insertions.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OIndexEntrySorter {
+	private final OStreamSerializer								keySerializer;
+	private final int															bufferSize;
+	private final List<Entry<Object, ORID>>				buffer;
+	private final List<File>											runs				= new ArrayList<File>();
+	private final List<DataInputStream>						openedRuns	= new ArrayList<DataInputStream>();
+	private long																	entries;
+
+	private static final Comparator<Entry<Object, ORID>>	COMPARATOR	= new Comparator<Entry<Object, ORID>>() {
+																																@SuppressWarnings("unchecked")
+																																public int compare(final Entry<Object, ORID> o1,
+																																		final Entry<Object, ORID> o2) {
+																																	final int cmp = ((Comparable<Object>) o1.getKey())
+																																			.compareTo(o2.getKey());
+																																	return cmp != 0 ? cmp : o1.getValue().compareTo(
+																																			o2.getValue());
+																																}
+																															};
+
+	/**
+	 * @param iKeySerializer
+	 *          Serializer used to write the keys in the temporary files
+	 * @param iBufferSize
+	 *          Maximum number of entries kept in memory
+	 */
+	public OIndexEntrySorter(final OStreamSerializer iKeySerializer, final int iBufferSize) {
+		keySerializer = iKeySerializer;
+		bufferSize = Math.max(1, iBufferSize);
+		buffer = new ArrayList<Entry<Object, ORID>>(Math.min(bufferSize, 65536));
+	}
+
+	public void add(final Object iKey, final ORID iRID) throws IOException {
+		buffer.add(new OSimpleImmutableEntry<Object, ORID>(iKey, iRID));
+		entries++;
+
+		if (buffer.size() >= bufferSize)
+			writeRun();
+	}
+
+	public long getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Returns the entries sorted by key and RID. Call {@link #close()} at the end to remove the temporary files.
+	 */
+	public Iterator<Entry<Object, ORID>> iterator() throws IOException {
+		Collections.sort(buffer, COMPARATOR);
+
+		if (runs.isEmpty())
+			// ALL IN MEMORY
+			return buffer.iterator();
+
+		// MERGE THE RUNS AND THE LAST BUFFER
+		final PriorityQueue<ORunCursor> queue = new PriorityQueue<ORunCursor>(runs.size() + 1, new Comparator<ORunCursor>() {
+			public int compare(final ORunCursor o1, final ORunCursor o2) {
+				return COMPARATOR.compare(o1.current, o2.current);
+			}
+		});
+
+		for (File run : runs) {
+			final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), 65536));
+			openedRuns.add(in);
+			final ORunCursor cursor = new ORunCursor(in, null);
+			if (cursor.next())
+				queue.add(cursor);
+		}
+
+		final ORunCursor memoryCursor = new ORunCursor(null, buffer.iterator());
+		if (memoryCursor.next())
+			queue.add(memoryCursor);
+
+		return new Iterator<Entry<Object, ORID>>() {
+			public boolean hasNext() {
+				return !queue.isEmpty();
+			}
+
+			public Entry<Object, ORID> next() {
+				final ORunCursor cursor = queue.poll();
+				if (cursor == null)
+					throw new NoSuchElementException();
+
+				final Entry<Object, ORID> result = cursor.current;
+				try {
+					if (cursor.next())
+						queue.add(cursor);
+				} catch (IOException e) {
+					throw new OIndexException("Error on reading the sorted index entries", e);
+				}
+				return result;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException("remove");
+			}
+		};
+	}
+
+	/**
+	 * Frees the memory and deletes the temporary files.
+	 */
+	public void close() {
+		buffer.clear();
+
+		for (DataInputStream in : openedRuns)
+			try {
+				in.close();
+			} catch (IOException e) {
+			}
+		openedRuns.clear();
+
+		for (File run : runs)
+			if (!run.delete())
+				OLogManager.instance().warn(this, "Cannot delete the temporary file %s", run);
+		runs.clear();
+	}
+
+	private void writeRun() throws IOException {
+		Collections.sort(buffer, COMPARATOR);
+
+		final File run = File.createTempFile("orient-index-", ".sort");
+		runs.add(run);
+
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), 65536));
+		try {
+			for (Entry<Object, ORID> entry : buffer) {
+				final byte[] key = keySerializer.toStream(entry.getKey());
+				out.writeInt(key.length);
+				out.write(key);
+				out.writeShort(entry.getValue().getClusterId());
+				out.writeLong(entry.getValue().getClusterPosition());
+			}
+		} finally {
+			out.close();
+		}
+
+		buffer.clear();
+	}
+
+	/**
+	 * Current entry of a run, read from a temporary file or from the memory buffer.
+	 */
+	private class ORunCursor {
+		private final DataInputStream									in;
+		private final Iterator<Entry<Object, ORID>>	memory;
+		private Entry<Object, ORID>										current;
+
+		public ORunCursor(final DataInputStream iInput, final Iterator<Entry<Object, ORID>> iMemory) {
+			in = iInput;
+			memory = iMemory;
+		}
+
+		public boolean next() throws IOException {
+			if (memory != null) {
+				current = memory.hasNext() ? memory.next() : null;
+				return current != null;
+			}
+
+			final int keySize;
+			try {
+				keySize = in.readInt();
+			} catch (EOFException e) {
+				current = null;
+				return false;
+			}
+
+			final byte[] key = new byte[keySize];
+			in.readFully(key);
+			final ORecordId rid = new ORecordId(in.readShort(), in.readLong());
+			current = new OSimpleImmutableEntry<Object, ORID>(keySerializer.fromStream(key), rid);
+			return true;
+		}
+	}
+}
@@ -24,6 +24,7 @@ import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ORecordElement;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.core.tx.OTransactionIndexChanges.OPERATION;
 import com.orientechnologies.orient.core.type.tree.OMVRBTreeRIDSet;
 
 /**
@@ -81,6 +82,13 @@ public class OIndexFullText extends OIndexMultiValues {
 		if (iKey == null)
 			return this;
 
+		acquireExclusiveLock();
+		try {
+			logChange(OPERATION.PUT, iKey, iSingleValue);
+		} finally {
+			releaseExclusiveLock();
+		}
+
 		final List<String> words = splitIntoWords(iKey.toString());
 
 		// FOREACH WORD CREATE THE LINK TO THE CURRENT DOCUMENT
@@ -122,6 +130,13 @@ public class OIndexFullText extends OIndexMultiValues {
 	 */
 	@Override
 	public boolean remove(final Object iKey, final OIdentifiable value) {
+		acquireExclusiveLock();
+		try {
+			logChange(OPERATION.REMOVE, iKey, value);
+		} finally {
+			releaseExclusiveLock();
+		}
+
 		final List<String> words = splitIntoWords(iKey.toString());
 		boolean removed = false;
 
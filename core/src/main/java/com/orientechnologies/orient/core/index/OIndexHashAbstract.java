@@ -0,0 +1,832 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.orientechnologies.common.collection.OCompositeKey;
+import com.orientechnologies.common.collection.OSimpleImmutableEntry;
+import com.orientechnologies.common.concur.resource.OSharedResourceAdaptiveExternal;
+import com.orientechnologies.common.listener.OProgressListener;
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.common.profiler.OProfiler.OProfilerHookValue;
+import com.orientechnologies.orient.core.annotation.ODocumentInstance;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabase;
+import com.orientechnologies.orient.core.db.ODatabaseListener;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.db.record.ORecordElement;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerStringAbstract;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OCompositeKeySerializer;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerLiteral;
+import com.orientechnologies.orient.core.tx.OTransactionIndexChanges.OPERATION;
+import com.orientechnologies.orient.core.type.hash.OHashTableDatabase;
+
+/**
+ * Index based on a persistent hash table. Lookups by key cost a bucket access regardless of the index size, but the keys are not
+ * ordered: the range queries and the cursors scan the whole table, so the SQL engine doesn't use these indexes for them. Use the
+ * indexes based on the OMVRB-Tree for the range queries.
+ *
+ * @author Luca Garulli
+ *
+ * @see OHashTableDatabase
+ */
+public abstract class OIndexHashAbstract<T> extends OSharedResourceAdaptiveExternal implements OIndexInternal<T>,
+		ODatabaseListener {
+	protected static final String				CONFIG_MAP_RID	= "mapRid";
+	protected static final String				CONFIG_CLUSTERS	= "clusters";
+	protected String										name;
+	protected String										type;
+	protected OHashTableDatabase<Object, T>	map;
+	protected Set<String>								clustersToIndex	= new LinkedHashSet<String>();
+	protected OIndexDefinition					indexDefinition;
+
+	@ODocumentInstance
+	protected ODocument									configuration;
+
+	public OIndexHashAbstract(final String iType) {
+		super(true, OGlobalConfiguration.MVRBTREE_TIMEOUT.getValueAsInteger());
+		type = iType;
+	}
+
+	public void flush() {
+		lazySave();
+	}
+
+	/**
+	 * Creates the index.
+	 *
+	 * @param iDatabase
+	 *          Current Database instance
+	 * @param iClusterIndexName
+	 *          Cluster name where to place the hash table
+	 * @param iProgressListener
+	 */
+	public OIndexInternal<?> create(final String iName, final OIndexDefinition iIndexDefinition, final ODatabaseRecord iDatabase,
+			final String iClusterIndexName, final int[] iClusterIdsToIndex, final OProgressListener iProgressListener,
+			final OStreamSerializer iValueSerializer) {
+		acquireExclusiveLock();
+		try {
+
+			name = iName;
+			configuration = new ODocument(iDatabase);
+
+			indexDefinition = iIndexDefinition;
+
+			if (iClusterIdsToIndex != null)
+				for (final int id : iClusterIdsToIndex)
+					clustersToIndex.add(iDatabase.getClusterNameById(id));
+
+			final OStreamSerializer keySerializer;
+			if (indexDefinition instanceof OCompositeIndexDefinition)
+				keySerializer = OCompositeKeySerializer.INSTANCE;
+			else
+				keySerializer = OStreamSerializerLiteral.INSTANCE;
+
+			map = new OHashTableDatabase<Object, T>(iDatabase, iClusterIndexName, keySerializer, iValueSerializer);
+
+			installHooks(iDatabase);
+
+			rebuild(iProgressListener);
+			updateConfiguration();
+		} catch (Exception e) {
+			if (map != null)
+				map.delete();
+			if (e instanceof OIndexException)
+				throw (OIndexException) e;
+
+			throw new OIndexException("Cannot create the index '" + iName + "'", e);
+
+		} finally {
+			releaseExclusiveLock();
+		}
+		return this;
+	}
+
+	public OIndexInternal<T> loadFromConfiguration(final ODocument iConfig) {
+		acquireExclusiveLock();
+		try {
+
+			final ORID rid = (ORID) iConfig.field(CONFIG_MAP_RID, ORID.class);
+			if (rid == null)
+				return null;
+
+			configuration = iConfig;
+			name = configuration.field(OIndexInternal.CONFIG_NAME);
+
+			final ODocument indexDefinitionDoc = configuration.field(OIndexInternal.INDEX_DEFINITION);
+			if (indexDefinitionDoc != null) {
+				try {
+					final String indexDefClassName = configuration.field(OIndexInternal.INDEX_DEFINITION_CLASS);
+					final Class<?> indexDefClass = Class.forName(indexDefClassName);
+					indexDefinition = (OIndexDefinition) indexDefClass.getDeclaredConstructor().newInstance();
+					indexDefinition.fromStream(indexDefinitionDoc);
+
+				} catch (final ClassNotFoundException e) {
+					throw new OIndexException("Error during deserialization of index definition", e);
+				} catch (final NoSuchMethodException e) {
+					throw new OIndexException("Error during deserialization of index definition", e);
+				} catch (final InvocationTargetException e) {
+					throw new OIndexException("Error during deserialization of index definition", e);
+				} catch (final InstantiationException e) {
+					throw new OIndexException("Error during deserialization of index definition", e);
+				} catch (final IllegalAccessException e) {
+					throw new OIndexException("Error during deserialization of index definition", e);
+				}
+			}
+
+			clustersToIndex.clear();
+
+			final Collection<? extends String> clusters = configuration.field(CONFIG_CLUSTERS);
+			if (clusters != null)
+				clustersToIndex.addAll(clusters);
+
+			map = new OHashTableDatabase<Object, T>(getDatabase(), rid);
+			map.load();
+
+			installHooks(iConfig.getDatabase());
+
+			return this;
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	public boolean contains(final Object iKey) {
+		return lookup(iKey) != null;
+	}
+
+	/**
+	 * Returns the value associated to a key. The hash table is searched under the shared lock of the index, while the table
+	 * synchronizes the access to the buckets kept in memory.
+	 */
+	protected T lookup(final Object iKey) {
+		acquireSharedLock();
+		try {
+
+			return map.get(iKey);
+
+		} finally {
+			releaseSharedLock();
+		}
+	}
+
+	public Collection<OIdentifiable> getValues(final Collection<?> iKeys) {
+		return getValues(iKeys, -1);
+	}
+
+	public Collection<ODocument> getEntries(final Collection<?> iKeys) {
+		return getEntries(iKeys, -1);
+	}
+
+	public Collection<OIdentifiable> getValuesBetween(final Object iRangeFrom, final Object iRangeTo) {
+		return getValuesBetween(iRangeFrom, true, iRangeTo, true, -1);
+	}
+
+	public Collection<OIdentifiable> getValuesBetween(final Object iRangeFrom, final boolean iFromInclusive, final Object iRangeTo,
+			final boolean iToInclusive) {
+		return getValuesBetween(iRangeFrom, iFromInclusive, iRangeTo, iToInclusive, -1);
+	}
+
+	public Collection<OIdentifiable> getValuesBetween(final Object iRangeFrom, final boolean iFromInclusive, final Object iRangeTo,
+			final boolean iToInclusive, final int maxValuesToFetch) {
+		final List<OIdentifiable> result = new ArrayList<OIdentifiable>();
+		for (final Entry<Object, OIdentifiable> entry : getRange(iRangeFrom, iFromInclusive, iRangeTo, iToInclusive, maxValuesToFetch))
+			result.add(entry.getValue());
+		return result;
+	}
+
+	public OIndexCursor cursor(final Object iRangeFrom, final boolean iFromInclusive, final Object iRangeTo,
+			final boolean iToInclusive, final boolean iAscending) {
+		final List<Entry<Object, OIdentifiable>> entries = getRange(iRangeFrom, iFromInclusive, iRangeTo, iToInclusive, -1);
+		if (!iAscending)
+			Collections.reverse(entries);
+		return new OIndexHashCursor(entries.iterator());
+	}
+
+	public Collection<OIdentifiable> getValuesMajor(final Object fromKey, final boolean isInclusive) {
+		return getValuesBetween(fromKey, isInclusive, null, true, -1);
+	}
+
+	public Collection<OIdentifiable> getValuesMajor(final Object fromKey, final boolean isInclusive, final int maxValuesToFetch) {
+		return getValuesBetween(fromKey, isInclusive, null, true, maxValuesToFetch);
+	}
+
+	public Collection<OIdentifiable> getValuesMinor(final Object toKey, final boolean isInclusive) {
+		return getValuesBetween(null, true, toKey, isInclusive, -1);
+	}
+
+	public Collection<OIdentifiable> getValuesMinor(final Object toKey, final boolean isInclusive, final int maxValuesToFetch) {
+		return getValuesBetween(null, true, toKey, isInclusive, maxValuesToFetch);
+	}
+
+	public Collection<ODocument> getEntriesMajor(final Object fromKey, final boolean isInclusive) {
+		return getEntriesBetween(fromKey, isInclusive, null, true, -1);
+	}
+
+	public Collection<ODocument> getEntriesMajor(final Object fromKey, final boolean isInclusive, final int maxEntriesToFetch) {
+		return getEntriesBetween(fromKey, isInclusive, null, true, maxEntriesToFetch);
+	}
+
+	public Collection<ODocument> getEntriesMinor(final Object toKey, final boolean isInclusive) {
+		return getEntriesBetween(null, true, toKey, isInclusive, -1);
+	}
+
+	public Collection<ODocument> getEntriesMinor(final Object toKey, final boolean isInclusive, final int maxEntriesToFetch) {
+		return getEntriesBetween(null, true, toKey, isInclusive, maxEntriesToFetch);
+	}
+
+	public Collection<ODocument> getEntriesBetween(final Object iRangeFrom, final Object iRangeTo) {
+		return getEntriesBetween(iRangeFrom, true, iRangeTo, true, -1);
+	}
+
+	public Collection<ODocument> getEntriesBetween(final Object iRangeFrom, final Object iRangeTo, final boolean iInclusive) {
+		return getEntriesBetween(iRangeFrom, iInclusive, iRangeTo, iInclusive, -1);
+	}
+
+	public Collection<ODocument> getEntriesBetween(final Object iRangeFrom, final Object iRangeTo, final boolean iInclusive,
+			final int maxEntriesToFetch) {
+		return getEntriesBetween(iRangeFrom, iInclusive, iRangeTo, iInclusive, maxEntriesToFetch);
+	}
+
+	public ORID getIdentity() {
+		return map.getRecord().getIdentity();
+	}
+
+	public long rebuild() {
+		return rebuild(null);
+	}
+
+	/**
+	 * Populates the index with all the existent records. Uses the massive insert intent to speed up and keep the consumed memory low.
+	 * The hash table doesn't need the entries sorted, so the records are indexed as they are browsed.
+	 */
+	public long rebuild(final OProgressListener iProgressListener) {
+		clear();
+
+		long documentIndexed = 0;
+
+		final boolean intentInstalled = getDatabase().declareIntent(new OIntentMassiveInsert());
+
+		acquireExclusiveLock();
+		try {
+
+			int documentNum = 0;
+			long documentTotal = 0;
+
+			for (final String cluster : clustersToIndex)
+				documentTotal += getDatabase().countClusterElements(cluster);
+
+			if (iProgressListener != null)
+				iProgressListener.onBegin(this, documentTotal);
+
+			for (final String clusterName : clustersToIndex)
+				for (final ORecord<?> record : getDatabase().browseCluster(clusterName)) {
+					if (record instanceof ODocument) {
+						final ODocument doc = (ODocument) record;
+						final Object fieldValue = indexDefinition.getDocumentValueToIndex(doc);
+
+						if (fieldValue != null) {
+							if (fieldValue instanceof Collection) {
+								for (final Object fieldValueItem : (Collection<?>) fieldValue) {
+									if (fieldValueItem != null)
+										put(fieldValueItem, doc);
+								}
+							} else
+								put(fieldValue, doc);
+
+							++documentIndexed;
+						}
+					}
+					documentNum++;
+
+					if (iProgressListener != null)
+						iProgressListener.onProgress(this, documentNum, documentNum * 100f / documentTotal);
+				}
+
+			lazySave();
+
+			if (iProgressListener != null)
+				iProgressListener.onCompletition(this, true);
+
+		} catch (final Exception e) {
+			if (iProgressListener != null)
+				iProgressListener.onCompletition(this, false);
+
+			clear();
+
+			throw new OIndexException("Error on rebuilding the index for clusters: " + clustersToIndex, e);
+
+		} finally {
+			if (intentInstalled)
+				getDatabase().declareIntent(null);
+
+			releaseExclusiveLock();
+		}
+
+		return documentIndexed;
+	}
+
+	/**
+	 * The hash indexes are always built blocking the changes.
+	 */
+	public boolean isRebuilding() {
+		return false;
+	}
+
+	public boolean remove(final Object iKey, final OIdentifiable iValue) {
+
+		acquireExclusiveLock();
+		try {
+
+			return map.remove(iKey);
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	public boolean remove(final Object key) {
+
+		acquireExclusiveLock();
+		try {
+
+			return map.remove(key);
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	public OIndex<T> clear() {
+
+		acquireExclusiveLock();
+		try {
+
+			map.clear();
+			return this;
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	public OIndexInternal<T> delete() {
+
+		acquireExclusiveLock();
+
+		try {
+			map.delete();
+			return this;
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	public OIndexInternal<T> lazySave() {
+
+		acquireExclusiveLock();
+		try {
+
+			map.lazySave();
+			return this;
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	public ORecord<?> getRecord() {
+		return map.getRecord();
+	}
+
+	public Iterator<Entry<Object, T>> iterator() {
+		return map.entryIterator();
+	}
+
+	public Iterable<Object> keys() {
+		return map.keySet();
+	}
+
+	public long getSize() {
+
+		acquireSharedLock();
+		try {
+
+			return map.size();
+
+		} finally {
+			releaseSharedLock();
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	@Override
+	public String toString() {
+		return name + " (" + (type != null ? type : "?") + ")" + (map != null ? " " + map : "");
+	}
+
+	public OIndexInternal<T> getInternal() {
+		return this;
+	}
+
+	public Set<String> getClusters() {
+
+		acquireSharedLock();
+		try {
+
+			return Collections.unmodifiableSet(clustersToIndex);
+
+		} finally {
+			releaseSharedLock();
+		}
+	}
+
+	public OIndexHashAbstract<T> addCluster(final String iClusterName) {
+
+		acquireExclusiveLock();
+		try {
+
+			clustersToIndex.add(iClusterName);
+			return this;
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	public void checkEntry(final OIdentifiable iRecord, final Object iKey) {
+	}
+
+	public void unload() {
+
+		acquireExclusiveLock();
+		try {
+
+			map.unload();
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	public ODocument updateConfiguration() {
+
+		acquireExclusiveLock();
+		try {
+
+			configuration.setInternalStatus(ORecordElement.STATUS.UNMARSHALLING);
+
+			try {
+				configuration.field(OIndexInternal.CONFIG_TYPE, type);
+				configuration.field(OIndexInternal.CONFIG_NAME, name);
+
+				if (indexDefinition != null) {
+					final ODocument indexDefDocument = indexDefinition.toStream();
+					if (!indexDefDocument.hasOwners())
+						indexDefDocument.addOwner(configuration);
+
+					configuration.field(OIndexInternal.INDEX_DEFINITION, indexDefDocument, OType.EMBEDDED);
+					configuration.field(OIndexInternal.INDEX_DEFINITION_CLASS, indexDefinition.getClass().getName());
+				} else {
+					configuration.removeField(OIndexInternal.INDEX_DEFINITION);
+					configuration.removeField(OIndexInternal.INDEX_DEFINITION_CLASS);
+				}
+
+				configuration.field(CONFIG_CLUSTERS, clustersToIndex, OType.EMBEDDEDSET);
+				configuration.field(CONFIG_MAP_RID, map.getRecord().getIdentity());
+
+			} finally {
+				configuration.setInternalStatus(ORecordElement.STATUS.LOADED);
+			}
+
+		} finally {
+			releaseExclusiveLock();
+		}
+		return configuration;
+	}
+
+	@SuppressWarnings("unchecked")
+	public void commit(final ODocument iDocument) {
+		if (iDocument == null)
+			return;
+
+		acquireExclusiveLock();
+		try {
+			map.setRunningTransaction(true);
+
+			final Boolean clearAll = (Boolean) iDocument.field("clear");
+			if (clearAll != null && clearAll)
+				clear();
+
+			final Collection<ODocument> entries = iDocument.field("entries");
+
+			for (final ODocument entry : entries) {
+				final String serializedKey = OStringSerializerHelper.decode((String) entry.field("k"));
+
+				final Object key;
+				if (serializedKey.startsWith("["))
+					key = new OCompositeKey((List<? extends Comparable<?>>) ORecordSerializerStringAbstract.fieldTypeFromStream(iDocument,
+							OType.EMBEDDEDLIST, OStringSerializerHelper.decode(serializedKey)));
+				else
+					key = ORecordSerializerStringAbstract.getTypeValue(serializedKey);
+
+				final List<ODocument> operations = (List<ODocument>) entry.field("ops");
+				if (operations != null) {
+					for (final ODocument op : operations) {
+						final int operation = (Integer) op.rawField("o");
+						final OIdentifiable value = op.field("v", OType.LINK);
+
+						if (operation == OPERATION.PUT.ordinal())
+							put(key, value);
+						else if (operation == OPERATION.REMOVE.ordinal()) {
+							if (key.equals("*"))
+								remove(value);
+							else if (value == null)
+								remove(key);
+							else
+								remove(key, value);
+						}
+					}
+				}
+			}
+
+		} finally {
+			releaseExclusiveLock();
+			map.setRunningTransaction(false);
+		}
+	}
+
+	public ODocument getConfiguration() {
+		return configuration;
+	}
+
+	public boolean isAutomatic() {
+		return indexDefinition != null && indexDefinition.getClassName() != null;
+	}
+
+	protected void installHooks(final ODatabaseRecord iDatabase) {
+		OProfiler.getInstance().registerHookValue("index." + name + ".items", new OProfilerHookValue() {
+			public Object getValue() {
+				return map != null ? map.size() : "-";
+			}
+		});
+
+		OProfiler.getInstance().registerHookValue("index." + name + ".depth", new OProfilerHookValue() {
+			public Object getValue() {
+				return map != null ? map.getDepth() : "-";
+			}
+		});
+
+		OProfiler.getInstance().registerHookValue("index." + name + ".bucketsInCache", new OProfilerHookValue() {
+			public Object getValue() {
+				return map != null ? map.getNumberOfBucketsInCache() : "-";
+			}
+		});
+
+		iDatabase.registerListener(this);
+	}
+
+	protected void uninstallHooks(final ODatabaseRecord iDatabase) {
+		OProfiler.getInstance().unregisterHookValue("index." + name + ".items");
+		OProfiler.getInstance().unregisterHookValue("index." + name + ".depth");
+		OProfiler.getInstance().unregisterHookValue("index." + name + ".bucketsInCache");
+		iDatabase.unregisterListener(this);
+	}
+
+	public void onCreate(final ODatabase iDatabase) {
+	}
+
+	public void onDelete(final ODatabase iDatabase) {
+	}
+
+	public void onOpen(final ODatabase iDatabase) {
+	}
+
+	public void onBeforeTxBegin(final ODatabase iDatabase) {
+	}
+
+	public void onBeforeTxRollback(final ODatabase iDatabase) {
+	}
+
+	public void onAfterTxRollback(final ODatabase iDatabase) {
+	}
+
+	public void onBeforeTxCommit(final ODatabase iDatabase) {
+		acquireExclusiveLock();
+		try {
+
+			map.commitChanges();
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	public void onAfterTxCommit(final ODatabase iDatabase) {
+	}
+
+	public void onClose(final ODatabase iDatabase) {
+		acquireExclusiveLock();
+		try {
+
+			map.commitChanges();
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	protected void checkForKeyType(final Object iKey) {
+		if (indexDefinition == null) {
+			// RECOGNIZE THE KEY TYPE AT RUN-TIME
+
+			final OType type = OType.getTypeByClass(iKey.getClass());
+			if (type == null)
+				return;
+
+			indexDefinition = new OSimpleKeyIndexDefinition(type);
+
+			updateConfiguration();
+		}
+	}
+
+	protected ODatabaseRecord getDatabase() {
+		return ODatabaseRecordThreadLocal.INSTANCE.get();
+	}
+
+	public OType[] getKeyTypes() {
+		if (indexDefinition == null)
+			return null;
+
+		return indexDefinition.getTypes();
+	}
+
+	public OIndexDefinition getDefinition() {
+		return indexDefinition;
+	}
+
+	@Override
+	public boolean equals(final Object o) {
+		if (this == o)
+			return true;
+		if (o == null || getClass() != o.getClass())
+			return false;
+
+		final OIndexHashAbstract<?> that = (OIndexHashAbstract<?>) o;
+
+		if (!name.equals(that.name))
+			return false;
+
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		return name.hashCode();
+	}
+
+	private Collection<ODocument> getEntriesBetween(final Object iRangeFrom, final boolean iFromInclusive, final Object iRangeTo,
+			final boolean iToInclusive, final int maxEntriesToFetch) {
+		final List<ODocument> result = new ArrayList<ODocument>();
+		for (final Entry<Object, OIdentifiable> entry : getRange(iRangeFrom, iFromInclusive, iRangeTo, iToInclusive, maxEntriesToFetch)) {
+			final ODocument document = new ODocument();
+			document.field("key", entry.getKey());
+			document.field("rid", entry.getValue().getIdentity());
+			document.unsetDirty();
+			result.add(document);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the pairs key/record of the range sorted by key. The keys are not ordered in the hash table, so the whole table is
+	 * scanned: the SQL engine never uses the hash indexes for ranges.
+	 *
+	 * @param iRangeFrom
+	 *          Lower bound, null to start from the first key
+	 * @param iRangeTo
+	 *          Upper bound, null to end with the last key
+	 * @param iMaxEntries
+	 *          Maximum number of pairs to return, -1 for all
+	 */
+	@SuppressWarnings("unchecked")
+	protected List<Entry<Object, OIdentifiable>> getRange(final Object iRangeFrom, final boolean iFromInclusive, final Object iRangeTo,
+			final boolean iToInclusive, final int iMaxEntries) {
+		final TreeMap<Object, T> range = new TreeMap<Object, T>();
+
+		acquireSharedLock();
+		try {
+
+			for (final Iterator<Entry<Object, T>> it = map.entryIterator(); it.hasNext();) {
+				final Entry<Object, T> entry = it.next();
+				if (entry.getValue() == null)
+					continue;
+
+				if (iRangeFrom != null) {
+					final int compare = ((Comparable<Object>) entry.getKey()).compareTo(iRangeFrom);
+					if (compare < 0 || compare == 0 && !iFromInclusive)
+						continue;
+				}
+
+				if (iRangeTo != null) {
+					final int compare = ((Comparable<Object>) entry.getKey()).compareTo(iRangeTo);
+					if (compare > 0 || compare == 0 && !iToInclusive)
+						continue;
+				}
+
+				range.put(entry.getKey(), entry.getValue());
+			}
+
+		} finally {
+			releaseSharedLock();
+		}
+
+		final List<Entry<Object, OIdentifiable>> result = new ArrayList<Entry<Object, OIdentifiable>>();
+		for (final Entry<Object, T> entry : range.entrySet()) {
+			final Collection<OIdentifiable> values = entry.getValue() instanceof Collection<?> ? (Collection<OIdentifiable>) entry
+					.getValue() : Collections.singleton((OIdentifiable) entry.getValue());
+
+			for (final OIdentifiable value : values) {
+				if (iMaxEntries > -1 && result.size() == iMaxEntries)
+					return result;
+				result.add(new OSimpleImmutableEntry<Object, OIdentifiable>(entry.getKey(), value));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Browses the pairs key/record already collected by {@link OIndexHashAbstract#getRange(Object, boolean, Object, boolean, int)}.
+	 */
+	private static class OIndexHashCursor implements OIndexCursor {
+		private final Iterator<Entry<Object, OIdentifiable>>	entries;
+		private Object																	lastKey;
+
+		private OIndexHashCursor(final Iterator<Entry<Object, OIdentifiable>> iEntries) {
+			entries = iEntries;
+		}
+
+		public boolean hasNext() {
+			return entries.hasNext();
+		}
+
+		public Entry<Object, OIdentifiable> next() {
+			final Entry<Object, OIdentifiable> entry = entries.next();
+			lastKey = entry.getKey();
+			return entry;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException("remove");
+		}
+
+		public Iterator<Entry<Object, OIdentifiable>> iterator() {
+			return this;
+		}
+
+		public Object getLastKey() {
+			return lastKey;
+		}
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.orientechnologies.common.listener.OProgressListener;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerListRID;
+import com.orientechnologies.orient.core.type.tree.OMVRBTreeRIDSet;
+
+/**
+ * Hash index implementation that allows multiple values for the same key.
+ *
+ * @author Luca Garulli
+ *
+ */
+public class OIndexHashNotUnique extends OIndexHashAbstract<Set<OIdentifiable>> {
+	public OIndexHashNotUnique() {
+		super("NOTUNIQUE_HASH");
+	}
+
+	public Set<OIdentifiable> get(final Object iKey) {
+		final Set<OIdentifiable> values = lookup(iKey);
+
+		if (values == null)
+			return Collections.emptySet();
+
+		return values;
+	}
+
+	public OIndexHashNotUnique put(final Object iKey, final OIdentifiable iSingleValue) {
+
+		acquireExclusiveLock();
+		try {
+
+			checkForKeyType(iKey);
+
+			Set<OIdentifiable> values = map.get(iKey);
+
+			if (values == null)
+				values = new OMVRBTreeRIDSet().setAutoConvert(false);
+
+			if (!iSingleValue.getIdentity().isValid())
+				((ORecord<?>) iSingleValue).save();
+
+			values.add(iSingleValue);
+
+			map.put(iKey, values);
+			return this;
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	@Override
+	public boolean remove(final Object iKey, final OIdentifiable iValue) {
+
+		acquireExclusiveLock();
+		try {
+
+			final Set<OIdentifiable> recs = get(iKey);
+			if (recs.remove(iValue)) {
+				if (recs.isEmpty())
+					map.remove(iKey);
+				else
+					map.put(iKey, recs);
+				return true;
+			}
+			return false;
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	public int remove(final OIdentifiable iRecord) {
+
+		acquireExclusiveLock();
+		try {
+
+			// COLLECT THE KEYS FIRST, SINCE THE ENTRIES ARE READ ONE BUCKET AT A TIME
+			final List<Object> keys = new ArrayList<Object>();
+			for (final Iterator<Entry<Object, Set<OIdentifiable>>> it = map.entryIterator(); it.hasNext();) {
+				final Entry<Object, Set<OIdentifiable>> entry = it.next();
+				if (entry.getValue() != null && entry.getValue().contains(iRecord))
+					keys.add(entry.getKey());
+			}
+
+			for (final Object key : keys)
+				remove(key, iRecord);
+
+			return keys.size();
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	public int count(final OIdentifiable iRecord) {
+
+		acquireExclusiveLock();
+		try {
+
+			int tot = 0;
+			for (final Iterator<Entry<Object, Set<OIdentifiable>>> it = map.entryIterator(); it.hasNext();) {
+				final Set<OIdentifiable> rids = it.next().getValue();
+				if (rids != null && rids.contains(iRecord))
+					++tot;
+			}
+
+			return tot;
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	public OIndexHashNotUnique create(final String iName, final OIndexDefinition indexDefinition, final ODatabaseRecord iDatabase,
+			final String iClusterIndexName, final int[] iClusterIdsToIndex, final OProgressListener iProgressListener) {
+		return (OIndexHashNotUnique) super.create(iName, indexDefinition, iDatabase, iClusterIndexName, iClusterIdsToIndex,
+				iProgressListener, OStreamSerializerListRID.INSTANCE);
+	}
+
+	public Collection<OIdentifiable> getValues(final Collection<?> iKeys, final int maxValuesToFetch) {
+		acquireSharedLock();
+		try {
+
+			final Set<OIdentifiable> result = new HashSet<OIdentifiable>();
+			for (final Object key : iKeys) {
+				final Set<OIdentifiable> values = map.get(key);
+				if (values == null)
+					continue;
+
+				for (final OIdentifiable value : values) {
+					if (maxValuesToFetch > -1 && maxValuesToFetch == result.size())
+						return result;
+
+					result.add(value);
+				}
+			}
+
+			return result;
+		} finally {
+			releaseSharedLock();
+		}
+	}
+
+	public Collection<ODocument> getEntries(final Collection<?> iKeys, final int maxEntriesToFetch) {
+		acquireSharedLock();
+		try {
+
+			final Set<ODocument> result = new ODocumentFieldsHashSet();
+			for (final Object key : iKeys) {
+				final Set<OIdentifiable> values = map.get(key);
+				if (values == null)
+					continue;
+
+				for (final OIdentifiable value : values) {
+					if (maxEntriesToFetch > -1 && maxEntriesToFetch == result.size())
+						return result;
+
+					final ODocument document = new ODocument();
+					document.field("key", key);
+					document.field("rid", value.getIdentity());
+					document.unsetDirty();
+
+					result.add(document);
+				}
+			}
+
+			return result;
+		} finally {
+			releaseSharedLock();
+		}
+	}
+}
@@ -15,17 +15,26 @@
  */
 package com.orientechnologies.orient.core.index;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import com.orientechnologies.common.collection.OCompositeKey;
+import com.orientechnologies.common.collection.OMVRBTree;
+import com.orientechnologies.common.collection.OMVRBTreeEntry;
+import com.orientechnologies.common.collection.OSimpleImmutableEntry;
 import com.orientechnologies.common.concur.resource.OSharedResourceAdaptiveExternal;
 import com.orientechnologies.common.listener.OProgressListener;
 import com.orientechnologies.common.log.OLogManager;
@@ -41,6 +50,7 @@ import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ORecordElement;
 import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
 import com.orientechnologies.orient.core.memory.OMemoryWatchDog.Listener;
 import com.orientechnologies.orient.core.metadata.schema.OType;
@@ -53,6 +63,7 @@ import com.orientechnologies.orient.core.serialization.serializer.stream.OStream
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerLiteral;
 import com.orientechnologies.orient.core.tx.OTransactionIndexChanges.OPERATION;
 import com.orientechnologies.orient.core.type.tree.OMVRBTreeDatabaseLazySave;
+import com.orientechnologies.orient.core.type.tree.provider.OMVRBTreeMapProvider;
 import com.orientechnologies.orient.core.type.tree.provider.OMVRBTreeProviderAbstract;
 
 /**
@@ -75,6 +86,11 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
 	protected ODocument															configuration;
 	private final Listener													watchDog;
 
+	private static final int												ONLINE_BUILD_BATCH	= 1000;
+	private volatile boolean												rebuilding;
+	private List<OIndexChange>											rebuildChanges;
+	private Map<ORID, Set<Object>>									rebuildChangedEntries;
+
 	public OIndexMVRBTreeAbstract(final String iType) {
 		super(true, OGlobalConfiguration.MVRBTREE_TIMEOUT.getValueAsInteger());
 
@@ -124,7 +140,11 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
 
 			installHooks(iDatabase);
 
-			rebuild(iProgressListener);
+			if (OGlobalConfiguration.INDEX_ONLINE_BUILD.getValueAsBoolean() && isAutomatic())
+				// THE INDEX MANAGER BUILDS THE INDEX ONCE REGISTERED, SO THE CHANGES MADE IN THE MEANTIME ARE LOGGED
+				rebuilding = true;
+			else
+				rebuild(iProgressListener);
 			updateConfiguration();
 		} catch (Exception e) {
 			if (map != null)
@@ -218,11 +238,32 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
 	}
 
 	public boolean contains(final Object iKey) {
+		return lookup(iKey) != null;
+	}
+
+	/**
+	 * Returns the value associated to a key. The tree is searched under the shared lock, so lookups executed by multiple threads don't
+	 * block each other. If concurrent lookups are disabled or if the tree has to free memory, the search is executed under the
+	 * exclusive lock.
+	 * 
+	 * @see OGlobalConfiguration#MVRBTREE_CONCURRENT_LOOKUPS
+	 */
+	protected T lookup(final Object iKey) {
+		if (OGlobalConfiguration.MVRBTREE_CONCURRENT_LOOKUPS.getValueAsBoolean() && map.getOptimization() == 0) {
+			acquireSharedLock();
+			try {
+
+				return map.getConcurrent(iKey);
+
+			} finally {
+				releaseSharedLock();
+			}
+		}
 
 		acquireExclusiveLock();
 		try {
 
-			return map.containsKey(iKey);
+			return map.get(iKey);
 
 		} finally {
 			releaseExclusiveLock();
@@ -297,6 +338,17 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
 		return getValuesBetween(iRangeFrom, iFromInclusive, iRangeTo, iToInclusive, -1);
 	}
 
+	/**
+	 * Returns a cursor that fetches the entries of the range in blocks of <code>mvrbtree.cursorPrefetch</code> keys. The lock of the
+	 * index is held only while a block is fetched, then the next block is searched starting from the last key read.
+	 * 
+	 * @see OGlobalConfiguration#MVRBTREE_CURSOR_PREFETCH
+	 */
+	public OIndexCursor cursor(final Object iRangeFrom, final boolean iFromInclusive, final Object iRangeTo,
+			final boolean iToInclusive, final boolean iAscending) {
+		return new OIndexMVRBTreeCursor(iRangeFrom, iFromInclusive, iRangeTo, iToInclusive, iAscending);
+	}
+
 	public Collection<ODocument> getEntriesBetween(final Object iRangeFrom, final Object iRangeTo, final boolean iInclusive) {
 		return getEntriesBetween(iRangeFrom, iRangeTo, iInclusive, -1);
 	}
@@ -319,74 +371,315 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
 
 	/**
 	 * Populates the index with all the existent records. Uses the massive insert intent to speed up and keep the consumed memory low.
+	 * The entries are collected and sorted by key before being inserted, so the tree is filled in key order with full nodes (see
+	 * {@link OIndexEntrySorter}). If {@link OGlobalConfiguration#INDEX_ONLINE_BUILD} is true the writers are not blocked during the
+	 * build (see {@link #rebuildOnline(OProgressListener)}).
 	 */
 	public long rebuild(final OProgressListener iProgressListener) {
+		if (OGlobalConfiguration.INDEX_ONLINE_BUILD.getValueAsBoolean() && isAutomatic())
+			return rebuildOnline(iProgressListener);
+
 		clear();
 
 		long documentIndexed = 0;
+		OIndexEntrySorter sorter = null;
 
 		final boolean intentInstalled = getDatabase().declareIntent(new OIntentMassiveInsert());
 
 		acquireExclusiveLock();
 		try {
 
-			int documentNum = 0;
-			long documentTotal = 0;
+			sorter = new OIndexEntrySorter(((OMVRBTreeMapProvider<Object, T>) map.getProvider()).getKeySerializer(),
+					OGlobalConfiguration.INDEX_REBUILD_SORT_BUFFER.getValueAsInteger());
 
-			for (final String cluster : clustersToIndex)
-				documentTotal += getDatabase().countClusterElements(cluster);
+			documentIndexed = collectEntries(sorter, iProgressListener, false);
+
+			// INSERT THE ENTRIES IN KEY ORDER
+			for (Iterator<Entry<Object, ORID>> it = sorter.iterator(); it.hasNext();) {
+				final Entry<Object, ORID> entry = it.next();
+				put(entry.getKey(), entry.getValue());
+			}
+
+			lazySave();
 
 			if (iProgressListener != null)
-				iProgressListener.onBegin(this, documentTotal);
+				iProgressListener.onCompletition(this, true);
 
-			for (final String clusterName : clustersToIndex)
-				for (final ORecord<?> record : getDatabase().browseCluster(clusterName)) {
-					if (record instanceof ODocument) {
-						final ODocument doc = (ODocument) record;
-						final Object fieldValue = indexDefinition.getDocumentValueToIndex(doc);
-
-						if (fieldValue != null) {
-							if (fieldValue instanceof Collection) {
-								for (final Object fieldValueItem : (Collection<?>) fieldValue) {
-									put(fieldValueItem, doc);
-								}
-							} else
-								put(fieldValue, doc);
-
-							++documentIndexed;
-						}
+		} catch (final Exception e) {
+			if (iProgressListener != null)
+				iProgressListener.onCompletition(this, false);
+
+			clear();
+
+			throw new OIndexException("Error on rebuilding the index for clusters: " + clustersToIndex, e);
+
+		} finally {
+			if (sorter != null)
+				sorter.close();
+
+			if (intentInstalled)
+				getDatabase().declareIntent(null);
+
+			releaseExclusiveLock();
+		}
+
+		return documentIndexed;
+	}
+
+	/**
+	 * Rebuilds the index without holding the lock for all the time, so the indexed records can be changed meanwhile. The entries are
+	 * collected and sorted without any lock, then inserted in a new tree in small batches. The changes made to the index in the
+	 * meantime go to the current tree, that is still used, and to a side log. At the end the log is replayed against the new tree that
+	 * replaces the current one. The collected entries changed during the build are skipped because the log has their last state, while
+	 * the other entries of the same records are kept.
+	 */
+	protected long rebuildOnline(final OProgressListener iProgressListener) {
+		final OMVRBTreeDatabaseLazySave<Object, T> current;
+		final OMVRBTreeDatabaseLazySave<Object, T> building;
+		final OMVRBTreeMapProvider<Object, T> provider;
+
+		acquireExclusiveLock();
+		try {
+			if (rebuildChanges != null)
+				throw new OIndexException("Index '" + name + "' is already being rebuilt");
+
+			current = map;
+			provider = (OMVRBTreeMapProvider<Object, T>) map.getProvider();
+			building = new OMVRBTreeDatabaseLazySave<Object, T>(getDatabase(), provider.getClusterName(), provider.getKeySerializer(),
+					provider.getValueSerializer());
+
+			// FROM NOW ON THE CHANGES ARE LOGGED
+			rebuildChanges = new ArrayList<OIndexChange>();
+			rebuildChangedEntries = new HashMap<ORID, Set<Object>>();
+			rebuilding = true;
+
+		} finally {
+			releaseExclusiveLock();
+		}
+
+		long documentIndexed = 0;
+		boolean swapped = false;
+
+		final OIndexEntrySorter sorter = new OIndexEntrySorter(provider.getKeySerializer(),
+				OGlobalConfiguration.INDEX_REBUILD_SORT_BUFFER.getValueAsInteger());
+
+		final boolean intentInstalled = getDatabase().declareIntent(new OIntentMassiveInsert());
+
+		try {
+			documentIndexed = collectEntries(sorter, iProgressListener, true);
+
+			// INSERT THE ENTRIES IN THE NEW TREE IN BATCHES, RELEASING THE LOCK BETWEEN THEM TO LET THE WRITERS GO
+			final Iterator<Entry<Object, ORID>> it = sorter.iterator();
+			while (it.hasNext()) {
+				acquireExclusiveLock();
+				final List<OIndexChange> changes = rebuildChanges;
+				try {
+					map = building;
+					rebuildChanges = null;
+
+					for (int i = 0; i < ONLINE_BUILD_BATCH && it.hasNext(); ++i) {
+						final Entry<Object, ORID> entry = it.next();
+						if (!isChangedDuringRebuild(entry.getKey(), entry.getValue()))
+							put(entry.getKey(), entry.getValue());
 					}
-					documentNum++;
 
-					if (iProgressListener != null)
-						iProgressListener.onProgress(this, documentNum, documentNum * 100f / documentTotal);
+				} finally {
+					map = current;
+					rebuildChanges = changes;
+					releaseExclusiveLock();
 				}
+			}
 
-			lazySave();
+			acquireExclusiveLock();
+			try {
+				// REPLAY THE LOGGED CHANGES AGAINST THE NEW TREE
+				final List<OIndexChange> changes = rebuildChanges;
+				rebuildChanges = null;
+				map = building;
+
+				for (final OIndexChange change : changes)
+					if (change.operation == OPERATION.PUT)
+						put(change.key, change.value);
+					else if (change.operation == OPERATION.CLEAR)
+						clear();
+					else if (change.value == null)
+						remove(change.key);
+					else
+						remove(change.key, change.value);
+
+				map.lazySave();
+
+				// SWAP THE TREES
+				swapped = true;
+				rebuildChangedEntries = null;
+				rebuilding = false;
+				current.delete();
+
+				// SAVE THE RID OF THE NEW TREE
+				updateConfiguration();
+				getDatabase().getMetadata().getIndexManager().getConfiguration().setDirty();
+				getDatabase().getMetadata().getIndexManager().getConfiguration().save();
+
+			} finally {
+				releaseExclusiveLock();
+			}
 
 			if (iProgressListener != null)
 				iProgressListener.onCompletition(this, true);
 
 		} catch (final Exception e) {
+			acquireExclusiveLock();
+			try {
+				if (!swapped) {
+					map = current;
+					building.delete();
+				}
+				rebuildChanges = null;
+				rebuildChangedEntries = null;
+				rebuilding = false;
+			} finally {
+				releaseExclusiveLock();
+			}
+
 			if (iProgressListener != null)
 				iProgressListener.onCompletition(this, false);
 
-			clear();
+			if (e instanceof OIndexException)
+				throw (OIndexException) e;
 
 			throw new OIndexException("Error on rebuilding the index for clusters: " + clustersToIndex, e);
 
 		} finally {
+			sorter.close();
+
 			if (intentInstalled)
 				getDatabase().declareIntent(null);
-
-			releaseExclusiveLock();
 		}
 
 		return documentIndexed;
 	}
 
+	public boolean isRebuilding() {
+		return rebuilding;
+	}
+
+	/**
+	 * Browses the indexed clusters collecting the entries to index.
+	 * 
+	 * @param iSnapshot
+	 *          Browses all the positions of the clusters as they are at the beginning. Needed when the records can change meanwhile,
+	 *          because the cluster iterator stops after the number of records counted at the beginning
+	 * @return The number of indexed documents
+	 */
+	private long collectEntries(final OIndexEntrySorter iSorter, final OProgressListener iProgressListener, final boolean iSnapshot)
+			throws IOException {
+		long documentIndexed = 0;
+		int documentNum = 0;
+		long documentTotal = 0;
+
+		for (final String cluster : clustersToIndex)
+			documentTotal += getDatabase().countClusterElements(cluster);
+
+		if (iProgressListener != null)
+			iProgressListener.onBegin(this, documentTotal);
+
+		for (final String clusterName : clustersToIndex)
+			if (iSnapshot) {
+				final int clusterId = getDatabase().getClusterIdByName(clusterName);
+				final long[] range = getDatabase().getStorage().getClusterDataRange(clusterId);
+
+				for (long pos = Math.max(range[0], 0); pos <= range[1]; ++pos) {
+					final ORecord<?> record = getDatabase().load(new ORecordId(clusterId, pos), null, true);
+					if (record == null)
+						// DELETED
+						continue;
+
+					if (collectEntries(iSorter, record))
+						++documentIndexed;
+					documentNum++;
+
+					if (iProgressListener != null)
+						iProgressListener.onProgress(this, documentNum, documentNum * 100f / documentTotal);
+				}
+
+			} else
+				for (final ORecord<?> record : getDatabase().browseCluster(clusterName)) {
+					if (collectEntries(iSorter, record))
+						++documentIndexed;
+					documentNum++;
+
+					if (iProgressListener != null)
+						iProgressListener.onProgress(this, documentNum, documentNum * 100f / documentTotal);
+				}
+
+		return documentIndexed;
+	}
+
+	/**
+	 * Collects the entries of a record.
+	 * 
+	 * @return true if the record is indexed, otherwise false
+	 */
+	private boolean collectEntries(final OIndexEntrySorter iSorter, final ORecord<?> iRecord) throws IOException {
+		if (!(iRecord instanceof ODocument))
+			return false;
+
+		final ODocument doc = (ODocument) iRecord;
+		final Object fieldValue = indexDefinition.getDocumentValueToIndex(doc);
+		if (fieldValue == null)
+			return false;
+
+		final ORID rid = doc.getIdentity().copy();
+		if (fieldValue instanceof Collection) {
+			for (final Object fieldValueItem : (Collection<?>) fieldValue) {
+				if (fieldValueItem != null)
+					iSorter.add(fieldValueItem, rid);
+			}
+		} else
+			iSorter.add(fieldValue, rid);
+
+		return true;
+	}
+
+	/**
+	 * Logs a change made while the index is rebuilt online. The implementations of put() and remove() call it holding the exclusive
+	 * lock.
+	 */
+	protected void logChange(final OPERATION iOperation, final Object iKey, final OIdentifiable iValue) {
+		if (rebuildChanges == null)
+			return;
+
+		final OIdentifiable value = iValue != null && iValue.getIdentity().isPersistent() ? iValue.getIdentity().copy() : iValue;
+		rebuildChanges.add(new OIndexChange(iOperation, iKey, value));
+		if (value != null) {
+			Set<Object> keys = rebuildChangedEntries.get(value.getIdentity());
+			if (keys == null) {
+				keys = new HashSet<Object>();
+				rebuildChangedEntries.put(value.getIdentity(), keys);
+			}
+			keys.add(iKey);
+		}
+	}
+
+	/**
+	 * Tells if the entry has been changed during the online rebuild. Called holding the exclusive lock.
+	 */
+	private boolean isChangedDuringRebuild(final Object iKey, final ORID iRID) {
+		final Set<Object> keys = rebuildChangedEntries.get(iRID);
+		return keys != null && keys.contains(iKey);
+	}
+
 	public boolean remove(final Object iKey, final OIdentifiable iValue) {
-		return remove(iKey);
+
+		acquireExclusiveLock();
+		try {
+
+			logChange(OPERATION.REMOVE, iKey, iValue);
+			return map.remove(iKey) != null;
+
+		} finally {
+			releaseExclusiveLock();
+		}
 	}
 
 	public boolean remove(final Object key) {
@@ -394,6 +687,7 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
 		acquireExclusiveLock();
 		try {
 
+			logChange(OPERATION.REMOVE, key, null);
 			return map.remove(key) != null;
 
 		} finally {
@@ -406,6 +700,7 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
 		acquireExclusiveLock();
 		try {
 
+			logChange(OPERATION.CLEAR, null, null);
 			map.clear();
 			return this;
 
@@ -518,7 +813,7 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
 			return this;
 
 		} finally {
-			releaseSharedLock();
+			releaseExclusiveLock();
 		}
 	}
 
@@ -806,4 +1101,156 @@ public abstract class OIndexMVRBTreeAbstract<T> extends OSharedResourceAdaptiveE
 	public int hashCode() {
 		return name.hashCode();
 	}
+
+	protected class OIndexMVRBTreeCursor implements OIndexCursor {
+		private final Object														rangeFrom;
+		private final boolean														fromInclusive;
+		private final Object														rangeTo;
+		private final boolean														toInclusive;
+		private final boolean														ascending;
+		private final int																prefetch;
+		private final List<Entry<Object, OIdentifiable>>	fetched	= new ArrayList<Entry<Object, OIdentifiable>>();
+		private int																			fetchedPosition;
+		private Object																	lastFetchedKey;
+		private Object																	lastKey;
+		private boolean																	finished;
+
+		public OIndexMVRBTreeCursor(final Object iRangeFrom, final boolean iFromInclusive, final Object iRangeTo,
+				final boolean iToInclusive, final boolean iAscending) {
+			rangeFrom = iRangeFrom;
+			fromInclusive = iFromInclusive;
+			rangeTo = iRangeTo;
+			toInclusive = iToInclusive;
+			ascending = iAscending;
+			prefetch = Math.max(1, OGlobalConfiguration.MVRBTREE_CURSOR_PREFETCH.getValueAsInteger());
+		}
+
+		public boolean hasNext() {
+			if (fetchedPosition < fetched.size())
+				return true;
+
+			if (finished)
+				return false;
+
+			fetch();
+			return fetchedPosition < fetched.size();
+		}
+
+		public Entry<Object, OIdentifiable> next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+
+			final Entry<Object, OIdentifiable> entry = fetched.get(fetchedPosition++);
+			lastKey = entry.getKey();
+			return entry;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException("remove");
+		}
+
+		public Iterator<Entry<Object, OIdentifiable>> iterator() {
+			return this;
+		}
+
+		public Object getLastKey() {
+			return lastKey;
+		}
+
+		/**
+		 * Fetches the next block of keys. All the values of a key are always fetched together.
+		 */
+		@SuppressWarnings("unchecked")
+		private void fetch() {
+			fetched.clear();
+			fetchedPosition = 0;
+
+			acquireExclusiveLock();
+			try {
+				OMVRBTreeEntry<Object, T> entry = seek();
+
+				for (int keys = 0; entry != null && keys < prefetch; ++keys) {
+					final Object key = entry.getKey();
+					if (!isInRange(key)) {
+						finished = true;
+						return;
+					}
+
+					final T value = entry.getValue();
+					if (value instanceof Collection<?>) {
+						for (OIdentifiable v : (Collection<OIdentifiable>) value)
+							fetched.add(new OSimpleImmutableEntry<Object, OIdentifiable>(key, v));
+					} else if (value != null)
+						fetched.add(new OSimpleImmutableEntry<Object, OIdentifiable>(key, (OIdentifiable) value));
+
+					lastFetchedKey = key;
+					entry = ascending ? OMVRBTree.next(entry) : OMVRBTree.previous(entry);
+				}
+
+				if (entry == null)
+					finished = true;
+
+			} finally {
+				releaseExclusiveLock();
+			}
+		}
+
+		/**
+		 * Positions the tree to the first entry to fetch: the first of the range or the one after the last key fetched.
+		 */
+		private OMVRBTreeEntry<Object, T> seek() {
+			if (lastFetchedKey != null)
+				// RESUME FROM THE LAST KEY: THE TREE COULD BE CHANGED MEANWHILE
+				return ascending ? map.getHigherEntry(lastFetchedKey) : map.getLowerEntry(lastFetchedKey);
+
+			if (ascending) {
+				if (rangeFrom == null)
+					return map.isEmpty() ? null : map.getCeilingEntry(map.firstKey(), OMVRBTree.PartialSearchMode.NONE);
+
+				return fromInclusive ? map.getCeilingEntry(rangeFrom, OMVRBTree.PartialSearchMode.LOWEST_BOUNDARY) : map
+						.getHigherEntry(rangeFrom);
+			}
+
+			if (rangeTo == null)
+				return map.isEmpty() ? null : map.getFloorEntry(map.lastKey(), OMVRBTree.PartialSearchMode.NONE);
+
+			return toInclusive ? map.getFloorEntry(rangeTo, OMVRBTree.PartialSearchMode.HIGHEST_BOUNDARY) : map.getLowerEntry(rangeTo);
+		}
+
+		/**
+		 * Checks the key against the boundary towards the cursor is moving. Partial composite keys are compared only for the fields they
+		 * contain.
+		 */
+		@SuppressWarnings("unchecked")
+		private boolean isInRange(final Object iKey) {
+			if (ascending) {
+				if (rangeTo == null)
+					return true;
+
+				final int result = ((Comparable<Object>) iKey).compareTo(rangeTo);
+				return toInclusive ? result <= 0 : result < 0;
+			}
+
+			if (rangeFrom == null)
+				return true;
+
+			final int result = ((Comparable<Object>) iKey).compareTo(rangeFrom);
+			return fromInclusive ? result >= 0 : result > 0;
+		}
+	}
+
+	/**
+	 * Change made to the index while it's rebuilt online.
+	 */
+	private static class OIndexChange {
+		private final OPERATION			operation;
+		private final Object				key;
+		private final OIdentifiable	value;
+
+		public OIndexChange(final OPERATION iOperation, final Object iKey, final OIdentifiable iValue) {
+			operation = iOperation;
+			key = iKey;
+			value = iValue;
+		}
+	}
 }
@@ -391,9 +391,9 @@ public abstract class OIndexManagerAbstract extends ODocumentWrapperNoClass impl
 	}
 
 	private OIndex<?> wrapInTransactional(final OIndex<?> index) {
-		if (index instanceof OIndexMultiValues)
+		if (index instanceof OIndexMultiValues || index instanceof OIndexHashNotUnique)
 			return new OIndexTxAwareMultiValue(getDatabase(), (OIndex<Collection<OIdentifiable>>) getIndexInstance(index));
-		else if (index instanceof OIndexOneValue)
+		else if (index instanceof OIndexOneValue || index instanceof OIndexHashUnique)
 			return new OIndexTxAwareOneValue(getDatabase(), (OIndex<OIdentifiable>) getIndexInstance(index));
 		return index;
 	}
@@ -36,7 +36,7 @@ public class OIndexManagerRemote extends OIndexManagerAbstract {
 
 	@Override
 	protected OIndex<?> getIndexInstance(final OIndex<?> iIndex) {
-		if (iIndex instanceof OIndexMultiValues)
+		if (iIndex instanceof OIndexMultiValues || iIndex instanceof OIndexHashNotUnique)
 			return new OIndexRemoteMultiValue(iIndex.getName(), iIndex.getType(), iIndex.getIdentity(), iIndex.getDefinition(),
 					getConfiguration());
 		return new OIndexRemoteOneValue(iIndex.getName(), iIndex.getType(), iIndex.getIdentity(), iIndex.getDefinition(),
@@ -62,9 +62,11 @@ public class OIndexManagerShared extends OIndexManagerAbstract implements OIndex
 	 */
 	public OIndex<?> createIndex(final String iName, final String iType, final OIndexDefinition indexDefinition,
 			final int[] iClusterIdsToIndex, final OProgressListener iProgressListener) {
+		final OIndexInternal<?> index;
+
 		acquireExclusiveLock();
 		try {
-			final OIndexInternal<?> index = OIndexFactory.instance().newInstance(getDatabase(), iType);
+			index = OIndexFactory.instance().newInstance(getDatabase(), iType);
 
 			index.create(iName, indexDefinition, getDatabase(), defaultClusterName, iClusterIdsToIndex, iProgressListener);
 			addIndexInternal(index);
@@ -72,10 +74,20 @@ public class OIndexManagerShared extends OIndexManagerAbstract implements OIndex
 			setDirty();
 			save();
 
-			return getIndexInstance(index);
 		} finally {
 			releaseExclusiveLock();
 		}
+
+		if (index.isRebuilding())
+			// ONLINE BUILD: THE INDEX IS ALREADY REGISTERED, SO THE CHANGES MADE WHILE IT'S BUILT ARE LOGGED BY THE HOOKS
+			try {
+				index.rebuild(iProgressListener);
+			} catch (OIndexException e) {
+				dropIndex(iName);
+				throw e;
+			}
+
+		return getIndexInstance(index);
 	}
 
 	public OIndexManager dropIndex(final String iIndexName) {
@@ -31,6 +31,7 @@ import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerListRID;
+import com.orientechnologies.orient.core.tx.OTransactionIndexChanges.OPERATION;
 import com.orientechnologies.orient.core.type.tree.OMVRBTreeRIDSet;
 
 /**
@@ -45,20 +46,12 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
 	}
 
 	public Set<OIdentifiable> get(final Object iKey) {
+		final OMVRBTreeRIDSet values = (OMVRBTreeRIDSet) lookup(iKey);
 
-		acquireExclusiveLock();
-		try {
-
-			final OMVRBTreeRIDSet values = (OMVRBTreeRIDSet) map.get(iKey);
-
-			if (values == null)
-				return Collections.emptySet();
+		if (values == null)
+			return Collections.emptySet();
 
-			return values;
-
-		} finally {
-			releaseExclusiveLock();
-		}
+		return values;
 	}
 
 	public OIndexMultiValues put(final Object iKey, final OIdentifiable iSingleValue) {
@@ -67,6 +60,7 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
 		try {
 
 			checkForKeyType(iKey);
+			logChange(OPERATION.PUT, iKey, iSingleValue);
 
 			Set<OIdentifiable> values = map.get(iKey);
 
@@ -92,6 +86,8 @@ public abstract class OIndexMultiValues extends OIndexMVRBTreeAbstract<Set<OIden
 		acquireExclusiveLock();
 		try {
 
+			logChange(OPERATION.REMOVE, iKey, iValue);
+
 			final Set<OIdentifiable> recs = get(iKey);
 			if (recs.remove(iValue)) {
 				if (recs.isEmpty())
@@ -49,15 +49,7 @@ public abstract class OIndexOneValue extends OIndexMVRBTreeAbstract<OIdentifiabl
 	}
 
 	public OIdentifiable get(final Object iKey) {
-
-		acquireExclusiveLock();
-		try {
-
-			return map.get(iKey);
-
-		} finally {
-			releaseExclusiveLock();
-		}
+		return lookup(iKey);
 	}
 
 	public int remove(final OIdentifiable iRecord) {
@@ -15,10 +15,17 @@
  */
 package com.orientechnologies.orient.core.index;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
+import com.orientechnologies.common.collection.OSimpleImmutableEntry;
 import com.orientechnologies.common.listener.OProgressListener;
 import com.orientechnologies.orient.core.command.OCommandRequest;
 import com.orientechnologies.orient.core.db.ODatabaseComplex;
@@ -139,6 +146,15 @@ public abstract class OIndexRemote<T> implements OIndex<T> {
 		return (Collection<ODocument>) getDatabase().command(cmd).execute(iRangeFrom, iRangeTo);
 	}
 
+	/**
+	 * Returns a cursor over the entries of the range. The whole range is fetched from the server with one query at the first access,
+	 * so against remote indexes the cursor only saves the memory when the browsing is never started.
+	 */
+	public OIndexCursor cursor(final Object iRangeFrom, final boolean iFromInclusive, final Object iRangeTo,
+			final boolean iToInclusive, final boolean iAscending) {
+		return new OIndexRemoteCursor(iRangeFrom, iFromInclusive, iRangeTo, iToInclusive, iAscending);
+	}
+
 	public Collection<OIdentifiable> getValuesMajor(final Object fromKey, final boolean isInclusive) {
 		final OCommandRequest cmd;
 		if (isInclusive)
@@ -244,6 +260,10 @@ public abstract class OIndexRemote<T> implements OIndex<T> {
 		return false;
 	}
 
+	public boolean isRebuilding() {
+		return false;
+	}
+
 	public String getName() {
 		return name;
 	}
@@ -340,6 +360,93 @@ public abstract class OIndexRemote<T> implements OIndex<T> {
 		return name.hashCode();
 	}
 
+	/**
+	 * Cursor over the entries returned by a range query against the index.
+	 */
+	protected class OIndexRemoteCursor implements OIndexCursor {
+		private final Object														rangeFrom;
+		private final boolean														fromInclusive;
+		private final Object														rangeTo;
+		private final boolean														toInclusive;
+		private final boolean														ascending;
+		private Iterator<Entry<Object, OIdentifiable>>	entries;
+		private Object																	lastKey;
+
+		public OIndexRemoteCursor(final Object iRangeFrom, final boolean iFromInclusive, final Object iRangeTo,
+				final boolean iToInclusive, final boolean iAscending) {
+			rangeFrom = iRangeFrom;
+			fromInclusive = iFromInclusive;
+			rangeTo = iRangeTo;
+			toInclusive = iToInclusive;
+			ascending = iAscending;
+		}
+
+		public boolean hasNext() {
+			if (entries == null)
+				entries = fetch().iterator();
+			return entries.hasNext();
+		}
+
+		public Entry<Object, OIdentifiable> next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+
+			final Entry<Object, OIdentifiable> entry = entries.next();
+			lastKey = entry.getKey();
+			return entry;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException("remove");
+		}
+
+		public Iterator<Entry<Object, OIdentifiable>> iterator() {
+			return this;
+		}
+
+		public Object getLastKey() {
+			return lastKey;
+		}
+
+		private List<Entry<Object, OIdentifiable>> fetch() {
+			final Collection<ODocument> result;
+			if (rangeFrom != null && rangeTo != null)
+				// THE QUERIES AGAINST INDEXES SUPPORT ONE CONDITION ONLY: THE EXCLUDED BOUNDARIES ARE FILTERED BELOW
+				result = getEntriesBetween(rangeFrom, rangeTo);
+			else if (rangeFrom != null)
+				result = getEntriesMajor(rangeFrom, fromInclusive);
+			else if (rangeTo != null)
+				result = getEntriesMinor(rangeTo, toInclusive);
+			else
+				result = (Collection<ODocument>) getDatabase().command(formatCommand(QUERY_ENTRIES, name)).execute();
+
+			final List<Entry<Object, OIdentifiable>> fetched = new ArrayList<Entry<Object, OIdentifiable>>();
+			if (result != null)
+				for (ODocument d : result) {
+					final Object key = d.field("key");
+					if (rangeFrom != null && rangeTo != null
+							&& (!fromInclusive && compare(key, rangeFrom) == 0 || !toInclusive && compare(key, rangeTo) == 0))
+						continue;
+
+					fetched.add(new OSimpleImmutableEntry<Object, OIdentifiable>(key, (OIdentifiable) d.field("rid")));
+				}
+
+			// THE SERVER DOESN'T GUARANTEE THE ORDER OF THE ENTRIES
+			Collections.sort(fetched, new Comparator<Entry<Object, OIdentifiable>>() {
+				public int compare(final Entry<Object, OIdentifiable> iEntry1, final Entry<Object, OIdentifiable> iEntry2) {
+					final int result = OIndexRemoteCursor.this.compare(iEntry1.getKey(), iEntry2.getKey());
+					return ascending ? result : -result;
+				}
+			});
+
+			return fetched;
+		}
+
+		private int compare(final Object iKey1, final Object iKey2) {
+			return ((Comparable<Object>) iKey1).compareTo(iKey2);
+		}
+	}
+
   public Collection<OIdentifiable> getValuesBetween(final Object iRangeFrom,final boolean iFromInclusive,
                                                     final Object iRangeTo,final boolean iToInclusive,
                                                     final int maxValuesToFetch) {
@@ -16,6 +16,7 @@
 package com.orientechnologies.orient.core.index;
 
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.tx.OTransactionIndexChanges.OPERATION;
 
 /**
  * Index implementation that allows only one value for a key.
@@ -32,6 +33,7 @@ public class OIndexUnique extends OIndexOneValue {
 		acquireExclusiveLock();
 		try {
 			checkForKeyType(iKey);
+			logChange(OPERATION.PUT, iKey, iSingleValue);
 
 			final OIdentifiable value = map.get(iKey);
 
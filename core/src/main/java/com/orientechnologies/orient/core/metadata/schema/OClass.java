@@ -35,7 +35,7 @@ public interface OClass extends Comparable<OClass> {
    }
 
    public static enum INDEX_TYPE {
-      UNIQUE, NOTUNIQUE, FULLTEXT, DICTIONARY, PROXY
+      UNIQUE, NOTUNIQUE, FULLTEXT, DICTIONARY, PROXY, UNIQUE_HASH, NOTUNIQUE_HASH
    }
 
    public <T> T newInstance() throws InstantiationException, IllegalAccessException;
@@ -56,6 +56,21 @@ public interface OClass extends Comparable<OClass> {
 
    public OProperty getProperty(final String iPropertyName);
 
+   /**
+    * Returns the property with the id received, searching also in the super classes.
+    * 
+    * @see OProperty#getId()
+    */
+   public OProperty getPropertyById(final int iPropertyId);
+
+   /**
+    * Returns the name of the property with the id received, also if the property has been dropped from the schema, since its id can
+    * still be stored in the records.
+    * 
+    * @return The property name or null if the id has never been assigned
+    */
+   public String getPropertyNameById(final int iPropertyId);
+
    public OProperty createProperty(final String iPropertyName, final OType iType);
 
    public OProperty createProperty(final String iPropertyName, final OType iType, final OClass iLinkedClass);
@@ -71,6 +71,7 @@ public class OClassImpl extends ODocumentWrapperNoClass implements OClass {
 	protected List<OClass>									baseClasses;
 	protected float													overSize		= 0f;
 	protected String												shortName;
+	protected volatile OProperty[]					propertiesById;
 
 	/**
 	 * Constructor used in unmarshalling.
@@ -245,6 +246,28 @@ public class OClassImpl extends ODocumentWrapperNoClass implements OClass {
 		return (Collection<OProperty>) (indexedProps != null ? indexedProps : Collections.emptyList());
 	}
 
+	public OProperty getPropertyById(final int iPropertyId) {
+		if (iPropertyId < 0)
+			return null;
+
+		OProperty[] lookup = propertiesById;
+		if (lookup == null || iPropertyId >= lookup.length || lookup[iPropertyId] == null) {
+			// (RE)BUILD THE LOOKUP TABLE: IT'S STALE AFTER A PROPERTY HAS BEEN ADDED TO THIS CLASS OR TO A SUPER CLASS
+			lookup = buildPropertiesById();
+			propertiesById = lookup;
+		}
+
+		return iPropertyId < lookup.length ? lookup[iPropertyId] : null;
+	}
+
+	public String getPropertyNameById(final int iPropertyId) {
+		final OProperty prop = getPropertyById(iPropertyId);
+		if (prop != null)
+			return prop.getName();
+
+		return owner != null ? owner.getDroppedPropertyName(iPropertyId) : null;
+	}
+
 	public OProperty getProperty(final String iPropertyName) {
 		OClassImpl currentClass = this;
 		OProperty p = null;
@@ -315,6 +338,11 @@ public class OClassImpl extends ODocumentWrapperNoClass implements OClass {
 			throw new OSchemaException("Property '" + iPropertyName + "' not found in class " + name + "'");
 
 		fixedSize -= prop.getType().size;
+
+		if (owner != null)
+			owner.onPropertyDropped(prop);
+		else
+			propertiesById = null;
 	}
 
 	public OProperty addProperty(final String iPropertyName, final OType iType, final OType iLinkedType, final OClass iLinkedClass) {
@@ -723,6 +751,7 @@ public class OClassImpl extends ODocumentWrapperNoClass implements OClass {
 			throw new OSchemaException("Class " + name + " already has property '" + iName + "'");
 
 		final OPropertyImpl prop = new OPropertyImpl(this, iName, iType);
+		prop.setIdInternal(owner.nextPropertyId());
 
 		properties.put(lowerName, prop);
 		fixedSize += iType.size;
@@ -738,14 +767,30 @@ public class OClassImpl extends ODocumentWrapperNoClass implements OClass {
 		owner.saveInternal();
 	}
 
+	private OProperty[] buildPropertiesById() {
+		int maxId = -1;
+		for (OClassImpl currentClass = this; currentClass != null; currentClass = currentClass.superClass)
+			for (OProperty p : currentClass.properties.values())
+				if (p.getId() > maxId)
+					maxId = p.getId();
+
+		final OProperty[] lookup = new OProperty[maxId + 1];
+		for (OClassImpl currentClass = this; currentClass != null; currentClass = currentClass.superClass)
+			for (OProperty p : currentClass.properties.values())
+				if (p.getId() > -1 && lookup[p.getId()] == null)
+					lookup[p.getId()] = p;
+
+		return lookup;
+	}
+
 	public OIndex<?> createIndex(final String iName, final INDEX_TYPE iType, final String... fields) {
 		return createIndex(iName, iType, null, fields);
 	}
 
 	public OIndex<?> createIndex(final String iName, final INDEX_TYPE iType, final OProgressListener iProgressListener,
 			final String... fields) {
-		if (!(INDEX_TYPE.DICTIONARY.equals(iType) || INDEX_TYPE.FULLTEXT.equals(iType) || INDEX_TYPE.NOTUNIQUE.equals(iType) || INDEX_TYPE.UNIQUE
-				.equals(iType)))
+		if (!(INDEX_TYPE.DICTIONARY.equals(iType) || INDEX_TYPE.FULLTEXT.equals(iType) || INDEX_TYPE.NOTUNIQUE.equals(iType)
+				|| INDEX_TYPE.UNIQUE.equals(iType) || INDEX_TYPE.UNIQUE_HASH.equals(iType) || INDEX_TYPE.NOTUNIQUE_HASH.equals(iType)))
 			throw new OIndexException("Index of this type (" + iType + ") cannot be used in class indexes.");
 
 		if (fields.length == 0)
@@ -33,6 +33,13 @@ public interface OProperty extends Comparable<OProperty> {
 
   public String getName();
 
+  /**
+   * Returns the id of the property, unique in the whole schema. It's assigned on creation and doesn't change on rename.
+   * 
+   * @return The property id or -1 if not assigned yet
+   */
+  public int getId();
+
   public OProperty setName(String iName);
 
   public OType getType();
@@ -51,6 +51,7 @@ public class OPropertyImpl extends ODocumentWrapperNoClass implements OProperty
 	private OClassImpl				owner;
 
 	private String						name;
+	private int								id	= -1;
 	private OType							type;
 
 	private OType							linkedType;
@@ -89,6 +90,14 @@ public class OPropertyImpl extends ODocumentWrapperNoClass implements OProperty
 		return name;
 	}
 
+	public int getId() {
+		return id;
+	}
+
+	public void setIdInternal(final int iId) {
+		this.id = iId;
+	}
+
 	public String getFullName() {
 		return owner.getName() + "." + name;
 	}
@@ -520,6 +529,8 @@ public class OPropertyImpl extends ODocumentWrapperNoClass implements OProperty
 	@Override
 	public void fromStream() {
 		name = document.field("name");
+		if (document.field("id") != null)
+			id = (Integer) document.field("id");
 		if (document.field("type") != null)
 			type = OType.getById(((Integer) document.field("type")).byteValue());
 
@@ -553,6 +564,7 @@ public class OPropertyImpl extends ODocumentWrapperNoClass implements OProperty
 
 		try {
 			document.field("name", name);
+			document.field("id", id);
 			document.field("type", type.id);
 			document.field("mandatory", mandatory);
 			document.field("notNull", notNull);
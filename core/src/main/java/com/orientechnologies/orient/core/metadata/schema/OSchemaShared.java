@@ -15,9 +15,13 @@
  */
 package com.orientechnologies.orient.core.metadata.schema;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -39,6 +43,7 @@ import com.orientechnologies.orient.core.metadata.security.ODatabaseSecurityReso
 import com.orientechnologies.orient.core.metadata.security.ORole;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.OSQLEngine;
 import com.orientechnologies.orient.core.storage.OStorage;
 import com.orientechnologies.orient.core.storage.OStorage.CLUSTER_TYPE;
 import com.orientechnologies.orient.core.type.ODocumentWrapper;
@@ -56,6 +61,8 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
 	private static final String						DROP_INDEX_QUERY				= "drop index ";
 	protected Map<String, OClass>					classes									= new HashMap<String, OClass>();
 	private final OSharedResourceExternal	lock										= new OSharedResourceExternal();
+	private int														nextPropertyId					= 0;
+	private final Map<Integer, String>		droppedPropertyNames		= new HashMap<Integer, String>();
 
 	public OSchemaShared(final int schemaClusterId) {
 		super(new ODocument());
@@ -247,6 +254,7 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
 
 			final OClassImpl cls = new OClassImpl(this, iClassName, iClusterIds);
 			classes.put(key, cls);
+			invalidateStatements();
 
 			if (cls.getShortName() != null)
 				// BIND SHORT NAME TOO
@@ -344,6 +352,7 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
 			dropClassIndexes(cls);
 
 			classes.remove(key);
+			invalidateStatements();
 		} finally {
 			lock.releaseExclusiveLock();
 		}
@@ -435,6 +444,7 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
 	public void changeClassName(String iOldName, String iNewName) {
 		OClass clazz = classes.remove(iOldName.toLowerCase());
 		classes.put(iNewName.toLowerCase(), clazz);
+		invalidateStatements();
 	}
 
 	/**
@@ -452,6 +462,7 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
 
 		// REGISTER ALL THE CLASSES
 		classes.clear();
+		invalidateStatements();
 		OClassImpl cls;
 		Collection<ODocument> storedClasses = document.field("classes");
 		for (ODocument c : storedClasses) {
@@ -482,6 +493,16 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
 				cls.setSuperClassInternal(superClass);
 			}
 		}
+
+		assignPropertyIds((Integer) document.field("nextPropertyId"));
+
+		final Map<String, Object> dropped = document.field("droppedProperties");
+		synchronized (this) {
+			droppedPropertyNames.clear();
+			if (dropped != null)
+				for (Map.Entry<String, Object> entry : dropped.entrySet())
+					droppedPropertyNames.put(Integer.valueOf(entry.getKey()), (String) entry.getValue());
+		}
 	}
 
 	/**
@@ -500,6 +521,14 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
 				cc.add(((OClassImpl) c).toStream());
 			}
 			document.field("classes", cc, OType.EMBEDDEDSET);
+			document.field("nextPropertyId", nextPropertyId);
+
+			final Map<String, Object> dropped = new HashMap<String, Object>();
+			synchronized (this) {
+				for (Map.Entry<Integer, String> entry : droppedPropertyNames.entrySet())
+					dropped.put(entry.getKey().toString(), entry.getValue());
+			}
+			document.field("droppedProperties", dropped, OType.EMBEDDEDMAP);
 
 		} finally {
 			document.setInternalStatus(ORecordElement.STATUS.LOADED);
@@ -508,6 +537,62 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
 		return document;
 	}
 
+	/**
+	 * Returns a new property id. Ids are never reused, even when properties are dropped, because they can be stored in the records.
+	 */
+	public synchronized int nextPropertyId() {
+		return nextPropertyId++;
+	}
+
+	/**
+	 * Remembers the name of a dropped property, because its id can still be stored in the records, and invalidates the lookups by id
+	 * of all the classes, since sub classes inherit the properties.
+	 */
+	public void onPropertyDropped(final OProperty iProperty) {
+		if (iProperty.getId() > -1)
+			synchronized (this) {
+				droppedPropertyNames.put(iProperty.getId(), iProperty.getName());
+			}
+
+		for (OClass c : new HashSet<OClass>(classes.values()))
+			((OClassImpl) c).propertiesById = null;
+	}
+
+	/**
+	 * Returns the name of a property dropped from the schema, or null if the id belongs to no dropped property.
+	 */
+	public synchronized String getDroppedPropertyName(final int iPropertyId) {
+		return droppedPropertyNames.get(iPropertyId);
+	}
+
+	/**
+	 * Assigns the ids to the properties created before property ids were introduced. The order is deterministic, so the same ids are
+	 * assigned on every load until the schema is saved.
+	 */
+	private synchronized void assignPropertyIds(final Integer iStoredNextId) {
+		int next = iStoredNextId != null ? iStoredNextId : 0;
+
+		final List<OPropertyImpl> withoutId = new ArrayList<OPropertyImpl>();
+		for (OClass c : new HashSet<OClass>(classes.values()))
+			for (OProperty p : ((OClassImpl) c).properties.values()) {
+				if (p.getId() < 0)
+					withoutId.add((OPropertyImpl) p);
+				else if (p.getId() >= next)
+					next = p.getId() + 1;
+			}
+
+		Collections.sort(withoutId, new Comparator<OPropertyImpl>() {
+			public int compare(final OPropertyImpl o1, final OPropertyImpl o2) {
+				return o1.getFullName().compareTo(o2.getFullName());
+			}
+		});
+
+		for (OPropertyImpl p : withoutId)
+			p.setIdInternal(next++);
+
+		nextPropertyId = next;
+	}
+
 	public Collection<OClass> getClasses() {
 		getDatabase().checkSecurity(ODatabaseSecurityResources.SCHEMA, ORole.PERMISSION_READ);
 		lock.acquireSharedLock();
@@ -551,6 +636,7 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
 
 			document.setDirty();
 			super.save();
+			invalidateStatements();
 
 		} finally {
 			lock.releaseExclusiveLock();
@@ -614,5 +700,13 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
 	public void close() {
 		classes.clear();
 		document.reset();
+		invalidateStatements();
+	}
+
+	/**
+	 * Parsed SQL statements keep the resolved classes, so they can't be reused after a schema change.
+	 */
+	private void invalidateStatements() {
+		OSQLEngine.getInstance().getStatementCache().invalidate();
 	}
 }
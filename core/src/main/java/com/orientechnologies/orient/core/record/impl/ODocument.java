@@ -21,11 +21,13 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
@@ -45,8 +47,9 @@ import com.orientechnologies.orient.core.record.ORecordAbstract;
 import com.orientechnologies.orient.core.record.ORecordSchemaAwareAbstract;
 import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerDocument;
 import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerFactory;
-import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerPartial;
 
 /**
  * Document representation to handle values dynamically. Can be used in schema-less, schema-mixed and schema-full modes. Fields can
@@ -62,6 +65,7 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
 	protected boolean															_trackingChanges	= true;
 	protected boolean															_ordered					= true;
 	protected boolean															_lazyLoad					= true;
+	protected Set<String>													_partialFields		= null;
 
 	protected List<WeakReference<ORecordElement>>	_owners						= null;
 
@@ -410,6 +414,7 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
 		_fieldOriginalValues = null;
 		_fieldTypes = null;
 		_fieldValues = null;
+		_partialFields = null;
 	}
 
 	/**
@@ -440,7 +445,8 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
 			return null;
 
 		checkForLoading();
-		checkForFields();
+		if (_partialFields == null || !_partialFields.contains(iFieldName))
+			checkForFields();
 
 		if (_fieldValues.size() == 0)
 			// NO FIELDS
@@ -780,7 +786,8 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
 			return false;
 
 		checkForLoading();
-		checkForFields();
+		if (_partialFields == null || !_partialFields.contains(iFieldName))
+			checkForFields();
 		return _fieldValues.containsKey(iFieldName);
 	}
 
@@ -889,6 +896,7 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
 		_fieldValues = null;
 		_fieldTypes = null;
 		_fieldOriginalValues = null;
+		_partialFields = null;
 		return (ODocument) super.fromStream(iRecordBuffer);
 	}
 
@@ -912,6 +920,7 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
 		super.unload();
 		if (_fieldValues != null)
 			_fieldValues.clear();
+		_partialFields = null;
 		return this;
 	}
 
@@ -923,6 +932,7 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
 		super.clear();
 		if (_fieldValues != null)
 			_fieldValues.clear();
+		_partialFields = null;
 		_owners = null;
 		return this;
 	}
@@ -935,6 +945,7 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
 		super.reset();
 		if (_fieldValues != null)
 			_fieldValues.clear();
+		_partialFields = null;
 		return this;
 	}
 
@@ -984,7 +995,7 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
 	}
 
 	/**
-	 * Returns the number of fields in memory.
+	 * Returns the number of fields in memory. After a partial unmarshalling they are only the requested ones.
 	 */
 	public int fields() {
 		return _fieldValues == null ? 0 : _fieldValues.size();
@@ -1003,18 +1014,93 @@ public class ODocument extends ORecordSchemaAwareAbstract<Object> implements Ite
 		if (_fieldValues == null)
 			_fieldValues = _ordered ? new LinkedHashMap<String, Object>() : new HashMap<String, Object>();
 
-		if (_status == ORecordElement.STATUS.LOADED && _fieldValues.size() == 0)
+		if (_status == ORecordElement.STATUS.LOADED && (_fieldValues.size() == 0 || _partialFields != null))
 			// POPULATE FIELDS LAZY
 			deserializeFields();
 	}
 
+	@Override
+	public String getClassName() {
+		if (_partialFields != null)
+			// CLASS ALREADY UNMARSHALLED
+			return _clazz != null ? _clazz.getName() : null;
+
+		return super.getClassName();
+	}
+
+	/**
+	 * Unmarshalls all the fields. If the record was partially unmarshalled, the values already in memory are kept because the caller
+	 * could be changing them.
+	 */
+	@Override
+	public void deserializeFields() {
+		if (_partialFields == null) {
+			super.deserializeFields();
+			return;
+		}
+
+		_partialFields = null;
+
+		final Map<String, Object> unmarshalled = new HashMap<String, Object>(_fieldValues);
+		_fieldValues.clear();
+
+		super.deserializeFields();
+
+		_fieldValues.putAll(unmarshalled);
+	}
+
+	/**
+	 * Unmarshalls only the class and the requested fields, when the record format supports it. The other fields are unmarshalled all
+	 * together the first time one of them is accessed. Used by the queries to convert only the fields they read.
+	 * 
+	 * @param iFields
+	 *          Names of the fields to unmarshall
+	 */
+	public void deserializeFields(final String... iFields) {
+		if (_source == null || _status != ORecordElement.STATUS.LOADED || !(_recordFormat instanceof ORecordSerializerPartial))
+			return;
+
+		if (_fieldValues == null)
+			_fieldValues = _ordered ? new LinkedHashMap<String, Object>() : new HashMap<String, Object>();
+
+		final List<String> fieldsToLoad = new ArrayList<String>(iFields.length);
+		if (_partialFields == null) {
+			if (_fieldValues.size() > 0)
+				// ALREADY UNMARSHALLED
+				return;
+
+			_partialFields = new HashSet<String>();
+		} else if (iFields.length == 0)
+			// CLASS ALREADY UNMARSHALLED
+			return;
+
+		for (String f : iFields)
+			if (_partialFields.add(f))
+				fieldsToLoad.add(f);
+
+		if (fieldsToLoad.isEmpty() && !_partialFields.isEmpty())
+			// ALL THE FIELDS ARE ALREADY IN MEMORY
+			return;
+
+		// SETTING THE FIELDS RESETS THE CONTENT: KEEP IT TO UNMARSHALL THE OTHER FIELDS LATER
+		final byte[] source = _source;
+
+		_status = ORecordElement.STATUS.UNMARSHALLING;
+		try {
+			((ORecordSerializerPartial) _recordFormat).fromStream(source, this, fieldsToLoad.toArray(new String[fieldsToLoad.size()]));
+		} finally {
+			_status = ORecordElement.STATUS.LOADED;
+			_source = source;
+		}
+	}
+
 	/**
 	 * Internal.
 	 */
 	@Override
 	protected void setup() {
 		super.setup();
-		_recordFormat = ORecordSerializerFactory.instance().getFormat(ORecordSerializerSchemaAware2CSV.NAME);
+		_recordFormat = ORecordSerializerFactory.instance().getFormat(ORecordSerializerDocument.NAME);
 	}
 
 	/**
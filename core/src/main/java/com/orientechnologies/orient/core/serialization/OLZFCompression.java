@@ -0,0 +1,176 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization;
+
+import com.orientechnologies.common.util.OArrays;
+
+/**
+ * Pure Java compressor of the LZF family: fast on both sides and with a good ratio on the textual records written by the CSV
+ * serializer. The compressed stream starts with the original length (4 bytes) followed by the LZF chunks:<br/>
+ * <code>
+ * 000LLLLL + L+1 literal bytes<br/>
+ * LLLOOOOO OOOOOOOO: back reference of L+2 bytes (L &lt; 7) at offset O+1<br/>
+ * 111OOOOO LLLLLLLL OOOOOOOO: back reference of L+9 bytes at offset O+1
+ * </code><br/>
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OLZFCompression {
+	private static final int									HASH_BITS		= 14;
+	private static final int									MAX_LITERAL	= 32;
+	private static final int									MAX_OFFSET	= 1 << 13;
+	private static final int									MAX_LENGTH	= 264;
+
+	// THE TABLE IS NEVER CLEARED: STALE ENTRIES ARE DISCARDED BY COMPARING THE BYTES
+	private static final ThreadLocal<int[]>	hashTable		= new ThreadLocal<int[]>() {
+																													@Override
+																													protected int[] initialValue() {
+																														return new int[1 << HASH_BITS];
+																													}
+																												};
+
+	/**
+	 * Compresses the content.
+	 * 
+	 * @return The compressed content or null if it would not be smaller than the original
+	 */
+	public static byte[] compress(final byte[] iContent) {
+		final int inLength = iContent.length;
+		if (inLength < 4)
+			return null;
+
+		final int[] table = hashTable.get();
+		final byte[] out = new byte[inLength + inLength / MAX_LITERAL + 8];
+		OBinaryProtocol.int2bytes(inLength, out, 0);
+
+		int ip = 0;
+		int litPos = OBinaryProtocol.SIZE_INT;
+		int op = litPos + 1;
+		int literals = 0;
+
+		while (ip < inLength - 2) {
+			final int hash = hash(iContent, ip);
+			final int ref = table[hash];
+			table[hash] = ip;
+
+			final int offset = ip - ref - 1;
+			if (offset >= 0 && offset < MAX_OFFSET && iContent[ref] == iContent[ip] && iContent[ref + 1] == iContent[ip + 1]
+					&& iContent[ref + 2] == iContent[ip + 2]) {
+				// MATCH FOUND: CLOSE THE CURRENT LITERAL RUN
+				final int maxLength = Math.min(MAX_LENGTH, inLength - ip);
+				int length = 3;
+				while (length < maxLength && iContent[ref + length] == iContent[ip + length])
+					++length;
+
+				if (literals > 0)
+					out[litPos] = (byte) (literals - 1);
+				else
+					// REUSE THE BYTE RESERVED FOR THE LITERAL RUN
+					op = litPos;
+
+				final int encodedLength = length - 2;
+				if (encodedLength < 7)
+					out[op++] = (byte) ((encodedLength << 5) + (offset >> 8));
+				else {
+					out[op++] = (byte) ((7 << 5) + (offset >> 8));
+					out[op++] = (byte) (encodedLength - 7);
+				}
+				out[op++] = (byte) offset;
+
+				// INDEX THE POSITIONS INSIDE THE MATCH
+				final int end = Math.min(ip + length, inLength - 2);
+				for (int i = ip + 1; i < end; ++i)
+					table[hash(iContent, i)] = i;
+
+				ip += length;
+				litPos = op++;
+				literals = 0;
+
+			} else {
+				out[op++] = iContent[ip++];
+				if (++literals == MAX_LITERAL) {
+					out[litPos] = MAX_LITERAL - 1;
+					litPos = op++;
+					literals = 0;
+				}
+
+				if (op >= inLength)
+					// NOT COMPRESSIBLE
+					return null;
+			}
+		}
+
+		// LAST BYTES AS LITERALS
+		while (ip < inLength) {
+			out[op++] = iContent[ip++];
+			if (++literals == MAX_LITERAL) {
+				out[litPos] = MAX_LITERAL - 1;
+				litPos = op++;
+				literals = 0;
+			}
+		}
+
+		if (literals > 0)
+			out[litPos] = (byte) (literals - 1);
+		else
+			op = litPos;
+
+		if (op >= inLength)
+			return null;
+
+		return OArrays.copyOfRange(out, 0, op);
+	}
+
+	/**
+	 * Uncompresses a content created by {@link #compress(byte[])}.
+	 */
+	public static byte[] uncompress(final byte[] iContent) {
+		final byte[] out = new byte[OBinaryProtocol.bytes2int(iContent, 0)];
+
+		int ip = OBinaryProtocol.SIZE_INT;
+		int op = 0;
+
+		while (ip < iContent.length) {
+			final int ctrl = iContent[ip++] & 0xff;
+
+			if (ctrl < MAX_LITERAL) {
+				// LITERAL RUN
+				System.arraycopy(iContent, ip, out, op, ctrl + 1);
+				ip += ctrl + 1;
+				op += ctrl + 1;
+
+			} else {
+				// BACK REFERENCE, CAN OVERLAP THE BYTES IT'S WRITING
+				int length = ctrl >> 5;
+				if (length == 7)
+					length += iContent[ip++] & 0xff;
+				length += 2;
+
+				int ref = op - ((ctrl & 0x1f) << 8) - (iContent[ip++] & 0xff) - 1;
+				for (final int end = op + length; op < end;)
+					out[op++] = out[ref++];
+			}
+		}
+
+		return out;
+	}
+
+	private static int hash(final byte[] iContent, final int iPosition) {
+		final int v = (iContent[iPosition] & 0xff) << 16 | (iContent[iPosition + 1] & 0xff) << 8 | (iContent[iPosition + 2] & 0xff);
+		return (v * 0x9E3779B1) >>> (32 - HASH_BITS);
+	}
+}
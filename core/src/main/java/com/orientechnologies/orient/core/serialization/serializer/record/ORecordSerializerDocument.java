@@ -0,0 +1,67 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.record;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerBinary;
+
+/**
+ * Document format used by ODocument. Reads the documents in both CSV and binary formats, recognizing the binary ones by the first
+ * byte, and writes them in the format configured with "db.document.serializer". In this way the existing documents are migrated on
+ * the fly the next time they are saved. Both formats can unmarshall single fields.
+ *
+ * @author Luca Garulli
+ *
+ */
+public class ORecordSerializerDocument implements ORecordSerializerPartial {
+	public static final String		NAME			= "ORecordDocument2auto";
+	public static final String		CSV				= "csv";
+	public static final String		BINARY		= "binary";
+
+	private final ORecordSerializerPartial	csv;
+	private final ORecordSerializerPartial	binary;
+
+	public ORecordSerializerDocument(final ORecordSerializerPartial iCSV, final ORecordSerializerPartial iBinary) {
+		csv = iCSV;
+		binary = iBinary;
+	}
+
+	public ORecordInternal<?> fromStream(final byte[] iSource, final ORecordInternal<?> iRecord) {
+		if (ORecordSerializerBinary.isBinary(iSource))
+			return binary.fromStream(iSource, iRecord);
+		return csv.fromStream(iSource, iRecord);
+	}
+
+	public ORecordInternal<?> fromStream(final byte[] iSource, final ORecordInternal<?> iRecord, final String[] iFields) {
+		if (ORecordSerializerBinary.isBinary(iSource))
+			return binary.fromStream(iSource, iRecord, iFields);
+		return csv.fromStream(iSource, iRecord, iFields);
+	}
+
+	public byte[] toStream(final ORecordInternal<?> iSource, final boolean iOnlyDelta) {
+		return getWriteFormat().toStream(iSource, iOnlyDelta);
+	}
+
+	public ORecordSerializer getWriteFormat() {
+		return BINARY.equalsIgnoreCase(OGlobalConfiguration.DB_DOCUMENT_SERIALIZER.getValueAsString()) ? binary : csv;
+	}
+
+	@Override
+	public String toString() {
+		return NAME;
+	}
+}
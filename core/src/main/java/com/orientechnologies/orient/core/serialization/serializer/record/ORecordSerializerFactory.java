@@ -19,6 +19,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerBinary;
 import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerJSON;
 import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
 
@@ -31,7 +32,10 @@ public class ORecordSerializerFactory {
 	public ORecordSerializerFactory() {
 		defaultRecordFormat = new ORecordSerializerRaw();
 
-		implementations.put(ORecordSerializerSchemaAware2CSV.NAME, new ORecordSerializerSchemaAware2CSV());
+		final ORecordSerializerSchemaAware2CSV csv = new ORecordSerializerSchemaAware2CSV();
+		implementations.put(ORecordSerializerSchemaAware2CSV.NAME, csv);
+		implementations.put(ORecordSerializerBinary.NAME, ORecordSerializerBinary.INSTANCE);
+		implementations.put(ORecordSerializerDocument.NAME, new ORecordSerializerDocument(csv, ORecordSerializerBinary.INSTANCE));
 		implementations.put(ORecordSerializerJSON.NAME, new ORecordSerializerJSON());
 		implementations.put(ORecordSerializerRaw.NAME, defaultRecordFormat);
 	}
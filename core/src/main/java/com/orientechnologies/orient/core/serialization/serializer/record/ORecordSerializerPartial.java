@@ -0,0 +1,38 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.record;
+
+import com.orientechnologies.orient.core.record.ORecordInternal;
+
+/**
+ * Record format able to unmarshall only some fields of the content, skipping the conversion of the others.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public interface ORecordSerializerPartial extends ORecordSerializer {
+	/**
+	 * Unmarshalls the class and the requested fields of the content. Fields not contained in the content are ignored.
+	 * 
+	 * @param iSource
+	 *          Record content
+	 * @param iRecord
+	 *          Record to fill
+	 * @param iFields
+	 *          Names of the fields to unmarshall
+	 */
+	public ORecordInternal<?> fromStream(byte[] iSource, ORecordInternal<?> iRecord, String[] iFields);
+}
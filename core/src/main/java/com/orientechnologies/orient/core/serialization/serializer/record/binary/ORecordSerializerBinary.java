@@ -0,0 +1,839 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.record.binary;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.orientechnologies.common.collection.OLazyIterator;
+import com.orientechnologies.common.collection.OMultiValue;
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.db.record.ORecordElement;
+import com.orientechnologies.orient.core.db.record.ORecordLazyList;
+import com.orientechnologies.orient.core.db.record.ORecordLazyMap;
+import com.orientechnologies.orient.core.db.record.ORecordLazyMultiValue;
+import com.orientechnologies.orient.core.db.record.OTrackedList;
+import com.orientechnologies.orient.core.db.record.OTrackedMap;
+import com.orientechnologies.orient.core.db.record.OTrackedSet;
+import com.orientechnologies.orient.core.exception.OSerializationException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
+import com.orientechnologies.orient.core.serialization.OMemoryStream;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerPartial;
+import com.orientechnologies.orient.core.serialization.serializer.record.OSerializationThreadLocal;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerCSVAbstract;
+import com.orientechnologies.orient.core.serialization.serializer.string.OStringSerializerAnyStreamable;
+import com.orientechnologies.orient.core.storage.OStorageEmbedded;
+import com.orientechnologies.orient.core.type.tree.OMVRBTreeRIDSet;
+
+/**
+ * Compact binary format for documents, alternative to the CSV one. The content starts with the {@link #MAGIC} byte, that can't
+ * start a CSV document, followed by the format version, the class name, the header of the fields and their values:
+ *
+ * <pre>
+ * MAGIC VERSION class-name-length class-name fields
+ * for each field: key [name] type value-length
+ * values
+ * </pre>
+ *
+ * Lengths, numbers and dates are written as varints (zig-zag for signed values). The key of a field is the schema property id
+ * shifted by one with the lowest bit set, or the length of the field name shifted by one followed by the name when the class doesn't
+ * define the property. The header contains the type and the length of every value, so a single field can be located and
+ * unmarshalled without parsing the others. Embedded documents and collections are length-prefixed as well.<br/>
+ * Property ids are written only against local storages, because remote clients could assign different ids to the properties they
+ * create. The schema keeps the names of the dropped properties, so their fields are still unmarshalled. An id that can't be resolved
+ * (no database bound to the current thread or class not found) makes the unmarshalling fail instead of losing the field.
+ *
+ * @author Luca Garulli
+ *
+ */
+public class ORecordSerializerBinary implements ORecordSerializerPartial {
+	public static final String									NAME			= "ORecordDocument2binary";
+	public static final ORecordSerializerBinary	INSTANCE	= new ORecordSerializerBinary();
+
+	public static final byte										MAGIC			= 0;
+	public static final byte										VERSION		= 1;
+
+	private static final byte										NULL_TYPE	= -1;
+
+	public ORecordInternal<?> fromStream(final byte[] iSource, final ORecordInternal<?> iRecord) {
+		return fromStream(iSource, iRecord, null);
+	}
+
+	public ORecordInternal<?> fromStream(final byte[] iSource, final ORecordInternal<?> iRecord, final String[] iFields) {
+		final long timer = OProfiler.getInstance().startChrono();
+
+		try {
+			final ODocument record = (ODocument) iRecord;
+			final OHeader header = readHeader(iSource);
+
+			record.setClassNameIfExists(header.className);
+			final OClass cls = record.getSchemaClass();
+
+			for (int i = 0; i < header.fields; ++i) {
+				final String fieldName = header.getFieldName(i, cls);
+
+				if (iFields != null && !contains(iFields, fieldName))
+					// NOT REQUESTED: SKIP IT
+					continue;
+
+				try {
+					final OType type = header.types[i];
+					final Object value = type == null ? null : valueFromStream(record, type, new OInput(iSource, header.offsets[i]),
+							header.lengths[i]);
+
+					if (type == OType.EMBEDDEDLIST || type == OType.EMBEDDEDSET || type == OType.EMBEDDEDMAP || type == OType.EMBEDDED)
+						// SAVE THE TYPE AS EMBEDDED
+						record.field(fieldName, value, type);
+					else
+						record.field(fieldName, value);
+
+				} catch (Exception e) {
+					throw new OSerializationException("Error on unmarshalling field '" + fieldName + "' of record " + record.getIdentity(),
+							e);
+				}
+			}
+
+			return iRecord;
+
+		} finally {
+			OProfiler.getInstance().stopChrono("serializer.rec.bin.fromStream", timer);
+		}
+	}
+
+	/**
+	 * Returns the names of the fields contained in the content without unmarshalling the values.
+	 */
+	public String[] fieldNamesFromStream(final byte[] iSource) {
+		final OHeader header = readHeader(iSource);
+		final OClass cls = getClass(header.className);
+
+		final String[] names = new String[header.fields];
+		for (int i = 0; i < header.fields; ++i)
+			names[i] = header.getFieldName(i, cls);
+		return names;
+	}
+
+	/**
+	 * Unmarshalls a single field of the content, without parsing the other ones.
+	 *
+	 * @param iRecord
+	 *          Document that owns the content, used as owner of the multi-value and embedded values
+	 * @param iSource
+	 *          Content in binary format
+	 * @param iFieldName
+	 *          Name of the field to unmarshall
+	 * @return The field value or null if not found
+	 */
+	public Object fieldFromStream(final ODocument iRecord, final byte[] iSource, final String iFieldName) {
+		final long timer = OProfiler.getInstance().startChrono();
+
+		try {
+			final OHeader header = readHeader(iSource);
+			final OClass cls = getClass(header.className);
+
+			for (int i = 0; i < header.fields; ++i)
+				if (iFieldName.equals(header.getFieldName(i, cls)))
+					return header.types[i] == null ? null : valueFromStream(iRecord, header.types[i], new OInput(iSource,
+							header.offsets[i]), header.lengths[i]);
+
+			return null;
+
+		} finally {
+			OProfiler.getInstance().stopChrono("serializer.rec.bin.fieldFromStream", timer);
+		}
+	}
+
+	/**
+	 * Returns true if the content has been written by this serializer.
+	 */
+	public static boolean isBinary(final byte[] iSource) {
+		return iSource != null && iSource.length > 1 && iSource[0] == MAGIC;
+	}
+
+	public byte[] toStream(final ORecordInternal<?> iRecord, final boolean iOnlyDelta) {
+		if (!(iRecord instanceof ODocument))
+			throw new OSerializationException("Cannot marshall a record of type " + iRecord.getClass().getSimpleName() + " to binary");
+
+		final long timer = OProfiler.getInstance().startChrono();
+
+		try {
+			final ODocument record = (ODocument) iRecord;
+
+			// CHECK IF THE RECORD IS PENDING TO BE MARSHALLED
+			final Set<Integer> marshalledRecords = OSerializationThreadLocal.INSTANCE.get();
+			final Integer identityRecord = System.identityHashCode(record);
+			if (marshalledRecords.contains(identityRecord))
+				return new byte[0];
+
+			marshalledRecords.add(identityRecord);
+			try {
+				final ODatabaseRecord database = ODatabaseRecordThreadLocal.INSTANCE.check() ? ODatabaseRecordThreadLocal.INSTANCE.get()
+						: null;
+				final boolean useIds = database != null && database.getStorage() instanceof OStorageEmbedded;
+
+				return documentToStream(record, iOnlyDelta, useIds);
+			} finally {
+				marshalledRecords.remove(identityRecord);
+			}
+
+		} finally {
+			OProfiler.getInstance().stopChrono("serializer.rec.bin.toStream", timer);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return NAME;
+	}
+
+	protected byte[] documentToStream(final ODocument iRecord, final boolean iOnlyDelta, final boolean iUseIds) {
+		final OClass cls = iRecord.getSchemaClass();
+
+		final String[] fieldNames = iOnlyDelta && iRecord.isTrackingChanges() ? iRecord.getDirtyFields() : iRecord.fieldNames();
+
+		final OMemoryStream header = new OMemoryStream(32 + fieldNames.length * 4);
+		final OMemoryStream values = new OMemoryStream(fieldNames.length * 16 + 16);
+
+		header.write(MAGIC);
+		header.write(VERSION);
+		if (!iOnlyDelta && cls != null)
+			writeString(header, cls.getStreamableName());
+		else
+			writeVarLong(header, 0);
+
+		int fields = 0;
+		final OMemoryStream fieldHeaders = new OMemoryStream(fieldNames.length * 8 + 8);
+
+		// MARSHALL ALL THE FIELDS OR DELTA IF TRACKING IS ENABLED
+		for (String fieldName : fieldNames) {
+			final Object fieldValue = iRecord.rawField(fieldName);
+
+			// SEARCH FOR A CONFIGURED PROPERTY
+			final OProperty prop = cls != null ? cls.getProperty(fieldName) : null;
+
+			OType type = prop != null ? prop.getType() : iRecord.fieldType(fieldName);
+			if (type == null)
+				type = getTypeByValue(fieldValue, false);
+
+			if (type == OType.TRANSIENT)
+				// TRANSIENT FIELD
+				continue;
+
+			if (iUseIds && prop != null && prop.getId() > -1)
+				writeVarLong(fieldHeaders, ((long) prop.getId() << 1) | 1);
+			else {
+				final byte[] name = OBinaryProtocol.string2bytes(fieldName);
+				writeVarLong(fieldHeaders, (long) name.length << 1);
+				fieldHeaders.write(name, 0, name.length);
+			}
+
+			if (fieldValue == null)
+				fieldHeaders.write(NULL_TYPE);
+			else {
+				final int begin = values.size();
+				if (!valueToStream(values, iRecord, fieldName, type, fieldValue, iUseIds))
+					type = null;
+
+				if (type != null) {
+					fieldHeaders.write(type.getId());
+					writeVarLong(fieldHeaders, values.size() - begin);
+				} else
+					fieldHeaders.write(NULL_TYPE);
+			}
+
+			fields++;
+		}
+
+		writeVarLong(header, fields);
+
+		// GET THE OVERSIZE IF ANY
+		final int length = header.size() + fieldHeaders.size() + values.size();
+		final int newSize;
+		if (iRecord.hasOwners())
+			// EMBEDDED: GET REAL SIZE
+			newSize = length;
+		else if (iRecord.getSize() > length)
+			// FILL ALL THE AVAILABLE SPACE TO AVOID FRAGMENTATION. THE EXTRA BYTES ARE IGNORED ON UNMARSHALLING
+			newSize = iRecord.getSize();
+		else if (cls != null && cls.getOverSize() > 0)
+			newSize = (int) (length * cls.getOverSize());
+		else
+			newSize = length;
+
+		final byte[] result = new byte[newSize];
+		System.arraycopy(header.getInternalBuffer(), 0, result, 0, header.size());
+		System.arraycopy(fieldHeaders.getInternalBuffer(), 0, result, header.size(), fieldHeaders.size());
+		System.arraycopy(values.getInternalBuffer(), 0, result, header.size() + fieldHeaders.size(), values.size());
+		return result;
+	}
+
+	/**
+	 * Writes the value without length, that is written by the caller.
+	 *
+	 * @return false if the value has been written as null
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean valueToStream(final OMemoryStream iOutput, final ODocument iRecord, final String iFieldName, final OType iType,
+			final Object iValue, final boolean iUseIds) {
+		switch (iType) {
+		case BOOLEAN:
+			iOutput.write(iValue instanceof Boolean ? (((Boolean) iValue) ? 1 : 0) : (Boolean.parseBoolean(iValue.toString()) ? 1 : 0));
+			break;
+
+		case BYTE:
+			iOutput.write(((Number) iValue).byteValue());
+			break;
+
+		case SHORT:
+		case INTEGER:
+		case LONG:
+			writeSignedVarLong(iOutput, ((Number) iValue).longValue());
+			break;
+
+		case FLOAT:
+			iOutput.set(Float.floatToIntBits(((Number) iValue).floatValue()));
+			break;
+
+		case DOUBLE:
+			iOutput.set(Double.doubleToLongBits(((Number) iValue).doubleValue()));
+			break;
+
+		case DATE:
+		case DATETIME:
+			writeSignedVarLong(iOutput, iValue instanceof Date ? ((Date) iValue).getTime() : ((Number) iValue).longValue());
+			break;
+
+		case STRING:
+			writeStringContent(iOutput, iValue.toString());
+			break;
+
+		case BINARY:
+			final byte[] bytes = (byte[]) iValue;
+			iOutput.write(bytes, 0, bytes.length);
+			break;
+
+		case LINK: {
+			final OIdentifiable link = ORecordSerializerCSVAbstract.linkToStream(null, iRecord, iValue);
+			if (link != null && iFieldName != null)
+				// OVERWRITE CONTENT
+				iRecord.field(iFieldName, link);
+
+			final ORID rid = getIdentity(link, iValue);
+			if (!rid.isValid())
+				return false;
+
+			writeLink(iOutput, rid);
+			break;
+		}
+
+		case LINKLIST: {
+			final Collection<?> coll = iValue instanceof Collection<?> ? (Collection<?>) iValue : null;
+			writeVarLong(iOutput, OMultiValue.getSize(iValue));
+
+			if (iValue instanceof ORecordLazyList) {
+				// UPDATE THE RECORDS SAVED AT THE FLY WITH THEIR IDENTITY
+				final Iterator<OIdentifiable> it = ((ORecordLazyList) iValue).rawIterator();
+				while (it.hasNext()) {
+					final OIdentifiable item = it.next();
+					final OIdentifiable newRid = ORecordSerializerCSVAbstract.linkToStream(null, iRecord, item);
+					if (newRid != null)
+						((OLazyIterator<OIdentifiable>) it).update(newRid);
+					writeLink(iOutput, getIdentity(newRid, item));
+				}
+			} else
+				for (Object item : coll != null ? coll : OMultiValue.getMultiValueIterable(iValue))
+					writeLink(iOutput, linkToStream(iRecord, item));
+			break;
+		}
+
+		case LINKSET: {
+			final OMVRBTreeRIDSet set;
+			if (!(iValue instanceof OMVRBTreeRIDSet)) {
+				// FIRST TIME: CONVERT THE ENTIRE COLLECTION
+				set = new OMVRBTreeRIDSet(iRecord);
+				for (Object item : OMultiValue.getMultiValueIterable(iValue))
+					set.add((OIdentifiable) item);
+
+				if (iFieldName != null)
+					iRecord.field(iFieldName, set);
+			} else
+				set = (OMVRBTreeRIDSet) iValue;
+
+			// THE SET KEEPS ITS OWN FORMAT: IT COULD BE STORED IN A SEPARATE TREE
+			final byte[] content = set.toStream();
+			iOutput.write(content, 0, content.length);
+			break;
+		}
+
+		case LINKMAP: {
+			final Map<Object, Object> map = (Map<Object, Object>) iValue;
+
+			final boolean autoConvert = map instanceof ORecordLazyMultiValue && ((ORecordLazyMultiValue) map).isAutoConvertToRecord();
+			if (autoConvert)
+				((ORecordLazyMultiValue) map).setAutoConvertToRecord(false);
+
+			try {
+				writeVarLong(iOutput, map.size());
+				for (Entry<Object, Object> entry : map.entrySet()) {
+					writeString(iOutput, entry.getKey().toString());
+					writeLink(iOutput, linkToStream(iRecord, entry.getValue()));
+				}
+			} finally {
+				if (autoConvert)
+					((ORecordLazyMultiValue) map).setAutoConvertToRecord(true);
+			}
+			break;
+		}
+
+		case EMBEDDED:
+			if (iValue instanceof ODocument) {
+				final byte[] content = documentToStream((ODocument) iValue, false, iUseIds);
+				iOutput.write(content, 0, content.length);
+			} else
+				return valueToStream(iOutput, iRecord, null, OType.CUSTOM, iValue, iUseIds);
+			break;
+
+		case CUSTOM:
+			writeStringContent(iOutput, OStringSerializerAnyStreamable.INSTANCE.toStream(new StringBuilder(), iValue).toString());
+			break;
+
+		case EMBEDDEDLIST:
+		case EMBEDDEDSET:
+			writeVarLong(iOutput, OMultiValue.getSize(iValue));
+			for (Object item : OMultiValue.getMultiValueIterable(iValue))
+				itemToStream(iOutput, iRecord, item, iUseIds);
+			break;
+
+		case EMBEDDEDMAP: {
+			final Map<Object, Object> map = (Map<Object, Object>) iValue;
+			writeVarLong(iOutput, map.size());
+			for (Entry<Object, Object> entry : map.entrySet()) {
+				writeString(iOutput, entry.getKey().toString());
+				itemToStream(iOutput, iRecord, entry.getValue(), iUseIds);
+			}
+			break;
+		}
+
+		default:
+			throw new OSerializationException("Type " + iType + " not supported to marshall value: " + iValue);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Writes an item of an embedded collection or map with its own type and length.
+	 */
+	private void itemToStream(final OMemoryStream iOutput, final ODocument iRecord, final Object iItem, final boolean iUseIds) {
+		final OType type = getTypeByValue(iItem, true);
+		if (type == null) {
+			iOutput.write(NULL_TYPE);
+			return;
+		}
+
+		final OMemoryStream item = new OMemoryStream(16);
+		if (!valueToStream(item, iRecord, null, type, iItem, iUseIds)) {
+			iOutput.write(NULL_TYPE);
+			return;
+		}
+
+		iOutput.write(type.getId());
+		writeVarLong(iOutput, item.size());
+		iOutput.write(item.getInternalBuffer(), 0, item.size());
+	}
+
+	private Object valueFromStream(final ODocument iRecord, final OType iType, final OInput iInput, final int iLength) {
+		switch (iType) {
+		case BOOLEAN:
+			return iInput.buffer[iInput.position] == 1;
+
+		case BYTE:
+			return iInput.buffer[iInput.position];
+
+		case SHORT:
+			return (short) iInput.readSignedVarLong();
+
+		case INTEGER:
+			return (int) iInput.readSignedVarLong();
+
+		case LONG:
+			return iInput.readSignedVarLong();
+
+		case FLOAT:
+			return Float.intBitsToFloat(OBinaryProtocol.bytes2int(iInput.buffer, iInput.position));
+
+		case DOUBLE:
+			return Double.longBitsToDouble(OBinaryProtocol.bytes2long(iInput.buffer, iInput.position));
+
+		case DATE:
+		case DATETIME:
+			return new Date(iInput.readSignedVarLong());
+
+		case STRING:
+			return iInput.readString(iLength);
+
+		case BINARY:
+			return iInput.readBytes(iLength);
+
+		case LINK:
+			return iLength == 0 ? null : iInput.readLink();
+
+		case LINKLIST: {
+			final ORecordLazyList list = new ORecordLazyList(iRecord);
+			for (int items = (int) iInput.readVarLong(); items > 0; --items)
+				list.add(iInput.readLink());
+			return list;
+		}
+
+		case LINKSET:
+			return new OMVRBTreeRIDSet(iRecord).fromStream(iInput.readBytes(iLength));
+
+		case LINKMAP: {
+			final ORecordLazyMap map = new ORecordLazyMap(iRecord, ODocument.RECORD_TYPE);
+			for (int items = (int) iInput.readVarLong(); items > 0; --items)
+				map.put(iInput.readString((int) iInput.readVarLong()), iInput.readLink());
+			return map;
+		}
+
+		case EMBEDDED: {
+			// THE FIELDS ARE UNMARSHALLED LAZILY AT THE FIRST ACCESS
+			final ODocument embedded = new ODocument().fromStream(iInput.readBytes(iLength));
+			embedded.addOwner(iRecord);
+			return embedded;
+		}
+
+		case CUSTOM: {
+			final Object result = OStringSerializerAnyStreamable.INSTANCE.fromStream(iInput.readString(iLength));
+			if (result instanceof ODocument)
+				((ODocument) result).addOwner(iRecord);
+			return result;
+		}
+
+		case EMBEDDEDLIST:
+		case EMBEDDEDSET: {
+			final Collection<Object> coll = iType == OType.EMBEDDEDLIST ? new OTrackedList<Object>(iRecord) : new OTrackedSet<Object>(
+					iRecord);
+
+			for (int items = (int) iInput.readVarLong(); items > 0; --items) {
+				final Object item = itemFromStream(iRecord, iInput);
+				if (item instanceof ODocument)
+					((ODocument) item).addOwner((ORecordElement) coll);
+				coll.add(item);
+			}
+			return coll;
+		}
+
+		case EMBEDDEDMAP: {
+			final Map<Object, Object> map = new OTrackedMap<Object>(iRecord);
+			for (int items = (int) iInput.readVarLong(); items > 0; --items) {
+				final String key = iInput.readString((int) iInput.readVarLong());
+				map.put(key, itemFromStream(iRecord, iInput));
+			}
+			return map;
+		}
+
+		default:
+			throw new OSerializationException("Type " + iType + " not supported to unmarshall");
+		}
+	}
+
+	private Object itemFromStream(final ODocument iRecord, final OInput iInput) {
+		final byte typeId = iInput.buffer[iInput.position++];
+		if (typeId == NULL_TYPE)
+			return null;
+
+		final int length = (int) iInput.readVarLong();
+		final int end = iInput.position + length;
+		final Object item = valueFromStream(iRecord, OType.getById(typeId), iInput, length);
+		iInput.position = end;
+		return item;
+	}
+
+	/**
+	 * Determines the type of a value not bound to a schema property or forced by the user.
+	 *
+	 * @param iItem
+	 *          true if the value is an item of an embedded collection or map: in this case the documents without identity are
+	 *          embedded
+	 */
+	private static OType getTypeByValue(final Object iValue, final boolean iItem) {
+		if (iValue == null)
+			return null;
+
+		if (iValue instanceof OIdentifiable) {
+			if (iItem)
+				return ((OIdentifiable) iValue).getIdentity().isValid() ? OType.LINK : OType.EMBEDDED;
+			return iValue instanceof ODocument && ((ODocument) iValue).hasOwners() ? OType.EMBEDDED : OType.LINK;
+		}
+
+		if (iValue instanceof String || iValue instanceof Enum<?>)
+			return OType.STRING;
+		if (iValue instanceof Integer)
+			return OType.INTEGER;
+		if (iValue instanceof Long)
+			return OType.LONG;
+		if (iValue instanceof Double)
+			return OType.DOUBLE;
+		if (iValue instanceof Float)
+			return OType.FLOAT;
+		if (iValue instanceof Short)
+			return OType.SHORT;
+		if (iValue instanceof Byte)
+			return OType.BYTE;
+		if (iValue instanceof Boolean)
+			return OType.BOOLEAN;
+		if (iValue instanceof Date)
+			return OType.DATETIME;
+		if (iValue instanceof byte[])
+			return OType.BINARY;
+
+		if (iValue instanceof OMVRBTreeRIDSet)
+			return OType.LINKSET;
+		if (iValue instanceof ORecordLazyList)
+			return OType.LINKLIST;
+		if (iValue instanceof ORecordLazyMap)
+			return OType.LINKMAP;
+
+		if (iValue instanceof Map<?, ?>) {
+			final Object first = OMultiValue.getFirstValue(iValue);
+			return !iItem && isLink(first) ? OType.LINKMAP : OType.EMBEDDEDMAP;
+		}
+
+		if (iValue instanceof Collection<?> || iValue.getClass().isArray()) {
+			final Object first = iValue instanceof ORecordLazyMultiValue ? firstRawValue((ORecordLazyMultiValue) iValue) : OMultiValue
+					.getFirstValue(iValue);
+			if (!iItem && isLink(first))
+				return iValue instanceof Set<?> ? OType.LINKSET : OType.LINKLIST;
+			return iValue instanceof Set<?> ? OType.EMBEDDEDSET : OType.EMBEDDEDLIST;
+		}
+
+		return OType.CUSTOM;
+	}
+
+	private static boolean isLink(final Object iValue) {
+		return iValue instanceof ORID || iValue instanceof ORecord<?>
+				&& !(iValue instanceof ODocument && ((ODocument) iValue).hasOwners());
+	}
+
+	private static Object firstRawValue(final ORecordLazyMultiValue iValue) {
+		final Iterator<OIdentifiable> it = iValue.rawIterator();
+		return it.hasNext() ? it.next() : null;
+	}
+
+	/**
+	 * Saves the linked record if new or dirty, like the CSV format does, and returns its identity.
+	 */
+	private static ORID linkToStream(final ODocument iRecord, final Object iLinked) {
+		if (iLinked == null)
+			return null;
+
+		return getIdentity(ORecordSerializerCSVAbstract.linkToStream(null, iRecord, iLinked), iLinked);
+	}
+
+	private static ORID getIdentity(final OIdentifiable iSaved, final Object iLinked) {
+		if (iSaved != null)
+			return iSaved.getIdentity();
+
+		if (!(iLinked instanceof OIdentifiable))
+			throw new OSerializationException("Invalid object received. Expected a record but received type="
+					+ iLinked.getClass().getName() + " and value=" + iLinked);
+
+		return ((OIdentifiable) iLinked).getIdentity();
+	}
+
+	private static void writeLink(final OMemoryStream iOutput, final ORID iRID) {
+		if (iRID == null) {
+			writeSignedVarLong(iOutput, ORID.CLUSTER_ID_INVALID);
+			writeSignedVarLong(iOutput, ORID.CLUSTER_POS_INVALID);
+		} else {
+			writeSignedVarLong(iOutput, iRID.getClusterId());
+			writeSignedVarLong(iOutput, iRID.getClusterPosition());
+		}
+	}
+
+	private static void writeString(final OMemoryStream iOutput, final String iValue) {
+		final byte[] bytes = OBinaryProtocol.string2bytes(iValue);
+		writeVarLong(iOutput, bytes.length);
+		iOutput.write(bytes, 0, bytes.length);
+	}
+
+	private static void writeStringContent(final OMemoryStream iOutput, final String iValue) {
+		try {
+			OBinaryProtocol.string2bytes(iValue, iOutput);
+		} catch (IOException e) {
+			throw new OSerializationException("Error on marshalling string: " + iValue, e);
+		}
+	}
+
+	private static void writeVarLong(final OMemoryStream iOutput, long iValue) {
+		while ((iValue & ~0x7FL) != 0) {
+			iOutput.write((int) ((iValue & 0x7F) | 0x80));
+			iValue >>>= 7;
+		}
+		iOutput.write((int) iValue);
+	}
+
+	private static void writeSignedVarLong(final OMemoryStream iOutput, final long iValue) {
+		// ZIG-ZAG ENCODING: SMALL NEGATIVE NUMBERS TAKE FEW BYTES TOO
+		writeVarLong(iOutput, (iValue << 1) ^ (iValue >> 63));
+	}
+
+	private static boolean contains(final String[] iFields, final String iFieldName) {
+		for (String f : iFields)
+			if (f.equals(iFieldName))
+				return true;
+		return false;
+	}
+
+	private static OClass getClass(final String iClassName) {
+		if (iClassName == null || !ODatabaseRecordThreadLocal.INSTANCE.check())
+			return null;
+		return ODatabaseRecordThreadLocal.INSTANCE.get().getMetadata().getSchema().getClass(iClassName);
+	}
+
+	private static OHeader readHeader(final byte[] iSource) {
+		if (!isBinary(iSource))
+			throw new OSerializationException("Content is not in binary format");
+
+		if (iSource[1] != VERSION)
+			throw new OSerializationException("Binary format version " + iSource[1] + " is not supported");
+
+		final OInput input = new OInput(iSource, 2);
+		final OHeader header = new OHeader();
+
+		final int classNameLength = (int) input.readVarLong();
+		header.className = classNameLength > 0 ? input.readString(classNameLength) : null;
+
+		header.fields = (int) input.readVarLong();
+		header.keys = new long[header.fields];
+		header.names = new String[header.fields];
+		header.types = new OType[header.fields];
+		header.offsets = new int[header.fields];
+		header.lengths = new int[header.fields];
+
+		for (int i = 0; i < header.fields; ++i) {
+			header.keys[i] = input.readVarLong();
+			if ((header.keys[i] & 1) == 0)
+				header.names[i] = input.readString((int) (header.keys[i] >>> 1));
+
+			final byte typeId = input.buffer[input.position++];
+			if (typeId != NULL_TYPE) {
+				header.types[i] = OType.getById(typeId);
+				header.lengths[i] = (int) input.readVarLong();
+			}
+		}
+
+		// COMPUTE THE OFFSETS OF THE VALUES
+		int offset = input.position;
+		for (int i = 0; i < header.fields; ++i) {
+			header.offsets[i] = offset;
+			offset += header.lengths[i];
+		}
+
+		return header;
+	}
+
+	private static class OHeader {
+		private String		className;
+		private int				fields;
+		private long[]		keys;
+		private String[]	names;
+		private OType[]		types;
+		private int[]			offsets;
+		private int[]			lengths;
+
+		private String getFieldName(final int iField, final OClass iClass) {
+			if (names[iField] != null)
+				return names[iField];
+
+			final int propertyId = (int) (keys[iField] >>> 1);
+			if (iClass == null)
+				throw new OSerializationException("Cannot resolve the field with property id " + propertyId + ": "
+						+ (ODatabaseRecordThreadLocal.INSTANCE.check() ? "class '" + className + "' not found in the schema"
+								: "no database bound to the current thread"));
+
+			final String name = iClass.getPropertyNameById(propertyId);
+			if (name == null)
+				throw new OSerializationException("Cannot resolve the field with property id " + propertyId + " in class '"
+						+ iClass.getName() + "': the schema is not the one the record has been written with");
+
+			// CACHE IT FOR THE NEXT LOOKUPS OF THE SAME HEADER
+			names[iField] = name;
+			return name;
+		}
+	}
+
+	private static class OInput {
+		private final byte[]	buffer;
+		private int						position;
+
+		private OInput(final byte[] iBuffer, final int iPosition) {
+			buffer = iBuffer;
+			position = iPosition;
+		}
+
+		private long readVarLong() {
+			long value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = buffer[position++];
+				value |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			return value;
+		}
+
+		private long readSignedVarLong() {
+			final long raw = readVarLong();
+			return (raw >>> 1) ^ -(raw & 1);
+		}
+
+		private String readString(final int iLength) {
+			final String value = OBinaryProtocol.bytes2string(buffer, position, iLength);
+			position += iLength;
+			return value;
+		}
+
+		private byte[] readBytes(final int iLength) {
+			final byte[] value = new byte[iLength];
+			System.arraycopy(buffer, position, value, 0, iLength);
+			position += iLength;
+			return value;
+		}
+
+		private ORecordId readLink() {
+			final int clusterId = (int) readSignedVarLong();
+			return new ORecordId(clusterId, readSignedVarLong());
+		}
+	}
+}
@@ -671,6 +671,7 @@ public abstract class ORecordSerializerCSVAbstract extends ORecordSerializerStri
 	 * Serialize the link.
 	 * 
 	 * @param buffer
+	 *          Buffer where to write the RID, or null to only save the linked record if needed
 	 * @param iParentRecord
 	 * @param iFieldName
 	 *          TODO
@@ -678,7 +679,7 @@ public abstract class ORecordSerializerCSVAbstract extends ORecordSerializerStri
 	 *          Can be an instance of ORID or a Record<?>
 	 * @return
 	 */
-	private static OIdentifiable linkToStream(final StringBuilder buffer, final ORecordSchemaAware<?> iParentRecord, Object iLinked) {
+	public static OIdentifiable linkToStream(final StringBuilder buffer, final ORecordSchemaAware<?> iParentRecord, Object iLinked) {
 		if (iLinked == null)
 			// NULL REFERENCE
 			return null;
@@ -750,7 +751,7 @@ public abstract class ORecordSerializerCSVAbstract extends ORecordSerializerStri
 			}
 		}
 
-		if (rid.isValid())
+		if (buffer != null && rid.isValid())
 			rid.toString(buffer);
 
 		return resultRid;
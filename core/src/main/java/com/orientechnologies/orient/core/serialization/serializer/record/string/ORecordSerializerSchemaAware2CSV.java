@@ -23,6 +23,7 @@ import java.util.Set;
 
 import com.orientechnologies.common.collection.OMultiValue;
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OProfiler;
 import com.orientechnologies.orient.core.db.ODatabaseComplex;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.OUserObject2RecordHandler;
@@ -38,9 +39,11 @@ import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.ORecordSchemaAware;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerPartial;
 
-public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstract {
+public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstract implements ORecordSerializerPartial {
 	public static final String														NAME			= "ORecordDocument2csv";
 	public static final ORecordSerializerSchemaAware2CSV	INSTANCE	= new ORecordSerializerSchemaAware2CSV();
 
@@ -295,8 +298,26 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
 		return linkedClass;
 	}
 
+	public ORecordInternal<?> fromStream(final byte[] iSource, final ORecordInternal<?> iRecord, final String[] iFields) {
+		final long timer = OProfiler.getInstance().startChrono();
+
+		try {
+			return fromString(OBinaryProtocol.bytes2string(iSource), iRecord, iFields);
+		} finally {
+
+			OProfiler.getInstance().stopChrono("ORecordSerializerSchemaAware2CSV.fromStream", timer);
+		}
+	}
+
 	@Override
-	public ORecordInternal<?> fromString(String iContent, final ORecordInternal<?> iRecord) {
+	public ORecordInternal<?> fromString(final String iContent, final ORecordInternal<?> iRecord) {
+		return fromString(iContent, iRecord, null);
+	}
+
+	/**
+	 * Unmarshalls the content. If iFields is not null only the values of the fields in the array are converted.
+	 */
+	public ORecordInternal<?> fromString(String iContent, final ORecordInternal<?> iRecord, final String[] iFields) {
 		iContent = iContent.trim();
 
 		if (iContent.length() == 0)
@@ -337,6 +358,10 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
 					// GET THE FIELD NAME
 					fieldName = field.substring(0, pos);
 
+					if (iFields != null && !contains(iFields, fieldName))
+						// NOT REQUESTED: SKIP THE CONVERSION OF THE VALUE
+						continue;
+
 					// GET THE FIELD VALUE
 					fieldValue = field.length() > pos + 1 ? field.substring(pos + 1) : null;
 
@@ -423,4 +448,11 @@ public class ORecordSerializerSchemaAware2CSV extends ORecordSerializerCSVAbstra
 
 		return iRecord;
 	}
+
+	private static boolean contains(final String[] iFields, final String iFieldName) {
+		for (String f : iFields)
+			if (f.equals(iFieldName))
+				return true;
+		return false;
+	}
 }
@@ -19,6 +19,7 @@ import java.util.Locale;
 import java.util.Map;
 
 import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.sql.OSQLStatementCache.OStatementHandle;
 
 /**
  * SQL UPDATE command.
@@ -28,6 +29,7 @@ import com.orientechnologies.orient.core.command.OCommandRequestText;
  */
 public class OCommandExecutorSQLDelegate extends OCommandExecutorSQLAbstract {
 	private OCommandExecutorSQLAbstract	delegate;
+	private OStatementHandle						cacheHandle;
 
 	@SuppressWarnings("unchecked")
 	public OCommandExecutorSQLDelegate parse(final OCommandRequestText iCommand) {
@@ -36,6 +38,18 @@ public class OCommandExecutorSQLDelegate extends OCommandExecutorSQLAbstract {
 			final String text = textRequest.getText();
 			final String textUpperCase = text.toUpperCase(Locale.ENGLISH);
 
+			final OSQLStatementCache cache = OSQLEngine.getInstance().getStatementCache();
+			if (cache.isEnabled() && textUpperCase.trim().startsWith(OCommandExecutorSQLSelect.KEYWORD_SELECT)) {
+				// REUSE THE PARSED STATEMENT IF ANY
+				cacheHandle = cache.createHandle(getDatabase().getStorage().getURL(), text);
+				final OCommandExecutorSQLSelect cached = cache.borrow(cacheHandle);
+				if (cached != null) {
+					delegate = cached.bind(iCommand);
+					delegate.setProgressListener(progressListener);
+					return this;
+				}
+			}
+
 			delegate = (OCommandExecutorSQLAbstract) OSQLEngine.getInstance().getCommand(textUpperCase);
 			if (delegate == null)
 				throw new IllegalArgumentException("Cannot find a command executor for the command request: " + iCommand);
@@ -43,12 +57,24 @@ public class OCommandExecutorSQLDelegate extends OCommandExecutorSQLAbstract {
 			delegate.setLimit(iCommand.getLimit());
 			delegate.parse(iCommand);
 			delegate.setProgressListener(progressListener);
+
+			if (cacheHandle != null && !(delegate instanceof OCommandExecutorSQLSelect && ((OCommandExecutorSQLSelect) delegate).isReusable()))
+				// CANNOT BE CACHED
+				cacheHandle = null;
 		} else
 			throw new IllegalArgumentException("Cannot find a command executor for the command request: " + iCommand);
 		return this;
 	}
 
 	public Object execute(final Map<Object, Object> iArgs) {
-		return delegate.execute(iArgs);
+		try {
+			return delegate.execute(iArgs);
+		} finally {
+			if (cacheHandle != null) {
+				// GIVE BACK THE PARSED STATEMENT FOR THE NEXT EXECUTIONS
+				OSQLEngine.getInstance().getStatementCache().release(cacheHandle, (OCommandExecutorSQLSelect) delegate);
+				cacheHandle = null;
+			}
+		}
 	}
 }
@@ -22,17 +22,21 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
+import com.orientechnologies.common.collection.OBoundedSortedBuffer;
 import com.orientechnologies.common.collection.OCompositeKey;
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.parser.OStringParser;
 import com.orientechnologies.common.profiler.OProfiler;
 import com.orientechnologies.common.util.OPair;
 import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ORecordElement;
@@ -43,17 +47,22 @@ import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.index.OCompositeIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OIndexCursor;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndexFullText;
+import com.orientechnologies.orient.core.index.OIndexHashAbstract;
 import com.orientechnologies.orient.core.index.OIndexNotUnique;
 import com.orientechnologies.orient.core.index.OIndexUnique;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.metadata.security.ODatabaseSecurityResources;
 import com.orientechnologies.orient.core.metadata.security.ORole;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.ORecordSchemaAware;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.record.impl.ODocumentComparator;
 import com.orientechnologies.orient.core.record.impl.ODocumentHelper;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilter;
@@ -61,6 +70,7 @@ import com.orientechnologies.orient.core.sql.filter.OSQLFilterCondition;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterItem;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterItemField;
 import com.orientechnologies.orient.core.sql.functions.OSQLFunctionRuntime;
+import com.orientechnologies.orient.core.sql.functions.misc.OSQLFunctionCount;
 import com.orientechnologies.orient.core.sql.operator.OIndexReuseType;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperator;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorBetween;
@@ -74,19 +84,21 @@ import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinorEquals;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorNotEquals;
 import com.orientechnologies.orient.core.sql.query.OSQLAsynchQuery;
 import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
-import com.orientechnologies.orient.core.storage.ORecordBrowsingListener;
+import com.orientechnologies.orient.core.storage.ORecordBrowsingParallelListener;
 import com.orientechnologies.orient.core.storage.OStorageEmbedded;
 import com.orientechnologies.orient.core.type.tree.OMVRBTreeRIDSet;
 
 /**
  * Executes the SQL SELECT statement. the parse() method compiles the query and builds the meta information needed by the execute().
  * If the query contains the ORDER BY clause, the results are temporary collected internally, then ordered and finally returned all
- * together to the listener.
+ * together to the listener. When ORDER BY is used together with LIMIT, only the first LIMIT records are kept in a bounded heap while
+ * browsing, so the memory needed doesn't depend on the number of records matched. GROUP BY aggregates the records while browsing
+ * keeping only the state of the functions for each group.
  * 
  * @author Luca Garulli
  */
 @SuppressWarnings("unchecked")
-public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract implements ORecordBrowsingListener {
+public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract implements ORecordBrowsingParallelListener {
 	private static final String											KEYWORD_AS						= " AS ";
 	public static final String											KEYWORD_SELECT				= "SELECT";
 	public static final String											KEYWORD_ASC						= "ASC";
@@ -94,17 +106,25 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 	public static final String											KEYWORD_ORDER					= "ORDER";
 	public static final String											KEYWORD_BY						= "BY";
 	public static final String											KEYWORD_ORDER_BY			= "ORDER BY";
+	public static final String											KEYWORD_GROUP					= "GROUP";
+	public static final String											KEYWORD_GROUP_BY			= "GROUP BY";
 	private static final String											KEYWORD_FROM_2FIND		= " " + KEYWORD_FROM + " ";
 
 	private OSQLAsynchQuery<ORecordSchemaAware<?>>	request;
 	private OSQLFilter															compiledFilter;
 	private Map<String, Object>											projections						= null;
+	private Map<String, String>											projectionDefinition	= null;
+	private List<Object>														groupByItems;
+	private Map<Object, OGroupResult>								groups;
 	private List<OPair<String, String>>							orderedFields;
 	private List<OIdentifiable>											tempResult;
+	private OBoundedSortedBuffer<OIdentifiable>			orderedTopResult;
 	private int																			resultCount;
 	private Object																	flattenTarget;
 	private boolean																	anyFunctionAggregates	= false;
 	private int																			fetchLimit						= -1;
+	private boolean																	limitInText						= false;
+	private String[]																usedFields;
 
 	/**
 	 * Presents query subset in form of field1 = "field1 value" AND field2 = "field2 value" ... AND fieldN anyOpetator "fieldN value"
@@ -177,6 +197,27 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 		}
 	}
 
+	/**
+	 * Keeps the state of a group while browsing: the projections of the first record of the group and its own instances of the
+	 * aggregate functions.
+	 */
+	private static class OGroupResult {
+		private final ODocument												result;
+		private final Map<String, OSQLFunctionRuntime>	aggregates;
+
+		private OGroupResult(final ODocument iResult, final Map<String, OSQLFunctionRuntime> iAggregates) {
+			result = iResult;
+			aggregates = iAggregates;
+		}
+
+		private ODocument getResult() {
+			if (aggregates != null)
+				for (Entry<String, OSQLFunctionRuntime> aggregate : aggregates.entrySet())
+					result.field(aggregate.getKey(), aggregate.getValue().getResult());
+			return result;
+		}
+	}
+
 	/**
 	 * Compile the filter conditions only the first time.
 	 */
@@ -186,23 +227,18 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 
 		init(iRequest.getText());
 
-		if (iRequest instanceof OSQLSynchQuery) {
-			request = (OSQLSynchQuery<ORecordSchemaAware<?>>) iRequest;
-		} else if (iRequest instanceof OSQLAsynchQuery)
-			request = (OSQLAsynchQuery<ORecordSchemaAware<?>>) iRequest;
-		else {
-			// BUILD A QUERY OBJECT FROM THE COMMAND REQUEST
-			request = new OSQLSynchQuery<ORecordSchemaAware<?>>(iRequest.getText());
-			if (iRequest.getResultListener() != null)
-				request.setResultListener(iRequest.getResultListener());
-		}
+		bindRequest(iRequest);
 
 		final int pos = parseProjections();
 		if (pos == -1)
 			return this;
 
 		int endPosition = text.length();
-		int endP = textUpperCase.indexOf(" " + OCommandExecutorSQLSelect.KEYWORD_ORDER_BY, currentPos);
+		int endP = textUpperCase.indexOf(" " + OCommandExecutorSQLSelect.KEYWORD_GROUP_BY, currentPos);
+		if (endP > -1 && endP < endPosition)
+			endPosition = endP;
+
+		endP = textUpperCase.indexOf(" " + OCommandExecutorSQLSelect.KEYWORD_ORDER_BY, currentPos);
 		if (endP > -1 && endP < endPosition)
 			endPosition = endP;
 
@@ -227,7 +263,9 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 
 				if (currentPos > -1) {
 					w = word.toString();
-					if (w.equals(KEYWORD_ORDER))
+					if (w.equals(KEYWORD_GROUP))
+						parseGroupBy(word);
+					else if (w.equals(KEYWORD_ORDER))
 						parseOrderBy(word);
 					else if (w.equals(KEYWORD_LIMIT))
 						parseLimit(word);
@@ -237,9 +275,84 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 		if (limit == 0 || limit < -1) {
 			throw new IllegalArgumentException("Limit must be > 0 or = -1 (no limit)");
 		}
+
+		usedFields = getUsedFields();
 		return this;
 	}
 
+	/**
+	 * Binds an already parsed statement to a new request of the same text. Used to reuse statements kept by
+	 * {@link OSQLStatementCache}.
+	 */
+	public OCommandExecutorSQLSelect bind(final OCommandRequestText iRequest) {
+		getDatabase().checkSecurity(ODatabaseSecurityResources.COMMAND, ORole.PERMISSION_READ);
+
+		// THE STATEMENT COULD HAVE BEEN PARSED BY ANOTHER DATABASE INSTANCE ON THE SAME STORAGE
+		compiledFilter.setDatabase(getDatabase());
+
+		bindRequest(iRequest);
+
+		if (!limitInText)
+			limit = iRequest.getLimit();
+
+		return this;
+	}
+
+	public OSQLFilter getCompiledFilter() {
+		return compiledFilter;
+	}
+
+	/**
+	 * Tells if the parsed statement can be executed again. Functions and FLATTEN keep state during the execution, so statements that
+	 * use them are parsed at every execution.
+	 */
+	public boolean isReusable() {
+		if (flattenTarget != null || anyFunctionAggregates || !compiledFilter.isReusable())
+			return false;
+
+		if (projections != null)
+			for (Object p : projections.values())
+				if (p instanceof OSQLFunctionRuntime)
+					return false;
+
+		if (groupByItems != null)
+			for (Object g : groupByItems)
+				if (g instanceof OSQLFunctionRuntime)
+					return false;
+
+		return true;
+	}
+
+	/**
+	 * Discards the state of the last execution keeping only the parsed statement.
+	 */
+	public void resetExecution() {
+		request = null;
+		parameters = null;
+		tempResult = null;
+		orderedTopResult = null;
+		groups = null;
+		resultCount = 0;
+		fetchLimit = -1;
+		progressListener = null;
+		compiledFilter.resetParameters();
+		// DON'T KEEP THE DATABASE OF THE LAST EXECUTION: IT'S BOUND AGAIN BY THE NEXT ONE
+		compiledFilter.setDatabase(null);
+	}
+
+	private void bindRequest(final OCommandRequestText iRequest) {
+		if (iRequest instanceof OSQLSynchQuery) {
+			request = (OSQLSynchQuery<ORecordSchemaAware<?>>) iRequest;
+		} else if (iRequest instanceof OSQLAsynchQuery)
+			request = (OSQLAsynchQuery<ORecordSchemaAware<?>>) iRequest;
+		else {
+			// BUILD A QUERY OBJECT FROM THE COMMAND REQUEST
+			request = new OSQLSynchQuery<ORecordSchemaAware<?>>(iRequest.getText());
+			if (iRequest.getResultListener() != null)
+				request.setResultListener(iRequest.getResultListener());
+		}
+	}
+
 	public Object execute(final Map<Object, Object> iArgs) {
 		parameters = iArgs;
 
@@ -248,6 +361,13 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 
 		fetchLimit = getQueryFetchLimit();
 
+		if (groupByItems != null)
+			// GROUP BY: AGGREGATE THE RECORDS PER GROUP WHILE BROWSING
+			groups = new LinkedHashMap<Object, OGroupResult>();
+		else if (orderedFields != null && limit > 0 && !anyFunctionAggregates && flattenTarget == null)
+			// ORDER BY + LIMIT: KEEP ONLY THE TOP RECORDS
+			orderedTopResult = new OBoundedSortedBuffer<OIdentifiable>(limit, new ODocumentComparator(orderedFields));
+
 		if (compiledFilter.getTargetClasses() != null)
 			searchInClasses();
 		else if (compiledFilter.getTargetClusters() != null)
@@ -260,14 +380,16 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 			throw new OQueryParsingException("No source found in query: specify class, clusters or single records");
 
 		applyFlatten();
+		applyGroupBy();
 		applyProjections();
 		applyOrderBy();
 		applyLimit();
 
 		if (tempResult != null) {
 			for (OIdentifiable d : tempResult)
-				if (d != null)
-					request.getResultListener().result(d);
+				if (d != null && !request.getResultListener().result(d))
+					// THE LISTENER DOESN'T WANT MORE RESULTS
+					break;
 		}
 
 		if (request instanceof OSQLSynchQuery)
@@ -284,23 +406,40 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 		return true;
 	}
 
+	public boolean foreachAccepted(final ORecordInternal<?> iRecord) {
+		return addResult(iRecord);
+	}
+
 	protected boolean addResult(final OIdentifiable iRecord) {
 		resultCount++;
 
-		OIdentifiable recordCopy = iRecord instanceof ORecord<?> ? ((ORecord<?>) iRecord).copy() : iRecord.getIdentity().copy();
-		recordCopy = applyProjections(recordCopy);
+		if (groups != null) {
+			// GROUP BY: AGGREGATE THE RECORD IN ITS GROUP WITHOUT KEEPING IT
+			aggregateInGroup((ODocument) iRecord.getRecord());
+			return true;
+		}
+
+		OIdentifiable recordCopy;
+		if (projections != null)
+			// PROJECTIONS CREATE A NEW DOCUMENT: COPYING THE RECORD WOULD ONLY UNMARSHALL ALL ITS FIELDS
+			recordCopy = applyProjections(iRecord);
+		else
+			recordCopy = iRecord instanceof ORecord<?> ? ((ORecord<?>) iRecord).copy() : iRecord.getIdentity().copy();
 
 		if (recordCopy != null)
-			if (anyFunctionAggregates || orderedFields != null || flattenTarget != null) {
+			if (orderedTopResult != null)
+				// ORDER BY + LIMIT CLAUSES: RETAIN THE RECORD ONLY IF IT'S BETWEEN THE FIRST <LIMIT> ONES
+				orderedTopResult.add(recordCopy);
+			else if (anyFunctionAggregates || orderedFields != null || flattenTarget != null) {
 				// ORDER BY CLAUSE: COLLECT ALL THE RECORDS AND ORDER THEM AT THE END
 				if (tempResult == null)
 					tempResult = new ArrayList<OIdentifiable>();
 
 				tempResult.add(recordCopy);
 			} else {
-				// CALL THE LISTENER NOW
-				if (request.getResultListener() != null)
-					request.getResultListener().result(recordCopy);
+				// CALL THE LISTENER NOW: IF IT RETURNS FALSE THE CALLER DOESN'T WANT MORE RECORDS
+				if (request.getResultListener() != null && !request.getResultListener().result(recordCopy))
+					return false;
 			}
 
 		if (fetchLimit > -1 && resultCount >= fetchLimit)
@@ -311,6 +450,10 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 	}
 
 	private int getQueryFetchLimit() {
+		if (groupByItems != null)
+			// LIMIT IS APPLIED TO THE GROUPS, SO ALL THE RECORDS MUST BE BROWSED
+			return -1;
+
 		final int sqlLimit;
 		final int requestLimit;
 
@@ -341,6 +484,44 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 		return orderedFields;
 	}
 
+	protected void parseGroupBy(final StringBuilder word) {
+		currentPos = OSQLHelper.nextWord(text, textUpperCase, currentPos, word, true);
+
+		if (!KEYWORD_BY.equals(word.toString()))
+			throw new OQueryParsingException("Expected keyword " + KEYWORD_BY);
+
+		if (flattenTarget != null)
+			throw new OCommandSQLParsingException("GROUP BY is not allowed with FLATTEN() operator", text, currentPos);
+
+		// THE GROUP BY CLAUSE ENDS WITH THE NEXT CLAUSE
+		int endPosition = text.length();
+		int endP = textUpperCase.indexOf(" " + KEYWORD_ORDER_BY, currentPos);
+		if (endP > -1 && endP < endPosition)
+			endPosition = endP;
+
+		endP = textUpperCase.indexOf(" " + KEYWORD_LIMIT, currentPos);
+		if (endP > -1 && endP < endPosition)
+			endPosition = endP;
+
+		groupByItems = new ArrayList<Object>();
+		for (String item : OStringSerializerHelper.smartSplit(text.substring(currentPos, endPosition), ',')) {
+			item = item.trim();
+			if (item.length() == 0)
+				continue;
+
+			final Object groupByItem = OSQLHelper.parseValue(this, item);
+			if (groupByItem instanceof OSQLFunctionRuntime && ((OSQLFunctionRuntime) groupByItem).aggregateResults())
+				throw new OCommandSQLParsingException("Aggregate functions can't be used in GROUP BY", text, currentPos);
+
+			groupByItems.add(groupByItem);
+		}
+
+		if (groupByItems.isEmpty())
+			throw new OCommandSQLParsingException("Group by field set was missed. Example: GROUP BY city, country", text, currentPos);
+
+		currentPos = endPosition < text.length() ? endPosition : -1;
+	}
+
 	protected void parseOrderBy(final StringBuilder word) {
 		int newPos = OSQLHelper.nextWord(text, textUpperCase, currentPos, word, true);
 
@@ -414,6 +595,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 		currentPos = OSQLHelper.nextWord(text, textUpperCase, currentPos, word, true);
 		try {
 			limit = Integer.parseInt(word.toString());
+			limitInText = true;
 		} catch (Exception e) {
 			throw new OCommandSQLParsingException("Invalid LIMIT value setted to '" + word
 					+ "' but it should be a valid integer. Example: LIMIT 10", text, currentPos);
@@ -450,6 +632,9 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 
 			// go through all possible index for given set of fields.
 			for (final OIndex index : involvedIndexes) {
+				if (index.isRebuilding())
+					continue;
+
 				final OIndexDefinition indexDefinition = index.getDefinition();
 				final OQueryOperator operator = searchResult.lastOperator;
 
@@ -473,7 +658,15 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 				}
 
 				final OIndex internalIndex = index.getInternal();
-				final boolean indexCanBeUsedInEqualityOperators = (internalIndex instanceof OIndexUnique || internalIndex instanceof OIndexNotUnique);
+				final boolean hashIndex = internalIndex instanceof OIndexHashAbstract;
+
+				// HASH INDEXES ARE NOT ORDERED: THEY CAN ONLY BE LOOKED UP BY THE WHOLE KEY
+				if (hashIndex
+						&& (searchResultFields.size() != indexDefinition.getParamCount() || !(operator instanceof OQueryOperatorEquals || operator instanceof OQueryOperatorIn)))
+					continue;
+
+				final boolean indexCanBeUsedInEqualityOperators = (internalIndex instanceof OIndexUnique
+						|| internalIndex instanceof OIndexNotUnique || hashIndex);
 
 				if (indexDefinition.getParamCount() == 1) {
 					if (indexCanBeUsedInEqualityOperators && operator instanceof OQueryOperatorBetween) {
@@ -485,13 +678,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 						if (keyOne == null || keyTwo == null)
 							continue;
 
-						final Collection<OIdentifiable> result;
-						if (fetchLimit > -1)
-							result = index.getValuesBetween(keyOne, true, keyTwo, true, fetchLimit);
-						else
-							result = index.getValuesBetween(keyOne, true, keyTwo, true);
-
-						fillSearchIndexResultSet(result);
+						fillSearchIndexResultSet(index.cursor(keyOne, true, keyTwo, true, true));
 						return true;
 					}
 
@@ -542,52 +729,46 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 					}
 
 					if (operator instanceof OQueryOperatorMajor) {
-						final Collection<OIdentifiable> result;
-						if (fetchLimit > -1)
-							result = index.getValuesMajor(key, false, fetchLimit);
-						else
-							result = index.getValuesMajor(key, false);
-
-						fillSearchIndexResultSet(result);
+						fillSearchIndexResultSet(index.cursor(key, false, null, true, true));
 						return true;
 					}
 
 					if (operator instanceof OQueryOperatorMajorEquals) {
-						final Collection<OIdentifiable> result;
-						if (fetchLimit > -1)
-							result = index.getValuesMajor(key, true, fetchLimit);
-						else
-							result = index.getValuesMajor(key, true);
-
-						fillSearchIndexResultSet(result);
+						fillSearchIndexResultSet(index.cursor(key, true, null, true, true));
 						return true;
 					}
 
 					if (operator instanceof OQueryOperatorMinor) {
-						final Collection<OIdentifiable> result;
-						if (fetchLimit > -1)
-							result = index.getValuesMinor(key, false, fetchLimit);
-						else
-							result = index.getValuesMinor(key, false);
-
-						fillSearchIndexResultSet(result);
+						fillSearchIndexResultSet(index.cursor(null, true, key, false, true));
 						return true;
 					}
 
 					if (operator instanceof OQueryOperatorMinorEquals) {
-						final Collection<OIdentifiable> result;
-						if (fetchLimit > -1)
-							result = index.getValuesMinor(key, true, fetchLimit);
-						else
-							result = index.getValuesMinor(key, true);
-
-						fillSearchIndexResultSet(result);
+						fillSearchIndexResultSet(index.cursor(null, true, key, true, true));
 						return true;
 					}
 				} else {
 					if (!indexCanBeUsedInEqualityOperators)
 						continue;
 
+					if (hashIndex) {
+						if (!(operator instanceof OQueryOperatorEquals))
+							continue;
+
+						final Object key = indexDefinition.createValue(keyParams);
+
+						if (key == null)
+							continue;
+
+						fillSearchIndexResultSet(index.get(key));
+
+						if (OProfiler.getInstance().isRecording()) {
+							OProfiler.getInstance().updateCounter("Query.compositeIndexUsage", 1);
+							OProfiler.getInstance().updateCounter("Query.compositeIndexUsage." + indexDefinition.getParamCount(), 1);
+						}
+						return true;
+					}
+
 					if (operator instanceof OQueryOperatorBetween) {
 						final Object[] betweenKeys = (Object[]) keyParams.get(keyParams.size() - 1);
 
@@ -619,13 +800,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 						if (keyTwo == null)
 							continue;
 
-						final Collection<OIdentifiable> result;
-						if (fetchLimit > -1)
-							result = index.getValuesBetween(keyOne, true, keyTwo, true, fetchLimit);
-						else
-							result = index.getValuesBetween(keyOne, true, keyTwo, true);
-
-						fillSearchIndexResultSet(result);
+						fillSearchIndexResultSet(index.cursor(keyOne, true, keyTwo, true, true));
 
 						if (OProfiler.getInstance().isRecording()) {
 							OProfiler.getInstance().updateCounter("Query.compositeIndexUsage", 1);
@@ -646,13 +821,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 
 						final Object keyTwo = indexDefinition.createValue(keyParams);
 
-						final Collection<OIdentifiable> result;
-						if (fetchLimit > -1)
-							result = index.getValuesBetween(keyOne, true, keyTwo, true, fetchLimit);
-						else
-							result = index.getValuesBetween(keyOne, true, keyTwo, true);
-
-						fillSearchIndexResultSet(result);
+						fillSearchIndexResultSet(index.cursor(keyOne, true, keyTwo, true, true));
 
 						if (OProfiler.getInstance().isRecording()) {
 							OProfiler.getInstance().updateCounter("Query.compositeIndexUsage", 1);
@@ -677,13 +846,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 						if (keyTwo == null)
 							continue;
 
-						final Collection<OIdentifiable> result;
-						if (fetchLimit > -1)
-							result = index.getValuesBetween(keyOne, false, keyTwo, true, fetchLimit);
-						else
-							result = index.getValuesBetween(keyOne, false, keyTwo, true);
-
-						fillSearchIndexResultSet(result);
+						fillSearchIndexResultSet(index.cursor(keyOne, false, keyTwo, true, true));
 
 						if (OProfiler.getInstance().isRecording()) {
 							OProfiler.getInstance().updateCounter("Query.compositeIndexUsage", 1);
@@ -708,13 +871,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 						if (keyTwo == null)
 							continue;
 
-						final Collection<OIdentifiable> result;
-						if (fetchLimit > -1)
-							result = index.getValuesBetween(keyOne, true, keyTwo, true, fetchLimit);
-						else
-							result = index.getValuesBetween(keyOne, true, keyTwo, true);
-
-						fillSearchIndexResultSet(result);
+						fillSearchIndexResultSet(index.cursor(keyOne, true, keyTwo, true, true));
 
 						if (OProfiler.getInstance().isRecording()) {
 							OProfiler.getInstance().updateCounter("Query.compositeIndexUsage", 1);
@@ -739,13 +896,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 						if (keyTwo == null)
 							continue;
 
-						final Collection<OIdentifiable> result;
-						if (fetchLimit > -1)
-							result = index.getValuesBetween(keyOne, true, keyTwo, false, fetchLimit);
-						else
-							result = index.getValuesBetween(keyOne, true, keyTwo, false);
-
-						fillSearchIndexResultSet(result);
+						fillSearchIndexResultSet(index.cursor(keyOne, true, keyTwo, false, true));
 
 						if (OProfiler.getInstance().isRecording()) {
 							OProfiler.getInstance().updateCounter("Query.compositeIndexUsage", 1);
@@ -770,13 +921,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 						if (keyTwo == null)
 							continue;
 
-						final Collection<OIdentifiable> result;
-						if (fetchLimit > -1)
-							result = index.getValuesBetween(keyOne, true, keyTwo, true, fetchLimit);
-						else
-							result = index.getValuesBetween(keyOne, true, keyTwo, true);
-
-						fillSearchIndexResultSet(result);
+						fillSearchIndexResultSet(index.cursor(keyOne, true, keyTwo, true, true));
 
 						if (OProfiler.getInstance().isRecording()) {
 							OProfiler.getInstance().updateCounter("Query.compositeIndexUsage", 1);
@@ -872,6 +1017,32 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 		return new OIndexSearchResult(iCondition.getOperator(), item.getRoot(), value);
 	}
 
+	/**
+	 * Loads and filters the records pointed by the index entries, fetched lazily by the cursor, until the limit is reached.
+	 */
+	@SuppressWarnings("rawtypes")
+	private void fillSearchIndexResultSet(final OIndexCursor iCursor) {
+		for (final Entry<Object, OIdentifiable> entry : iCursor) {
+			ORecord<?> record = entry.getValue().getRecord();
+			if (record == null)
+				continue;
+
+			if (record.getInternalStatus() == ORecordElement.STATUS.NOT_LOADED) {
+				try {
+					record = record.<ORecord> load();
+				} catch (ORecordNotFoundException e) {
+					throw new OException("Error during loading record with id : " + record.getIdentity());
+				}
+			}
+
+			if (filter((ORecordInternal<?>) record)) {
+				final boolean continueResultParsing = addResult(record);
+				if (!continueResultParsing)
+					break;
+			}
+		}
+	}
+
 	@SuppressWarnings("rawtypes")
 	private void fillSearchIndexResultSet(final Object indexResult) {
 		if (indexResult != null) {
@@ -904,10 +1075,41 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 		}
 	}
 
-	protected boolean filter(final ORecordInternal<?> iRecord) {
+	public boolean filter(final ORecordInternal<?> iRecord) {
+		if (usedFields != null && iRecord instanceof ODocument)
+			// UNMARSHALL ONLY THE FIELDS READ BY THE QUERY, THE OTHERS ARE UNMARSHALLED ON FIRST ACCESS
+			((ODocument) iRecord).deserializeFields(usedFields);
+
 		return compiledFilter.evaluate((ORecordSchemaAware<?>) iRecord);
 	}
 
+	/**
+	 * Returns the names of the fields read by conditions, projections, group by and order by, or null if the query could read any
+	 * field.
+	 */
+	private String[] getUsedFields() {
+		if (flattenTarget != null)
+			return null;
+
+		final Set<String> fields = new LinkedHashSet<String>();
+		if (!compiledFilter.getUsedFields(fields))
+			return null;
+
+		if (projections != null)
+			for (Object p : projections.values())
+				if (p.equals("*") || !OSQLFilter.collectUsedFields(p, fields))
+					return null;
+
+		if (groupByItems != null && !OSQLFilter.collectUsedFields(groupByItems, fields))
+			return null;
+
+		if (orderedFields != null)
+			for (OPair<String, String> f : orderedFields)
+				OSQLFilter.addUsedField(f.getKey(), fields);
+
+		return fields.toArray(new String[fields.size()]);
+	}
+
 	protected int parseProjections() {
 		int currentPos = 0;
 		final StringBuilder word = new StringBuilder();
@@ -925,6 +1127,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 		if (projectionString.length() > 0 && !projectionString.equals("*")) {
 			// EXTRACT PROJECTIONS
 			projections = new LinkedHashMap<String, Object>();
+			projectionDefinition = new LinkedHashMap<String, String>();
 			final List<String> items = OStringSerializerHelper.smartSplit(projectionString, ',');
 
 			String fieldName;
@@ -970,6 +1173,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 
 					// BY PASS THIS AS PROJECTION BUT TREAT IT AS SPECIAL
 					projections = null;
+					projectionDefinition = null;
 
 					if (!anyFunctionAggregates && flattenTarget instanceof OSQLFunctionRuntime
 							&& ((OSQLFunctionRuntime) flattenTarget).aggregateResults())
@@ -980,6 +1184,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 
 				projectionValue = OSQLHelper.parseValue(this, projection);
 				projections.put(fieldName, projectionValue);
+				projectionDefinition.put(fieldName, projection);
 
 				if (!anyFunctionAggregates && projectionValue instanceof OSQLFunctionRuntime
 						&& ((OSQLFunctionRuntime) projectionValue).aggregateResults())
@@ -1022,26 +1227,224 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 
 		final ODatabaseRecord database = getDatabase();
 
-		if (rootCondition == null){
-      final ORID beginRange;
-      if(request instanceof OSQLSynchQuery)
-        beginRange = ((OSQLSynchQuery)request).getNextPageRID();
-      else
-        beginRange = null;
-
-			((OStorageEmbedded) database.getStorage()).browse(clusterIds, beginRange, null, this, (ORecordInternal<?>) database.newInstance(),
-					false);
-    }	else
-			((OStorageEmbedded) database.getStorage()).browse(clusterIds, rootCondition.getBeginRidRange(),
-					rootCondition.getEndRidRange(), this, (ORecordInternal<?>) database.newInstance(), false);
+		final ORID beginRange;
+		final ORID endRange;
+		if (rootCondition == null) {
+			if (request instanceof OSQLSynchQuery)
+				beginRange = ((OSQLSynchQuery) request).getNextPageRID();
+			else
+				beginRange = null;
+			endRange = null;
+		} else {
+			beginRange = rootCondition.getBeginRidRange();
+			endRange = rootCondition.getEndRidRange();
+		}
+
+		if (isParallelScanAllowed(database)) {
+			OProfiler.getInstance().updateCounter("Query.parallelScan", 1);
+			((OStorageEmbedded) database.getStorage()).browseParallel(clusterIds, beginRange, endRange, this);
+		} else if (isBulkScanAllowed(database)) {
+			OProfiler.getInstance().updateCounter("Query.bulkScan", 1);
+			((OStorageEmbedded) database.getStorage()).scan(clusterIds, beginRange, endRange, this);
+		} else
+			((OStorageEmbedded) database.getStorage()).browse(clusterIds, beginRange, endRange, this,
+					(ORecordInternal<?>) database.newInstance(), false);
+	}
+
+	/**
+	 * Clusters can be scanned in bulk only if enabled (disabled by default, because it bypasses the record caches) and if there is no
+	 * active transaction, since the bulk scan reads the storage directly.
+	 */
+	private boolean isBulkScanAllowed(final ODatabaseRecord iDatabase) {
+		return OGlobalConfiguration.QUERY_SCAN_BULK.getValueAsBoolean() && !iDatabase.getTransaction().isActive();
+	}
+
+	/**
+	 * Clusters can be browsed in parallel only if enabled, if there is no active transaction (its records are not in the storage yet)
+	 * and if the filter can be evaluated concurrently.
+	 */
+	private boolean isParallelScanAllowed(final ODatabaseRecord iDatabase) {
+		return OGlobalConfiguration.QUERY_PARALLEL_SCAN_THREADS.getValueAsInteger() > 1 && !iDatabase.getTransaction().isActive()
+				&& compiledFilter.isConcurrentEvaluable();
 	}
 
 	private void applyOrderBy() {
 		if (orderedFields == null)
 			return;
 
-		ODocumentHelper.sort(getResult(), orderedFields);
-		orderedFields.clear();
+		if (orderedTopResult != null) {
+			// ALREADY ORDERED WHILE BROWSING
+			if (!orderedTopResult.isEmpty())
+				tempResult = orderedTopResult.toSortedList();
+			orderedTopResult = null;
+		} else
+			ODocumentHelper.sort(getResult(), orderedFields);
+	}
+
+	/**
+	 * Returns the results of the groups in place of the records.
+	 */
+	private void applyGroupBy() {
+		if (groups == null)
+			return;
+
+		tempResult = new ArrayList<OIdentifiable>(groups.size());
+		for (OGroupResult group : groups.values())
+			tempResult.add(group.getResult());
+
+		groups = null;
+	}
+
+	private void aggregateInGroup(final ODocument iRecord) {
+		final Object key = getGroupKey(iRecord);
+
+		OGroupResult group = groups.get(key);
+		if (group == null) {
+			group = createGroup(iRecord);
+			groups.put(key, group);
+		}
+
+		if (group.aggregates != null)
+			for (OSQLFunctionRuntime f : group.aggregates.values())
+				f.execute(iRecord, this);
+	}
+
+	private Object getGroupKey(final ODocument iRecord) {
+		if (groupByItems.size() == 1)
+			return OSQLHelper.getValue(groupByItems.get(0), iRecord);
+
+		final List<Object> key = new ArrayList<Object>(groupByItems.size());
+		for (Object item : groupByItems)
+			key.add(OSQLHelper.getValue(item, iRecord));
+		return key;
+	}
+
+	private OGroupResult createGroup(final ODocument iRecord) {
+		if (projections == null)
+			// NO PROJECTIONS: THE GROUP IS REPRESENTED BY ITS FIRST RECORD
+			return new OGroupResult(iRecord.copy(), null);
+
+		final ODocument result = new ODocument().setOrdered(true);
+		Map<String, OSQLFunctionRuntime> aggregates = null;
+
+		Object value;
+		for (Entry<String, Object> projection : projections.entrySet()) {
+			if (projection.getValue() instanceof OSQLFunctionRuntime && ((OSQLFunctionRuntime) projection.getValue()).aggregateResults()) {
+				// PARSE THE FUNCTION AGAIN TO HAVE AN INSTANCE WITH ITS OWN STATE FOR EACH GROUP
+				if (aggregates == null)
+					aggregates = new LinkedHashMap<String, OSQLFunctionRuntime>();
+				aggregates.put(projection.getKey(),
+						(OSQLFunctionRuntime) OSQLHelper.parseValue(this, projectionDefinition.get(projection.getKey())));
+
+				// RESERVE THE FIELD TO KEEP THE ORDER OF PROJECTIONS
+				result.field(projection.getKey(), (Object) null);
+				continue;
+			}
+
+			if (projection.getValue().equals("*")) {
+				iRecord.copy(result);
+				value = null;
+			} else if (projection.getValue() instanceof OSQLFilterItemField)
+				value = ((OSQLFilterItemField) projection.getValue()).getValue(iRecord);
+			else if (projection.getValue() instanceof OSQLFunctionRuntime)
+				value = ((OSQLFunctionRuntime) projection.getValue()).execute(iRecord, this);
+			else
+				value = projection.getValue();
+
+			if (value != null)
+				result.field(projection.getKey(), value);
+		}
+
+		return new OGroupResult(result, aggregates);
+	}
+
+	/**
+	 * Answers to "SELECT <field>, count(*) FROM <class> GROUP BY <field>" by browsing the index of the field instead of the records:
+	 * every key is a group and the size of its set of records is the count. Used only if all the records of the class are indexed,
+	 * because records with the field null are not in the index, and never for collection fields, because their items are indexed
+	 * instead of the whole collections.
+	 */
+	private boolean searchGroupsInIndex(final OClass iSchemaClass) {
+		if (compiledFilter.getRootCondition() != null || projections == null || groupByItems.size() != 1
+				|| getDatabase().getTransaction().isActive())
+			return false;
+
+		final Object groupByItem = groupByItems.get(0);
+		if (!(groupByItem instanceof OSQLFilterItemField) || ((OSQLFilterItemField) groupByItem).hasChainOperators())
+			return false;
+
+		final String fieldName = ((OSQLFilterItemField) groupByItem).getRoot();
+
+		for (Object projection : projections.values())
+			if (!isGroupField(projection, fieldName) && !isGroupCount(projection, fieldName))
+				return false;
+
+		final OIndex<Object> index = getGroupIndex(iSchemaClass, fieldName);
+		if (index == null)
+			return false;
+
+		final Map<Object, OGroupResult> indexGroups = new LinkedHashMap<Object, OGroupResult>();
+		long total = 0;
+
+		for (Iterator<Entry<Object, Object>> it = index.iterator(); it.hasNext();) {
+			final Entry<Object, Object> entry = it.next();
+
+			final long count = entry.getValue() instanceof Collection<?> ? ((Collection<?>) entry.getValue()).size() : 1;
+			if (count == 0)
+				continue;
+
+			total += count;
+
+			final ODocument result = new ODocument().setOrdered(true);
+			for (Entry<String, Object> projection : projections.entrySet())
+				result.field(projection.getKey(), isGroupField(projection.getValue(), fieldName) ? entry.getKey() : count);
+
+			indexGroups.put(entry.getKey(), new OGroupResult(result, null));
+		}
+
+		if (total != iSchemaClass.count())
+			// SOME RECORDS ARE NOT INDEXED: BROWSE THE CLUSTERS
+			return false;
+
+		groups = indexGroups;
+		return true;
+	}
+
+	private OIndex<Object> getGroupIndex(final OClass iSchemaClass, final String iFieldName) {
+		final OProperty property = iSchemaClass.getProperty(iFieldName);
+		if (property == null)
+			return null;
+
+		final OType type = property.getType();
+		if (type == OType.EMBEDDEDLIST || type == OType.EMBEDDEDSET || type == OType.LINKLIST || type == OType.LINKSET)
+			// ONE KEY PER ITEM, NOT PER RECORD: THE COUNTS COULD EVEN ADD UP TO THE CLASS COUNT BY CHANCE
+			return null;
+
+		for (OIndex<?> index : iSchemaClass.getClassIndexes()) {
+			if (index.isRebuilding())
+				continue;
+
+			final OIndexDefinition definition = index.getDefinition();
+			if (definition != null && definition.getFields().size() == 1 && definition.getFields().get(0).equalsIgnoreCase(iFieldName)
+					&& (OClass.INDEX_TYPE.NOTUNIQUE.toString().equals(index.getType()) || OClass.INDEX_TYPE.UNIQUE.toString().equals(
+							index.getType())))
+				return (OIndex<Object>) index;
+		}
+		return null;
+	}
+
+	private static boolean isGroupField(final Object iProjection, final String iFieldName) {
+		return iProjection instanceof OSQLFilterItemField && !((OSQLFilterItemField) iProjection).hasChainOperators()
+				&& ((OSQLFilterItemField) iProjection).getRoot().equalsIgnoreCase(iFieldName);
+	}
+
+	private static boolean isGroupCount(final Object iProjection, final String iFieldName) {
+		if (!(iProjection instanceof OSQLFunctionRuntime))
+			return false;
+
+		final OSQLFunctionRuntime f = (OSQLFunctionRuntime) iProjection;
+		return f.function instanceof OSQLFunctionCount && f.configuredParameters.length == 1
+				&& ("*".equals(f.configuredParameters[0]) || isGroupField(f.configuredParameters[0], iFieldName));
 	}
 
 	/**
@@ -1128,7 +1531,9 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 		for (final int clusterId : clusterIds)
 			database.checkSecurity(ODatabaseSecurityResources.CLUSTER, ORole.PERMISSION_READ, database.getClusterNameById(clusterId));
 
-		if (searchForIndexes(cls))
+		if (groupByItems != null && searchGroupsInIndex(cls))
+			OProfiler.getInstance().updateCounter("Query.groupByIndexUsage", 1);
+		else if (searchForIndexes(cls))
 			OProfiler.getInstance().updateCounter("Query.indexUsage", 1);
 		else
 			// NO INDEXES: SCAN THE ENTIRE CLUSTER
@@ -1180,37 +1585,31 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 				throw new OCommandExecutionException("'Key' field is required for queries against indexes");
 
 			final OQueryOperator indexOperator = compiledFilter.getRootCondition().getOperator();
+			final boolean hashIndex = index.getInternal() instanceof OIndexHashAbstract;
+			if (hashIndex
+					&& (indexOperator instanceof OQueryOperatorBetween || indexOperator instanceof OQueryOperatorMajor
+							|| indexOperator instanceof OQueryOperatorMajorEquals || indexOperator instanceof OQueryOperatorMinor
+							|| indexOperator instanceof OQueryOperatorMinorEquals))
+				throw new OCommandExecutionException("Operator " + indexOperator.keyword + " not supported by the hash index '"
+						+ index.getName() + "': use an index of type UNIQUE or NOTUNIQUE for the range queries");
+
 			if (indexOperator instanceof OQueryOperatorBetween) {
 				final Object[] values = (Object[]) compiledFilter.getRootCondition().getRight();
-				final Collection<ODocument> entries = index.getEntriesBetween(getIndexKey(index.getDefinition(), values[0]),
-						getIndexKey(index.getDefinition(), values[2]));
-
-				for (final OIdentifiable r : entries) {
-					final boolean continueResultParsing = addResult(r);
-					if (!continueResultParsing)
-						break;
-				}
+				parseIndexSearchResult(index.cursor(getIndexKey(index.getDefinition(), values[0]), true,
+						getIndexKey(index.getDefinition(), values[2]), true, true));
 
 			} else if (indexOperator instanceof OQueryOperatorMajor) {
 				final Object value = compiledFilter.getRootCondition().getRight();
-				final Collection<ODocument> entries = index.getEntriesMajor(getIndexKey(index.getDefinition(), value), false);
-
-				parseIndexSearchResult(entries);
+				parseIndexSearchResult(index.cursor(getIndexKey(index.getDefinition(), value), false, null, true, true));
 			} else if (indexOperator instanceof OQueryOperatorMajorEquals) {
 				final Object value = compiledFilter.getRootCondition().getRight();
-				final Collection<ODocument> entries = index.getEntriesMajor(getIndexKey(index.getDefinition(), value), true);
-
-				parseIndexSearchResult(entries);
+				parseIndexSearchResult(index.cursor(getIndexKey(index.getDefinition(), value), true, null, true, true));
 			} else if (indexOperator instanceof OQueryOperatorMinor) {
 				final Object value = compiledFilter.getRootCondition().getRight();
-				final Collection<ODocument> entries = index.getEntriesMinor(getIndexKey(index.getDefinition(), value), false);
-
-				parseIndexSearchResult(entries);
+				parseIndexSearchResult(index.cursor(null, true, getIndexKey(index.getDefinition(), value), false, true));
 			} else if (indexOperator instanceof OQueryOperatorMinorEquals) {
 				final Object value = compiledFilter.getRootCondition().getRight();
-				final Collection<ODocument> entries = index.getEntriesMinor(getIndexKey(index.getDefinition(), value), true);
-
-				parseIndexSearchResult(entries);
+				parseIndexSearchResult(index.cursor(null, true, getIndexKey(index.getDefinition(), value), true, true));
 			} else if (indexOperator instanceof OQueryOperatorIn) {
 				final List<Object> origValues = (List<Object>) compiledFilter.getRootCondition().getRight();
 				final List<Object> values = new ArrayList<Object>(origValues.size());
@@ -1233,6 +1632,13 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 				final Object res;
 				if (index.getDefinition().getParamCount() == 1) {
 					res = index.get(keyValue);
+				} else if (hashIndex) {
+					// THE HASH INDEXES FIND ONLY THE WHOLE KEYS
+					if (!(keyValue instanceof OCompositeKey)
+							|| ((OCompositeKey) keyValue).getKeys().size() != index.getDefinition().getParamCount())
+						throw new OCommandExecutionException("All the " + index.getDefinition().getParamCount()
+								+ " fields of the key are required by the hash index '" + index.getName() + "'");
+					res = index.get(keyValue);
 				} else {
 					final Object secondKey = getIndexKey(index.getDefinition(), right);
 					res = index.getValuesBetween(keyValue, secondKey);
@@ -1304,6 +1710,17 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 		}
 	}
 
+	/**
+	 * Browses the index entries through the cursor until the limit is reached.
+	 */
+	protected void parseIndexSearchResult(final OIndexCursor iCursor) {
+		for (final Entry<Object, OIdentifiable> entry : iCursor) {
+			final boolean continueResultParsing = addResult(createIndexEntryAsDocument(entry.getKey(), entry.getValue().getIdentity()));
+			if (!continueResultParsing)
+				break;
+		}
+	}
+
 	private ODocument createIndexEntryAsDocument(final Object iKey, final OIdentifiable iValue) {
 		final ODocument doc = new ODocument().setOrdered(true);
 		doc.field("key", iKey);
@@ -1313,7 +1730,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLAbstract imple
 	}
 
 	private void applyProjections() {
-		if (anyFunctionAggregates) {
+		if (anyFunctionAggregates && groupByItems == null) {
 			// EXECUTE AGGREGATIONS
 			Object value;
 			final ODocument result = new ODocument().setOrdered(true);
@@ -75,6 +75,8 @@ public class OSQLEngine {
 			new OQueryOperatorPlus(), new OQueryOperatorMinus(), new OQueryOperatorMultiply(), new OQueryOperatorDivide(),
 			new OQueryOperatorMod()																														};
 
+	private final OSQLStatementCache																	statementCache				= new OSQLStatementCache();
+
 	private static final OSQLEngine																		INSTANCE							= new OSQLEngine();
 
 	protected OSQLEngine() {
@@ -209,6 +211,10 @@ public class OSQLEngine {
 		return new OSQLFilter(iText);
 	}
 
+	public OSQLStatementCache getStatementCache() {
+		return statementCache;
+	}
+
 	public static OSQLEngine getInstance() {
 		return INSTANCE;
 	}
@@ -75,6 +75,19 @@ public class OSQLHelper {
 		return ioCurrentPosition;
 	}
 
+	/**
+	 * Tells if the command text is a SELECT statement, ignoring the case and the leading blanks.
+	 */
+	public static boolean isSelect(final String iText) {
+		if (iText == null)
+			return false;
+
+		final String text = iText.trim();
+		final int length = OCommandExecutorSQLSelect.KEYWORD_SELECT.length();
+		return text.regionMatches(true, 0, OCommandExecutorSQLSelect.KEYWORD_SELECT, 0, length)
+				&& (text.length() == length || Character.isWhitespace(text.charAt(length)));
+	}
+
 	/**
 	 * Convert fields from text to real value. Supports: String, RID, Boolean, Float, Integer and NULL.
 	 * 
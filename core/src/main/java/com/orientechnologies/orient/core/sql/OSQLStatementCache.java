@@ -0,0 +1,120 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+
+/**
+ * LRU cache of parsed SQL SELECT statements keyed by storage URL and command text. Parsed statements keep the state of the current
+ * execution (bound parameters, partial results), so a statement is removed from the cache while it's executed and put back once
+ * finished: concurrent executions of the same text parse their own copy. Every change of the schema invalidates all the cached
+ * statements because they keep the resolved classes.
+ *
+ * @author Luca Garulli
+ *
+ */
+public class OSQLStatementCache {
+	private final Map<String, OCachedStatement>	cache;
+	private volatile long												generation;
+
+	private static class OCachedStatement {
+		private final OCommandExecutorSQLSelect	executor;
+		private final long											generation;
+
+		private OCachedStatement(final OCommandExecutorSQLSelect iExecutor, final long iGeneration) {
+			executor = iExecutor;
+			generation = iGeneration;
+		}
+	}
+
+	/**
+	 * Keeps the reference to a statement borrowed from the cache or parsed to be put in the cache after the execution.
+	 */
+	public static class OStatementHandle {
+		private final String	key;
+		private final long		generation;
+
+		private OStatementHandle(final String iKey, final long iGeneration) {
+			key = iKey;
+			generation = iGeneration;
+		}
+	}
+
+	public OSQLStatementCache() {
+		cache = new LinkedHashMap<String, OCachedStatement>(16, 0.75f, true) {
+			private static final long	serialVersionUID	= 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, OCachedStatement> iEldest) {
+				return size() > OGlobalConfiguration.QUERY_STATEMENT_CACHE_SIZE.getValueAsInteger();
+			}
+		};
+	}
+
+	public boolean isEnabled() {
+		return OGlobalConfiguration.QUERY_STATEMENT_CACHE_SIZE.getValueAsInteger() > 0;
+	}
+
+	public OStatementHandle createHandle(final String iStorageURL, final String iText) {
+		return new OStatementHandle(iStorageURL + ':' + iText.trim(), generation);
+	}
+
+	/**
+	 * Removes the parsed statement from the cache and returns it, if any.
+	 *
+	 * @return The parsed statement or null if not found
+	 */
+	public synchronized OCommandExecutorSQLSelect borrow(final OStatementHandle iHandle) {
+		final OCachedStatement cached = cache.remove(iHandle.key);
+		if (cached == null || cached.generation != generation) {
+			OProfiler.getInstance().updateCounter("Query.statementCache.miss", 1);
+			return null;
+		}
+
+		OProfiler.getInstance().updateCounter("Query.statementCache.hit", 1);
+		return cached.executor;
+	}
+
+	/**
+	 * Puts back in the cache a statement after its execution. If the schema has been changed in the meanwhile the statement is
+	 * discarded.
+	 */
+	public synchronized void release(final OStatementHandle iHandle, final OCommandExecutorSQLSelect iExecutor) {
+		iExecutor.resetExecution();
+
+		if (iHandle.generation != generation || !isEnabled())
+			return;
+
+		if (!cache.containsKey(iHandle.key))
+			cache.put(iHandle.key, new OCachedStatement(iExecutor, iHandle.generation));
+	}
+
+	/**
+	 * Invalidates all the cached statements. Called on every schema change.
+	 */
+	public synchronized void invalidate() {
+		generation++;
+		cache.clear();
+	}
+
+	public synchronized int size() {
+		return cache.size();
+	}
+}
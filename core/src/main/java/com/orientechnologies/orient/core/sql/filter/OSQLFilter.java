@@ -16,6 +16,7 @@
 package com.orientechnologies.orient.core.sql.filter;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -25,6 +26,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 
 import com.orientechnologies.common.parser.OStringParser;
+import com.orientechnologies.orient.core.command.OCommandRequest;
 import com.orientechnologies.orient.core.command.OCommandToParse;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
@@ -37,7 +39,23 @@ import com.orientechnologies.orient.core.serialization.serializer.OStringSeriali
 import com.orientechnologies.orient.core.sql.OCommandExecutorSQLAbstract;
 import com.orientechnologies.orient.core.sql.OSQLEngine;
 import com.orientechnologies.orient.core.sql.OSQLHelper;
+import com.orientechnologies.orient.core.sql.functions.OSQLFunctionRuntime;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperator;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorAnd;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorBetween;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorContainsKey;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorEquals;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorIn;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorIs;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorLike;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMajor;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMajorEquals;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMatches;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinor;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinorEquals;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorNot;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorNotEquals;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorOr;
 
 /**
  * Parsed query. It's built once a query is parsed.
@@ -72,6 +90,8 @@ public class OSQLFilter extends OCommandToParse {
 					if (word.toString().equals(OCommandExecutorSQLAbstract.KEYWORD_WHERE)) {
 						currentPos = newPos;
 						rootCondition = extractConditions(null);
+						if (rootCondition != null)
+							rootCondition.compile();
 					} else
 						throw new OQueryParsingException("Found invalid keyword '" + word + "'", text, newPos);
 				}
@@ -87,6 +107,89 @@ public class OSQLFilter extends OCommandToParse {
 		}
 	}
 
+	/**
+	 * Tells if the filter can be executed again once parsed. Functions and sub-queries keep state during the execution, so filters
+	 * that use them are not reusable.
+	 */
+	public boolean isReusable() {
+		return isReusable(rootCondition);
+	}
+
+	/**
+	 * Tells if the filter can be evaluated by multiple threads at the same time. This is true only when the conditions use the fields
+	 * of the evaluated record and operators that don't load other records.
+	 */
+	public boolean isConcurrentEvaluable() {
+		return isConcurrentEvaluable(rootCondition);
+	}
+
+	/**
+	 * Collects the names of the record fields read by the conditions. Used to unmarshall only these fields of the browsed records.
+	 * 
+	 * @return false if the conditions could read any field of the record, like with any() and all()
+	 */
+	public boolean getUsedFields(final Set<String> ioFields) {
+		return collectUsedFields(rootCondition, ioFields);
+	}
+
+	/**
+	 * Collects the names of the record fields read by a parsed value, that can be a condition, a field, a function or a collection of
+	 * them.
+	 * 
+	 * @return false if the value could read any field of the record
+	 */
+	public static boolean collectUsedFields(final Object iValue, final Set<String> ioFields) {
+		if (iValue instanceof OSQLFilterCondition)
+			return collectUsedFields(((OSQLFilterCondition) iValue).getLeft(), ioFields)
+					&& collectUsedFields(((OSQLFilterCondition) iValue).getRight(), ioFields);
+
+		if (iValue instanceof OSQLFilterItemField) {
+			addUsedField(((OSQLFilterItemField) iValue).getRoot(), ioFields);
+			return true;
+		}
+
+		if (iValue instanceof OSQLFunctionRuntime)
+			return collectUsedFields(((OSQLFunctionRuntime) iValue).configuredParameters, ioFields);
+
+		if (iValue instanceof OSQLFilterItemParameter)
+			return true;
+
+		if (iValue instanceof Collection<?>) {
+			for (Object o : (Collection<?>) iValue)
+				if (!collectUsedFields(o, ioFields))
+					return false;
+			return true;
+		}
+
+		if (iValue instanceof Object[]) {
+			for (Object o : (Object[]) iValue)
+				if (!collectUsedFields(o, ioFields))
+					return false;
+			return true;
+		}
+
+		// ANY(), ALL() AND SUB-QUERIES
+		return !(iValue instanceof OSQLFilterItem) && !(iValue instanceof OCommandRequest);
+	}
+
+	/**
+	 * Adds the name of the field at the root of a field path like "address.city" or "tags[0]". Record attributes like "@rid" are not
+	 * fields and are ignored.
+	 */
+	public static void addUsedField(final String iFieldPath, final Set<String> ioFields) {
+		if (iFieldPath == null || iFieldPath.length() == 0 || iFieldPath.charAt(0) == '@')
+			return;
+
+		int end = iFieldPath.length();
+		for (int i = 0; i < iFieldPath.length(); ++i)
+			if (iFieldPath.charAt(i) == '.' || iFieldPath.charAt(i) == '[') {
+				end = i;
+				break;
+			}
+
+		ioFields.add(iFieldPath.substring(0, end));
+	}
+
 	public boolean evaluate(final ORecordSchemaAware<?> iRecord) {
 		if (targetClasses != null) {
 			final OClass cls = targetClasses.keySet().iterator().next();
@@ -357,6 +460,18 @@ public class OSQLFilter extends OCommandToParse {
 		return rootCondition;
 	}
 
+	public ODatabaseRecord getDatabase() {
+		return database;
+	}
+
+	/**
+	 * Binds the filter to the database of the current execution. Parsed filters can be reused by other database instances on the same
+	 * storage, see {@link com.orientechnologies.orient.core.sql.OSQLStatementCache}.
+	 */
+	public void setDatabase(final ODatabaseRecord iDatabase) {
+		database = iDatabase;
+	}
+
 	private String[] nextValue(final boolean iAdvanceWhenNotFound) {
 		if (!jumpWhiteSpaces())
 			return null;
@@ -496,4 +611,83 @@ public class OSQLFilter extends OCommandToParse {
 	public void setRootCondition(final OSQLFilterCondition iCondition) {
 		rootCondition = iCondition;
 	}
+
+	/**
+	 * Unbinds the parameters set by the last execution.
+	 */
+	public void resetParameters() {
+		if (parameterItems != null)
+			for (OSQLFilterItemParameter p : parameterItems)
+				p.reset();
+	}
+
+	private boolean isReusable(final Object iValue) {
+		if (iValue instanceof OSQLFilterCondition)
+			return isReusable(((OSQLFilterCondition) iValue).getLeft()) && isReusable(((OSQLFilterCondition) iValue).getRight());
+
+		if (iValue instanceof Collection<?>) {
+			for (Object o : (Collection<?>) iValue)
+				if (!isReusable(o))
+					return false;
+			return true;
+		}
+
+		if (iValue instanceof Object[]) {
+			for (Object o : (Object[]) iValue)
+				if (!isReusable(o))
+					return false;
+			return true;
+		}
+
+		return !(iValue instanceof OSQLFunctionRuntime) && !(iValue instanceof OCommandRequest);
+	}
+
+	private boolean isConcurrentEvaluable(final Object iValue) {
+		if (iValue == null)
+			return true;
+
+		if (iValue instanceof OSQLFilterCondition) {
+			final OSQLFilterCondition condition = (OSQLFilterCondition) iValue;
+			final OQueryOperator operator = condition.getOperator();
+
+			if (operator != null && !isConcurrentOperator(operator))
+				return false;
+
+			return isConcurrentEvaluable(condition.getLeft()) && isConcurrentEvaluable(condition.getRight());
+		}
+
+		if (iValue instanceof OSQLFilterItemAbstract)
+			return ((OSQLFilterItemAbstract) iValue).isLocalToRecord();
+
+		if (iValue instanceof OSQLFilterItemParameter)
+			return true;
+
+		if (iValue instanceof Collection<?>) {
+			for (Object o : (Collection<?>) iValue)
+				if (!isConcurrentEvaluable(o))
+					return false;
+			return true;
+		}
+
+		if (iValue instanceof Object[]) {
+			for (Object o : (Object[]) iValue)
+				if (!isConcurrentEvaluable(o))
+					return false;
+			return true;
+		}
+
+		// FUNCTIONS AND SUB-QUERIES USE THE DATABASE
+		return !(iValue instanceof OSQLFunctionRuntime) && !(iValue instanceof OSQLFilterItem)
+				&& !(iValue instanceof OCommandRequest);
+	}
+
+	private static boolean isConcurrentOperator(final OQueryOperator iOperator) {
+		return iOperator instanceof OQueryOperatorAnd || iOperator instanceof OQueryOperatorOr || iOperator instanceof OQueryOperatorNot
+				|| iOperator instanceof OQueryOperatorEquals || iOperator instanceof OQueryOperatorNotEquals
+				|| iOperator instanceof OQueryOperatorMajor || iOperator instanceof OQueryOperatorMajorEquals
+				|| iOperator instanceof OQueryOperatorMinor || iOperator instanceof OQueryOperatorMinorEquals
+				|| iOperator instanceof OQueryOperatorLike || iOperator instanceof OQueryOperatorMatches
+				|| iOperator instanceof OQueryOperatorIs || iOperator instanceof OQueryOperatorIn
+				|| iOperator instanceof OQueryOperatorBetween || iOperator instanceof OQueryOperatorContainsKey;
+	}
 }
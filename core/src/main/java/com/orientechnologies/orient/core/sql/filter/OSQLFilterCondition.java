@@ -33,20 +33,52 @@ import com.orientechnologies.orient.core.query.OQueryRuntimeValueMulti;
 import com.orientechnologies.orient.core.record.ORecordSchemaAware;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
 import com.orientechnologies.orient.core.sql.OSQLHelper;
+import com.orientechnologies.orient.core.command.OCommandRequest;
 import com.orientechnologies.orient.core.sql.functions.OSQLFunctionRuntime;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperator;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorAnd;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorContains;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorContainsAll;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorContainsText;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorLike;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMatches;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorOr;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorTraverse;
 
 /**
- * Run-time query condition evaluator.
+ * Run-time query condition evaluator. Once the whole condition tree is parsed it's compiled by {@link #compile()}: AND and OR
+ * evaluate the cheapest side first and stop as soon as the result is known, while constant values on the right are converted only
+ * once for each type of the left value.
  * 
  * @author Luca Garulli
  * 
  */
 public class OSQLFilterCondition {
-   private static final String NULL_VALUE = "null";
-   protected Object            left;
-   protected OQueryOperator    operator;
-   protected Object            right;
+   private static final String        NULL_VALUE = "null";
+   protected Object                   left;
+   protected OQueryOperator           operator;
+   protected Object                   right;
+
+   // COMPILED STATE
+   protected int                      cost;
+   protected boolean                  rightFirst;
+   protected boolean                  rightConstant;
+   private volatile OConvertedValue   rightConverted;
+   private volatile Pattern           pattern;
+
+   /**
+    * Constant value converted to be compared against values of a type. Immutable to be shared by the threads that evaluate the
+    * condition concurrently.
+    */
+   private static class OConvertedValue {
+      private final Class<?> type;
+      private final Object   value;
+
+      private OConvertedValue(final Class<?> iType, final Object iValue) {
+         type = iType;
+         value = iValue;
+      }
+   }
 
    public OSQLFilterCondition(final Object iLeft, final OQueryOperator iOperator) {
       this.left = iLeft;
@@ -60,13 +92,29 @@ public class OSQLFilterCondition {
    }
 
    public Object evaluate(final ORecordSchemaAware<?> iRecord) {
-      Object l = evaluate(iRecord, left);
-      Object r = evaluate(iRecord, right);
+      if (operator instanceof OQueryOperatorAnd || operator instanceof OQueryOperatorOr)
+         return evaluateLogical(iRecord);
 
-      final Object[] convertedValues = checkForConversion(iRecord, l, r);
-      if (convertedValues != null) {
-         l = convertedValues[0];
-         r = convertedValues[1];
+      Object l = evaluate(iRecord, left);
+      Object r;
+
+      final OConvertedValue cached = rightConverted;
+      if (cached != null && l != null && l.getClass() == cached.type)
+         // REUSE THE CONSTANT ALREADY CONVERTED FOR THIS TYPE
+         r = cached.value;
+      else {
+         r = evaluate(iRecord, right);
+
+         final Object[] convertedValues = checkForConversion(iRecord, l, r);
+         if (convertedValues != null) {
+            if (rightConstant && convertedValues[0] == l)
+               // ONLY THE CONSTANT HAS BEEN CONVERTED: KEEP IT FOR THE NEXT RECORDS
+               rightConverted = new OConvertedValue(l.getClass(), convertedValues[1]);
+
+            l = convertedValues[0];
+            r = convertedValues[1];
+         } else if (rightConstant && l != null && r != null)
+            rightConverted = new OConvertedValue(l.getClass(), r);
       }
 
       if (operator == null) {
@@ -81,6 +129,38 @@ public class OSQLFilterCondition {
       return operator.evaluateRecord(iRecord, this, l, r);
    }
 
+   /**
+    * Compiles the condition and its sub-conditions. Must be called once the condition tree is complete and before the evaluation.
+    */
+   public void compile() {
+      if (left instanceof OSQLFilterCondition)
+         ((OSQLFilterCondition) left).compile();
+      if (right instanceof OSQLFilterCondition)
+         ((OSQLFilterCondition) right).compile();
+
+      prepare();
+   }
+
+   /**
+    * Returns the regular expression compiled. The last one is cached because it's the same for all the records, unless it's bound
+    * to a parameter or a field.
+    */
+   public Pattern getPattern(final String iRegExp) {
+      Pattern p = pattern;
+      if (p == null || !p.pattern().equals(iRegExp)) {
+         p = Pattern.compile(iRegExp);
+         pattern = p;
+      }
+      return p;
+   }
+
+   /**
+    * Returns the estimated cost of the evaluation. It's used to evaluate the cheapest side of AND and OR conditions first.
+    */
+   public int getCost() {
+      return cost;
+   }
+
    public ORID getBeginRidRange() {
      if(operator == null)
        if(left instanceof OSQLFilterCondition)
@@ -151,6 +231,92 @@ public class OSQLFilterCondition {
       return result;
    }
 
+   /**
+    * Evaluates AND and OR conditions starting from the cheapest side. The other side is evaluated only if the result is still
+    * unknown.
+    */
+   protected Object evaluateLogical(final ORecordSchemaAware<?> iRecord) {
+      final Object first = evaluate(iRecord, rightFirst ? right : left);
+      if (first == null)
+         return Boolean.FALSE;
+
+      if (first instanceof Boolean && ((Boolean) first).booleanValue() == operator instanceof OQueryOperatorOr)
+         // TRUE FOR OR, FALSE FOR AND: NO NEED TO EVALUATE THE OTHER SIDE
+         return first;
+
+      final Object second = evaluate(iRecord, rightFirst ? left : right);
+
+      if (rightFirst)
+         return operator.evaluateRecord(iRecord, this, second, first);
+      return operator.evaluateRecord(iRecord, this, first, second);
+   }
+
+   /**
+    * Computes the compiled state of this condition only. Called again every time one of the sides is replaced.
+    */
+   protected void prepare() {
+      rightConverted = null;
+      pattern = null;
+
+      rightConstant = right != null && !(right instanceof OSQLFilterItem) && !(right instanceof OSQLFilterCondition)
+            && !(right instanceof OSQLFunctionRuntime) && !(right instanceof OCommandRequest) && !OMultiValue.isMultiValue(right);
+
+      final int leftCost = getCost(left);
+      final int rightCost = getCost(right);
+      cost = leftCost + rightCost + getOperatorCost(operator);
+
+      // EVALUATE THE CHEAPEST SIDE FIRST: IF THE RESULT IS ALREADY KNOWN THE OTHER ONE IS SKIPPED
+      rightFirst = (operator instanceof OQueryOperatorAnd || operator instanceof OQueryOperatorOr) && rightCost < leftCost;
+   }
+
+   protected static int getCost(final Object iValue) {
+      if (iValue == null)
+         return 0;
+
+      if (iValue instanceof OSQLFilterCondition)
+         return ((OSQLFilterCondition) iValue).getCost();
+
+      if (iValue instanceof OSQLFilterItemAbstract)
+         // FOLLOWING LINKS LOADS OTHER RECORDS
+         return ((OSQLFilterItemAbstract) iValue).isLocalToRecord() ? 1 : 10;
+
+      if (iValue instanceof OSQLFunctionRuntime)
+         return 10;
+
+      if (iValue instanceof OCommandRequest)
+         // SUB-QUERY
+         return 100;
+
+      if (OMultiValue.isMultiValue(iValue)) {
+         int tot = 0;
+         for (Object o : OMultiValue.getMultiValueIterable(iValue))
+            tot += o instanceof OSQLFilterItem ? getCost(o) : 0;
+         return tot + OMultiValue.getSize(iValue) / 10;
+      }
+
+      return 0;
+   }
+
+   protected static int getOperatorCost(final OQueryOperator iOperator) {
+      if (iOperator == null)
+         return 0;
+
+      if (iOperator instanceof OQueryOperatorTraverse)
+         return 100;
+
+      if (iOperator instanceof OQueryOperatorContains || iOperator instanceof OQueryOperatorContainsAll
+            || iOperator instanceof OQueryOperatorContainsText)
+         return 10;
+
+      if (iOperator instanceof OQueryOperatorMatches)
+         return 5;
+
+      if (iOperator instanceof OQueryOperatorLike)
+         return 2;
+
+      return 1;
+   }
+
    protected Integer getInteger(Object iValue) {
       if (iValue == null)
          return null;
@@ -293,9 +459,11 @@ public class OSQLFilterCondition {
 
    public void setLeft(final Object iValue) {
       left = iValue;
+      prepare();
    }
 
    public void setRight(final Object iValue) {
       right = iValue;
+      prepare();
    }
 }
@@ -277,6 +277,18 @@ public abstract class OSQLFilterItemAbstract implements OSQLFilterItem {
 		return operationsChain != null;
 	}
 
+	/**
+	 * Tells if the value is computed by using only the current record, namely no operator of the chain navigates links to other
+	 * records.
+	 */
+	public boolean isLocalToRecord() {
+		if (operationsChain != null)
+			for (OPair<Integer, List<String>> op : operationsChain)
+				if (op.getKey().intValue() == OSQLFilterFieldOperator.FIELD.id)
+					return false;
+		return true;
+	}
+
 	@Override
 	public String toString() {
 		final StringBuilder buffer = new StringBuilder();
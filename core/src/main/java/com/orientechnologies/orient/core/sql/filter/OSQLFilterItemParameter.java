@@ -52,4 +52,11 @@ public class OSQLFilterItemParameter implements OSQLFilterItem {
 	public void setValue(Object value) {
 		this.value = value;
 	}
+
+	/**
+	 * Unbinds the value.
+	 */
+	public void reset() {
+		this.value = NOT_SETTED;
+	}
 }
@@ -34,7 +34,11 @@ public class OQueryOperatorMatches extends OQueryOperatorEqualityNotNulls {
 	@Override
 	protected boolean evaluateExpression(final ORecordInternal<?> iRecord, final OSQLFilterCondition iCondition, final Object iLeft,
 			final Object iRight) {
-		return iLeft.toString().matches((String) iRight);
+		if (iCondition == null)
+			return iLeft.toString().matches((String) iRight);
+
+		// THE PATTERN IS COMPILED ONCE AND REUSED FOR ALL THE RECORDS
+		return iCondition.getPattern((String) iRight).matcher(iLeft.toString()).matches();
 	}
 
 	@Override
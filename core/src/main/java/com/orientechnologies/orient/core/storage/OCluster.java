@@ -31,7 +31,7 @@ import java.io.IOException;
 public interface OCluster {
 
 	public static enum ATTRIBUTES {
-		NAME
+		NAME, COMPRESSION
 	}
 
 	public void create(int iStartSize) throws IOException;
@@ -0,0 +1,37 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage;
+
+import com.orientechnologies.orient.core.record.ORecordInternal;
+
+/**
+ * Listener used by the parallel browsing of clusters. The filter() method is called concurrently by the worker threads, while
+ * foreachAccepted() is called only by the thread that started the browsing, with the records accepted by the filter in cluster
+ * order.
+ *
+ * @author Luca Garulli
+ *
+ */
+public interface ORecordBrowsingParallelListener extends ORecordBrowsingListener {
+	public boolean filter(ORecordInternal<?> record);
+
+	/**
+	 * Receives a record already accepted by {@link #filter(ORecordInternal)}, so it must not be evaluated again.
+	 * 
+	 * @return false to stop the browsing
+	 */
+	public boolean foreachAccepted(ORecordInternal<?> record);
+}
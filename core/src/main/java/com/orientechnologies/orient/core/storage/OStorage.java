@@ -77,6 +77,18 @@ public interface OStorage extends OSharedContainer {
 
 	public ORawBuffer readRecord(ORecordId iRid, String iFetchPlan, ORecordCallback<ORawBuffer> iCallback);
 
+	/**
+	 * Reads a batch of records with one call. Storages read them in the order that minimizes the accesses to the disk and the remote
+	 * storage sends all of them with a single request.
+	 * 
+	 * @param iRids
+	 *          Identities of the records to read
+	 * @param iFetchPlan
+	 *          Fetch plan used by the remote storage to send the linked records in advance
+	 * @return The records in the same order of the identities, with null in place of the records not found
+	 */
+	public ORawBuffer[] readRecords(ORecordId[] iRids, String iFetchPlan);
+
 	public int updateRecord(ORecordId iRecordId, byte[] iContent, int iVersion, byte iRecordType, ORecordCallback<Integer> iCallback);
 
 	public boolean deleteRecord(ORecordId iRecordId, int iVersion, ORecordCallback<Boolean> iCallback);
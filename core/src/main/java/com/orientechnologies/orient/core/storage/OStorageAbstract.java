@@ -54,7 +54,7 @@ public abstract class OStorageAbstract extends OSharedContainerImpl implements O
 		if (OStringSerializerHelper.contains(iName, ','))
 			throw new IllegalArgumentException("Invalid character in storage name: " + name);
 
-		level2Cache = new OLevel2RecordCache(this);
+		level2Cache = OLevel2RecordCache.create(this);
 		level2Cache.startup();
 
 		url = iURL;
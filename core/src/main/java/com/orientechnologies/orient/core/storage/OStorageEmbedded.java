@@ -16,10 +16,13 @@
 package com.orientechnologies.orient.core.storage;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
 
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.command.OCommandExecutor;
 import com.orientechnologies.orient.core.command.OCommandManager;
 import com.orientechnologies.orient.core.command.OCommandRequestText;
@@ -27,11 +30,16 @@ import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecordAbstract;
+import com.orientechnologies.orient.core.db.record.ORecordElement;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.exception.ORecordNotFoundException;
 import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.hook.ORecordHook.TYPE;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.iterator.ORecordIteratorCluster;
+import com.orientechnologies.orient.core.metadata.security.ODatabaseSecurityResources;
+import com.orientechnologies.orient.core.metadata.security.ORole;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 
@@ -72,6 +80,19 @@ public abstract class OStorageEmbedded extends OStorageAbstract {
 		}
 	}
 
+	/**
+	 * Called before the commit of a transaction, before to acquire any lock.
+	 */
+	public void beginCommit() {
+	}
+
+	/**
+	 * Called after the commit of a transaction, once all the locks have been released. Storages that synchronize the transactions in
+	 * group wait here until the transaction is durable.
+	 */
+	public void endCommit() {
+	}
+
 	/**
 	 * Browse N clusters. The entire operation use a shared lock on the storage and lock the cluster from the external avoiding atomic
 	 * lock at every record read.
@@ -122,6 +143,169 @@ public abstract class OStorageEmbedded extends OStorageAbstract {
 		}
 	}
 
+	/**
+	 * Browse N clusters using multiple threads. Records are read and filtered in parallel, but the listener receives the accepted
+	 * records by the caller thread in the same order of {@link #browse(int[], ORID, ORID, ORecordBrowsingListener, ORecordInternal, boolean)}.
+	 *
+	 * @see OStorageParallelBrowser
+	 */
+	public void browseParallel(final int[] iClusterId, final ORID iBeginRange, final ORID iEndRange,
+			final ORecordBrowsingParallelListener iListener) {
+		checkOpeness();
+
+		new OStorageParallelBrowser(this, iListener).browse(iClusterId, iBeginRange, iEndRange);
+	}
+
+	/**
+	 * Scans N clusters reading the records in bulk with {@link #readRecords(OCluster, long, long)}. The records are not loaded through
+	 * the database, so they are neither searched in nor added to the caches: use it only outside transactions.
+	 * 
+	 * @param iClusterId
+	 *          Array of cluster ids
+	 * @param iListener
+	 *          The listener to call for each record found
+	 */
+	public void scan(final int[] iClusterId, final ORID iBeginRange, final ORID iEndRange, final ORecordBrowsingListener iListener) {
+		checkOpeness();
+
+		final long timer = OProfiler.getInstance().startChrono();
+
+		final ODatabaseRecord db = ODatabaseRecordThreadLocal.INSTANCE.get();
+		final int rangeSize = Math.max(1, OGlobalConfiguration.QUERY_SCAN_RANGE.getValueAsInteger());
+
+		try {
+			for (int clusterId : iClusterId) {
+				if (iBeginRange != null)
+					if (clusterId < iBeginRange.getClusterId())
+						// JUMP THIS
+						continue;
+
+				if (iEndRange != null)
+					if (clusterId > iEndRange.getClusterId())
+						// STOP
+						break;
+
+				final OCluster cluster = getClusterById(clusterId);
+				db.checkSecurity(ODatabaseSecurityResources.CLUSTER, ORole.PERMISSION_READ, cluster.getName());
+
+				final long[] range = getClusterDataRange(clusterId);
+				if (range == null || range.length < 2 || range[1] < 0)
+					// EMPTY CLUSTER
+					continue;
+
+				long from = range[0] > -1 ? range[0] : 0;
+				long to = range[1];
+
+				if (iBeginRange != null && iBeginRange.getClusterId() == clusterId)
+					from = Math.max(from, iBeginRange.getClusterPosition());
+				if (iEndRange != null && iEndRange.getClusterId() == clusterId && iEndRange.getClusterPosition() > -1)
+					to = Math.min(to, iEndRange.getClusterPosition());
+
+				for (long pos = from; pos <= to; pos += rangeSize) {
+					final ORawBuffer[] buffers = readRecords(cluster, pos, Math.min(pos + rangeSize - 1, to));
+
+					for (int i = 0; i < buffers.length; ++i) {
+						if (buffers[i] == null || buffers[i].recordType != ODocument.RECORD_TYPE)
+							// DELETED OR WRONG RECORD TYPE: JUMP IT
+							continue;
+
+						final ORecordId rid = new ORecordId(clusterId, pos + i);
+						ORecordInternal<?> record = null;
+						try {
+							record = createRecord(rid, buffers[i]);
+
+							if (db instanceof ODatabaseRecordAbstract) {
+								((ODatabaseRecordAbstract) db).callbackHooks(TYPE.BEFORE_READ, record);
+								((ODatabaseRecordAbstract) db).callbackHooks(TYPE.AFTER_READ, record);
+							}
+
+							if (!iListener.foreach(record))
+								// LISTENER HAS INTERRUPTED THE EXECUTION
+								return;
+
+						} catch (OCommandExecutionException e) {
+							// PASS THROUGH
+							throw e;
+						} catch (Exception e) {
+							OLogManager.instance().exception("Error on loading record %s. Cause: %s", e, OStorageException.class, rid, e);
+						}
+					}
+				}
+			}
+		} finally {
+			OProfiler.getInstance().stopChrono("OStorageLocal.scan", timer);
+		}
+	}
+
+	/**
+	 * Reads the records of a range of positions of a cluster. This implementation reads them one by one, storages can override it to
+	 * read them in bulk.
+	 * 
+	 * @return The records in order of position starting from iFrom, with null in place of the deleted ones
+	 */
+	public ORawBuffer[] readRecords(final OCluster iCluster, final long iFrom, final long iTo) {
+		final ORawBuffer[] result = new ORawBuffer[(int) (iTo - iFrom + 1)];
+		for (long pos = iFrom; pos <= iTo; ++pos)
+			try {
+				result[(int) (pos - iFrom)] = readRecord(iCluster, new ORecordId(iCluster.getId(), pos), true);
+			} catch (ORecordNotFoundException e) {
+				// DELETED
+			}
+		return result;
+	}
+
+	/**
+	 * Reads a batch of records in order of cluster and position. This implementation reads them one by one, storages can override it
+	 * to read them in bulk. The fetch plan is ignored since the linked records are loaded on demand.
+	 */
+	public ORawBuffer[] readRecords(final ORecordId[] iRids, final String iFetchPlan) {
+		checkOpeness();
+
+		final ORawBuffer[] result = new ORawBuffer[iRids.length];
+		for (int i : sortByPosition(iRids))
+			try {
+				result[i] = readRecord(getClusterById(iRids[i].clusterId), iRids[i], true);
+			} catch (ORecordNotFoundException e) {
+				// NOT FOUND
+			}
+		return result;
+	}
+
+	/**
+	 * Returns the indexes of the valid identities sorted by cluster and position.
+	 */
+	protected static Integer[] sortByPosition(final ORecordId[] iRids) {
+		int count = 0;
+		final Integer[] sorted = new Integer[iRids.length];
+		for (int i = 0; i < iRids.length; ++i)
+			if (iRids[i] != null && iRids[i].clusterPosition > -1)
+				sorted[count++] = i;
+
+		final Integer[] result = new Integer[count];
+		System.arraycopy(sorted, 0, result, 0, count);
+		Arrays.sort(result, new Comparator<Integer>() {
+			public int compare(final Integer o1, final Integer o2) {
+				final ORecordId r1 = iRids[o1];
+				final ORecordId r2 = iRids[o2];
+				if (r1.clusterId != r2.clusterId)
+					return r1.clusterId < r2.clusterId ? -1 : 1;
+				return r1.clusterPosition < r2.clusterPosition ? -1 : r1.clusterPosition == r2.clusterPosition ? 0 : 1;
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Creates the record from the raw content read by the storage, bypassing the caches.
+	 */
+	protected ORecordInternal<?> createRecord(final ORecordId iRid, final ORawBuffer iBuffer) {
+		final ORecordInternal<?> record = Orient.instance().getRecordFactoryManager().newInstance(iBuffer.recordType);
+		record.fill(iRid, iBuffer.version, iBuffer.buffer, false);
+		record.fromStream(iBuffer.buffer);
+		record.setInternalStatus(ORecordElement.STATUS.LOADED);
+		return record;
+	}
+
 	public ORecordInternal<?> browseCluster(final ORecordBrowsingListener iListener, ORecordInternal<?> ioRecord,
 			final OCluster cluster, final long iBeginRange, final long iEndRange, final boolean iLockEntireCluster) throws IOException {
 		ORecordInternal<?> record;
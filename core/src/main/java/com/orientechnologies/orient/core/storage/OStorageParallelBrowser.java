@@ -0,0 +1,263 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecordAbstract;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecordTx;
+import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.hook.ORecordHook.TYPE;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Browses N clusters in parallel. The clusters are split in ranges of positions (see
+ * {@link OGlobalConfiguration#QUERY_PARALLEL_SCAN_RANGE}) and each range is read and filtered by a thread of a shared pool. Ranges
+ * are collected in cluster order by the caller thread that passes the accepted records to the listener, so the result is the same
+ * of the sequential browsing and the listener can stop the execution (LIMIT) at any time. Only a window of ranges is executed in
+ * advance to keep the memory bounded. A database instance can't be shared between threads, so the workers unmarshall the records
+ * with their own instances, opened for the user of the caller's database and closed at the end of the browsing.
+ *
+ * @author Luca Garulli
+ *
+ */
+public class OStorageParallelBrowser {
+	private static ExecutorService								executor;
+	private static int														executorThreads;
+
+	private final OStorageEmbedded								storage;
+	private final ORecordBrowsingParallelListener	listener;
+	private final ODatabaseRecord									database;
+	private final ConcurrentLinkedQueue<ODatabaseRecordTx>	workerDatabases	= new ConcurrentLinkedQueue<ODatabaseRecordTx>();
+	private volatile boolean											interrupted;
+
+	public OStorageParallelBrowser(final OStorageEmbedded iStorage, final ORecordBrowsingParallelListener iListener) {
+		storage = iStorage;
+		listener = iListener;
+		database = ODatabaseRecordThreadLocal.INSTANCE.get();
+	}
+
+	public void browse(final int[] iClusterId, final ORID iBeginRange, final ORID iEndRange) {
+		final long timer = OProfiler.getInstance().startChrono();
+
+		final List<OBrowseRangeTask> tasks = createTasks(iClusterId, iBeginRange, iEndRange);
+		final ExecutorService pool;
+		final int window;
+		synchronized (OStorageParallelBrowser.class) {
+			pool = getExecutor();
+			window = executorThreads * 2;
+		}
+
+		final LinkedList<Future<List<ORecordInternal<?>>>> pending = new LinkedList<Future<List<ORecordInternal<?>>>>();
+		int next = 0;
+
+		try {
+			while (next < tasks.size() && pending.size() < window)
+				pending.add(pool.submit(tasks.get(next++)));
+
+			while (!pending.isEmpty()) {
+				final List<ORecordInternal<?>> records = pending.removeFirst().get();
+
+				if (next < tasks.size())
+					pending.add(pool.submit(tasks.get(next++)));
+
+				for (ORecordInternal<?> record : records) {
+					if (database instanceof ODatabaseRecordAbstract) {
+						((ODatabaseRecordAbstract) database).callbackHooks(TYPE.BEFORE_READ, record);
+						((ODatabaseRecordAbstract) database).callbackHooks(TYPE.AFTER_READ, record);
+					}
+
+					if (!listener.foreachAccepted(record))
+						// LISTENER HAS INTERRUPTED THE EXECUTION
+						return;
+				}
+			}
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OStorageException("Parallel browsing of clusters has been interrupted", e);
+
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof OException)
+				throw (OException) e.getCause();
+			throw new OStorageException("Error on parallel browsing of clusters", e.getCause());
+
+		} finally {
+			// STOP THE TASKS STILL RUNNING AND WAIT FOR THEM BEFORE TO CLOSE THEIR DATABASES
+			interrupted = true;
+			for (Future<List<ORecordInternal<?>>> f : pending)
+				if (!f.cancel(false))
+					try {
+						f.get();
+					} catch (Exception e) {
+						// ALREADY REPORTED OR NOT NEEDED ANYMORE
+					}
+
+			closeWorkerDatabases();
+
+			OProfiler.getInstance().stopChrono("OStorageLocal.foreachParallel", timer);
+		}
+	}
+
+	private ODatabaseRecordTx acquireWorkerDatabase() {
+		final ODatabaseRecordTx db = workerDatabases.poll();
+		if (db != null) {
+			ODatabaseRecordThreadLocal.INSTANCE.set(db);
+			return db;
+		}
+
+		// THE CONSTRUCTOR AND THE OPEN SET THE NEW INSTANCE AS CURRENT DATABASE OF THE WORKER THREAD
+		return new ODatabaseRecordTx(database.getURL(), ODocument.RECORD_TYPE).open(database.getUser());
+	}
+
+	private void closeWorkerDatabases() {
+		if (workerDatabases.isEmpty())
+			return;
+
+		try {
+			ODatabaseRecordTx db;
+			while ((db = workerDatabases.poll()) != null)
+				try {
+					db.close();
+				} catch (Exception e) {
+					OLogManager.instance().error(this, "Error on closing the database used by parallel browsing", e);
+				}
+		} finally {
+			// CLOSE() SETS THE CLOSED INSTANCE AS CURRENT DATABASE
+			ODatabaseRecordThreadLocal.INSTANCE.set(database);
+		}
+	}
+
+	private List<OBrowseRangeTask> createTasks(final int[] iClusterId, final ORID iBeginRange, final ORID iEndRange) {
+		final int rangeSize = Math.max(1, OGlobalConfiguration.QUERY_PARALLEL_SCAN_RANGE.getValueAsInteger());
+		final List<OBrowseRangeTask> tasks = new ArrayList<OBrowseRangeTask>();
+
+		for (int clusterId : iClusterId) {
+			if (iBeginRange != null)
+				if (clusterId < iBeginRange.getClusterId())
+					// JUMP THIS
+					continue;
+
+			if (iEndRange != null)
+				if (clusterId > iEndRange.getClusterId())
+					// STOP
+					break;
+
+			final long[] range = storage.getClusterDataRange(clusterId);
+			if (range == null || range.length < 2 || range[1] < 0)
+				// EMPTY CLUSTER
+				continue;
+
+			long from = range[0] > -1 ? range[0] : 0;
+			long to = range[1];
+
+			if (iBeginRange != null && iBeginRange.getClusterId() == clusterId)
+				from = Math.max(from, iBeginRange.getClusterPosition());
+			if (iEndRange != null && iEndRange.getClusterId() == clusterId && iEndRange.getClusterPosition() > -1)
+				to = Math.min(to, iEndRange.getClusterPosition());
+
+			final OCluster cluster = storage.getClusterById(clusterId);
+			for (long pos = from; pos <= to; pos += rangeSize)
+				tasks.add(new OBrowseRangeTask(cluster, pos, Math.min(pos + rangeSize - 1, to)));
+		}
+
+		return tasks;
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		final int threads = Math.max(1, OGlobalConfiguration.QUERY_PARALLEL_SCAN_THREADS.getValueAsInteger());
+		if (executor != null && executorThreads != threads) {
+			// THE SETTING HAS BEEN CHANGED: THE RUNNING TASKS COMPLETE ON THE OLD POOL
+			executor.shutdown();
+			executor = null;
+		}
+
+		if (executor == null) {
+			executorThreads = threads;
+			executor = Executors.newFixedThreadPool(executorThreads, new ThreadFactory() {
+				private final AtomicInteger	counter	= new AtomicInteger();
+
+				public Thread newThread(final Runnable r) {
+					final Thread t = new Thread(r, "OrientDB ParallelScan-" + counter.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return executor;
+	}
+
+	/**
+	 * Reads and filters a range of positions of a cluster.
+	 */
+	private class OBrowseRangeTask implements Callable<List<ORecordInternal<?>>> {
+		private final OCluster	cluster;
+		private final long			from;
+		private final long			to;
+
+		private OBrowseRangeTask(final OCluster iCluster, final long iFrom, final long iTo) {
+			cluster = iCluster;
+			from = iFrom;
+			to = iTo;
+		}
+
+		public List<ORecordInternal<?>> call() throws Exception {
+			final List<ORecordInternal<?>> result = new ArrayList<ORecordInternal<?>>();
+
+			if (interrupted)
+				return result;
+
+			// RECORDS NEED A DATABASE TO UNMARSHALL THEMSELVES: USE ONE OWNED BY THIS THREAD UNTIL THE TASK ENDS
+			final ODatabaseRecordTx db = acquireWorkerDatabase();
+			try {
+				final ORawBuffer[] buffers = storage.readRecords(cluster, from, to);
+				for (int i = 0; i < buffers.length && !interrupted; ++i) {
+					if (buffers[i] == null || buffers[i].recordType != ODocument.RECORD_TYPE)
+						// DELETED OR WRONG RECORD TYPE: JUMP IT
+						continue;
+
+					final ORecordInternal<?> record = storage.createRecord(new ORecordId(cluster.getId(), from + i), buffers[i]);
+					if (listener.filter(record))
+						result.add(record);
+				}
+			} finally {
+				ODatabaseRecordThreadLocal.INSTANCE.remove();
+				workerDatabases.offer(db);
+			}
+
+			return result;
+		}
+	}
+}
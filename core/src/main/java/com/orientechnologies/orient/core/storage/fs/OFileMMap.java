@@ -64,9 +64,13 @@ public class OFileMMap extends OFile {
 		final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, iLenght, OPERATION_TYPE.READ, strategy);
 		if (entry != null) {
 			// MMAP READ
-			synchronized (entry.buffer) {
-				entry.buffer.position((int) (iOffset - entry.beginOffset));
-				entry.buffer.get(iDestBuffer, 0, iLenght);
+			try {
+				synchronized (entry.buffer) {
+					entry.buffer.position((int) (iOffset - entry.beginOffset));
+					entry.buffer.get(iDestBuffer, 0, iLenght);
+				}
+			} finally {
+				entry.release();
 			}
 		} else {
 			// DIRECT READ
@@ -84,8 +88,10 @@ public class OFileMMap extends OFile {
 		final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, OBinaryProtocol.SIZE_INT, OPERATION_TYPE.READ, strategy);
 		if (entry != null) {
 			// MMAP READ
-			synchronized (entry.buffer) {
+			try {
 				return entry.buffer.getInt((int) (iOffset - entry.beginOffset));
+			} finally {
+				entry.release();
 			}
 		} else {
 			// DIRECT READ
@@ -104,8 +110,10 @@ public class OFileMMap extends OFile {
 		final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, OBinaryProtocol.SIZE_LONG, OPERATION_TYPE.READ, strategy);
 		if (entry != null) {
 			// MMAP READ
-			synchronized (entry.buffer) {
+			try {
 				return entry.buffer.getLong((int) (iOffset - entry.beginOffset));
+			} finally {
+				entry.release();
 			}
 		} else {
 			// DIRECT READ
@@ -124,8 +132,10 @@ public class OFileMMap extends OFile {
 		final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, OBinaryProtocol.SIZE_SHORT, OPERATION_TYPE.READ, strategy);
 		if (entry != null) {
 			// MMAP READ
-			synchronized (entry.buffer) {
+			try {
 				return entry.buffer.getShort((int) (iOffset - entry.beginOffset));
+			} finally {
+				entry.release();
 			}
 		} else {
 			// DIRECT READ
@@ -144,8 +154,10 @@ public class OFileMMap extends OFile {
 		final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, OBinaryProtocol.SIZE_BYTE, OPERATION_TYPE.READ, strategy);
 		if (entry != null) {
 			// MMAP READ
-			synchronized (entry.buffer) {
+			try {
 				return entry.buffer.get((int) (iOffset - entry.beginOffset));
+			} finally {
+				entry.release();
 			}
 		} else {
 			// DIRECT READ
@@ -164,8 +176,10 @@ public class OFileMMap extends OFile {
 		final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, OBinaryProtocol.SIZE_INT, OPERATION_TYPE.WRITE, strategy);
 		if (entry != null) {
 			// MMAP WRITE
-			synchronized (entry.buffer) {
+			try {
 				entry.buffer.putInt((int) (iOffset - entry.beginOffset), iValue);
+			} finally {
+				entry.release();
 			}
 		} else {
 			// DIRECT WRITE
@@ -183,8 +197,10 @@ public class OFileMMap extends OFile {
 		final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, OBinaryProtocol.SIZE_LONG, OPERATION_TYPE.WRITE, strategy);
 		if (entry != null) {
 			// MMAP WRITE
-			synchronized (entry.buffer) {
+			try {
 				entry.buffer.putLong((int) (iOffset - entry.beginOffset), iValue);
+			} finally {
+				entry.release();
 			}
 		} else {
 			// DIRECT WRITE
@@ -202,8 +218,10 @@ public class OFileMMap extends OFile {
 		final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, OBinaryProtocol.SIZE_SHORT, OPERATION_TYPE.WRITE, strategy);
 		if (entry != null) {
 			// MMAP WRITE
-			synchronized (entry.buffer) {
+			try {
 				entry.buffer.putShort((int) (iOffset - entry.beginOffset), iValue);
+			} finally {
+				entry.release();
 			}
 		} else {
 			// DIRECT WRITE
@@ -221,8 +239,10 @@ public class OFileMMap extends OFile {
 		final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, OBinaryProtocol.SIZE_BYTE, OPERATION_TYPE.WRITE, strategy);
 		if (entry != null) {
 			// MMAP WRITE
-			synchronized (entry.buffer) {
+			try {
 				entry.buffer.put((int) (iOffset - entry.beginOffset), iValue);
+			} finally {
+				entry.release();
 			}
 		} else {
 			// DIRECT WRITE
@@ -245,9 +265,13 @@ public class OFileMMap extends OFile {
 			final OMMapBufferEntry entry = OMMapManager.request(this, iOffset, iSourceBuffer.length, OPERATION_TYPE.WRITE, strategy);
 			if (entry != null) {
 				// MMAP WRITE
-				synchronized (entry.buffer) {
-					entry.buffer.position((int) (iOffset - entry.beginOffset));
-					entry.buffer.put(iSourceBuffer);
+				try {
+					synchronized (entry.buffer) {
+						entry.buffer.position((int) (iOffset - entry.beginOffset));
+						entry.buffer.put(iSourceBuffer);
+					}
+				} finally {
+					entry.release();
 				}
 			} else {
 				// DIRECT WRITE
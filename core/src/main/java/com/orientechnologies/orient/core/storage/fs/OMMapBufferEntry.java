@@ -18,6 +18,7 @@ package com.orientechnologies.orient.core.storage.fs;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.nio.MappedByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.orientechnologies.common.log.OLogManager;
 
@@ -27,9 +28,18 @@ public class OMMapBufferEntry implements Comparable<OMMapBufferEntry> {
 	MappedByteBuffer	buffer;
 	long							beginOffset;
 	int								size;
-	long							counter;
+	volatile boolean	accessed;
 	boolean						pin;
 
+	/**
+	 * Number of threads that are using the buffer, or -1 if the buffer has been freed.
+	 */
+	private final AtomicInteger	references	= new AtomicInteger();
+	/**
+	 * Set when the file has been removed while the buffer was in use: the last thread that releases it closes it.
+	 */
+	private volatile boolean		closeOnRelease;
+
 	static {
 		// GET SUN JDK METHOD TO CLEAN MMAP BUFFERS
 		try {
@@ -44,7 +54,6 @@ public class OMMapBufferEntry implements Comparable<OMMapBufferEntry> {
 		this.buffer = buffer;
 		this.beginOffset = beginOffset;
 		this.size = size;
-		this.counter = 0;
 		pin = false;
 	}
 
@@ -82,7 +91,76 @@ public class OMMapBufferEntry implements Comparable<OMMapBufferEntry> {
 		}
 
 		buffer = null;
-		counter = 0;
+		accessed = false;
+	}
+
+	/**
+	 * Acquires the buffer to use it. Once used it must be released by calling {@link #release()}.
+	 * 
+	 * @return false if the buffer has been freed meanwhile
+	 */
+	boolean acquire() {
+		while (true) {
+			final int current = references.get();
+			if (current < 0)
+				return false;
+
+			if (references.compareAndSet(current, current + 1)) {
+				if (!accessed)
+					// AVOID TO WRITE THE SHARED FLAG AT EVERY ACCESS
+					accessed = true;
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Releases the buffer acquired by {@link OMMapManager#request(OFileMMap, long, int, OMMapManager.OPERATION_TYPE,
+	 * OMMapManager.ALLOC_STRATEGY)}.
+	 */
+	public void release() {
+		if (references.decrementAndGet() == 0 && closeOnRelease && free())
+			close();
+	}
+
+	/**
+	 * Closes the buffer if nobody is using it, otherwise defers the closing to the last {@link #release()}.
+	 * 
+	 * @return true if closed now, false if deferred
+	 */
+	boolean closeWhenReleased() {
+		closeOnRelease = true;
+		if (!free())
+			// IN USE OR ALREADY CLOSED BY THE LAST RELEASE
+			return false;
+
+		close();
+		return true;
+	}
+
+	/**
+	 * Marks the buffer as freed if nobody is using it.
+	 * 
+	 * @return true if freed, otherwise false
+	 */
+	boolean free() {
+		return references.compareAndSet(0, -1);
+	}
+
+	/**
+	 * Resets the accessed flag.
+	 * 
+	 * @return the previous value
+	 */
+	boolean resetAccessed() {
+		if (!accessed)
+			return false;
+		accessed = false;
+		return true;
+	}
+
+	boolean contains(final long iBeginOffset, final int iSize) {
+		return iBeginOffset >= beginOffset && iBeginOffset + iSize <= beginOffset + size && buffer != null;
 	}
 
 	public int compareTo(final OMMapBufferEntry iOther) {
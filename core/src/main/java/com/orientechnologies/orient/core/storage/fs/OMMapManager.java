@@ -17,12 +17,13 @@ package com.orientechnologies.orient.core.storage.fs;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import com.orientechnologies.common.io.OIOException;
 import com.orientechnologies.common.log.OLogManager;
@@ -31,6 +32,16 @@ import com.orientechnologies.common.profiler.OProfiler.OProfilerHookValue;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.memory.OMemoryWatchDog;
 
+/**
+ * Handles the pool of memory mapped buffers of all the {@link OFileMMap} files. The buffers of each file are kept ordered by
+ * offset and searched by binary search under the read lock of the file, while the last buffer used is checked without any lock.
+ * Mapping a new buffer locks only its file. Every buffer returned by request() is acquired and must be released by the caller
+ * with {@link OMMapBufferEntry#release()}: acquired buffers are never unmapped. When the pool is full the buffers are freed by a
+ * CLOCK strategy: the buffers used since the last pass get a second chance.
+ * 
+ * @author Luca Garulli
+ * 
+ */
 public class OMMapManager {
 	public enum OPERATION_TYPE {
 		READ, WRITE
@@ -44,17 +55,37 @@ public class OMMapManager {
 		NO_OVERLAP_USE_CHANNEL, NO_OVERLAP_FLUSH_AND_USE_CHANNEL, OVERLAP
 	}
 
-	private static final long															MIN_MEMORY				= 50000000;
-	private static final int															FORCE_DELAY;
-	private static final int															FORCE_RETRY;
-	private static OVERLAP_STRATEGY												overlapStrategy;
-	private static ALLOC_STRATEGY													lastStrategy;
-	private static int																		blockSize;
-	private static long																		maxMemory;
-	private static long																		totalMemory;
+	private static final long																				MIN_MEMORY				= 50000000;
+	private static final int																				FORCE_DELAY;
+	private static final int																				FORCE_RETRY;
+	private static volatile OVERLAP_STRATEGY												overlapStrategy;
+	private static volatile ALLOC_STRATEGY													lastStrategy;
+	private static volatile int																			blockSize;
+	private static volatile long																		maxMemory;
+	private static final AtomicLong																	totalMemory				= new AtomicLong();
+	private static final AtomicInteger															totalBlocks				= new AtomicInteger();
+
+	private static final ConcurrentLinkedQueue<OMMapBufferEntry>		bufferPoolLRU			= new ConcurrentLinkedQueue<OMMapBufferEntry>();
+	private static final ConcurrentHashMap<OFileMMap, OFileEntries>	bufferPoolPerFile	= new ConcurrentHashMap<OFileMMap, OFileEntries>();
+	private static final Object																			evictionLock			= new Object();
+
+	/**
+	 * Buffers of a file ordered by begin offset.
+	 */
+	private static class OFileEntries {
+		final ReentrantReadWriteLock	lock		= new ReentrantReadWriteLock();
+		final List<OMMapBufferEntry>	entries	= new ArrayList<OMMapBufferEntry>();
+		volatile OMMapBufferEntry			last;
 
-	private static List<OMMapBufferEntry>									bufferPoolLRU			= new ArrayList<OMMapBufferEntry>();
-	private static Map<OFileMMap, List<OMMapBufferEntry>>	bufferPoolPerFile	= new HashMap<OFileMMap, List<OMMapBufferEntry>>();
+		List<OMMapBufferEntry> getEntries() {
+			lock.readLock().lock();
+			try {
+				return new ArrayList<OMMapBufferEntry>(entries);
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+	}
 
 	static {
 		blockSize = OGlobalConfiguration.FILE_MMAP_BLOCK_SIZE.getValueAsInteger();
@@ -65,7 +96,7 @@ public class OMMapManager {
 
 		OProfiler.getInstance().registerHookValue("mmap.totalMemory", new OProfilerHookValue() {
 			public Object getValue() {
-				return totalMemory;
+				return totalMemory.get();
 			}
 		});
 
@@ -82,8 +113,8 @@ public class OMMapManager {
 		});
 
 		OProfiler.getInstance().registerHookValue("mmap.blocks", new OProfilerHookValue() {
-			public synchronized Object getValue() {
-				return bufferPoolLRU.size();
+			public Object getValue() {
+				return totalBlocks.get();
 			}
 		});
 
@@ -106,7 +137,8 @@ public class OMMapManager {
 	}
 
 	/**
-	 * Requests a mmap buffer to use.
+	 * Requests a mmap buffer to use. The buffer returned is acquired and must be released by calling
+	 * {@link OMMapBufferEntry#release()} once used.
 	 * 
 	 * @param iFile
 	 *          MMap file
@@ -121,205 +153,259 @@ public class OMMapManager {
 	 * @param iStrategy
 	 * @return The mmap buffer entry if found, or null if the operation is READ and the buffer pool is full.
 	 */
-	public synchronized static OMMapBufferEntry request(final OFileMMap iFile, final long iBeginOffset, final int iSize,
-			final boolean iForce, final OPERATION_TYPE iOperationType, final ALLOC_STRATEGY iStrategy) {
+	public static OMMapBufferEntry request(final OFileMMap iFile, final long iBeginOffset, final int iSize, final boolean iForce,
+			final OPERATION_TYPE iOperationType, final ALLOC_STRATEGY iStrategy) {
 
 		if (iStrategy == ALLOC_STRATEGY.MMAP_NEVER)
 			return null;
 
 		lastStrategy = iStrategy;
 
-		OMMapBufferEntry entry = searchBetweenLastBlocks(iFile, iBeginOffset, iSize);
-		if (entry != null && entry.buffer != null)
-			return entry;
+		final OFileEntries fileEntries = getFileEntries(iFile);
 
-		// SEARCH THE REQUESTED RANGE IN THE CACHED BUFFERS
-		List<OMMapBufferEntry> fileEntries = bufferPoolPerFile.get(iFile);
-		if (fileEntries == null) {
-			fileEntries = new ArrayList<OMMapBufferEntry>();
-			bufferPoolPerFile.put(iFile, fileEntries);
+		// CHECK THE LAST BLOCK USED WITHOUT LOCKING: THIS IS THE COMMON CASE ON MASSIVE INSERTION
+		OMMapBufferEntry entry = fileEntries.last;
+		if (entry != null && entry.contains(iBeginOffset, iSize) && entry.acquire()) {
+			OProfiler.getInstance().updateCounter("OMMapManager.reusedPageBetweenLast", 1);
+			return entry;
 		}
 
-		int position = searchEntry(fileEntries, iBeginOffset, iSize);
-		if (position > -1) {
-			// FOUND !!!
-			entry = fileEntries.get(position);
-			if (entry != null && entry.buffer != null)
+		// SEARCH THE REQUESTED RANGE IN THE CACHED BUFFERS
+		fileEntries.lock.readLock().lock();
+		try {
+			entry = searchAndAcquire(fileEntries, iBeginOffset, iSize);
+			if (entry != null)
 				return entry;
+		} finally {
+			fileEntries.lock.readLock().unlock();
 		}
 
-		int p = (position + 2) * -1;
+		boolean freed = false;
+		while (true) {
+			fileEntries.lock.writeLock().lock();
+			try {
+				// SEARCH AGAIN: ANOTHER THREAD COULD HAVE MAPPED IT MEANWHILE
+				entry = searchAndAcquire(fileEntries, iBeginOffset, iSize);
+				if (entry != null)
+					return entry;
 
-		// CHECK IF THERE IS A BUFFER THAT OVERLAPS
-		if (!allocIfOverlaps(iBeginOffset, iSize, fileEntries, p)) {
-			OProfiler.getInstance().updateCounter("OMMapManager.usedChannel", 1);
-			return null;
-		}
+				final int position = searchEntry(fileEntries.entries, iBeginOffset, iSize);
+				int p = (position + 2) * -1;
 
-		int bufferSize = computeBestEntrySize(iFile, iBeginOffset, iSize, iForce, fileEntries, p);
+				// CHECK IF THERE IS A BUFFER THAT OVERLAPS
+				if (!allocIfOverlaps(iBeginOffset, iSize, fileEntries.entries, p)) {
+					OProfiler.getInstance().updateCounter("OMMapManager.usedChannel", 1);
+					return null;
+				}
 
-		if (totalMemory + bufferSize > maxMemory
-				&& (iStrategy == ALLOC_STRATEGY.MMAP_ONLY_AVAIL_POOL || iOperationType == OPERATION_TYPE.READ
-						&& iStrategy == ALLOC_STRATEGY.MMAP_WRITE_ALWAYS_READ_IF_AVAIL_POOL)) {
-			OProfiler.getInstance().updateCounter("OMMapManager.usedChannel", 1);
-			return null;
-		}
+				final int bufferSize = computeBestEntrySize(iFile, iBeginOffset, iSize, iForce, fileEntries.entries, p);
 
-		entry = null;
-		// FREE LESS-USED BUFFERS UNTIL THE FREE-MEMORY IS DOWN THE CONFIGURED MAX LIMIT
-		do {
-			if (totalMemory + bufferSize > maxMemory)
-				freeResources();
-
-			// RECOMPUTE THE POSITION AFTER REMOVING
-			fileEntries = bufferPoolPerFile.get(iFile);
-			position = searchEntry(fileEntries, iBeginOffset, iSize);
-			if (position > -1) {
-				// FOUND: THIS IS PRETTY STRANGE SINCE IT WASN'T FOUND!
-				entry = fileEntries.get(position);
-				if (entry != null && entry.buffer != null)
-					return entry;
-			}
+				boolean mustFree = false;
+				if (totalMemory.get() + bufferSize > maxMemory) {
+					if (iStrategy == ALLOC_STRATEGY.MMAP_ONLY_AVAIL_POOL || iOperationType == OPERATION_TYPE.READ
+							&& iStrategy == ALLOC_STRATEGY.MMAP_WRITE_ALWAYS_READ_IF_AVAIL_POOL) {
+						OProfiler.getInstance().updateCounter("OMMapManager.usedChannel", 1);
+						return null;
+					}
 
-			// LOAD THE PAGE
-			try {
-				entry = mapBuffer(iFile, iBeginOffset, bufferSize);
-			} catch (IllegalArgumentException e) {
-				throw e;
-			} catch (Exception e) {
-				// REDUCE MAX MEMORY TO FORCE EMPTY BUFFERS
-				maxMemory = maxMemory * 90 / 100;
-				OLogManager.instance().warn(OMMapManager.class, "Memory mapping error, try to reduce max memory to %d and retry...", e,
-						maxMemory);
-			}
-		} while (entry == null && maxMemory > MIN_MEMORY);
-
-		if (entry == null || !entry.isValid())
-			throw new OIOException("You cannot access to the file portion " + iBeginOffset + "-" + iBeginOffset + iSize + " bytes");
+					// FREE LESS-USED BUFFERS OUTSIDE THE LOCK OF THE FILE, THEN RETRY
+					mustFree = !freed;
+				}
 
-		totalMemory += bufferSize;
-		bufferPoolLRU.add(entry);
+				if (!mustFree) {
+					// LOAD THE PAGE
+					try {
+						entry = mapBuffer(iFile, iBeginOffset, bufferSize);
+					} catch (IllegalArgumentException e) {
+						throw e;
+					} catch (Exception e) {
+						if (maxMemory <= MIN_MEMORY)
+							throw new OIOException("You cannot access to the file portion " + iBeginOffset + "-" + iBeginOffset + iSize
+									+ " bytes", e);
+
+						// REDUCE MAX MEMORY TO FORCE EMPTY BUFFERS
+						maxMemory = maxMemory * 90 / 100;
+						OLogManager.instance().warn(OMMapManager.class, "Memory mapping error, try to reduce max memory to %d and retry...", e,
+								maxMemory);
+					}
+
+					if (entry != null) {
+						if (!entry.isValid())
+							throw new OIOException("You cannot access to the file portion " + iBeginOffset + "-" + iBeginOffset + iSize
+									+ " bytes");
+
+						entry.acquire();
+
+						if (p < 0)
+							p = 0;
+						fileEntries.entries.add(p, entry);
+						fileEntries.last = entry;
+
+						totalMemory.addAndGet(bufferSize);
+						totalBlocks.incrementAndGet();
+						bufferPoolLRU.offer(entry);
+						return entry;
+					}
+				}
+			} finally {
+				fileEntries.lock.writeLock().unlock();
+			}
 
-		p = (position + 2) * -1;
-		if (p < 0)
-			p = 0;
+			// FREE LESS-USED BUFFERS UNTIL THE FREE-MEMORY IS DOWN THE CONFIGURED MAX LIMIT
+			freeResources();
+			freed = true;
+		}
+	}
 
+	private static OFileEntries getFileEntries(final OFileMMap iFile) {
+		OFileEntries fileEntries = bufferPoolPerFile.get(iFile);
 		if (fileEntries == null) {
-			// IN CASE THE CLEAN HAS REMOVED THE LIST
-			fileEntries = new ArrayList<OMMapBufferEntry>();
-			bufferPoolPerFile.put(iFile, fileEntries);
+			fileEntries = new OFileEntries();
+			final OFileEntries prev = bufferPoolPerFile.putIfAbsent(iFile, fileEntries);
+			if (prev != null)
+				fileEntries = prev;
 		}
-
-		fileEntries.add(p, entry);
-
-		if (entry != null && entry.buffer != null)
-			return entry;
-
-		return null;
+		return fileEntries;
 	}
 
-	private static void freeResources() {
-		final long memoryThreshold = (long) (maxMemory * 0.75);
-
-		if (OLogManager.instance().isDebugEnabled())
-			OLogManager.instance().debug(null, "Free mmmap blocks, at least %d MB...", (totalMemory - memoryThreshold) / 1000000);
-
-		// SORT AS LRU, FIRST = MOST USED
-		Collections.sort(bufferPoolLRU, new Comparator<OMMapBufferEntry>() {
-			public int compare(final OMMapBufferEntry o1, final OMMapBufferEntry o2) {
-				return (int) (o1.counter - o2.counter);
-			}
-		});
-
-		// REMOVE THE LESS USED ENTRY AND UPDATE THE TOTAL MEMORY
-		for (Iterator<OMMapBufferEntry> it = bufferPoolLRU.iterator(); it.hasNext();) {
-			final OMMapBufferEntry entry = it.next();
-			if (!entry.pin) {
-				// REMOVE FROM COLLECTIONS
-				removeEntry(it, entry);
-
-				if (totalMemory < memoryThreshold)
-					break;
+	/**
+	 * Searches the buffer that contains the requested range and acquires it. Must be called holding the lock of the file: the
+	 * buffers in the list cannot be freed meanwhile.
+	 */
+	private static OMMapBufferEntry searchAndAcquire(final OFileEntries iFileEntries, final long iBeginOffset, final int iSize) {
+		final int position = searchEntry(iFileEntries.entries, iBeginOffset, iSize);
+		if (position > -1) {
+			// FOUND !!!
+			final OMMapBufferEntry entry = iFileEntries.entries.get(position);
+			if (entry.isValid() && entry.acquire()) {
+				iFileEntries.last = entry;
+				return entry;
 			}
 		}
+		return null;
 	}
 
-	private static OMMapBufferEntry searchBetweenLastBlocks(final OFileMMap iFile, final long iBeginOffset, final int iSize) {
-		if (!bufferPoolLRU.isEmpty()) {
-			// SEARCH IF IT'S BETWEEN THE LAST 5 BLOCK USED: THIS IS THE COMMON CASE ON MASSIVE INSERTION
-			final int min = Math.max(bufferPoolLRU.size() - 5, -1);
-			for (int i = bufferPoolLRU.size() - 1; i > min; --i) {
-				final OMMapBufferEntry e = bufferPoolLRU.get(i);
-
-				if (e.isValid() && e.file == iFile && iBeginOffset >= e.beginOffset && iBeginOffset + iSize <= e.beginOffset + e.size) {
-					// FOUND: USE IT
-					OProfiler.getInstance().updateCounter("OMMapManager.reusedPageBetweenLast", 1);
-					e.counter++;
-					return e;
-				}
+	/**
+	 * Frees the buffers not in use by following the CLOCK order: the buffers used since the last pass are skipped and re-queued.
+	 * Only one thread at a time frees, the others just continue if the memory is already under the limit.
+	 */
+	private static void freeResources() {
+		synchronized (evictionLock) {
+			final long memoryThreshold = (long) (maxMemory * 0.75);
+
+			if (totalMemory.get() < memoryThreshold)
+				// ALREADY FREED BY ANOTHER THREAD
+				return;
+
+			if (OLogManager.instance().isDebugEnabled())
+				OLogManager.instance().debug(null, "Free mmmap blocks, at least %d MB...", (totalMemory.get() - memoryThreshold) / 1000000);
+
+			// VISIT EVERY BUFFER AT MOST TWICE: THE FIRST PASS CAN ONLY RESET THE USED FLAG
+			int toVisit = totalBlocks.get() * 2;
+			OMMapBufferEntry entry;
+			while (totalMemory.get() >= memoryThreshold && toVisit-- > 0 && (entry = bufferPoolLRU.poll()) != null) {
+				if (!entry.isValid())
+					// ALREADY REMOVED
+					continue;
+
+				if (entry.pin || entry.resetAccessed() || !removeEntry(entry))
+					// SECOND CHANCE OR IN USE: RE-QUEUE IT
+					bufferPoolLRU.offer(entry);
 			}
 		}
-		return null;
 	}
 
 	/**
 	 * Flushes away all the buffers of closed files. This frees the memory.
 	 */
-	public synchronized static void flush() {
-		OMMapBufferEntry entry;
-		for (Iterator<OMMapBufferEntry> it = bufferPoolLRU.iterator(); it.hasNext();) {
-			entry = it.next();
-			if (entry.file != null && entry.file.isClosed()) {
-				removeEntry(it, entry);
-				entry.close();
+	public static void flush() {
+		for (Map.Entry<OFileMMap, OFileEntries> f : bufferPoolPerFile.entrySet()) {
+			if (f.getKey().isClosed()) {
+				for (OMMapBufferEntry entry : f.getValue().getEntries()) {
+					if (removeEntry(entry)) {
+						bufferPoolLRU.remove(entry);
+						entry.close();
+					}
+				}
+
+				if (f.getValue().getEntries().isEmpty())
+					bufferPoolPerFile.remove(f.getKey(), f.getValue());
 			}
 		}
 	}
 
 	/**
-	 * Frees the mmap entry from the memory
+	 * Frees the mmap entry from the memory if it's not in use.
 	 */
-	private static boolean removeEntry(final Iterator<OMMapBufferEntry> it, final OMMapBufferEntry entry) {
-		if (commitBuffer(entry)) {
+	private static boolean removeEntry(final OMMapBufferEntry entry) {
+		final OFileMMap file = entry.file;
+		if (file == null || !entry.isValid() || !commitBuffer(entry))
+			return false;
+
+		final OFileEntries fileEntries = bufferPoolPerFile.get(file);
+		if (fileEntries != null)
+			fileEntries.lock.writeLock().lock();
+		try {
+			if (!entry.isValid() || !entry.free())
+				// IN USE
+				return false;
+
 			// COMMITTED: REMOVE IT
-			it.remove();
-			final List<OMMapBufferEntry> file = bufferPoolPerFile.get(entry.file);
-			if (file != null) {
-				file.remove(entry);
-				if (file.isEmpty())
-					bufferPoolPerFile.remove(entry.file);
+			if (fileEntries != null) {
+				fileEntries.entries.remove(entry);
+				if (fileEntries.last == entry)
+					fileEntries.last = null;
 			}
 			entry.buffer = null;
-
-			totalMemory -= entry.size;
-			return true;
+		} finally {
+			if (fileEntries != null)
+				fileEntries.lock.writeLock().unlock();
 		}
-		return false;
+
+		totalMemory.addAndGet(-entry.size);
+		totalBlocks.decrementAndGet();
+		return true;
 	}
 
 	/**
-	 * Removes the file.
+	 * Removes the file. The buffers still in use by other threads are closed by the last thread that releases them.
 	 * 
 	 * @throws IOException
 	 */
-	public synchronized static void removeFile(final OFile file) throws IOException {
-		final List<OMMapBufferEntry> entries = bufferPoolPerFile.remove(file);
-		if (entries != null) {
-			for (OMMapBufferEntry entry : entries) {
-				bufferPoolLRU.remove(entry);
-				entry.close();
+	public static void removeFile(final OFile file) throws IOException {
+		final OFileEntries fileEntries = bufferPoolPerFile.remove(file);
+		if (fileEntries != null) {
+			fileEntries.lock.writeLock().lock();
+			try {
+				for (OMMapBufferEntry entry : fileEntries.entries) {
+					bufferPoolLRU.remove(entry);
+					if (entry.isValid()) {
+						totalMemory.addAndGet(-entry.size);
+						totalBlocks.decrementAndGet();
+					}
+					entry.closeWhenReleased();
+				}
+				fileEntries.entries.clear();
+				fileEntries.last = null;
+			} finally {
+				fileEntries.lock.writeLock().unlock();
 			}
-			entries.clear();
 		}
 	}
 
-	public synchronized static void shutdown() {
-		for (OMMapBufferEntry entry : new ArrayList<OMMapBufferEntry>(bufferPoolLRU)) {
-			entry.close();
+	public static void shutdown() {
+		synchronized (evictionLock) {
+			for (OFileMMap file : new ArrayList<OFileMMap>(bufferPoolPerFile.keySet())) {
+				try {
+					removeFile(file);
+				} catch (IOException e) {
+					OLogManager.instance().error(OMMapManager.class, "Error on freeing the mmap buffers of file %s", e, file);
+				}
+			}
+			bufferPoolLRU.clear();
+			totalMemory.set(0);
+			totalBlocks.set(0);
 		}
-		bufferPoolLRU.clear();
-		bufferPoolPerFile.clear();
-		totalMemory = 0;
 	}
 
 	public static long getMaxMemory() {
@@ -331,7 +417,7 @@ public class OMMapManager {
 	}
 
 	public static long getTotalMemory() {
-		return totalMemory;
+		return totalMemory.get();
 	}
 
 	public static int getBlockSize() {
@@ -354,7 +440,7 @@ public class OMMapManager {
 		OMMapManager.overlapStrategy = overlapStrategy;
 	}
 
-	public static synchronized int getOverlappedBlocks() {
+	public static int getOverlappedBlocks() {
 		int count = 0;
 		for (OFile f : bufferPoolPerFile.keySet()) {
 			count += getOverlappedBlocks(f);
@@ -362,12 +448,15 @@ public class OMMapManager {
 		return count;
 	}
 
-	public static synchronized int getOverlappedBlocks(final OFile iFile) {
+	public static int getOverlappedBlocks(final OFile iFile) {
 		int count = 0;
 
-		final List<OMMapBufferEntry> blocks = bufferPoolPerFile.get(iFile);
+		final OFileEntries fileEntries = bufferPoolPerFile.get(iFile);
+		if (fileEntries == null)
+			return 0;
+
 		long lastPos = -1;
-		for (OMMapBufferEntry block : blocks) {
+		for (OMMapBufferEntry block : fileEntries.getEntries()) {
 			if (lastPos > -1 && lastPos > block.beginOffset) {
 				OLogManager.instance().warn(null, "Found overlapped block for file %s at position %d. Previous offset+size was %d", iFile,
 						block.beginOffset, lastPos);
@@ -419,7 +508,6 @@ public class OMMapManager {
 			if (iBeginOffset >= e.beginOffset && iBeginOffset + iSize <= e.beginOffset + e.size) {
 				// FOUND: USE IT
 				OProfiler.getInstance().updateCounter("OMMapManager.reusedPage", 1);
-				e.counter++;
 				return mid;
 			}
 
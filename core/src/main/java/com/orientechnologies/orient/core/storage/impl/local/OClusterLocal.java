@@ -46,6 +46,8 @@ public class OClusterLocal extends OMultiFileSegment implements OCluster {
 	private static final int					RECORD_SIZE			= 15;
 	private static final int					DEF_SIZE				= 1000000;
 	public static final String				TYPE						= "PHYSICAL";
+	public static final String				COMPRESSION_NONE	= "none";
+	public static final String				COMPRESSION_LZF		= "lzf";
 
 	private int												id;
 	private long											beginOffsetData	= -1;
@@ -164,10 +166,23 @@ public class OClusterLocal extends OMultiFileSegment implements OCluster {
 		switch (iAttribute) {
 		case NAME:
 			setNameInternal(stringValue);
+			break;
+
+		case COMPRESSION:
+			setCompressionInternal(stringValue);
+			break;
 		}
 
 	}
 
+	/**
+	 * Tells if the new records written in the cluster are compressed. Records already written keep their format: the record type
+	 * tells if they are compressed.
+	 */
+	public boolean isCompressed() {
+		return COMPRESSION_LZF.equals(((OStoragePhysicalClusterConfiguration) config).compression);
+	}
+
 	/**
 	 * Fills and return the PhysicalPosition object received as parameter with the physical position of logical record iPosition
 	 * 
@@ -195,6 +210,49 @@ public class OClusterLocal extends OMultiFileSegment implements OCluster {
 		}
 	}
 
+	/**
+	 * Returns the physical positions of iCount consecutive logical records starting from iFromPosition. The entries are read in bulk
+	 * with one sequential read per file instead of four reads per entry. Positions after the end of the cluster are null.
+	 * 
+	 * @throws IOException
+	 */
+	public OPhysicalPosition[] getPhysicalPositions(final long iFromPosition, final int iCount) throws IOException {
+		final OPhysicalPosition[] result = new OPhysicalPosition[iCount];
+
+		acquireSharedLock();
+		try {
+
+			int i = 0;
+			while (i < iCount) {
+				final long[] pos = getRelativePosition((iFromPosition + i) * RECORD_SIZE);
+				final OFile file = files[(int) pos[0]];
+
+				// READ ALL THE REQUESTED ENTRIES CONTAINED IN THIS FILE AT ONCE
+				final int entries = (int) Math.min(iCount - i, (file.getFilledUpTo() - pos[1]) / RECORD_SIZE);
+				if (entries <= 0)
+					break;
+
+				final byte[] buffer = new byte[entries * RECORD_SIZE];
+				file.read(pos[1], buffer, buffer.length);
+
+				OPhysicalPosition ppos;
+				for (int p = 0; p < buffer.length; p += RECORD_SIZE) {
+					ppos = new OPhysicalPosition();
+					ppos.dataSegment = OBinaryProtocol.bytes2short(buffer, p);
+					ppos.dataPosition = OBinaryProtocol.bytes2long(buffer, p + OBinaryProtocol.SIZE_SHORT);
+					ppos.type = buffer[p + OBinaryProtocol.SIZE_SHORT + OBinaryProtocol.SIZE_LONG];
+					ppos.version = OBinaryProtocol.bytes2int(buffer, p + OBinaryProtocol.SIZE_SHORT + OBinaryProtocol.SIZE_LONG
+							+ OBinaryProtocol.SIZE_BYTE);
+					result[i++] = ppos;
+				}
+			}
+			return result;
+
+		} finally {
+			releaseSharedLock();
+		}
+	}
+
 	/**
 	 * Changes the PhysicalPosition of the logical record iPosition.
 	 * 
@@ -358,6 +416,48 @@ public class OClusterLocal extends OMultiFileSegment implements OCluster {
 		}
 	}
 
+	/**
+	 * Writes the entry in the exact position received, allocating the space up to it if needed and removing it from the holes if it
+	 * was deleted. The entries allocated before it become holes. Used by the recovery of the transaction log.
+	 *
+	 * @throws IOException
+	 */
+	public void restorePhysicalPosition(final long iPosition, final int iDataSegmentId, final long iDataPosition,
+			final byte iRecordType, final int iVersion) throws IOException {
+		final long position = iPosition * RECORD_SIZE;
+
+		acquireExclusiveLock();
+		try {
+
+			while (getFilledUpTo() <= position) {
+				final long[] pos = allocateSpace(RECORD_SIZE);
+				final long offset = getAbsolutePosition(pos);
+
+				if (offset < position) {
+					// NOT LOGGED ENTRY: SET IT AS DELETED
+					setPhysicalPosition(offset / RECORD_SIZE, -1, -1, (byte) 0, -1);
+					holeSegment.pushPosition(offset);
+				}
+			}
+
+			holeSegment.removeEntryWithPosition(position);
+
+			setPhysicalPosition(iPosition, iDataSegmentId, iDataPosition, iRecordType, iVersion);
+
+			updateBoundsAfterInsertion(iPosition);
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	/**
+	 * Tells if the space for the entry in the position received has been allocated, even if the entry has been deleted.
+	 */
+	public boolean isAllocated(final long iPosition) {
+		return iPosition > -1 && (iPosition + 1) * RECORD_SIZE <= getFilledUpTo();
+	}
+
 	public long getFirstEntryPosition() throws IOException {
 		acquireSharedLock();
 		try {
@@ -482,6 +582,21 @@ public class OClusterLocal extends OMultiFileSegment implements OCluster {
 
 	}
 
+	private void setCompressionInternal(final String iCompression) {
+		final String compression = iCompression != null ? iCompression.toLowerCase() : COMPRESSION_NONE;
+		if (!compression.equals(COMPRESSION_NONE) && !compression.equals(COMPRESSION_LZF))
+			throw new IllegalArgumentException("Compression '" + iCompression + "' is not supported. Use '" + COMPRESSION_NONE + "' or '"
+					+ COMPRESSION_LZF + "'");
+
+		acquireExclusiveLock();
+		try {
+			((OStoragePhysicalClusterConfiguration) config).compression = compression;
+			storage.getConfiguration().update();
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
 	protected void updateBoundsAfterInsertion(final long iPosition) throws IOException {
 		if (iPosition < beginOffsetData || beginOffsetData == -1) {
 			// UPDATE END OF DATA
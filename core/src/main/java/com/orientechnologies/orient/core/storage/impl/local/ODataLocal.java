@@ -185,6 +185,74 @@ public class ODataLocal extends OMultiFileSegment {
 		}
 	}
 
+	/**
+	 * Returns the content of multiple records. Positions must be sorted: the records close to each other are read with a single
+	 * sequential read in iBuffer instead of a random read per record. Records bigger than the buffer are read one by one.
+	 * 
+	 * @param iPositions
+	 *          Sorted record offsets
+	 * @param iCount
+	 *          Number of offsets to read
+	 * @param iBuffer
+	 *          Buffer used for the sequential reads
+	 * @return The record contents in the same order of the offsets. Deleted records are null
+	 * @throws IOException
+	 */
+	public byte[][] getRecords(final long[] iPositions, final int iCount, final byte[] iBuffer) throws IOException {
+		final byte[][] result = new byte[iCount][];
+
+		acquireSharedLock();
+		try {
+
+			int i = 0;
+			while (i < iCount) {
+				if (iPositions[i] < 0) {
+					++i;
+					continue;
+				}
+
+				// FILL THE BUFFER STARTING FROM THE FIRST RECORD NOT READ YET
+				final long[] windowPos = getRelativePosition(iPositions[i]);
+				final OFile file = files[(int) windowPos[0]];
+				final int windowSize = (int) Math.min(iBuffer.length, file.getFilledUpTo() - windowPos[1]);
+				file.read(windowPos[1], iBuffer, windowSize);
+
+				final int windowStart = i;
+				while (i < iCount) {
+					final long[] pos = i == windowStart ? windowPos : getRelativePosition(iPositions[i]);
+					if (pos[0] != windowPos[0])
+						// RECORD IN ANOTHER FILE
+						break;
+
+					final int offset = (int) (pos[1] - windowPos[1]);
+					final int recordSize = offset + OBinaryProtocol.SIZE_INT <= windowSize ? OBinaryProtocol.bytes2int(iBuffer, offset) : -1;
+
+					if (recordSize < 0 || offset + RECORD_FIX_SIZE + recordSize > windowSize) {
+						// OUT OF THE BUFFER
+						if (i == windowStart)
+							// BIGGER THAN THE BUFFER: READ IT APART
+							result[i++] = getRecord(iPositions[windowStart]);
+						break;
+					}
+
+					if (recordSize == 0) {
+						// RECORD DELETED
+						++i;
+						continue;
+					}
+
+					final byte[] content = new byte[recordSize];
+					System.arraycopy(iBuffer, offset + RECORD_FIX_SIZE, content, 0, recordSize);
+					result[i++] = content;
+				}
+			}
+			return result;
+
+		} finally {
+			releaseSharedLock();
+		}
+	}
+
 	/**
 	 * Returns the record size.
 	 * 
@@ -20,11 +20,14 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TimerTask;
 
 import com.orientechnologies.common.concur.lock.OLockManager.LOCK;
 import com.orientechnologies.common.exception.OException;
@@ -50,6 +53,7 @@ import com.orientechnologies.orient.core.exception.OStorageException;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.memory.OMemoryWatchDog;
+import com.orientechnologies.orient.core.serialization.OLZFCompression;
 import com.orientechnologies.orient.core.storage.OCluster;
 import com.orientechnologies.orient.core.storage.OPhysicalPosition;
 import com.orientechnologies.orient.core.storage.ORawBuffer;
@@ -70,17 +74,30 @@ public class OStorageLocal extends OStorageEmbedded {
 	private ODataLocal[]									dataSegments				= new ODataLocal[0];
 
 	private final OStorageLocalTxExecuter	txManager;
+	private final OStorageLocalGroupCommit	groupCommit;
 	private String												storagePath;
 	private final OStorageVariableParser	variableParser;
 	private int														defaultClusterId		= -1;
 
+	// SEGMENTS CHANGED SINCE THE LAST CHECKPOINT
+	private final Set<OCluster>						dirtyClusters				= Collections.synchronizedSet(new HashSet<OCluster>());
+	private final Set<ODataLocal>					dirtyDataSegments		= Collections.synchronizedSet(new HashSet<ODataLocal>());
+	private TimerTask											checkpointTask;
+
 	private OStorageConfigurationSegment	configurationSegment;
 
-	private static String[]								ALL_FILE_EXTENSIONS	= { "ocf", ".och", ".ocl", ".oda", ".odh", ".otx" };
+	private static String[]								ALL_FILE_EXTENSIONS	= { "ocf", ".och", ".ocl", ".oda", ".odh", ".otx", ".owl" };
 	private final String									PROFILER_CREATE_RECORD;
 	private final String									PROFILER_READ_RECORD;
 	private final String									PROFILER_UPDATE_RECORD;
 	private final String									PROFILER_DELETE_RECORD;
+	private final String									PROFILER_COMPRESS;
+	private final String									PROFILER_UNCOMPRESS;
+	private final String									PROFILER_COMPRESSION_ORIGINAL;
+	private final String									PROFILER_COMPRESSION_STORED;
+
+	// FLAG OF THE RECORD TYPE SET ON COMPRESSED RECORDS. ALL THE RECORD TYPES ARE ASCII CHARACTERS
+	private static final byte							RECORD_COMPRESSED		= (byte) 0x80;
 
 	public OStorageLocal(final String iName, final String iFilePath, final String iMode) throws IOException {
 		super(iName, iFilePath, iMode);
@@ -98,11 +115,16 @@ public class OStorageLocal extends OStorageEmbedded {
 		variableParser = new OStorageVariableParser(storagePath);
 		configuration = new OStorageConfigurationSegment(this, storagePath);
 		txManager = new OStorageLocalTxExecuter(this, configuration.txSegment);
+		groupCommit = new OStorageLocalGroupCommit(this);
 
 		PROFILER_CREATE_RECORD = "storage." + name + ".createRecord";
 		PROFILER_READ_RECORD = "storage." + name + ".readRecord";
 		PROFILER_UPDATE_RECORD = "storage." + name + ".updateRecord";
 		PROFILER_DELETE_RECORD = "storage." + name + ".deleteRecord";
+		PROFILER_COMPRESS = "storage." + name + ".compress";
+		PROFILER_UNCOMPRESS = "storage." + name + ".uncompress";
+		PROFILER_COMPRESSION_ORIGINAL = "storage." + name + ".compression.originalBytes";
+		PROFILER_COMPRESSION_STORED = "storage." + name + ".compression.storedBytes";
 
 		DELETE_MAX_RETRIES = OGlobalConfiguration.FILE_MMAP_FORCE_RETRY.getValueAsInteger();
 		DELETE_WAIT_TIME = OGlobalConfiguration.FILE_MMAP_FORCE_DELAY.getValueAsInteger();
@@ -202,6 +224,8 @@ public class OStorageLocal extends OStorageEmbedded {
 
 			txManager.open();
 
+			scheduleCheckpoints();
+
 		} catch (Exception e) {
 			close(true);
 			throw new OStorageException("Cannot open local storage '" + url + "' with mode=" + mode, e);
@@ -247,6 +271,8 @@ public class OStorageLocal extends OStorageEmbedded {
 			configuration.create();
 
 			txManager.create();
+
+			scheduleCheckpoints();
 		} catch (OStorageException e) {
 			close();
 			throw e;
@@ -282,6 +308,20 @@ public class OStorageLocal extends OStorageEmbedded {
 			if (!checkForClose(iForce))
 				return;
 
+			if (checkpointTask != null) {
+				checkpointTask.cancel();
+				checkpointTask = null;
+			}
+
+			if (status == STATUS.OPEN)
+				try {
+					// THE TRANSACTION LOG IS EMPTY AFTER A CLEAN SHUTDOWN
+					checkpoint();
+				} catch (Exception e) {
+					// THE LOGGED TRANSACTIONS WILL BE RECOVERED ON NEXT OPEN
+					OLogManager.instance().error(this, "Error on checkpoint of storage '" + name + "' on close", e);
+				}
+
 			status = STATUS.CLOSING;
 
 			saveVersion();
@@ -511,6 +551,7 @@ public class OStorageLocal extends OStorageEmbedded {
 
 			getLevel2Cache().freeCluster(iClusterId);
 
+			dirtyClusters.remove(cluster);
 			cluster.delete();
 
 			clusterMap.remove(cluster.getName());
@@ -597,8 +638,22 @@ public class OStorageLocal extends OStorageEmbedded {
 	public long createRecord(final ORecordId iRid, final byte[] iContent, final byte iRecordType, ORecordCallback<Long> iCallback) {
 		checkOpeness();
 
-		iRid.clusterPosition = createRecord(getClusterById(iRid.clusterId), iContent, iRecordType);
-		return iRid.clusterPosition;
+		// THE SHARED LOCK KEEPS OUT THE COMMITS UNTIL THE RECORD HAS BEEN LOGGED, IF NEEDED
+		lock.acquireSharedLock();
+		try {
+
+			iRid.clusterPosition = createRecord(getClusterById(iRid.clusterId), iContent, iRecordType);
+			if (iRid.clusterPosition > -1)
+				// THE POSITION COULD BE THE ONE OF A LOGGED RECORD DELETED AFTERWARDS
+				txManager.logNoTx(OWriteAheadLog.OPERATION_CREATE, iRid, iRecordType, 0, iContent);
+			return iRid.clusterPosition;
+
+		} catch (IOException e) {
+			throw new OStorageException("Error on logging the creation of record " + iRid + " in storage '" + name + "'", e);
+
+		} finally {
+			lock.releaseSharedLock();
+		}
 	}
 
 	public ORawBuffer readRecord(final ORecordId iRid, final String iFetchPlan, ORecordCallback<ORawBuffer> iCallback) {
@@ -609,12 +664,48 @@ public class OStorageLocal extends OStorageEmbedded {
 	public int updateRecord(final ORecordId iRid, final byte[] iContent, final int iVersion, final byte iRecordType,
 			ORecordCallback<Integer> iCallback) {
 		checkOpeness();
-		return updateRecord(getClusterById(iRid.clusterId), iRid, iContent, iVersion, iRecordType);
+
+		lock.acquireExclusiveLock();
+		try {
+
+			final int version = updateRecord(getClusterById(iRid.clusterId), iRid, iContent, iVersion, iRecordType);
+			if (version > -1)
+				txManager.logNoTx(OWriteAheadLog.OPERATION_UPDATE, iRid, iRecordType, version, iContent);
+			return version;
+
+		} catch (IOException e) {
+			throw new OStorageException("Error on logging the update of record " + iRid + " in storage '" + name + "'", e);
+
+		} finally {
+			lock.releaseExclusiveLock();
+		}
 	}
 
 	public boolean deleteRecord(final ORecordId iRid, final int iVersion, ORecordCallback<Boolean> iCallback) {
 		checkOpeness();
-		return deleteRecord(getClusterById(iRid.clusterId), iRid, iVersion);
+
+		final OCluster cluster = getClusterById(iRid.clusterId);
+
+		lock.acquireExclusiveLock();
+		try {
+
+			// THE VERSION OF THE DELETED RECORD IS LOGGED: READ IT BEFORE TO DELETE IT
+			final OPhysicalPosition ppos = txManager.getTxLog().isLogged(iRid) ? cluster.getPhysicalPosition(iRid.clusterPosition,
+					new OPhysicalPosition()) : null;
+
+			if (!deleteRecord(cluster, iRid, iVersion))
+				return false;
+
+			if (ppos != null)
+				txManager.logNoTx(OWriteAheadLog.OPERATION_DELETE, iRid, ppos.type, ppos.version, null);
+			return true;
+
+		} catch (IOException e) {
+			throw new OStorageException("Error on logging the deletion of record " + iRid + " in storage '" + name + "'", e);
+
+		} finally {
+			lock.releaseExclusiveLock();
+		}
 	}
 
 	public Set<String> getClusterNames() {
@@ -678,17 +769,49 @@ public class OStorageLocal extends OStorageEmbedded {
 		return null;
 	}
 
+	/**
+	 * Commits the transaction. The transaction is durable once its entry in the transaction log has been forced to disk. With
+	 * tx.commit.synch=true the log is forced before to return or, with the group commit enabled, by {@link #endCommit()} if the
+	 * commit is delimited by {@link #beginCommit()}. The segments are synchronized by the checkpoints.
+	 */
 	public void commit(final OTransaction iTx) {
+		final boolean group = OStorageLocalGroupCommit.isEnabled();
+		final boolean groupBegun = group && groupCommit.begin();
+		try {
+			commitInLock(iTx, group);
+		} finally {
+			if (groupBegun)
+				groupCommit.end();
+		}
+	}
+
+	@Override
+	public void beginCommit() {
+		if (OStorageLocalGroupCommit.isEnabled())
+			groupCommit.begin();
+	}
+
+	@Override
+	public void endCommit() {
+		groupCommit.end();
+	}
+
+	private void commitInLock(final OTransaction iTx, final boolean group) {
 		lock.acquireExclusiveLock();
 		try {
 
 			try {
-				txManager.clearLogEntries(iTx);
 				txManager.commitAllPendingRecords(iTx);
 
 				incrementVersion();
-				if (OGlobalConfiguration.TX_COMMIT_SYNCH.getValueAsBoolean())
-					synch();
+				if (group)
+					// THE LOG WILL BE SYNCHRONIZED ONCE FOR ALL THE TRANSACTIONS OF THE GROUP, OUTSIDE THE LOCKS
+					groupCommit.applied();
+				else if (OGlobalConfiguration.TX_COMMIT_SYNCH.getValueAsBoolean())
+					txManager.synch();
+
+				if (txManager.isCheckpointNeeded())
+					checkpoint();
 
 			} catch (RuntimeException e) {
 				// WE NEED TO CALL ROLLBACK HERE, IN THE LOCK
@@ -698,25 +821,28 @@ public class OStorageLocal extends OStorageEmbedded {
 				// WE NEED TO CALL ROLLBACK HERE, IN THE LOCK
 				rollback(iTx);
 				throw new OException(e);
-			} finally {
-				try {
-					txManager.clearLogEntries(iTx);
-				} catch (Exception e) {
-					// XXX WHAT CAN WE DO HERE ? ROLLBACK IS NOT POSSIBLE
-					// IF WE THROW EXCEPTION, A ROLLBACK WILL BE DONE AT DB LEVEL BUT NOT AT STORAGE LEVEL
-					OLogManager.instance().error(this, "Clear tx log entries failed", e);
-				}
 			}
 		} finally {
 			lock.releaseExclusiveLock();
 		}
 	}
 
+	/**
+	 * Forces the transaction log to disk making durable all the transactions committed up to now. Called by the group commit without
+	 * holding the lock, so the next transactions can be applied meanwhile.
+	 */
+	protected void synchCommittedTransactions() {
+		try {
+			txManager.synch();
+
+		} catch (IOException e) {
+			throw new OStorageException("Error on synchronizing the transaction log of storage '" + name + "'", e);
+		}
+	}
+
 	public void rollback(final OTransaction iTx) {
 		try {
-			txManager.getTxSegment().rollback(iTx);
-			if (OGlobalConfiguration.TX_COMMIT_SYNCH.getValueAsBoolean())
-				synch();
+			txManager.rollback(iTx);
 		} catch (IOException ioe) {
 			OLogManager.instance().error(this,
 					"Error executing rollback for transaction with id '" + iTx.getId() + "' cause: " + ioe.getMessage(), ioe);
@@ -740,6 +866,12 @@ public class OStorageLocal extends OStorageEmbedded {
 				if (data != null)
 					data.synch();
 
+			dirtyClusters.clear();
+			dirtyDataSegments.clear();
+
+			// ALL THE LOGGED TRANSACTIONS ARE IN THE SEGMENTS NOW
+			txManager.checkpoint();
+
 		} catch (IOException e) {
 			throw new OStorageException("Error on synch storage '" + name + "'", e);
 
@@ -750,6 +882,41 @@ public class OStorageLocal extends OStorageEmbedded {
 		}
 	}
 
+	/**
+	 * Synchronizes only the segments changed since the last checkpoint, then truncates the transaction log because all the
+	 * transactions in it are persistent in the segments. Executed in background every tx.log.checkpointInterval ms and at commit time
+	 * when the log is bigger than tx.log.checkpointSize.
+	 */
+	public void checkpoint() {
+		final long timer = OProfiler.getInstance().startChrono();
+
+		lock.acquireExclusiveLock();
+		try {
+			if (status != STATUS.OPEN || dirtyClusters.isEmpty() && dirtyDataSegments.isEmpty() && txManager.getTxLog().isEmpty())
+				// NOTHING TO DO
+				return;
+
+			// NO WRITER IS RUNNING UNDER THE EXCLUSIVE LOCK: THE SETS CAN BE BROWSED
+			for (OCluster cluster : dirtyClusters)
+				cluster.synch();
+			dirtyClusters.clear();
+
+			for (ODataLocal data : dirtyDataSegments)
+				data.synch();
+			dirtyDataSegments.clear();
+
+			txManager.checkpoint();
+
+		} catch (IOException e) {
+			throw new OStorageException("Error on checkpoint of storage '" + name + "'", e);
+
+		} finally {
+			lock.releaseExclusiveLock();
+
+			OProfiler.getInstance().stopChrono("storage." + name + ".checkpoint", timer);
+		}
+	}
+
 	/**
 	 * Returns the list of holes as pair of position & ODataHoleInfo
 	 * 
@@ -1046,15 +1213,20 @@ public class OStorageLocal extends OStorageEmbedded {
 			final int dataSegment = getDataSegmentForRecord(iClusterSegment, iContent);
 			final ODataLocal data = getDataSegment(dataSegment);
 
+			final byte[] compressed = compressRecord(iClusterSegment, iContent);
+			final byte[] content = compressed != null ? compressed : iContent;
+			final byte recordType = compressed != null ? (byte) (iRecordType | RECORD_COMPRESSED) : iRecordType;
+
 			final ORecordId rid = new ORecordId(iClusterSegment.getId());
-			rid.clusterPosition = iClusterSegment.addPhysicalPosition(-1, -1, iRecordType);
+			rid.clusterPosition = iClusterSegment.addPhysicalPosition(-1, -1, recordType);
 
-			final long dataOffset = data.addRecord(rid, iContent);
+			final long dataOffset = data.addRecord(rid, content);
 
 			// UPDATE THE POSITION IN CLUSTER WITH THE POSITION OF RECORD IN
 			// DATA
-			iClusterSegment.setPhysicalPosition(rid.clusterPosition, dataSegment, dataOffset, iRecordType, 0);
+			iClusterSegment.setPhysicalPosition(rid.clusterPosition, dataSegment, dataOffset, recordType, 0);
 
+			setDirty(iClusterSegment, data);
 			incrementVersion();
 
 			return rid.clusterPosition;
@@ -1106,7 +1278,7 @@ public class OStorageLocal extends OStorageEmbedded {
 					return null;
 
 				final ODataLocal data = getDataSegment(ppos.dataSegment);
-				return new ORawBuffer(data.getRecord(ppos.dataPosition), ppos.version, ppos.type);
+				return toRawBuffer(data.getRecord(ppos.dataPosition), ppos);
 
 			} finally {
 				lockManager.releaseLock(Thread.currentThread(), iRid, LOCK.SHARED);
@@ -1125,6 +1297,146 @@ public class OStorageLocal extends OStorageEmbedded {
 		}
 	}
 
+	/**
+	 * Reads a range of records of a physical cluster in bulk: the cluster entries are read sequentially, then the records are read
+	 * from the data segments in order of offset with big sequential reads (see {@link OGlobalConfiguration#QUERY_SCAN_BUFFER_SIZE}).
+	 * The storage is locked in shared mode once for the entire range.
+	 */
+	@Override
+	public ORawBuffer[] readRecords(final OCluster iCluster, final long iFrom, final long iTo) {
+		if (!(iCluster instanceof OClusterLocal))
+			// LOGICAL CLUSTERS: READ THE RECORDS ONE BY ONE
+			return super.readRecords(iCluster, iFrom, iTo);
+
+		final long timer = OProfiler.getInstance().startChrono();
+
+		lock.acquireSharedLock();
+		try {
+
+			final ORawBuffer[] result = new ORawBuffer[(int) (iTo - iFrom + 1)];
+
+			final int count = (int) (Math.min(iTo, iCluster.getLastEntryPosition()) - iFrom + 1);
+			if (count <= 0)
+				return result;
+
+			// READ THE CLUSTER ENTRIES SEQUENTIALLY
+			final OPhysicalPosition[] ppos = ((OClusterLocal) iCluster).getPhysicalPositions(iFrom, count);
+
+			// SORT THE VALID ENTRIES BY DATA SEGMENT AND OFFSET
+			final List<Integer> valid = new ArrayList<Integer>(count);
+			for (int i = 0; i < count; ++i)
+				if (checkForRecordValidity(ppos[i]))
+					valid.add(i);
+
+			final Integer[] sorted = sortByDataPosition(ppos, valid);
+
+			// READ THE RECORDS OF EVERY DATA SEGMENT IN OFFSET ORDER
+			final byte[] buffer = new byte[Math.max(1, OGlobalConfiguration.QUERY_SCAN_BUFFER_SIZE.getValueAsInteger())];
+			final long[] offsets = new long[sorted.length];
+
+			int begin = 0;
+			while (begin < sorted.length) {
+				final int dataSegment = ppos[sorted[begin]].dataSegment;
+
+				int end = begin;
+				for (; end < sorted.length && ppos[sorted[end]].dataSegment == dataSegment; ++end)
+					offsets[end - begin] = ppos[sorted[end]].dataPosition;
+
+				final byte[][] contents = getDataSegment(dataSegment).getRecords(offsets, end - begin, buffer);
+
+				for (int i = begin; i < end; ++i)
+					if (contents[i - begin] != null)
+						result[sorted[i]] = toRawBuffer(contents[i - begin], ppos[sorted[i]]);
+
+				begin = end;
+			}
+
+			return result;
+
+		} catch (IOException e) {
+
+			throw new OStorageException("Error on reading records " + iFrom + "-" + iTo + " of cluster " + iCluster + " in storage '"
+					+ name + "'", e);
+
+		} finally {
+			lock.releaseSharedLock();
+
+			OProfiler.getInstance().stopChrono("storage." + name + ".readRecords", timer);
+		}
+	}
+
+	/**
+	 * Reads a batch of records locking the storage only once. The cluster entries are read first, then the records are read from the
+	 * data segments in order of segment and offset to reduce the random accesses to the disk.
+	 */
+	@Override
+	public ORawBuffer[] readRecords(final ORecordId[] iRids, final String iFetchPlan) {
+		checkOpeness();
+
+		final long timer = OProfiler.getInstance().startChrono();
+
+		final ORawBuffer[] result = new ORawBuffer[iRids.length];
+		final OPhysicalPosition[] ppos = new OPhysicalPosition[iRids.length];
+		final List<Integer> locked = new ArrayList<Integer>(iRids.length);
+
+		lock.acquireSharedLock();
+		try {
+
+			// READ THE CLUSTER ENTRIES IN ORDER OF CLUSTER AND POSITION
+			final List<Integer> valid = new ArrayList<Integer>(iRids.length);
+			for (int i : sortByPosition(iRids)) {
+				final ORecordId rid = iRids[i];
+
+				lockManager.acquireLock(Thread.currentThread(), rid, LOCK.SHARED);
+				locked.add(i);
+
+				final OCluster cluster = getClusterById(rid.clusterId);
+				if (rid.clusterPosition > cluster.getLastEntryPosition())
+					// NOT FOUND
+					continue;
+
+				ppos[i] = cluster.getPhysicalPosition(rid.clusterPosition, new OPhysicalPosition());
+				if (ppos[i] != null && checkForRecordValidity(ppos[i]))
+					valid.add(i);
+			}
+
+			// READ THE RECORDS IN ORDER OF DATA SEGMENT AND OFFSET
+			for (int i : sortByDataPosition(ppos, valid))
+				result[i] = toRawBuffer(getDataSegment(ppos[i].dataSegment).getRecord(ppos[i].dataPosition), ppos[i]);
+
+			return result;
+
+		} catch (IOException e) {
+
+			throw new OStorageException("Error on reading " + iRids.length + " records in storage '" + name + "'", e);
+
+		} finally {
+			for (int i : locked)
+				lockManager.releaseLock(Thread.currentThread(), iRids[i], LOCK.SHARED);
+
+			lock.releaseSharedLock();
+
+			OProfiler.getInstance().stopChrono("storage." + name + ".readRecords", timer);
+		}
+	}
+
+	/**
+	 * Returns the indexes of the valid entries sorted by data segment and offset.
+	 */
+	private static Integer[] sortByDataPosition(final OPhysicalPosition[] iPositions, final List<Integer> iValid) {
+		final Integer[] sorted = iValid.toArray(new Integer[iValid.size()]);
+		Arrays.sort(sorted, new Comparator<Integer>() {
+			public int compare(final Integer o1, final Integer o2) {
+				final OPhysicalPosition p1 = iPositions[o1];
+				final OPhysicalPosition p2 = iPositions[o2];
+				if (p1.dataSegment != p2.dataSegment)
+					return p1.dataSegment < p2.dataSegment ? -1 : 1;
+				return p1.dataPosition < p2.dataPosition ? -1 : p1.dataPosition == p2.dataPosition ? 0 : 1;
+			}
+		});
+		return sorted;
+	}
+
 	protected int updateRecord(final OCluster iClusterSegment, final ORecordId iRid, final byte[] iContent, final int iVersion,
 			final byte iRecordType) {
 		final long timer = OProfiler.getInstance().startChrono();
@@ -1180,22 +1492,27 @@ public class OStorageLocal extends OStorageEmbedded {
 
 				}
 
-				if (ppos.type != iRecordType)
-					iClusterSegment.updateRecordType(iRid.clusterPosition, iRecordType);
+				final byte[] compressed = compressRecord(iClusterSegment, iContent);
+				final byte[] content = compressed != null ? compressed : iContent;
+				final byte recordType = compressed != null ? (byte) (iRecordType | RECORD_COMPRESSED) : iRecordType;
+
+				if (ppos.type != recordType)
+					iClusterSegment.updateRecordType(iRid.clusterPosition, recordType);
 
 				final long newDataSegmentOffset;
 				if (ppos.dataPosition == -1)
 					// WAS EMPTY FIRST TIME, CREATE IT NOW
-					newDataSegmentOffset = getDataSegment(ppos.dataSegment).addRecord(iRid, iContent);
+					newDataSegmentOffset = getDataSegment(ppos.dataSegment).addRecord(iRid, content);
 				else
 					// UPDATE IT
-					newDataSegmentOffset = getDataSegment(ppos.dataSegment).setRecord(ppos.dataPosition, iRid, iContent);
+					newDataSegmentOffset = getDataSegment(ppos.dataSegment).setRecord(ppos.dataPosition, iRid, content);
 
 				if (newDataSegmentOffset != ppos.dataPosition)
 					// UPDATE DATA SEGMENT OFFSET WITH THE NEW PHYSICAL POSITION
-					iClusterSegment.setPhysicalPosition(iRid.clusterPosition, ppos.dataSegment, newDataSegmentOffset, iRecordType,
+					iClusterSegment.setPhysicalPosition(iRid.clusterPosition, ppos.dataSegment, newDataSegmentOffset, recordType,
 							ppos.version);
 
+				setDirty(iClusterSegment, getDataSegment(ppos.dataSegment));
 				incrementVersion();
 
 				return ppos.version;
@@ -1243,8 +1560,11 @@ public class OStorageLocal extends OStorageEmbedded {
 
 				iClusterSegment.removePhysicalPosition(iRid.clusterPosition, ppos);
 
-				if (ppos.dataPosition > -1)
+				if (ppos.dataPosition > -1) {
 					getDataSegment(ppos.dataSegment).deleteRecord(ppos.dataPosition);
+					setDirty(iClusterSegment, getDataSegment(ppos.dataSegment));
+				} else
+					setDirty(iClusterSegment, null);
 
 				incrementVersion();
 
@@ -1266,6 +1586,123 @@ public class OStorageLocal extends OStorageEmbedded {
 		return false;
 	}
 
+	/**
+	 * Writes the record in the exact position with the version received, creating it again if it has been deleted or never written.
+	 * If the record is already there with the same content and version nothing is written. Used by the recovery of the transaction
+	 * log.
+	 * 
+	 * @return true if the record has been changed
+	 */
+	protected boolean restoreRecord(final OClusterLocal iCluster, final ORecordId iRid, final byte[] iContent, final int iVersion,
+			final byte iRecordType) throws IOException {
+		lock.acquireExclusiveLock();
+		try {
+
+			final OPhysicalPosition ppos = iCluster.isAllocated(iRid.clusterPosition) ? iCluster.getPhysicalPosition(
+					iRid.clusterPosition, new OPhysicalPosition()) : null;
+
+			final byte[] compressed = compressRecord(iCluster, iContent);
+			final byte[] content = compressed != null ? compressed : iContent;
+			final byte recordType = compressed != null ? (byte) (iRecordType | RECORD_COMPRESSED) : iRecordType;
+
+			if (ppos != null && checkForRecordValidity(ppos) && ppos.dataPosition > -1) {
+				final ODataLocal data = getDataSegment(ppos.dataSegment);
+
+				ORawBuffer current;
+				try {
+					current = toRawBuffer(data.getRecord(ppos.dataPosition), ppos);
+				} catch (Exception e) {
+					// BROKEN BY THE CRASH: WRITE IT IN A NEW POSITION
+					current = null;
+				}
+
+				if (current != null && ppos.version == iVersion && current.recordType == iRecordType
+						&& Arrays.equals(current.buffer, iContent))
+					// ALREADY UP TO DATE
+					return false;
+
+				final long dataOffset = current != null ? data.setRecord(ppos.dataPosition, iRid, content) : data.addRecord(iRid,
+						content);
+				iCluster.setPhysicalPosition(iRid.clusterPosition, ppos.dataSegment, dataOffset, recordType, iVersion);
+				setDirty(iCluster, data);
+
+			} else {
+				final int dataSegment = getDataSegmentForRecord(iCluster, iContent);
+				final ODataLocal data = getDataSegment(dataSegment);
+
+				final long dataOffset = data.addRecord(iRid, content);
+				iCluster.restorePhysicalPosition(iRid.clusterPosition, dataSegment, dataOffset, recordType, iVersion);
+				setDirty(iCluster, data);
+			}
+
+			incrementVersion();
+			return true;
+
+		} finally {
+			lock.releaseExclusiveLock();
+		}
+	}
+
+	/**
+	 * Compresses the content of a record going in a compressed cluster. Records smaller than
+	 * {@link OGlobalConfiguration#STORAGE_COMPRESSION_MIN_SIZE} or that don't shrink are written as they are.
+	 * 
+	 * @return The compressed content or null to write the original one
+	 */
+	private byte[] compressRecord(final OCluster iCluster, final byte[] iContent) {
+		if (!(iCluster instanceof OClusterLocal) || !((OClusterLocal) iCluster).isCompressed()
+				|| iContent.length < OGlobalConfiguration.STORAGE_COMPRESSION_MIN_SIZE.getValueAsInteger())
+			return null;
+
+		final long timer = OProfiler.getInstance().startChrono();
+		final byte[] compressed = OLZFCompression.compress(iContent);
+		OProfiler.getInstance().stopChrono(PROFILER_COMPRESS, timer);
+
+		OProfiler.getInstance().updateCounter(PROFILER_COMPRESSION_ORIGINAL, iContent.length);
+		OProfiler.getInstance().updateCounter(PROFILER_COMPRESSION_STORED, compressed != null ? compressed.length : iContent.length);
+		return compressed;
+	}
+
+	/**
+	 * Creates the buffer of a record read from a data segment, uncompressing the content if the record type is flagged as compressed.
+	 */
+	private ORawBuffer toRawBuffer(final byte[] iContent, final OPhysicalPosition iPosition) {
+		if ((iPosition.type & RECORD_COMPRESSED) == 0)
+			return new ORawBuffer(iContent, iPosition.version, iPosition.type);
+
+		final long timer = OProfiler.getInstance().startChrono();
+		try {
+			return new ORawBuffer(OLZFCompression.uncompress(iContent), iPosition.version, (byte) (iPosition.type & ~RECORD_COMPRESSED));
+		} finally {
+			OProfiler.getInstance().stopChrono(PROFILER_UNCOMPRESS, timer);
+		}
+	}
+
+	private void setDirty(final OCluster iCluster, final ODataLocal iData) {
+		dirtyClusters.add(iCluster);
+		if (iData != null)
+			dirtyDataSegments.add(iData);
+	}
+
+	private void scheduleCheckpoints() {
+		final int interval = OGlobalConfiguration.TX_LOG_CHECKPOINT_INTERVAL.getValueAsInteger();
+		if (interval <= 0)
+			return;
+
+		checkpointTask = new TimerTask() {
+			@Override
+			public void run() {
+				try {
+					checkpoint();
+				} catch (Exception e) {
+					// THE TIMER IS SHARED: DON'T LET THE EXCEPTION STOP IT
+					OLogManager.instance().error(OStorageLocal.this, "Error on checkpoint of storage '" + name + "'", e);
+				}
+			}
+		};
+		Orient.getTimer().schedule(checkpointTask, interval, interval);
+	}
+
 	/***
 	 * Save the version number to disk
 	 * 
@@ -1324,6 +1761,8 @@ public class OStorageLocal extends OStorageEmbedded {
 
 				final OStoragePhysicalClusterConfiguration config = new OStoragePhysicalClusterConfiguration(configuration, iClusterName,
 						clusterPos);
+				if (!iClusterName.equals(OStorage.CLUSTER_INTERNAL_NAME))
+					config.compression = OGlobalConfiguration.STORAGE_COMPRESSION.getValueAsString();
 				configuration.clusters.add(config);
 
 				cluster = new OClusterLocal(this, config);
@@ -1411,5 +1850,12 @@ public class OStorageLocal extends OStorageEmbedded {
 				return getHoleSize();
 			}
 		});
+		OProfiler.getInstance().registerHookValue("storage." + name + ".compression.ratio", new OProfilerHookValue() {
+			public Object getValue() {
+				// PERCENTAGE OF THE ORIGINAL SIZE STORED ON DISK
+				final long original = OProfiler.getInstance().getCounter(PROFILER_COMPRESSION_ORIGINAL);
+				return original > 0 ? OProfiler.getInstance().getCounter(PROFILER_COMPRESSION_STORED) * 100 / original : 100;
+			}
+		});
 	}
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.local;
+
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.exception.OStorageException;
+
+/**
+ * Forces the transaction log of the local storage once for a group of concurrent transactions. Every transaction applies its
+ * records under the exclusive lock of the storage as usual and takes a ticket, then releases all the locks and waits for the synch.
+ * The first waiting transaction becomes the leader: it waits up to <code>tx.commit.groupMaxWait</code> ms for the other running
+ * transactions (no more than <code>tx.commit.groupMaxSize</code>), forces the transaction log, then wakes up all the transactions
+ * applied before the synch.<br/>
+ * The commit of a transaction is delimited by {@link #begin()} and {@link #end()}, that must be called by the same thread without
+ * holding any lock.
+ *
+ * @author Luca Garulli
+ *
+ */
+public class OStorageLocalGroupCommit {
+	private final OStorageLocal	storage;
+	private final String				PROFILER_SYNCH;
+	private final String				PROFILER_TRANSACTIONS;
+
+	private final ThreadLocal<Long>	ticket	= new ThreadLocal<Long>();
+
+	private int									running;
+	private long								applied;
+	private long								synched;
+	private boolean							synching;
+
+	public OStorageLocalGroupCommit(final OStorageLocal iStorage) {
+		storage = iStorage;
+		PROFILER_SYNCH = "storage." + storage.getName() + ".groupCommit.synch";
+		PROFILER_TRANSACTIONS = "storage." + storage.getName() + ".groupCommit.transactions";
+	}
+
+	public static boolean isEnabled() {
+		return OGlobalConfiguration.TX_COMMIT_SYNCH.getValueAsBoolean() && OGlobalConfiguration.TX_COMMIT_GROUP.getValueAsBoolean();
+	}
+
+	/**
+	 * Called by a transaction before to acquire any lock. The leader waits for the running transactions before to synchronize.
+	 *
+	 * @return true if the commit has been begun, false if the current thread had already begun it
+	 */
+	public boolean begin() {
+		if (ticket.get() != null)
+			return false;
+
+		ticket.set(Long.valueOf(-1));
+		synchronized (this) {
+			running++;
+		}
+		return true;
+	}
+
+	/**
+	 * Called by a transaction, under the exclusive lock of the storage, once all its records have been applied.
+	 */
+	public void applied() {
+		synchronized (this) {
+			running--;
+			applied++;
+			notifyAll();
+			ticket.set(Long.valueOf(applied));
+		}
+	}
+
+	/**
+	 * Called by a transaction once all the locks have been released. If the transaction has been applied waits for the synch,
+	 * otherwise it's just removed from the running ones.
+	 */
+	public void end() {
+		final Long current = ticket.get();
+		if (current == null)
+			return;
+
+		ticket.remove();
+
+		if (current.longValue() == -1)
+			synchronized (this) {
+				running--;
+				notifyAll();
+			}
+		else
+			waitForSynch(current.longValue());
+	}
+
+	/**
+	 * Waits until the storage has been synchronized after the transaction with the ticket received was applied. If no other thread
+	 * is synchronizing, the current one becomes the leader of the group and executes the synch.
+	 */
+	private void waitForSynch(final long iTicket) {
+		long target;
+
+		synchronized (this) {
+			while (true) {
+				if (synched >= iTicket)
+					// ALREADY SYNCHRONIZED BY ANOTHER LEADER
+					return;
+
+				if (!synching)
+					break;
+
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new OStorageException("Interrupted while waiting for the synch of the transaction", e);
+				}
+			}
+
+			// BECOME THE LEADER
+			synching = true;
+
+			try {
+				waitForGroup();
+			} catch (InterruptedException e) {
+				// SYNCH THE CURRENT GROUP ANYWAY
+				Thread.currentThread().interrupt();
+			}
+
+			// ALL THE TRANSACTIONS APPLIED UP TO NOW ARE SYNCHRONIZED. THE ONES APPLIED MEANWHILE ARE SYNCHRONIZED TOO, BUT WILL WAIT
+			// FOR THE NEXT GROUP
+			target = applied;
+		}
+
+		boolean ok = false;
+		try {
+			storage.synchCommittedTransactions();
+			ok = true;
+
+		} finally {
+			synchronized (this) {
+				synching = false;
+				if (ok) {
+					OProfiler.getInstance().updateCounter(PROFILER_SYNCH, 1);
+					OProfiler.getInstance().updateCounter(PROFILER_TRANSACTIONS, target - synched);
+					synched = target;
+				}
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Waits for the transactions that are running until the group is full or the max wait time is elapsed. Must be called by the
+	 * leader holding the monitor.
+	 */
+	private void waitForGroup() throws InterruptedException {
+		final int maxSize = OGlobalConfiguration.TX_COMMIT_GROUP_MAX_SIZE.getValueAsInteger();
+		final long maxWait = OGlobalConfiguration.TX_COMMIT_GROUP_MAX_WAIT.getValueAsInteger();
+
+		final long deadline = System.currentTimeMillis() + maxWait;
+		long remaining = maxWait;
+		while (running > 0 && applied - synched < maxSize && remaining > 0) {
+			wait(remaining);
+			remaining = deadline - System.currentTimeMillis();
+		}
+	}
+}
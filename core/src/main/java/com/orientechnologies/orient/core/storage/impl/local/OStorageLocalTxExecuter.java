@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.config.OStorageTxConfiguration;
 import com.orientechnologies.orient.core.exception.OTransactionException;
 import com.orientechnologies.orient.core.hook.ORecordHook;
@@ -27,33 +28,50 @@ import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.storage.OCluster;
 import com.orientechnologies.orient.core.storage.ORawBuffer;
 import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.impl.local.OWriteAheadLog.OLogOperation;
 import com.orientechnologies.orient.core.tx.OTransaction;
 import com.orientechnologies.orient.core.tx.OTransactionAbstract;
 import com.orientechnologies.orient.core.tx.OTransactionRecordEntry;
 import com.orientechnologies.orient.core.tx.OTxListener;
 
+/**
+ * Commits the transactions against the local storage logging them in the {@link OWriteAheadLog}. The transactions are committed one
+ * at a time under the exclusive lock of the storage.
+ */
 public class OStorageLocalTxExecuter {
-	private final OStorageLocal	storage;
-	private final OTxSegment		txSegment;
+	private static final String				LEGACY_LOG_FILE	= "txlog.otx";
+
+	private final OStorageLocal				storage;
+	private final OWriteAheadLog			txLog;
+
+	// OLD AND NEW IMAGES OF THE RECORDS CHANGED BY THE TRANSACTION IN PROGRESS
+	private final List<OLogOperation>	undoOperations	= new ArrayList<OLogOperation>();
+	private final List<OLogOperation>	redoOperations	= new ArrayList<OLogOperation>();
 
 	public OStorageLocalTxExecuter(final OStorageLocal iStorage, final OStorageTxConfiguration iConfig) throws IOException {
 		storage = iStorage;
 
-		iConfig.path = OStorageVariableParser.DB_PATH_VARIABLE + "/txlog.otx";
+		iConfig.path = OStorageVariableParser.DB_PATH_VARIABLE + "/txlog.owl";
 
-		txSegment = new OTxSegment(storage, iStorage.getConfiguration().txSegment);
+		txLog = new OWriteAheadLog(storage, iStorage.getConfiguration().txSegment);
 	}
 
 	public void open() throws IOException {
-		txSegment.open();
+		recoverLegacyLog();
+
+		if (txLog.exists())
+			txLog.open();
+		else
+			// DATABASE CREATED BY A PREVIOUS VERSION
+			txLog.create(-1);
 	}
 
 	public void create() throws IOException {
-		txSegment.create(1000000);
+		txLog.create(-1);
 	}
 
 	public void close() throws IOException {
-		txSegment.close();
+		txLog.close();
 	}
 
 	protected long createRecord(final int iTxId, final OCluster iClusterSegment, final ORecordId iRid, final byte[] iContent,
@@ -61,10 +79,15 @@ public class OStorageLocalTxExecuter {
 		iRid.clusterPosition = -1;
 
 		try {
-			// SAVE INTO THE LOG THE POSITION OF THE RECORD JUST CREATED. IF TX FAILS AT THIS POINT A GHOST RECORD IS CREATED UNTIL DEFRAG
-			txSegment.addLog(OTxSegment.OPERATION_CREATE, iTxId, iRid.clusterId, iRid.clusterPosition, iRecordType, 0, null);
-
 			iRid.clusterPosition = storage.createRecord(iClusterSegment, iContent, iRecordType);
+			if (iRid.clusterPosition < 0)
+				return iRid.clusterPosition;
+
+			// SAVE INTO THE LOG THE POSITION OF THE RECORD JUST CREATED. IF THE PROCESS CRASHES BEFORE THIS POINT A GHOST RECORD IS
+			// CREATED UNTIL DEFRAG
+			final ORecordId rid = new ORecordId(iRid.clusterId, iRid.clusterPosition);
+			logUndo(iTxId, new OLogOperation(OWriteAheadLog.OPERATION_CREATE, rid, iRecordType, 0, null));
+			redoOperations.add(new OLogOperation(OWriteAheadLog.OPERATION_CREATE, rid, iRecordType, 0, iContent));
 
 		} catch (IOException e) {
 
@@ -93,11 +116,15 @@ public class OStorageLocalTxExecuter {
 			// READ CURRENT RECORD CONTENT
 			final ORawBuffer buffer = storage.readRecord(iClusterSegment, iRid, false);
 
-			// SAVE INTO THE LOG THE POSITION OF THE OLD RECORD JUST DELETED. IF TX FAILS AT THIS POINT AS ABOVE
-			txSegment.addLog(OTxSegment.OPERATION_UPDATE, iTxId, iRid.clusterId, iRid.clusterPosition, iRecordType, buffer.version - 1,
-					buffer.buffer);
+			// SAVE INTO THE LOG THE OLD RECORD BEFORE TO OVERWRITE IT
+			final ORecordId rid = new ORecordId(iRid.clusterId, iRid.clusterPosition);
+			logUndo(iTxId, new OLogOperation(OWriteAheadLog.OPERATION_UPDATE, rid, buffer.recordType, buffer.version, buffer.buffer));
 
-			return storage.updateRecord(iClusterSegment, iRid, iContent, iVersion, iRecordType);
+			final int version = storage.updateRecord(iClusterSegment, iRid, iContent, iVersion, iRecordType);
+			if (version > -1)
+				redoOperations.add(new OLogOperation(OWriteAheadLog.OPERATION_UPDATE, rid, iRecordType, version, iContent));
+
+			return version;
 
 		} catch (IOException e) {
 
@@ -115,10 +142,10 @@ public class OStorageLocalTxExecuter {
 			final ORawBuffer buffer = storage.readRecord(iClusterSegment, rid, false);
 
 			// SAVE INTO THE LOG THE OLD RECORD
-			txSegment.addLog(OTxSegment.OPERATION_DELETE, iTxId, iClusterSegment.getId(), iPosition, buffer.recordType, buffer.version,
-					buffer.buffer);
+			logUndo(iTxId, new OLogOperation(OWriteAheadLog.OPERATION_DELETE, rid, buffer.recordType, buffer.version, buffer.buffer));
 
-			storage.deleteRecord(iClusterSegment, rid, iVersion);
+			if (storage.deleteRecord(iClusterSegment, rid, iVersion))
+				redoOperations.add(new OLogOperation(OWriteAheadLog.OPERATION_DELETE, rid, buffer.recordType, buffer.version, null));
 
 		} catch (IOException e) {
 
@@ -127,11 +154,29 @@ public class OStorageLocalTxExecuter {
 		}
 	}
 
-	public OTxSegment getTxSegment() {
-		return txSegment;
+	/**
+	 * Logs a record changed outside a transaction if the log contains a committed image of it, otherwise the recovery would restore
+	 * that image over the change. Must be called under the lock of the storage, so no commit can be logged meanwhile.
+	 */
+	protected void logNoTx(final byte iOperation, final ORecordId iRid, final byte iRecordType, final int iVersion,
+			final byte[] iContent) throws IOException {
+		final ORecordId rid = new ORecordId(iRid.clusterId, iRid.clusterPosition);
+		if (txLog.isLogged(rid))
+			txLog.logNoTx(new OLogOperation(iOperation, rid, iRecordType, iVersion, iContent));
+	}
+
+	public OWriteAheadLog getTxLog() {
+		return txLog;
 	}
 
+	/**
+	 * Applies all the records of the transaction, then appends their new images to the log with one write. The log is not forced to
+	 * disk: see {@link #synch()}.
+	 */
 	public void commitAllPendingRecords(final OTransaction iTx) throws IOException {
+		undoOperations.clear();
+		redoOperations.clear();
+
 		// COPY ALL THE ENTRIES IN SEPARATE COLLECTION SINCE DURING THE COMMIT PHASE SOME NEW ENTRIES COULD BE CREATED AND
 		// CONCURRENT-EXCEPTION MAY OCCURS
 		final List<OTransactionRecordEntry> tmpEntries = new ArrayList<OTransactionRecordEntry>();
@@ -149,13 +194,69 @@ public class OStorageLocalTxExecuter {
 			}
 		}
 
+		if (!redoOperations.isEmpty())
+			txLog.logCommit(iTx.getId(), redoOperations);
+
+		undoOperations.clear();
+		redoOperations.clear();
+
 		// UPDATE THE CACHE ONLY IF THE ITERATOR ALLOWS IT
 		OTransactionAbstract.updateCacheFromEntries(storage, iTx, iTx.getAllRecordEntries(), true);
 	}
 
-	public void clearLogEntries(final OTransaction iTx) throws IOException {
-		// CLEAR ALL TEMPORARY RECORDS
-		txSegment.clearLogEntries(iTx.getId());
+	/**
+	 * Restores the old images of the records changed by the transaction in progress, in reverse order.
+	 */
+	public void rollback(final OTransaction iTx) throws IOException {
+		try {
+			for (int i = undoOperations.size() - 1; i > -1; --i)
+				txLog.undo(undoOperations.get(i));
+
+			if (!undoOperations.isEmpty())
+				txLog.logRollback(iTx.getId());
+
+		} finally {
+			undoOperations.clear();
+			redoOperations.clear();
+		}
+	}
+
+	/**
+	 * Forces the log to disk: all the transactions committed up to now become durable.
+	 */
+	public void synch() throws IOException {
+		txLog.synch();
+	}
+
+	/**
+	 * Truncates the log. Called by the storage once all the segments have been synchronized.
+	 */
+	public void checkpoint() throws IOException {
+		txLog.checkpoint();
+	}
+
+	public boolean isCheckpointNeeded() {
+		return txLog.getFilledUpTo() > OGlobalConfiguration.TX_LOG_CHECKPOINT_SIZE.getValueAsInteger();
+	}
+
+	private void logUndo(final int iTxId, final OLogOperation iOperation) throws IOException {
+		undoOperations.add(iOperation);
+		txLog.logUndo(iTxId, iOperation);
+	}
+
+	/**
+	 * Recovers the transactions left in the undo log of the previous versions, then removes it.
+	 */
+	private void recoverLegacyLog() throws IOException {
+		final OStorageTxConfiguration legacyConfig = new OStorageTxConfiguration();
+		legacyConfig.path = OStorageVariableParser.DB_PATH_VARIABLE + "/" + LEGACY_LOG_FILE;
+
+		final OTxSegment legacyLog = new OTxSegment(storage, legacyConfig);
+		if (!legacyLog.exists())
+			return;
+
+		legacyLog.open();
+		legacyLog.delete();
 	}
 
 	private void commitEntry(final OTransaction iTx, final OTransactionRecordEntry txEntry, final boolean iUseLog) throws IOException {
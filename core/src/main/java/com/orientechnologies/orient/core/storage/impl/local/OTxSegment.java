@@ -16,7 +16,10 @@
 package com.orientechnologies.orient.core.storage.impl.local;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 import com.orientechnologies.common.log.OLogManager;
@@ -44,7 +47,9 @@ import com.orientechnologies.orient.core.tx.OTransaction;
  * At commit time all the changes are written in the TX log file with status = STATUS_COMMITTING. Once all records have been
  * written, then the status of all the records is changed in STATUS_FREE. If a transactions has at least a STATUS_FREE means that
  * has been successfully committed. This is the reason why on startup all the pending transactions will be recovered, but those with
- * at least one record with status = STATUS_FREE.
+ * at least one record with status = STATUS_FREE.<br/>
+ * <br/>
+ * Replaced by {@link OWriteAheadLog}: it's used only to recover the transactions left by the previous versions on open.
  */
 public class OTxSegment extends OSingleFileSegment {
 	public static final byte	STATUS_FREE						= 0;
@@ -169,9 +174,10 @@ public class OTxSegment extends OSingleFileSegment {
 		int recoveredRecords = 0;
 		int recs;
 
-		final Set<Integer> txToRecover = scanForTransactionsToRecover();
-		for (Integer txId : txToRecover) {
-			recs = recoverTransaction(txId);
+		// RECOVER THE TRANSACTIONS IN REVERSE ORDER: WITH THE GROUP COMMIT MORE TRANSACTIONS CAN HAVE CHANGED THE SAME RECORD
+		final List<Integer> txToRecover = new ArrayList<Integer>(scanForTransactionsToRecover());
+		for (int i = txToRecover.size() - 1; i > -1; --i) {
+			recs = recoverTransaction(txToRecover.get(i));
 
 			if (recs > 0) {
 				recoveredTxs++;
@@ -192,11 +198,11 @@ public class OTxSegment extends OSingleFileSegment {
 	}
 
 	/**
-	 * Scans the segment and returns the set of transactions ids to recover.
+	 * Scans the segment and returns the set of transactions ids to recover in the order they were written.
 	 */
 	private Set<Integer> scanForTransactionsToRecover() throws IOException {
 		// SCAN ALL THE FILE SEARCHING FOR THE TRANSACTIONS TO RECOVER
-		final Set<Integer> txToRecover = new HashSet<Integer>();
+		final Set<Integer> txToRecover = new LinkedHashSet<Integer>();
 
 		final Set<Integer> txToNotRecover = new HashSet<Integer>();
 
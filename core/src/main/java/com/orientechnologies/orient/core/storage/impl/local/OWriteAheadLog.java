@@ -0,0 +1,561 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.local;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.config.OStorageTxConfiguration;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
+import com.orientechnologies.orient.core.storage.OCluster;
+import com.orientechnologies.orient.core.storage.OPhysicalPosition;
+
+/**
+ * Append-only transaction log of the local storage. The records are changed in place in the segments and the log keeps:
+ * <ul>
+ * <li>an UNDO entry with the old image of every record changed by the transaction in progress, appended before to change it</li>
+ * <li>a COMMIT entry with the new images of all the records of the transaction, appended with one write once the transaction has
+ * been applied. The transaction is durable once this entry has been forced to disk by {@link #synch()}</li>
+ * <li>a ROLLBACK entry for the transactions rolled back at run-time</li>
+ * <li>a COMMIT entry with TX ID = {@link #NO_TX_ID} with the new image of a record already in the log changed outside a
+ * transaction, so the recovery doesn't bring back the logged image over it</li>
+ * </ul>
+ * The segments are synchronized only by the checkpoints, that truncate the log. The LSN (Log Sequence Number) of an entry is its
+ * offset in the log plus the LSN of the last checkpoint, stored in the header of the file. On open the entries written after the
+ * last checkpoint are replayed: the last committed image of every record is redone and the not committed transactions are undone.
+ * The scan stops at the first entry with a wrong LSN or CRC, left by a crash in the middle of the write.<br/>
+ * <br/>
+ * Entry structure:<br/>
+ * <code>
+ * +---------+--------+---------+---------+-----------------------+---------+<br/>
+ * | LSN ... | TYPE . | TX ID . | SIZE .. | OPERATIONS .......... | CRC ... |<br/>
+ * | 8 bytes | 1 byte | 4 bytes | 4 bytes | SIZE bytes .......... | 4 bytes |<br/>
+ * +---------+--------+---------+---------+-----------------------+---------+<br/>
+ * </code><br/>
+ * Operation structure:<br/>
+ * <code>
+ * +--------+------------+----------------+--------+---------+--------------+--------------------+<br/>
+ * | OPERAT | CLUSTER ID | CLUSTER OFFSET | TYPE . | VERSION | CONTENT SIZE | CONTENT .......... |<br/>
+ * | 1 byte | 2 bytes .. | 8 bytes ...... | 1 byte | 4 bytes | 4 bytes .... | ? bytes .......... |<br/>
+ * +--------+------------+----------------+--------+---------+--------------+--------------------+<br/>
+ * </code>
+ *
+ * @author Luca Garulli
+ *
+ */
+public class OWriteAheadLog extends OSingleFileSegment {
+	public static final byte	ENTRY_UNDO						= 0;
+	public static final byte	ENTRY_COMMIT					= 1;
+	public static final byte	ENTRY_ROLLBACK				= 2;
+
+	public static final byte	OPERATION_CREATE			= 0;
+	public static final byte	OPERATION_DELETE			= 1;
+	public static final byte	OPERATION_UPDATE			= 2;
+
+	public static final int		NO_TX_ID							= -1;
+
+	private static final int	DEF_START_SIZE				= 1000000;
+
+	private static final int	HEADER_CHECKPOINT_LSN	= 0;
+
+	private static final int	OFFSET_TYPE						= 8;
+	private static final int	OFFSET_TX_ID					= 9;
+	private static final int	OFFSET_SIZE						= 13;
+	private static final int	ENTRY_HEADER_SIZE			= 17;
+	private static final int	ENTRY_CRC_SIZE				= OBinaryProtocol.SIZE_INT;
+	private static final int	OPERATION_HEADER_SIZE	= 20;
+
+	private final boolean			synchEnabled;
+	private final String			PROFILER_SYNCH;
+	private long							checkpointLsn;
+
+	// RECORDS WITH A COMMITTED IMAGE IN THE LOG
+	private final Set<ORecordId>	loggedRecords					= new HashSet<ORecordId>();
+
+	/**
+	 * Record operation logged: the old image of the record in the UNDO entries and the new one in the COMMIT entries. The version of
+	 * the DELETE operations in the COMMIT entries is the one of the record deleted.
+	 */
+	public static class OLogOperation {
+		public final byte				operation;
+		public final ORecordId	rid;
+		public final byte				recordType;
+		public final int				version;
+		public final byte[]			content;
+
+		public OLogOperation(final byte iOperation, final ORecordId iRid, final byte iRecordType, final int iVersion,
+				final byte[] iContent) {
+			operation = iOperation;
+			rid = iRid;
+			recordType = iRecordType;
+			version = iVersion;
+			content = iContent;
+		}
+
+		private int getSize() {
+			return OPERATION_HEADER_SIZE + (content != null ? content.length : 0);
+		}
+	}
+
+	public OWriteAheadLog(final OStorageLocal iStorage, final OStorageTxConfiguration iConfig) throws IOException {
+		super(iStorage, iConfig, OGlobalConfiguration.TX_LOG_TYPE.getValueAsString());
+		synchEnabled = OGlobalConfiguration.TX_LOG_SYNCH.getValueAsBoolean();
+		PROFILER_SYNCH = "storage." + iStorage.getName() + ".txLog.synch";
+	}
+
+	/**
+	 * Opens the log and recovers the transactions written after the last checkpoint, if any.
+	 */
+	@Override
+	public boolean open() throws IOException {
+		acquireExclusiveLock();
+		try {
+			// IGNORE IF IT'S SOFTLY CLOSED
+			super.open();
+
+			checkpointLsn = file.readHeaderLong(HEADER_CHECKPOINT_LSN);
+
+			recoverTransactions();
+
+			return true;
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	@Override
+	public void create(final int iStartSize) throws IOException {
+		acquireExclusiveLock();
+		try {
+			super.create(iStartSize > -1 ? iStartSize : DEF_START_SIZE);
+
+			checkpointLsn = 0;
+			file.writeHeaderLong(HEADER_CHECKPOINT_LSN, checkpointLsn);
+			loggedRecords.clear();
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	/**
+	 * Appends the old image of a record before to change it. The entry is forced to disk only if tx.log.synch is true.
+	 *
+	 * @return The LSN of the entry
+	 */
+	public long logUndo(final int iTxId, final OLogOperation iOperation) throws IOException {
+		return append(ENTRY_UNDO, iTxId, Collections.singletonList(iOperation), synchEnabled);
+	}
+
+	/**
+	 * Appends the new images of all the records changed by a transaction with one write. The transaction is durable once the log
+	 * has been synchronized.
+	 *
+	 * @return The LSN of the entry
+	 */
+	public long logCommit(final int iTxId, final List<OLogOperation> iOperations) throws IOException {
+		return append(ENTRY_COMMIT, iTxId, iOperations, false);
+	}
+
+	/**
+	 * Marks the transaction as rolled back, so its UNDO entries are not applied again on recovery.
+	 *
+	 * @return The LSN of the entry
+	 */
+	public long logRollback(final int iTxId) throws IOException {
+		return append(ENTRY_ROLLBACK, iTxId, Collections.<OLogOperation> emptyList(), synchEnabled);
+	}
+
+	/**
+	 * Appends the new image of a record changed outside a transaction. Needed only if the record is already in the log: see
+	 * {@link #isLogged(ORecordId)}.
+	 *
+	 * @return The LSN of the entry
+	 */
+	public long logNoTx(final OLogOperation iOperation) throws IOException {
+		return append(ENTRY_COMMIT, NO_TX_ID, Collections.singletonList(iOperation), false);
+	}
+
+	/**
+	 * Tells if a committed image of the record has been logged after the last checkpoint. The changes made to it outside the
+	 * transactions must be logged too, otherwise the recovery would replace them with the logged image.
+	 */
+	public boolean isLogged(final ORecordId iRid) {
+		acquireSharedLock();
+		try {
+
+			return loggedRecords.contains(iRid);
+
+		} finally {
+			releaseSharedLock();
+		}
+	}
+
+	/**
+	 * Forces the log to disk. The lock is not acquired, so the other transactions can append their entries meanwhile.
+	 */
+	public void synch() throws IOException {
+		final long timer = OProfiler.getInstance().startChrono();
+		try {
+
+			file.synch();
+
+		} finally {
+			OProfiler.getInstance().stopChrono(PROFILER_SYNCH, timer);
+		}
+	}
+
+	/**
+	 * Truncates the log. Must be called once all the segments have been synchronized, because the entries written up to now are not
+	 * needed anymore. The LSN goes on from the end of the truncated entries.
+	 */
+	public void checkpoint() throws IOException {
+		acquireExclusiveLock();
+		try {
+			if (file.getFilledUpTo() == 0)
+				return;
+
+			checkpointLsn += file.getFilledUpTo();
+			file.writeHeaderLong(HEADER_CHECKPOINT_LSN, checkpointLsn);
+			file.shrink(0);
+			loggedRecords.clear();
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	public boolean isEmpty() {
+		return file.getFilledUpTo() == 0;
+	}
+
+	/**
+	 * Returns the LSN of the last checkpoint, namely the LSN of the first entry in the log.
+	 */
+	public long getCheckpointLsn() {
+		return checkpointLsn;
+	}
+
+	/**
+	 * Returns the LSN the next entry will have.
+	 */
+	public long getLsn() {
+		return checkpointLsn + file.getFilledUpTo();
+	}
+
+	private long append(final byte iType, final int iTxId, final List<OLogOperation> iOperations, final boolean iSynch)
+			throws IOException {
+		int size = 0;
+		for (OLogOperation op : iOperations)
+			size += op.getSize();
+
+		// SERIALIZE THE ENTRY IN MEMORY TO WRITE IT WITH ONE CALL
+		final byte[] buffer = new byte[ENTRY_HEADER_SIZE + size + ENTRY_CRC_SIZE];
+
+		acquireExclusiveLock();
+		try {
+			final int offset = file.allocateSpace(buffer.length);
+			final long lsn = checkpointLsn + offset;
+
+			OBinaryProtocol.long2bytes(lsn, buffer, 0);
+			buffer[OFFSET_TYPE] = iType;
+			OBinaryProtocol.int2bytes(iTxId, buffer, OFFSET_TX_ID);
+			OBinaryProtocol.int2bytes(size, buffer, OFFSET_SIZE);
+
+			int p = ENTRY_HEADER_SIZE;
+			for (OLogOperation op : iOperations) {
+				buffer[p] = op.operation;
+				p += OBinaryProtocol.SIZE_BYTE;
+
+				OBinaryProtocol.short2bytes((short) op.rid.clusterId, buffer, p);
+				p += OBinaryProtocol.SIZE_SHORT;
+
+				OBinaryProtocol.long2bytes(op.rid.clusterPosition, buffer, p);
+				p += OBinaryProtocol.SIZE_LONG;
+
+				buffer[p] = op.recordType;
+				p += OBinaryProtocol.SIZE_BYTE;
+
+				OBinaryProtocol.int2bytes(op.version, buffer, p);
+				p += OBinaryProtocol.SIZE_INT;
+
+				final int contentSize = op.content != null ? op.content.length : 0;
+				OBinaryProtocol.int2bytes(contentSize, buffer, p);
+				p += OBinaryProtocol.SIZE_INT;
+
+				if (contentSize > 0) {
+					System.arraycopy(op.content, 0, buffer, p, contentSize);
+					p += contentSize;
+				}
+			}
+
+			final CRC32 crc = new CRC32();
+			crc.update(buffer, 0, p);
+			OBinaryProtocol.int2bytes((int) crc.getValue(), buffer, p);
+
+			file.write(offset, buffer);
+
+			if (iType == ENTRY_COMMIT)
+				for (OLogOperation op : iOperations)
+					loggedRecords.add(op.rid);
+
+			if (iSynch)
+				file.synch();
+
+			return lsn;
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	private void recoverTransactions() throws IOException {
+		final int filled = file.getFilledUpTo();
+		if (filled == 0)
+			return;
+
+		OLogManager.instance().debug(this, "Started the recovering of the transactions logged after the checkpoint with LSN=%d...",
+				checkpointLsn);
+
+		// OPERATIONS TO UNDO OF THE TRANSACTIONS NOT COMMITTED, IN THE ORDER THEY WERE WRITTEN
+		final Map<Integer, List<OLogOperation>> pending = new LinkedHashMap<Integer, List<OLogOperation>>();
+
+		// LAST COMMITTED IMAGE OF EVERY RECORD: THE PREVIOUS ONES ARE OVERWRITTEN BY IT OR BELONG TO A RECORD DELETED AFTERWARDS, WHOSE
+		// POSITION COULD HAVE BEEN REUSED
+		final Map<ORecordId, OLogOperation> redoOperations = new LinkedHashMap<ORecordId, OLogOperation>();
+
+		int redoneTxs = 0;
+		int redoneRecords = 0;
+		int undoneTxs = 0;
+		int undoneRecords = 0;
+
+		int offset = 0;
+		while (offset < filled) {
+			final byte[] entry = readEntry(offset, filled);
+			if (entry == null) {
+				OLogManager.instance().warn(this,
+						"Found a broken entry with LSN=%d in the transaction log: it and the following ones will be ignored",
+						checkpointLsn + offset);
+				break;
+			}
+
+			final Integer txId = OBinaryProtocol.bytes2int(entry, OFFSET_TX_ID);
+
+			switch (entry[OFFSET_TYPE]) {
+			case ENTRY_UNDO:
+				List<OLogOperation> txOperations = pending.get(txId);
+				if (txOperations == null) {
+					txOperations = new ArrayList<OLogOperation>();
+					pending.put(txId, txOperations);
+				}
+				txOperations.addAll(readOperations(entry));
+				break;
+
+			case ENTRY_COMMIT:
+				// THE OLD IMAGES ARE NOT NEEDED ANYMORE: REPLACE THE RECORDS WITH THE NEW ONES
+				pending.remove(txId);
+				for (OLogOperation op : readOperations(entry)) {
+					redoOperations.remove(op.rid);
+					redoOperations.put(op.rid, op);
+				}
+				if (txId != NO_TX_ID)
+					redoneTxs++;
+				break;
+
+			case ENTRY_ROLLBACK:
+				pending.remove(txId);
+				break;
+			}
+
+			offset += entry.length;
+		}
+
+		for (OLogOperation op : redoOperations.values())
+			if (redo(op))
+				redoneRecords++;
+
+		// UNDO THE TRANSACTIONS INTERRUPTED BY THE CRASH IN REVERSE ORDER
+		final List<List<OLogOperation>> txToUndo = new ArrayList<List<OLogOperation>>(pending.values());
+		for (int i = txToUndo.size() - 1; i > -1; --i) {
+			final List<OLogOperation> txOperations = txToUndo.get(i);
+			for (int k = txOperations.size() - 1; k > -1; --k)
+				if (undo(txOperations.get(k)))
+					undoneRecords++;
+			undoneTxs++;
+		}
+
+		// ALL THE TRANSACTIONS ARE IN THE SEGMENTS NOW: SYNCHRONIZE THEM AND TRUNCATE THE LOG
+		storage.synch();
+
+		if (redoneRecords > 0 || undoneRecords > 0) {
+			OLogManager.instance().warn(this, "Recovering successfully completed:");
+			OLogManager.instance().warn(this, "- Redone Tx.......: " + redoneTxs + " (" + redoneRecords + " records)");
+			OLogManager.instance().warn(this, "- Rolled back Tx..: " + undoneTxs + " (" + undoneRecords + " records)");
+		} else
+			OLogManager.instance().debug(this, "Recovering successfully completed: all the %d logged transactions were already applied.",
+					redoneTxs);
+	}
+
+	/**
+	 * Reads the entry at the offset received checking its LSN and CRC.
+	 *
+	 * @return The entire entry or null if it's broken
+	 */
+	private byte[] readEntry(final int iOffset, final int iFilled) throws IOException {
+		if (iOffset + ENTRY_HEADER_SIZE + ENTRY_CRC_SIZE > iFilled)
+			return null;
+
+		final byte[] header = new byte[ENTRY_HEADER_SIZE];
+		file.read(iOffset, header, header.length);
+
+		if (OBinaryProtocol.bytes2long(header, 0) != checkpointLsn + iOffset)
+			// NOT WRITTEN: IT'S THE CONTENT OF AN ENTRY BEFORE THE LAST CHECKPOINT
+			return null;
+
+		final int size = OBinaryProtocol.bytes2int(header, OFFSET_SIZE);
+		if (size < 0 || (long) iOffset + ENTRY_HEADER_SIZE + size + ENTRY_CRC_SIZE > iFilled)
+			return null;
+
+		final byte[] entry = new byte[ENTRY_HEADER_SIZE + size + ENTRY_CRC_SIZE];
+		file.read(iOffset, entry, entry.length);
+
+		final CRC32 crc = new CRC32();
+		crc.update(entry, 0, entry.length - ENTRY_CRC_SIZE);
+		if ((int) crc.getValue() != OBinaryProtocol.bytes2int(entry, entry.length - ENTRY_CRC_SIZE))
+			// PARTIALLY WRITTEN
+			return null;
+
+		return entry;
+	}
+
+	private List<OLogOperation> readOperations(final byte[] iEntry) {
+		final List<OLogOperation> operations = new ArrayList<OLogOperation>();
+
+		final int end = iEntry.length - ENTRY_CRC_SIZE;
+		int p = ENTRY_HEADER_SIZE;
+		while (p < end) {
+			final byte operation = iEntry[p];
+			p += OBinaryProtocol.SIZE_BYTE;
+
+			final ORecordId rid = new ORecordId(OBinaryProtocol.bytes2short(iEntry, p), OBinaryProtocol.bytes2long(iEntry, p
+					+ OBinaryProtocol.SIZE_SHORT));
+			p += OBinaryProtocol.SIZE_SHORT + OBinaryProtocol.SIZE_LONG;
+
+			final byte recordType = iEntry[p];
+			p += OBinaryProtocol.SIZE_BYTE;
+
+			final int version = OBinaryProtocol.bytes2int(iEntry, p);
+			p += OBinaryProtocol.SIZE_INT;
+
+			final int contentSize = OBinaryProtocol.bytes2int(iEntry, p);
+			p += OBinaryProtocol.SIZE_INT;
+
+			final byte[] content = new byte[contentSize];
+			System.arraycopy(iEntry, p, content, 0, contentSize);
+			p += contentSize;
+
+			operations.add(new OLogOperation(operation, rid, recordType, version, content));
+		}
+
+		return operations;
+	}
+
+	/**
+	 * Applies the new image of a record. Does nothing if the record is already up to date or if it has a version higher than the
+	 * logged one.
+	 *
+	 * @return true if the record has been changed
+	 */
+	protected boolean redo(final OLogOperation iOperation) throws IOException {
+		final OClusterLocal cluster = getCluster(iOperation.rid);
+		if (cluster == null)
+			return false;
+
+		final OPhysicalPosition ppos = cluster.isAllocated(iOperation.rid.clusterPosition) ? cluster.getPhysicalPosition(
+				iOperation.rid.clusterPosition, new OPhysicalPosition()) : null;
+
+		if (ppos != null && ppos.version > iOperation.version) {
+			// CHANGED AFTER THE LOGGED IMAGE: DELETED RECORDS HAVE VERSION -1, SO THEY ARE NEVER SKIPPED HERE
+			OLogManager.instance().debug(this, "Skipped operation <%d> on record %s: logged v%d, stored v%d", iOperation.operation,
+					iOperation.rid, iOperation.version, ppos.version);
+			return false;
+		}
+
+		OLogManager.instance().debug(this, "Redoing operation <%d> on record %s size=%d...", iOperation.operation, iOperation.rid,
+				iOperation.content.length);
+
+		switch (iOperation.operation) {
+		case OPERATION_CREATE:
+		case OPERATION_UPDATE:
+			// WITH THE SAME VERSION THE CONTENT IS COMPARED, BECAUSE THE CRASH COULD HAVE LOST THE WRITE IN THE DATA SEGMENT ONLY
+			return storage.restoreRecord(cluster, iOperation.rid, iOperation.content, iOperation.version, iOperation.recordType);
+
+		case OPERATION_DELETE:
+			return ppos != null && storage.deleteRecord(cluster, iOperation.rid, -1);
+		}
+		return false;
+	}
+
+	/**
+	 * Applies the old image of a record.
+	 *
+	 * @return true if the record has been changed
+	 */
+	protected boolean undo(final OLogOperation iOperation) throws IOException {
+		final OClusterLocal cluster = getCluster(iOperation.rid);
+		if (cluster == null)
+			return false;
+
+		OLogManager.instance().debug(this, "Undoing operation <%d> on record %s size=%d...", iOperation.operation, iOperation.rid,
+				iOperation.content != null ? iOperation.content.length : 0);
+
+		switch (iOperation.operation) {
+		case OPERATION_CREATE:
+			// JUST DELETE THE RECORD
+			return cluster.isAllocated(iOperation.rid.clusterPosition) && storage.deleteRecord(cluster, iOperation.rid, -1);
+
+		case OPERATION_UPDATE:
+		case OPERATION_DELETE:
+			// RESTORE THE OLD CONTENT AND VERSION
+			return storage.restoreRecord(cluster, iOperation.rid, iOperation.content, iOperation.version, iOperation.recordType);
+		}
+		return false;
+	}
+
+	private OClusterLocal getCluster(final ORecordId iRid) {
+		if (iRid.clusterId < 0 || iRid.clusterId >= storage.getClusters())
+			return null;
+
+		final OCluster cluster = storage.getClusterById(iRid.clusterId);
+		if (!(cluster instanceof OClusterLocal))
+			// REMOVED OR NOT PHYSICAL
+			return null;
+
+		return (OClusterLocal) cluster;
+	}
+}
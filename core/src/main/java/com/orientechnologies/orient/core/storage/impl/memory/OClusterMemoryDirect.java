@@ -0,0 +1,301 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.memory;
+
+import java.io.IOException;
+
+import com.orientechnologies.common.collection.OLongStack;
+import com.orientechnologies.common.concur.resource.OSharedResourceAbstract;
+import com.orientechnologies.orient.core.storage.OCluster;
+import com.orientechnologies.orient.core.storage.OClusterPositionIterator;
+import com.orientechnologies.orient.core.storage.OPhysicalPosition;
+
+/**
+ * Memory cluster that keeps the position table in primitive arrays instead of one OPhysicalPosition object per record. Removed
+ * positions have data position -1 and are recycled by the next creation. Since the entries are not objects,
+ * getPhysicalPosition() fills the OPhysicalPosition received as parameter and the changes must be written back through the
+ * cluster methods.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OClusterMemoryDirect extends OSharedResourceAbstract implements OCluster {
+	private static final int	INITIAL_SIZE	= 64;
+	private static final int	ENTRY_SIZE		= 8 + 4 + 1;
+
+	private int								id;
+	private String						name;
+	private long[]						dataPositions;
+	private int[]							versions;
+	private byte[]						types;
+	private int								size;
+	private final OLongStack	removed				= new OLongStack();
+
+	public OClusterMemoryDirect(final int id, final String name) {
+		this.id = id;
+		this.name = name;
+		clear();
+	}
+
+	public OClusterPositionIterator absoluteIterator() throws IOException {
+		return new OClusterPositionIterator(this);
+	}
+
+	public OClusterPositionIterator absoluteIterator(final long iBeginRange, final long iEndRange) throws IOException {
+		return new OClusterPositionIterator(this, iBeginRange, iEndRange);
+	}
+
+	public void close() {
+		truncate();
+	}
+
+	public void open() throws IOException {
+	}
+
+	public void create(final int iStartSize) throws IOException {
+	}
+
+	public void delete() {
+		truncate();
+	}
+
+	public void truncate() {
+		acquireExclusiveLock();
+		try {
+
+			clear();
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	public void set(ATTRIBUTES iAttribute, Object iValue) throws IOException {
+		if (iAttribute == null)
+			throw new IllegalArgumentException("attribute is null");
+
+		final String stringValue = iValue != null ? iValue.toString() : null;
+
+		switch (iAttribute) {
+		case NAME:
+			name = stringValue;
+		}
+	}
+
+	public long getEntries() {
+		acquireSharedLock();
+		try {
+
+			return size - removed.size();
+
+		} finally {
+			releaseSharedLock();
+		}
+	}
+
+	public long getSize() {
+		acquireSharedLock();
+		try {
+
+			return (long) size * ENTRY_SIZE;
+
+		} finally {
+			releaseSharedLock();
+		}
+	}
+
+	public long getRecordsSize() throws IOException {
+		return getSize();
+	}
+
+	public long getFirstEntryPosition() {
+		acquireSharedLock();
+		try {
+
+			return size == 0 ? -1 : 0;
+
+		} finally {
+			releaseSharedLock();
+		}
+	}
+
+	public long getLastEntryPosition() {
+		acquireSharedLock();
+		try {
+
+			return size - 1;
+
+		} finally {
+			releaseSharedLock();
+		}
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long addPhysicalPosition(final int iDataSegmentId, final long iRecordPosition, final byte iRecordType) {
+		acquireExclusiveLock();
+		try {
+
+			final int position;
+			if (!removed.isEmpty())
+				position = (int) removed.pop();
+			else {
+				if (size == dataPositions.length)
+					grow();
+				position = size++;
+			}
+
+			dataPositions[position] = iRecordPosition;
+			versions[position] = 0;
+			types[position] = iRecordType;
+			return position;
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	public void updateRecordType(final long iPosition, final byte iRecordType) throws IOException {
+		acquireExclusiveLock();
+		try {
+
+			types[(int) iPosition] = iRecordType;
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	public void updateVersion(final long iPosition, final int iVersion) throws IOException {
+		acquireExclusiveLock();
+		try {
+
+			versions[(int) iPosition] = iVersion;
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	public OPhysicalPosition getPhysicalPosition(final long iPosition, OPhysicalPosition iPPosition) {
+		acquireSharedLock();
+		try {
+
+			if (iPosition < 0 || iPosition >= size || dataPositions[(int) iPosition] == -1)
+				return null;
+
+			if (iPPosition == null)
+				iPPosition = new OPhysicalPosition();
+
+			iPPosition.dataSegment = 0;
+			iPPosition.dataPosition = dataPositions[(int) iPosition];
+			iPPosition.version = versions[(int) iPosition];
+			iPPosition.type = types[(int) iPosition];
+			return iPPosition;
+
+		} finally {
+			releaseSharedLock();
+		}
+	}
+
+	public void removePhysicalPosition(final long iPosition, final OPhysicalPosition iPPosition) {
+		acquireExclusiveLock();
+		try {
+
+			if (dataPositions[(int) iPosition] != -1) {
+				dataPositions[(int) iPosition] = -1;
+				removed.push(iPosition);
+			}
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	public void setPhysicalPosition(final long iPosition, final long iDataPosition) {
+		acquireExclusiveLock();
+		try {
+
+			dataPositions[(int) iPosition] = iDataPosition;
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	public void setPhysicalPosition(final long iPosition, final int iDataId, final long iDataPosition, final byte iRecordType,
+			final int iVersion) {
+		acquireExclusiveLock();
+		try {
+
+			dataPositions[(int) iPosition] = iDataPosition;
+			types[(int) iPosition] = iRecordType;
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	public void synch() {
+	}
+
+	public void lock() {
+		acquireSharedLock();
+	}
+
+	public void unlock() {
+		releaseSharedLock();
+	}
+
+	public String getType() {
+		return OClusterMemory.TYPE;
+	}
+
+	@Override
+	public String toString() {
+		return "OClusterMemoryDirect [name=" + name + ", id=" + id + ", entries=" + size + ", removed=" + removed.size() + "]";
+	}
+
+	private void clear() {
+		dataPositions = new long[INITIAL_SIZE];
+		versions = new int[INITIAL_SIZE];
+		types = new byte[INITIAL_SIZE];
+		size = 0;
+		removed.clear();
+	}
+
+	private void grow() {
+		final int newCapacity = dataPositions.length << 1;
+
+		final long[] newDataPositions = new long[newCapacity];
+		System.arraycopy(dataPositions, 0, newDataPositions, 0, size);
+		dataPositions = newDataPositions;
+
+		final int[] newVersions = new int[newCapacity];
+		System.arraycopy(versions, 0, newVersions, 0, size);
+		versions = newVersions;
+
+		final byte[] newTypes = new byte[newCapacity];
+		System.arraycopy(types, 0, newTypes, 0, size);
+		types = newTypes;
+	}
+}
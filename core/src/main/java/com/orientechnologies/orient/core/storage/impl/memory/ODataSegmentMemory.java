@@ -20,6 +20,12 @@ import java.util.List;
 
 import com.orientechnologies.common.concur.resource.OSharedResourceAbstract;
 
+/**
+ * Data segment of the memory storage. Each record content is kept as a byte array in the heap and its position is the index in the
+ * list.
+ * 
+ * @see ODataSegmentMemoryDirect
+ */
 public class ODataSegmentMemory extends OSharedResourceAbstract {
 	private final List<byte[]>	entries	= new ArrayList<byte[]>();
 
@@ -87,6 +93,17 @@ public class ODataSegmentMemory extends OSharedResourceAbstract {
 		}
 	}
 
+	public boolean isValidPosition(final long iRecordPosition) {
+		acquireSharedLock();
+		try {
+
+			return iRecordPosition > -1 && iRecordPosition < entries.size();
+
+		} finally {
+			releaseSharedLock();
+		}
+	}
+
 	public byte[] readRecord(final long iRecordPosition) {
 		acquireSharedLock();
 		try {
@@ -98,11 +115,17 @@ public class ODataSegmentMemory extends OSharedResourceAbstract {
 		}
 	}
 
-	public void updateRecord(final long iRecordPosition, final byte[] iContent) {
+	/**
+	 * Updates the record content.
+	 * 
+	 * @return The new position of the record, that could differ from the original one when the implementation moves it
+	 */
+	public long updateRecord(final long iRecordPosition, final byte[] iContent) {
 		acquireExclusiveLock();
 		try {
 
 			entries.set((int) iRecordPosition, iContent);
+			return iRecordPosition;
 
 		} finally {
 			releaseExclusiveLock();
@@ -0,0 +1,302 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.memory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.orientechnologies.common.collection.OLongStack;
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+
+/**
+ * Data segment that keeps the record contents outside the Java heap. Contents are stored in direct buffers (slabs) of
+ * "memory.direct.slabSize" bytes, split in chunks of power of two sizes. Freed chunks are pushed in the free-list of their size
+ * and reused by the next allocation of the same size. Contents bigger than a slab get a dedicated buffer.<br/>
+ * <br/>
+ * Chunk structure:<br/>
+ * <br/>
+ * +----------------+------------------------+<br/>
+ * | CONTENT LENGTH | CONTENT .............. |<br/>
+ * | 4 bytes ...... | variable ............. |<br/>
+ * +----------------+------------------------+<br/>
+ * <br/>
+ * The record position is the slab index in the high 32 bits and the chunk offset in the low 32 bits.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class ODataSegmentMemoryDirect extends ODataSegmentMemory {
+	private static final int				HEADER_SIZE		= 4;
+	private static final int				MIN_CHUNK_SIZE	= 16;
+
+	private final int								slabSize;
+	private final List<ByteBuffer>	slabs					= new ArrayList<ByteBuffer>();
+	private final OLongStack				freeSlabs			= new OLongStack();
+	private final OLongStack[]			freeChunks		= new OLongStack[32];
+	private ByteBuffer							currentSlab;
+	private int											currentSlabId	= -1;
+	private int											records				= 0;
+	private long										size					= 0;
+
+	public ODataSegmentMemoryDirect() {
+		slabSize = chunkSize(OGlobalConfiguration.MEMORY_DIRECT_SLAB_SIZE.getValueAsInteger() - HEADER_SIZE);
+		for (int i = 0; i < freeChunks.length; ++i)
+			freeChunks[i] = new OLongStack();
+	}
+
+	@Override
+	public void close() {
+		acquireExclusiveLock();
+		try {
+
+			// THE DIRECT MEMORY IS RELEASED ONCE THE BUFFERS ARE GARBAGE COLLECTED
+			slabs.clear();
+			freeSlabs.clear();
+			for (OLongStack s : freeChunks)
+				s.clear();
+			currentSlab = null;
+			currentSlabId = -1;
+			records = 0;
+			size = 0;
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	@Override
+	public int count() {
+		acquireSharedLock();
+		try {
+
+			return records;
+
+		} finally {
+			releaseSharedLock();
+		}
+	}
+
+	@Override
+	public long getSize() {
+		acquireSharedLock();
+		try {
+
+			return size;
+
+		} finally {
+			releaseSharedLock();
+		}
+	}
+
+	@Override
+	public long createRecord(final byte[] iContent) {
+		acquireExclusiveLock();
+		try {
+
+			final long position = allocate(iContent.length);
+			write(position, iContent);
+
+			records++;
+			size += iContent.length;
+
+			return position;
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	@Override
+	public void deleteRecord(final long iRecordPosition) {
+		acquireExclusiveLock();
+		try {
+
+			final int length = getSlab(iRecordPosition).getInt(getOffset(iRecordPosition));
+			free(iRecordPosition, length);
+
+			records--;
+			size -= length;
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	@Override
+	public boolean isValidPosition(final long iRecordPosition) {
+		acquireSharedLock();
+		try {
+
+			if (iRecordPosition < 0)
+				return false;
+
+			final int slabId = getSlabId(iRecordPosition);
+			if (slabId >= slabs.size())
+				return false;
+
+			final ByteBuffer slab = slabs.get(slabId);
+			return slab != null && getOffset(iRecordPosition) + HEADER_SIZE <= slab.capacity();
+
+		} finally {
+			releaseSharedLock();
+		}
+	}
+
+	@Override
+	public byte[] readRecord(final long iRecordPosition) {
+		acquireSharedLock();
+		try {
+
+			final ByteBuffer slab = getSlab(iRecordPosition);
+			final int offset = getOffset(iRecordPosition);
+
+			final byte[] content = new byte[slab.getInt(offset)];
+
+			// USE A DUPLICATE TO NOT SHARE THE BUFFER POSITION WITH THE CONCURRENT READERS
+			final ByteBuffer buffer = slab.duplicate();
+			buffer.position(offset + HEADER_SIZE);
+			buffer.get(content);
+			return content;
+
+		} finally {
+			releaseSharedLock();
+		}
+	}
+
+	@Override
+	public long updateRecord(final long iRecordPosition, final byte[] iContent) {
+		acquireExclusiveLock();
+		try {
+
+			final int oldLength = getSlab(iRecordPosition).getInt(getOffset(iRecordPosition));
+			size += iContent.length - oldLength;
+
+			if (chunkSize(oldLength) == chunkSize(iContent.length)
+					&& HEADER_SIZE + iContent.length <= getChunkCapacity(iRecordPosition, oldLength)) {
+				// SAME CHUNK SIZE: OVERWRITE IT
+				write(iRecordPosition, iContent);
+				return iRecordPosition;
+			}
+
+			// MOVE THE CONTENT TO A CHUNK OF THE RIGHT SIZE
+			free(iRecordPosition, oldLength);
+			final long position = allocate(iContent.length);
+			write(position, iContent);
+			return position;
+
+		} finally {
+			releaseExclusiveLock();
+		}
+	}
+
+	private long allocate(final int iLength) {
+		final int chunkSize = chunkSize(iLength);
+
+		if (chunkSize > slabSize) {
+			// BIG CONTENT: DEDICATE A BUFFER TO IT
+			OProfiler.getInstance().updateCounter("ODataSegmentMemoryDirect.allocatedSlabs", +1);
+			return (long) addSlab(ByteBuffer.allocateDirect(HEADER_SIZE + iLength)) << 32;
+		}
+
+		final OLongStack free = freeChunks[Integer.numberOfTrailingZeros(chunkSize)];
+		if (!free.isEmpty())
+			return free.pop();
+
+		if (currentSlab == null || currentSlab.remaining() < chunkSize) {
+			if (currentSlab != null)
+				// RECYCLE THE TAIL OF THE FULL SLAB
+				while (currentSlab.remaining() >= MIN_CHUNK_SIZE) {
+					final int tailChunkSize = Integer.highestOneBit(currentSlab.remaining());
+					freeChunks[Integer.numberOfTrailingZeros(tailChunkSize)].push(((long) currentSlabId << 32) | currentSlab.position());
+					currentSlab.position(currentSlab.position() + tailChunkSize);
+				}
+
+			OProfiler.getInstance().updateCounter("ODataSegmentMemoryDirect.allocatedSlabs", +1);
+			currentSlab = ByteBuffer.allocateDirect(slabSize);
+			currentSlabId = addSlab(currentSlab);
+		}
+
+		final int offset = currentSlab.position();
+		currentSlab.position(offset + chunkSize);
+		return ((long) currentSlabId << 32) | offset;
+	}
+
+	private void free(final long iPosition, final int iLength) {
+		final int chunkSize = chunkSize(iLength);
+
+		if (chunkSize > slabSize) {
+			// DEDICATED BUFFER: RELEASE IT
+			final int slabId = getSlabId(iPosition);
+			slabs.set(slabId, null);
+			freeSlabs.push(slabId);
+			OProfiler.getInstance().updateCounter("ODataSegmentMemoryDirect.allocatedSlabs", -1);
+		} else
+			freeChunks[Integer.numberOfTrailingZeros(chunkSize)].push(iPosition);
+	}
+
+	private void write(final long iPosition, final byte[] iContent) {
+		final ByteBuffer buffer = getSlab(iPosition).duplicate();
+		buffer.position(getOffset(iPosition));
+		buffer.putInt(iContent.length);
+		buffer.put(iContent);
+	}
+
+	private int addSlab(final ByteBuffer iSlab) {
+		if (!freeSlabs.isEmpty()) {
+			final int slabId = (int) freeSlabs.pop();
+			slabs.set(slabId, iSlab);
+			return slabId;
+		}
+
+		slabs.add(iSlab);
+		return slabs.size() - 1;
+	}
+
+	private ByteBuffer getSlab(final long iPosition) {
+		return slabs.get(getSlabId(iPosition));
+	}
+
+	/**
+	 * Returns the bytes available in the chunk of a content of iLength bytes. The dedicated buffers are allocated at the exact size,
+	 * not at the chunk size.
+	 */
+	private int getChunkCapacity(final long iPosition, final int iLength) {
+		final int chunkSize = chunkSize(iLength);
+		return chunkSize > slabSize ? getSlab(iPosition).capacity() : chunkSize;
+	}
+
+	private static int getSlabId(final long iPosition) {
+		return (int) (iPosition >>> 32);
+	}
+
+	private static int getOffset(final long iPosition) {
+		return (int) iPosition;
+	}
+
+	/**
+	 * Returns the power of two chunk size able to contain the header and a content of iLength bytes.
+	 */
+	private static int chunkSize(final int iLength) {
+		final int total = HEADER_SIZE + iLength;
+		if (total <= MIN_CHUNK_SIZE)
+			return MIN_CHUNK_SIZE;
+
+		final int chunkSize = Integer.highestOneBit(total);
+		return chunkSize == total ? chunkSize : chunkSize << 1;
+	}
+}
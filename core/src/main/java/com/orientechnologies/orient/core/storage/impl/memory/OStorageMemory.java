@@ -55,17 +55,25 @@ import com.orientechnologies.orient.core.tx.OTxListener;
  * <li>The name is "Memory"</li>
  * <li>Has a unique Data Segment</li>
  * </ul>
+ * Sub-classes can change where the records are kept by passing their own data segment and overriding createCluster().
+ * 
+ * @see OStorageMemoryDirect
  * 
  * @author Luca Garulli
  * 
  */
 public class OStorageMemory extends OStorageEmbedded {
-	private final ODataSegmentMemory		data							= new ODataSegmentMemory();
-	private final List<OClusterMemory>	clusters					= new ArrayList<OClusterMemory>();
-	private int													defaultClusterId	= 0;
+	private final ODataSegmentMemory	data;
+	private final List<OCluster>			clusters					= new ArrayList<OCluster>();
+	private int												defaultClusterId	= 0;
 
 	public OStorageMemory(final String iURL) {
-		super(iURL, OEngineMemory.NAME + ":" + iURL, "rw");
+		this(iURL, OEngineMemory.NAME, new ODataSegmentMemory());
+	}
+
+	protected OStorageMemory(final String iURL, final String iEngineName, final ODataSegmentMemory iData) {
+		super(iURL, iEngineName + ":" + iURL, "rw");
+		data = iData;
 		configuration = new OStorageConfiguration(this);
 	}
 
@@ -134,9 +142,12 @@ public class OStorageMemory extends OStorageEmbedded {
 			status = STATUS.CLOSING;
 
 			// CLOSE ALL THE CLUSTERS
-			for (OClusterMemory c : clusters)
+			for (OCluster c : clusters)
 				if (c != null)
-					c.close();
+					try {
+						c.close();
+					} catch (IOException e) {
+					}
 			clusters.clear();
 
 			// CLOSE THE DATA SEGMENT
@@ -171,7 +182,7 @@ public class OStorageMemory extends OStorageEmbedded {
 				}
 			}
 
-			final OClusterMemory cluster = new OClusterMemory(clusterId, iClusterName.toLowerCase());
+			final OCluster cluster = createCluster(clusterId, iClusterName.toLowerCase());
 
 			if (clusterId == clusters.size())
 				// APPEND IT
@@ -303,9 +314,14 @@ public class OStorageMemory extends OStorageEmbedded {
 						++ppos.version;
 					} else
 						--ppos.version;
+
+					cluster.updateVersion(iRid.clusterPosition, ppos.version);
 				}
 
-				data.updateRecord(ppos.dataPosition, iContent);
+				final long dataPosition = data.updateRecord(ppos.dataPosition, iContent);
+				if (dataPosition != ppos.dataPosition)
+					// THE DATA SEGMENT MOVED THE CONTENT
+					cluster.setPhysicalPosition(iRid.clusterPosition, dataPosition);
 
 				return ppos.version;
 
@@ -580,7 +596,7 @@ public class OStorageMemory extends OStorageEmbedded {
 		try {
 			size += data.getSize();
 
-			for (OClusterMemory c : clusters)
+			for (OCluster c : clusters)
 				if (c != null)
 					size += c.getSize();
 
@@ -598,7 +614,7 @@ public class OStorageMemory extends OStorageEmbedded {
 		lock.acquireSharedLock();
 		try {
 
-			if (ppos.dataPosition >= data.count())
+			if (!data.isValidPosition(ppos.dataPosition))
 				return false;
 
 		} finally {
@@ -669,8 +685,12 @@ public class OStorageMemory extends OStorageEmbedded {
 		return null;
 	}
 
+	protected OCluster createCluster(final int iClusterId, final String iClusterName) {
+		return new OClusterMemory(iClusterId, iClusterName);
+	}
+
 	public void renameCluster(final String iOldName, final String iNewName) {
-		final OClusterMemory cluster = (OClusterMemory) getClusterByName(iOldName);
+		final OCluster cluster = getClusterByName(iOldName);
 		if (cluster != null)
 			try {
 				cluster.set(com.orientechnologies.orient.core.storage.OCluster.ATTRIBUTES.NAME, iNewName);
@@ -0,0 +1,39 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.memory;
+
+import com.orientechnologies.orient.core.engine.memory.OEngineMemoryDirect;
+import com.orientechnologies.orient.core.storage.OCluster;
+
+/**
+ * Memory storage that keeps the records outside the Java heap to reduce the work of the garbage collector with big databases. The
+ * record contents are stored in direct buffers by ODataSegmentMemoryDirect and the cluster positions in primitive arrays by
+ * OClusterMemoryDirect. The behaviour, MVCC versions included, is the same of OStorageMemory.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OStorageMemoryDirect extends OStorageMemory {
+
+	public OStorageMemoryDirect(final String iURL) {
+		super(iURL, OEngineMemoryDirect.NAME, new ODataSegmentMemoryDirect());
+	}
+
+	@Override
+	protected OCluster createCluster(final int iClusterId, final String iClusterName) {
+		return new OClusterMemoryDirect(iClusterId, iClusterName);
+	}
+}
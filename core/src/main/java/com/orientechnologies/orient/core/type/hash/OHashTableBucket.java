@@ -0,0 +1,186 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.type.hash;
+
+import java.util.Arrays;
+
+import com.orientechnologies.common.util.OArrays;
+import com.orientechnologies.orient.core.exception.OSerializationException;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ORecordBytesLazy;
+import com.orientechnologies.orient.core.serialization.OMemoryStream;
+import com.orientechnologies.orient.core.serialization.OSerializableStream;
+
+/**
+ * Bucket of a hash table. Contains the entries whose hash code starts with the same <code>depth</code> bits. Keys and values are
+ * kept serialized: the keys are compared by hash code and then byte by byte, so they are never unmarshalled by the lookups. A bucket
+ * can be hollow, namely only its identity is known, until it's loaded.
+ *
+ * @author Luca Garulli
+ *
+ */
+public class OHashTableBucket implements OSerializableStream {
+	private static final long				serialVersionUID	= 1L;
+
+	protected final ORecordBytesLazy	record;
+	protected boolean									loaded;
+	protected int											depth;
+	protected int											size;
+	protected int[]										hashes;
+	protected byte[][]								keys;
+	protected byte[][]								values;
+	protected Object[]								valuesInMemory;
+
+	/**
+	 * Creates a new empty bucket.
+	 */
+	public OHashTableBucket(final int iDepth, final int iCapacity) {
+		record = new ORecordBytesLazy(this);
+		record.setIdentity(new ORecordId());
+		depth = iDepth;
+		init(iCapacity);
+		loaded = true;
+	}
+
+	/**
+	 * Creates a hollow bucket, loaded at the first access.
+	 */
+	public OHashTableBucket(final ORecordId iRID) {
+		record = new ORecordBytesLazy(this);
+		record.setIdentity(iRID);
+	}
+
+	public int indexOf(final int iHash, final byte[] iKey) {
+		for (int i = 0; i < size; ++i)
+			if (hashes[i] == iHash && Arrays.equals(keys[i], iKey))
+				return i;
+		return -1;
+	}
+
+	public void add(final int iHash, final byte[] iKey, final byte[] iValue, final Object iValueInMemory) {
+		if (size == hashes.length)
+			// OVERFLOW: ENTRIES WITH THE SAME HASH CODE CANNOT BE SPLIT
+			resize(size * 2);
+
+		hashes[size] = iHash;
+		keys[size] = iKey;
+		values[size] = iValue;
+		valuesInMemory[size] = iValueInMemory;
+		size++;
+	}
+
+	public void setValue(final int iIndex, final byte[] iValue, final Object iValueInMemory) {
+		values[iIndex] = iValue;
+		valuesInMemory[iIndex] = iValueInMemory;
+	}
+
+	/**
+	 * Removes an entry moving the last one in its place, since the entries are not ordered.
+	 */
+	public void remove(final int iIndex) {
+		size--;
+		hashes[iIndex] = hashes[size];
+		keys[iIndex] = keys[size];
+		values[iIndex] = values[size];
+		valuesInMemory[iIndex] = valuesInMemory[size];
+		keys[size] = null;
+		values[size] = null;
+		valuesInMemory[size] = null;
+	}
+
+	public void clear(final int iCapacity) {
+		init(iCapacity);
+	}
+
+	public ORecordId getIdentity() {
+		return (ORecordId) record.getIdentity();
+	}
+
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	public boolean isDirty() {
+		return record.isDirty();
+	}
+
+	public void setDirty() {
+		record.setDirty();
+	}
+
+	/**
+	 * Frees the entries leaving the bucket hollow.
+	 */
+	public void unload() {
+		loaded = false;
+		hashes = null;
+		keys = null;
+		values = null;
+		valuesInMemory = null;
+	}
+
+	public byte[] toStream() throws OSerializationException {
+		final OMemoryStream stream = new OMemoryStream();
+		stream.set(depth);
+		stream.set(size);
+		for (int i = 0; i < size; ++i) {
+			stream.set(hashes[i]);
+			stream.set(keys[i]);
+			stream.set(values[i]);
+		}
+
+		final byte[] result = stream.toByteArray();
+		record.fromStream(result);
+		return result;
+	}
+
+	public OSerializableStream fromStream(final byte[] iStream) throws OSerializationException {
+		final OMemoryStream stream = new OMemoryStream(iStream);
+		depth = stream.getAsInteger();
+		final int entries = stream.getAsInteger();
+
+		init(entries);
+		for (int i = 0; i < entries; ++i) {
+			hashes[i] = stream.getAsInteger();
+			keys[i] = stream.getAsByteArray();
+			values[i] = stream.getAsByteArray();
+		}
+		size = entries;
+		loaded = true;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "hash bucket " + record.getIdentity() + " (depth=" + depth + ", size=" + size + ")";
+	}
+
+	private void init(final int iCapacity) {
+		size = 0;
+		hashes = new int[iCapacity];
+		keys = new byte[iCapacity][];
+		values = new byte[iCapacity][];
+		valuesInMemory = new Object[iCapacity];
+	}
+
+	private void resize(final int iCapacity) {
+		final int capacity = Math.max(iCapacity, 1);
+		hashes = OArrays.copyOf(hashes, capacity);
+		keys = OArrays.copyOf(keys, capacity);
+		values = OArrays.copyOf(values, capacity);
+		valuesInMemory = OArrays.copyOf(valuesInMemory, capacity);
+	}
+}
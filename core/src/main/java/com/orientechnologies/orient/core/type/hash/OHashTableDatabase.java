@@ -0,0 +1,691 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.type.hash;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.orientechnologies.common.collection.OSimpleImmutableEntry;
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.exception.OSerializationException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ORecordBytes;
+import com.orientechnologies.orient.core.record.impl.ORecordBytesLazy;
+import com.orientechnologies.orient.core.serialization.OMemoryStream;
+import com.orientechnologies.orient.core.serialization.OSerializableStream;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerFactory;
+
+/**
+ * Persistent extendible hash table. The directory has 2^depth slots pointing to the buckets: the slot of a key is given by the
+ * highest <code>depth</code> bits of the hash code of the serialized key, so the slots of a bucket are always contiguous. When a
+ * bucket is full it's split in two and, only if its depth is the same of the directory, the directory is doubled. Buckets are never
+ * merged.<br/>
+ * The table is stored in records of the index cluster: the header, that is the identity of the table, the directory pages and the
+ * buckets. Changes are collected and saved every <code>hashTable.lazyUpdates</code> updates like for the OMVRB-Tree.
+ *
+ * @author Luca Garulli
+ *
+ * @see OGlobalConfiguration#HASHTABLE_BUCKET_SIZE
+ */
+public class OHashTableDatabase<K, V> implements OSerializableStream {
+	private static final long												serialVersionUID					= 1L;
+
+	public final static byte												CURRENT_PROTOCOL_VERSION	= 0;
+
+	// OVER THIS DEPTH THE DIRECTORY IS NOT DOUBLED ANYMORE AND THE BUCKETS OVERFLOW
+	protected static final int											MAX_DEPTH									= 24;
+	protected static final int											PAGE_SLOTS								= 1024;
+
+	protected final String													clusterName;
+	protected final ORecordBytesLazy								record;
+	protected OStreamSerializer											keySerializer;
+	protected OStreamSerializer											valueSerializer;
+	protected int																		depth;
+	protected long																	size;
+	protected int																		bucketSize;
+	protected OHashTableBucket[]										directory;
+	protected final List<ORecordBytes>							pages											= new ArrayList<ORecordBytes>();
+	protected final Set<Integer>										dirtyPages								= new HashSet<Integer>();
+	protected final Set<OHashTableBucket>						dirtyBuckets							= new LinkedHashSet<OHashTableBucket>();
+	protected final Map<OHashTableBucket, Boolean>	loadedBuckets							= new LinkedHashMap<OHashTableBucket, Boolean>(16,
+																																								0.75f, true);
+	protected int																		cachedBuckets;
+	protected int																		maxUpdatesBeforeSave;
+	protected int																		updates;
+	protected boolean																transactionRunning;
+
+	public OHashTableDatabase(final ODatabaseRecord iDatabase, final String iClusterName, final OStreamSerializer iKeySerializer,
+			final OStreamSerializer iValueSerializer) {
+		clusterName = iClusterName;
+		keySerializer = iKeySerializer;
+		valueSerializer = iValueSerializer;
+		bucketSize = OGlobalConfiguration.HASHTABLE_BUCKET_SIZE.getValueAsInteger();
+
+		record = new ORecordBytesLazy(this);
+		record.setIdentity(new ORecordId());
+		config();
+		init();
+	}
+
+	public OHashTableDatabase(final ODatabaseRecord iDatabase, final ORID iRID) {
+		clusterName = iDatabase.getClusterNameById(iRID.getClusterId());
+
+		record = new ORecordBytesLazy(this);
+		record.setIdentity(iRID.getClusterId(), iRID.getClusterPosition());
+		config();
+	}
+
+	/**
+	 * Loads the header and the directory. The buckets are loaded at the first access.
+	 */
+	public synchronized void load() {
+		record.reload();
+		fromStream(record.toStream());
+
+		// LOAD THE DIRECTORY: CONTIGUOUS SLOTS WITH THE SAME RID POINT TO THE SAME BUCKET
+		directory = new OHashTableBucket[1 << depth];
+		OHashTableBucket bucket = null;
+		int slot = 0;
+		for (final ORecordBytes page : pages) {
+			page.reload();
+			final OMemoryStream stream = new OMemoryStream(page.toStream());
+
+			final int slots = Math.min(PAGE_SLOTS, directory.length - slot);
+			for (int i = 0; i < slots; ++i) {
+				final ORecordId rid = new ORecordId().fromStream(stream.getAsByteArrayFixed(ORecordId.PERSISTENT_SIZE));
+				if (bucket == null || !bucket.getIdentity().equals(rid))
+					bucket = new OHashTableBucket(rid);
+				directory[slot++] = bucket;
+			}
+		}
+	}
+
+	public synchronized V get(final Object iKey) {
+		final byte[] key = keyToStream(iKey);
+		final int hash = hash(key);
+
+		final OHashTableBucket bucket = loadBucket(directory[slotOf(hash)]);
+		final int index = bucket.indexOf(hash, key);
+		if (index < 0)
+			return null;
+
+		return valueAt(bucket, index);
+	}
+
+	/**
+	 * Associates the value to the key, replacing the previous one if any.
+	 *
+	 * @return true if the key is new, otherwise false
+	 */
+	public synchronized boolean put(final K iKey, final V iValue) {
+		final byte[] key = keyToStream(iKey);
+		final byte[] value = valueToStream(iValue);
+		final int hash = hash(key);
+
+		try {
+			while (true) {
+				final OHashTableBucket bucket = loadBucket(directory[slotOf(hash)]);
+
+				final int index = bucket.indexOf(hash, key);
+				if (index > -1) {
+					bucket.setValue(index, value, iValue);
+					setDirty(bucket);
+					return false;
+				}
+
+				if (bucket.size < bucketSize || !isSplittable(bucket, hash)) {
+					bucket.add(hash, key, value, iValue);
+					setDirty(bucket);
+
+					size++;
+					record.setDirty();
+					return true;
+				}
+
+				split(bucket, hash);
+			}
+		} finally {
+			commitChanges();
+		}
+	}
+
+	/**
+	 * Removes the key.
+	 *
+	 * @return true if the key was found, otherwise false
+	 */
+	public synchronized boolean remove(final Object iKey) {
+		final byte[] key = keyToStream(iKey);
+		final int hash = hash(key);
+
+		final OHashTableBucket bucket = loadBucket(directory[slotOf(hash)]);
+		final int index = bucket.indexOf(hash, key);
+		if (index < 0)
+			return false;
+
+		bucket.remove(index);
+		setDirty(bucket);
+
+		size--;
+		record.setDirty();
+
+		commitChanges();
+		return true;
+	}
+
+	public synchronized long size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Removes all the entries deleting the buckets and the directory pages.
+	 */
+	public synchronized void clear() {
+		deleteContent();
+		init();
+		lazySave();
+	}
+
+	/**
+	 * Deletes the table.
+	 */
+	public synchronized void delete() {
+		deleteContent();
+		dirtyBuckets.clear();
+		dirtyPages.clear();
+		pages.clear();
+		if (record.getIdentity().isValid())
+			record.delete();
+	}
+
+	/**
+	 * Saves the changes if a transaction is running or the maximum number of updates has been reached.
+	 */
+	public synchronized int commitChanges() {
+		if (transactionRunning || maxUpdatesBeforeSave == 0 || (maxUpdatesBeforeSave > 0 && ++updates >= maxUpdatesBeforeSave)) {
+			updates = 0;
+			return lazySave();
+		}
+		return 0;
+	}
+
+	/**
+	 * Saves the changed buckets, then the changed directory pages that point to them and at last the header.
+	 *
+	 * @return The number of records saved
+	 */
+	public synchronized int lazySave() {
+		final long timer = OProfiler.getInstance().startChrono();
+		try {
+			int saved = 0;
+
+			for (final OHashTableBucket bucket : dirtyBuckets) {
+				bucket.setDirty();
+				bucket.record.save(clusterName);
+				saved++;
+			}
+			dirtyBuckets.clear();
+
+			for (final Integer page : dirtyPages) {
+				savePage(page);
+				saved++;
+			}
+			dirtyPages.clear();
+
+			if (record.isDirty() || !record.getIdentity().isValid()) {
+				record.setDirty();
+				record.save(clusterName);
+				saved++;
+			}
+
+			freeMemory();
+			return saved;
+
+		} finally {
+			OProfiler.getInstance().stopChrono("OHashTableDatabase.lazySave", timer);
+		}
+	}
+
+	/**
+	 * Frees the buckets in memory, except the changed ones.
+	 */
+	public synchronized void unload() {
+		for (final Iterator<OHashTableBucket> it = loadedBuckets.keySet().iterator(); it.hasNext();) {
+			final OHashTableBucket bucket = it.next();
+			if (!dirtyBuckets.contains(bucket)) {
+				bucket.unload();
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Change the transaction running mode.
+	 *
+	 * @param iTxRunning
+	 *          true if a transaction is running, otherwise false
+	 */
+	public synchronized void setRunningTransaction(final boolean iTxRunning) {
+		transactionRunning = iTxRunning;
+
+		if (iTxRunning) {
+			// ASSURE ALL PENDING CHANGES ARE COMMITTED BEFORE TO START A TX
+			updates = 0;
+			lazySave();
+		}
+	}
+
+	/**
+	 * Returns an iterator of the entries in no particular order. The entries are read one bucket at a time.
+	 */
+	public Iterator<Entry<K, V>> entryIterator() {
+		return new Iterator<Entry<K, V>>() {
+			private int														slot;
+			private final List<Entry<K, V>>	entries	= new ArrayList<Entry<K, V>>();
+			private int														position;
+
+			public boolean hasNext() {
+				while (position >= entries.size()) {
+					if (!fetch(slot, entries))
+						return false;
+					slot = nextSlot(slot);
+					position = 0;
+				}
+				return true;
+			}
+
+			public Entry<K, V> next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return entries.get(position++);
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException("remove");
+			}
+		};
+	}
+
+	public Iterable<K> keySet() {
+		return new Iterable<K>() {
+			public Iterator<K> iterator() {
+				final Iterator<Entry<K, V>> it = entryIterator();
+				return new Iterator<K>() {
+					public boolean hasNext() {
+						return it.hasNext();
+					}
+
+					public K next() {
+						return it.next().getKey();
+					}
+
+					public void remove() {
+						throw new UnsupportedOperationException("remove");
+					}
+				};
+			}
+		};
+	}
+
+	public ORecordBytesLazy getRecord() {
+		return record;
+	}
+
+	public OStreamSerializer getKeySerializer() {
+		return keySerializer;
+	}
+
+	public OStreamSerializer getValueSerializer() {
+		return valueSerializer;
+	}
+
+	public synchronized int getDepth() {
+		return depth;
+	}
+
+	public int getBucketSize() {
+		return bucketSize;
+	}
+
+	public synchronized int getNumberOfBucketsInCache() {
+		return loadedBuckets.size();
+	}
+
+	public int getMaxUpdatesBeforeSave() {
+		return maxUpdatesBeforeSave;
+	}
+
+	public void setMaxUpdatesBeforeSave(final int iValue) {
+		maxUpdatesBeforeSave = iValue;
+	}
+
+	public byte[] toStream() throws OSerializationException {
+		final OMemoryStream stream = new OMemoryStream();
+		stream.set(CURRENT_PROTOCOL_VERSION);
+		stream.set(depth);
+		stream.set(size);
+		stream.set(bucketSize);
+		stream.set(keySerializer.getName());
+		stream.set(valueSerializer.getName());
+
+		stream.set(pages.size());
+		for (final ORecordBytes page : pages)
+			stream.setAsFixed(page.getIdentity().toStream());
+
+		final byte[] result = stream.toByteArray();
+		record.fromStream(result);
+		return result;
+	}
+
+	public OSerializableStream fromStream(final byte[] iStream) throws OSerializationException {
+		final OMemoryStream stream = new OMemoryStream(iStream);
+
+		final byte protocolVersion = stream.getAsByte();
+		if (protocolVersion != CURRENT_PROTOCOL_VERSION)
+			throw new OSerializationException("The hash table " + record.getIdentity() + " has been created with an unsupported protocol: "
+					+ protocolVersion + "<->" + CURRENT_PROTOCOL_VERSION);
+
+		depth = stream.getAsInteger();
+		size = stream.getAsLong();
+		bucketSize = stream.getAsInteger();
+		keySerializer = OStreamSerializerFactory.get(stream.getAsString());
+		valueSerializer = OStreamSerializerFactory.get(stream.getAsString());
+
+		pages.clear();
+		final int pageCount = stream.getAsInteger();
+		for (int i = 0; i < pageCount; ++i)
+			pages.add(new ORecordBytes(new ORecordId().fromStream(stream.getAsByteArrayFixed(ORecordId.PERSISTENT_SIZE))));
+
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "hash table " + record.getIdentity() + " (size=" + size + ", depth=" + depth + ")";
+	}
+
+	protected void config() {
+		maxUpdatesBeforeSave = OGlobalConfiguration.HASHTABLE_LAZY_UPDATES.getValueAsInteger();
+		cachedBuckets = OGlobalConfiguration.HASHTABLE_CACHED_BUCKETS.getValueAsInteger();
+	}
+
+	/**
+	 * Creates an empty table with one bucket.
+	 */
+	protected void init() {
+		depth = 0;
+		size = 0;
+
+		final OHashTableBucket bucket = new OHashTableBucket(0, bucketSize);
+		directory = new OHashTableBucket[] { bucket };
+		setDirty(bucket);
+		loadedBuckets.put(bucket, Boolean.TRUE);
+
+		pages.add(new ORecordBytes(new ORecordId()));
+		dirtyPages.add(0);
+
+		record.setDirty();
+	}
+
+	/**
+	 * Splits a full bucket moving in a new bucket the entries with the next bit of the hash code set. If the bucket has the depth of
+	 * the directory, the directory is doubled first.
+	 */
+	protected void split(final OHashTableBucket iBucket, final int iHash) {
+		OProfiler.getInstance().updateCounter("OHashTableDatabase.split", 1);
+
+		if (iBucket.depth == depth)
+			doubleDirectory();
+
+		// THE SLOTS OF THE BUCKET: THE UPPER HALF WILL POINT TO THE NEW ONE
+		final int span = 1 << (depth - iBucket.depth);
+		final int first = slotOf(iHash) & ~(span - 1);
+
+		final int bit = 1 << (31 - iBucket.depth);
+		final OHashTableBucket sibling = new OHashTableBucket(iBucket.depth + 1, bucketSize);
+		for (int i = 0; i < iBucket.size;)
+			if ((iBucket.hashes[i] & bit) != 0) {
+				sibling.add(iBucket.hashes[i], iBucket.keys[i], iBucket.values[i], iBucket.valuesInMemory[i]);
+				iBucket.remove(i);
+			} else
+				i++;
+
+		iBucket.depth++;
+		setDirty(iBucket);
+		setDirty(sibling);
+		loadedBuckets.put(sibling, Boolean.TRUE);
+
+		for (int i = first + span / 2; i < first + span; ++i) {
+			directory[i] = sibling;
+			dirtyPages.add(i / PAGE_SLOTS);
+		}
+	}
+
+	protected void doubleDirectory() {
+		OProfiler.getInstance().updateCounter("OHashTableDatabase.doubleDirectory", 1);
+
+		final OHashTableBucket[] doubled = new OHashTableBucket[directory.length * 2];
+		for (int i = 0; i < doubled.length; ++i)
+			doubled[i] = directory[i >> 1];
+
+		directory = doubled;
+		depth++;
+
+		// ALL THE PAGES CHANGE
+		final int pageCount = (directory.length + PAGE_SLOTS - 1) / PAGE_SLOTS;
+		while (pages.size() < pageCount)
+			pages.add(new ORecordBytes(new ORecordId()));
+		for (int i = 0; i < pageCount; ++i)
+			dirtyPages.add(i);
+
+		record.setDirty();
+	}
+
+	/**
+	 * Tells if splitting the bucket can make room for the hash code, namely if not all the entries have the same hash code.
+	 */
+	protected boolean isSplittable(final OHashTableBucket iBucket, final int iHash) {
+		if (iBucket.depth >= MAX_DEPTH)
+			return false;
+
+		for (int i = 0; i < iBucket.size; ++i)
+			if (iBucket.hashes[i] != iHash)
+				return true;
+		return false;
+	}
+
+	protected OHashTableBucket loadBucket(final OHashTableBucket iBucket) {
+		if (iBucket.isLoaded()) {
+			// MOVE IT AS MOST RECENTLY USED
+			loadedBuckets.get(iBucket);
+			return iBucket;
+		}
+
+		OProfiler.getInstance().updateCounter("OHashTableDatabase.loadBucket", 1);
+
+		iBucket.record.reload();
+		iBucket.fromStream(iBucket.record.toStream());
+		loadedBuckets.put(iBucket, Boolean.TRUE);
+
+		freeMemory();
+		return iBucket;
+	}
+
+	/**
+	 * Unloads the least recently used buckets over the configured limit. The changed buckets are kept until saved.
+	 */
+	protected void freeMemory() {
+		if (cachedBuckets < 0 || loadedBuckets.size() <= cachedBuckets)
+			return;
+
+		for (final Iterator<OHashTableBucket> it = loadedBuckets.keySet().iterator(); it.hasNext()
+				&& loadedBuckets.size() > cachedBuckets;) {
+			final OHashTableBucket bucket = it.next();
+			if (!dirtyBuckets.contains(bucket)) {
+				bucket.unload();
+				it.remove();
+			}
+		}
+	}
+
+	protected void setDirty(final OHashTableBucket iBucket) {
+		iBucket.setDirty();
+		dirtyBuckets.add(iBucket);
+	}
+
+	@SuppressWarnings("unchecked")
+	protected V valueAt(final OHashTableBucket iBucket, final int iIndex) {
+		Object value = iBucket.valuesInMemory[iIndex];
+		if (value == null)
+			try {
+				value = valueSerializer.fromStream(iBucket.values[iIndex]);
+				iBucket.valuesInMemory[iIndex] = value;
+			} catch (IOException e) {
+				throw new OSerializationException("Cannot unmarshall the value of the hash table " + record.getIdentity(), e);
+			}
+		return (V) value;
+	}
+
+	/**
+	 * Copies the entries of the bucket pointed by a slot.
+	 *
+	 * @return false if the slot is out of the directory
+	 */
+	@SuppressWarnings("unchecked")
+	protected synchronized boolean fetch(final int iSlot, final List<Entry<K, V>> iEntries) {
+		iEntries.clear();
+		if (iSlot >= directory.length)
+			return false;
+
+		final OHashTableBucket bucket = loadBucket(directory[iSlot]);
+		try {
+			for (int i = 0; i < bucket.size; ++i)
+				iEntries.add(new OSimpleImmutableEntry<K, V>((K) keySerializer.fromStream(bucket.keys[i]), valueAt(bucket, i)));
+		} catch (IOException e) {
+			throw new OSerializationException("Cannot unmarshall the key of the hash table " + record.getIdentity(), e);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the first slot of the next bucket.
+	 */
+	protected synchronized int nextSlot(final int iSlot) {
+		if (iSlot >= directory.length)
+			return iSlot;
+
+		final OHashTableBucket bucket = directory[iSlot];
+		int slot = iSlot + 1;
+		while (slot < directory.length && directory[slot] == bucket)
+			slot++;
+		return slot;
+	}
+
+	protected int slotOf(final int iHash) {
+		return depth == 0 ? 0 : iHash >>> (32 - depth);
+	}
+
+	/**
+	 * Computes the hash code of a serialized key. Using the serialized form, the hash codes don't depend by the JVM.
+	 */
+	protected static int hash(final byte[] iKey) {
+		int h = 0;
+		for (final byte b : iKey)
+			h = 31 * h + b;
+
+		// SPREAD THE BITS: THE SLOTS ARE CHOSEN BY THE HIGHEST ONES
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	protected byte[] keyToStream(final Object iKey) {
+		try {
+			return keySerializer.toStream(iKey);
+		} catch (IOException e) {
+			throw new OSerializationException("Cannot marshall the key '" + iKey + "' of the hash table " + record.getIdentity(), e);
+		}
+	}
+
+	protected byte[] valueToStream(final V iValue) {
+		try {
+			return valueSerializer.toStream(iValue);
+		} catch (IOException e) {
+			throw new OSerializationException("Cannot marshall a value of the hash table " + record.getIdentity(), e);
+		}
+	}
+
+	private void savePage(final int iPage) {
+		final ORecordBytes page = pages.get(iPage);
+
+		final int first = iPage * PAGE_SLOTS;
+		final int slots = Math.min(PAGE_SLOTS, directory.length - first);
+		final OMemoryStream stream = new OMemoryStream(slots * ORecordId.PERSISTENT_SIZE);
+		for (int i = first; i < first + slots; ++i)
+			stream.setAsFixed(directory[i].getIdentity().toStream());
+
+		page.setDirty();
+		page.fromStream(stream.toByteArray());
+		page.save(clusterName);
+	}
+
+	/**
+	 * Deletes the buckets and the directory pages. The buckets not loaded are deleted without checking their version, since they are
+	 * changed only under the lock of the table.
+	 */
+	private void deleteContent() {
+		OHashTableBucket last = null;
+		for (final OHashTableBucket bucket : directory) {
+			if (bucket == last)
+				continue;
+			last = bucket;
+
+			if (bucket.getIdentity().isValid()) {
+				if (!bucket.isLoaded())
+					bucket.record.setVersion(-1);
+				bucket.record.delete();
+			}
+		}
+		dirtyBuckets.clear();
+		loadedBuckets.clear();
+
+		for (final ORecordBytes page : pages)
+			if (page.getIdentity().isValid())
+				page.delete();
+		pages.clear();
+		dirtyPages.clear();
+	}
+}
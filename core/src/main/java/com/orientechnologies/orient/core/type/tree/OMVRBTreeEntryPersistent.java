@@ -75,9 +75,10 @@ public class OMVRBTreeEntryPersistent<K, V> extends OMVRBTreeEntry<K, V> {
 	protected OMVRBTreeEntryDataProvider<K, V>	dataProvider;
 	protected OMVRBTreePersistent<K, V>					pTree;
 
-	protected OMVRBTreeEntryPersistent<K, V>		parent;
-	protected OMVRBTreeEntryPersistent<K, V>		left;
-	protected OMVRBTreeEntryPersistent<K, V>		right;
+	// VOLATILE BECAUSE NODES CAN BE LOADED LAZILY BY CONCURRENT SEARCHES
+	protected volatile OMVRBTreeEntryPersistent<K, V>	parent;
+	protected volatile OMVRBTreeEntryPersistent<K, V>	left;
+	protected volatile OMVRBTreeEntryPersistent<K, V>	right;
 
 	/**
 	 * Called upon unmarshalling.
@@ -365,26 +366,29 @@ public class OMVRBTreeEntryPersistent<K, V> extends OMVRBTreeEntry<K, V> {
 		if (dataProvider == null)
 			return null;
 
-		if (parent == null && dataProvider.getParent().isValid()) {
-			// System.out.println("Node " + record.getIdentity() + " is loading PARENT node " + parentRid + "...");
-
-			// LAZY LOADING OF THE PARENT NODE
-			parent = pTree.loadEntry(null, dataProvider.getParent());
-
-			checkEntryStructure();
-
-			if (parent != null) {
-				// TRY TO ASSIGN IT FOLLOWING THE RID
-				if (parent.dataProvider.getLeft().isValid() && parent.dataProvider.getLeft().equals(dataProvider.getIdentity()))
-					parent.left = this;
-				else if (parent.dataProvider.getRight().isValid() && parent.dataProvider.getRight().equals(dataProvider.getIdentity()))
-					parent.right = this;
-				else {
-					OLogManager.instance().error(this, "getParent: Cannot assign node %s to parent. Nodes parent-left=%s, parent-right=%s",
-							dataProvider.getParent(), parent.dataProvider.getLeft(), parent.dataProvider.getRight());
+		if (parent == null && dataProvider.getParent().isValid())
+			synchronized (pTree.lazyLoadLock) {
+				if (parent == null) {
+					// LAZY LOADING OF THE PARENT NODE
+					final OMVRBTreeEntryPersistent<K, V> loaded = pTree.loadEntry(null, dataProvider.getParent());
+					parent = loaded;
+
+					checkEntryStructure();
+
+					if (loaded != null) {
+						// TRY TO ASSIGN IT FOLLOWING THE RID
+						if (loaded.dataProvider.getLeft().isValid() && loaded.dataProvider.getLeft().equals(dataProvider.getIdentity()))
+							loaded.left = this;
+						else if (loaded.dataProvider.getRight().isValid() && loaded.dataProvider.getRight().equals(dataProvider.getIdentity()))
+							loaded.right = this;
+						else {
+							OLogManager.instance().error(this,
+									"getParent: Cannot assign node %s to parent. Nodes parent-left=%s, parent-right=%s", dataProvider.getParent(),
+									loaded.dataProvider.getLeft(), loaded.dataProvider.getRight());
+						}
+					}
 				}
 			}
-		}
 		return parent;
 	}
 
@@ -420,11 +424,14 @@ public class OMVRBTreeEntryPersistent<K, V> extends OMVRBTreeEntry<K, V> {
 	public OMVRBTreeEntry<K, V> getLeft() {
 		if (dataProvider == null)
 			return null;
-		if (left == null && dataProvider.getLeft().isValid()) {
-			// LAZY LOADING OF THE LEFT LEAF
-			left = pTree.loadEntry(this, dataProvider.getLeft());
-			checkEntryStructure();
-		}
+		if (left == null && dataProvider.getLeft().isValid())
+			synchronized (pTree.lazyLoadLock) {
+				if (left == null) {
+					// LAZY LOADING OF THE LEFT LEAF
+					left = pTree.loadEntry(this, dataProvider.getLeft());
+					checkEntryStructure();
+				}
+			}
 		return left;
 	}
 
@@ -449,11 +456,14 @@ public class OMVRBTreeEntryPersistent<K, V> extends OMVRBTreeEntry<K, V> {
 	public OMVRBTreeEntry<K, V> getRight() {
 		if (dataProvider == null)
 			return null;
-		if (right == null && dataProvider.getRight().isValid()) {
-			// LAZY LOADING OF THE RIGHT LEAF
-			right = pTree.loadEntry(this, dataProvider.getRight());
-			checkEntryStructure();
-		}
+		if (right == null && dataProvider.getRight().isValid())
+			synchronized (pTree.lazyLoadLock) {
+				if (right == null) {
+					// LAZY LOADING OF THE RIGHT LEAF
+					right = pTree.loadEntry(this, dataProvider.getRight());
+					checkEntryStructure();
+				}
+			}
 		return right;
 	}
 
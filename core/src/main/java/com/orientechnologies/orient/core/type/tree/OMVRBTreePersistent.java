@@ -63,6 +63,9 @@ public abstract class OMVRBTreePersistent<K, V> extends OMVRBTree<K, V> {
 
 	private static final int																	OPTIMIZE_MAX_RETRY	= 10;
 
+	// GUARDS THE LAZY LOADING OF NODES DURING CONCURRENT SEARCHES: IT'S THE ONLY CHANGE MADE BY A SEARCH TO THE TREE
+	final Object																							lazyLoadLock				= new Object();
+
 	public OMVRBTreePersistent(OMVRBTreeProvider<K, V> iProvider) {
 		super();
 		pageLoadFactor = (Float) OGlobalConfiguration.MVRBTREE_LOAD_FACTOR.getValue();
@@ -676,6 +679,16 @@ public abstract class OMVRBTreePersistent<K, V> extends OMVRBTree<K, V> {
 		throw new OLowMemoryException("OMVRBTreePersistent.put()");
 	}
 
+	/**
+	 * Loading a node adds it to the entry points, so they are read under the same lock of lazy loading.
+	 */
+	@Override
+	protected OMVRBTreeEntry<K, V> getBestEntryPointConcurrent(final K iKey) {
+		synchronized (lazyLoadLock) {
+			return getBestEntryPoint(iKey);
+		}
+	}
+
 	/**
 	 * Returns the best entry point to start the search. Searches first between entrypoints. If nothing is found "root" is always
 	 * returned.
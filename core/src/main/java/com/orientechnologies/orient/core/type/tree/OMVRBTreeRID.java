@@ -42,6 +42,9 @@ public class OMVRBTreeRID extends OMVRBTreePersistent<OIdentifiable, OIdentifiab
 	private IdentityHashMap<ORecord<?>, Object>	newItems;
 	private boolean															autoConvertToRecord	= true;
 
+	// BIG SETS KEEP THE RIDS PACKED IN PLACE OF THE TREE
+	private OMVRBTreeRIDPacked									packed;
+
 	private static final Object									NEWMAP_VALUE				= new Object();
 	private static final long										serialVersionUID		= 1L;
 
@@ -66,6 +69,7 @@ public class OMVRBTreeRID extends OMVRBTreePersistent<OIdentifiable, OIdentifiab
 	@Override
 	public OMVRBTreePersistent<OIdentifiable, OIdentifiable> load() {
 		newItems = null;
+		packed = null;
 		super.load();
 		if (root != null)
 			setSize(((OMVRBTreeRIDEntryProvider) ((OMVRBTreeEntryPersistent<OIdentifiable, OIdentifiable>) root).getProvider())
@@ -91,20 +95,35 @@ public class OMVRBTreeRID extends OMVRBTreePersistent<OIdentifiable, OIdentifiab
 		}
 
 		((OMVRBTreeRIDProvider) dataProvider).lazyUnmarshall();
+
+		if (packed != null) {
+			if (packed.add(e))
+				packedChanged();
+			return null;
+		}
+
 		return super.put(e, null);
 	}
 
 	public OIdentifiable remove(final Object o) {
 		final OIdentifiable removed;
 
-		if (hasNewItems() && newItems.containsKey(o)) {
+		final ORecord<?> newItem = getNewItem(o);
+		if (newItem != null) {
 			// REMOVE IT INSIDE NEW ITEMS MAP
 			removed = (OIdentifiable) o;
-			newItems.remove(o);
+			newItems.remove(newItem);
 			if (newItems.size() == 0)
 				// EARLY REMOVE THE MAP TO SAVE MEMORY
 				newItems = null;
 			setDirty();
+		} else if (packed != null) {
+			((OMVRBTreeRIDProvider) dataProvider).lazyUnmarshall();
+			if (packed.remove(o)) {
+				removed = (OIdentifiable) o;
+				packedChanged();
+			} else
+				removed = null;
 		} else {
 			if (containsKey(o)) {
 				removed = super.remove(o);
@@ -143,13 +162,16 @@ public class OMVRBTreeRID extends OMVRBTreePersistent<OIdentifiable, OIdentifiab
 		}
 
 		boolean modified = false;
-		final Iterator<?> e = iterator();
+		final Iterator<?> e = packed != null ? packed.iterator() : iterator();
 		while (e.hasNext()) {
 			if (!c.contains(e.next())) {
 				e.remove();
 				modified = true;
 			}
 		}
+
+		if (modified && packed != null)
+			packedChanged();
 		return modified;
 	}
 
@@ -160,7 +182,11 @@ public class OMVRBTreeRID extends OMVRBTreePersistent<OIdentifiable, OIdentifiab
 			newItems = null;
 		}
 		setDirty();
-		super.clear();
+		if (packed != null) {
+			packed.clear();
+			setSize(0);
+		} else
+			super.clear();
 		save();
 	}
 
@@ -180,7 +206,7 @@ public class OMVRBTreeRID extends OMVRBTreePersistent<OIdentifiable, OIdentifiab
 	@Override
 	public boolean isEmpty() {
 		((OMVRBTreeRIDProvider) dataProvider).lazyUnmarshall();
-		boolean empty = super.isEmpty();
+		boolean empty = packed != null ? packed.isEmpty() : super.isEmpty();
 
 		if (empty && newItems != null)
 			empty = newItems.isEmpty();
@@ -191,11 +217,11 @@ public class OMVRBTreeRID extends OMVRBTreePersistent<OIdentifiable, OIdentifiab
 	@Override
 	public boolean containsKey(final Object o) {
 		((OMVRBTreeRIDProvider) dataProvider).lazyUnmarshall();
-		boolean found = super.containsKey(o);
+		boolean found = packed != null ? packed.contains(o) : super.containsKey(o);
 
-		if (!found && hasNewItems())
+		if (!found)
 			// SEARCH INSIDE NEW ITEMS MAP
-			found = newItems.containsKey(o);
+			found = getNewItem(o) != null;
 
 		return found;
 	}
@@ -216,12 +242,16 @@ public class OMVRBTreeRID extends OMVRBTreePersistent<OIdentifiable, OIdentifiab
 	@Override
 	public Set<OIdentifiable> keySet() {
 		((OMVRBTreeRIDProvider) dataProvider).lazyUnmarshall();
+		if (packed != null)
+			return packed;
 		return super.keySet();
 	}
 
 	@Override
 	public Collection<OIdentifiable> values() {
 		((OMVRBTreeRIDProvider) dataProvider).lazyUnmarshall();
+		if (packed != null)
+			return packed;
 		return super.values();
 	}
 
@@ -306,21 +336,76 @@ public class OMVRBTreeRID extends OMVRBTreePersistent<OIdentifiable, OIdentifiab
 
 	public boolean saveAllNewItems() {
 		if (hasNewItems()) {
-			for (ORecord<?> record : newItems.keySet()) {
+			for (Iterator<ORecord<?>> it = newItems.keySet().iterator(); it.hasNext();) {
+				final ORecord<?> record = it.next();
 				if (record.getIdentity().isNew())
 					record.save();
 
-				// NEW ITEM OR NOT CONTENT IN STREAMED BUFFER
-				super.put(record.getIdentity(), null);
+				if (packed == null)
+					// NEW ITEM OR NOT CONTENT IN STREAMED BUFFER
+					super.put(record.getIdentity(), null);
+				else if (record.getIdentity().isNew())
+					// TEMPORARY RID OF THE CURRENT TRANSACTION: PACK IT ONCE COMMITTED
+					continue;
+				else if (packed.add(record.getIdentity()))
+					setSize(packed.size());
+
+				it.remove();
 			}
 
-			if (newItems != null)
-				newItems.clear();
-			newItems = null;
+			if (newItems != null && newItems.isEmpty())
+				newItems = null;
 		}
 		return true;
 	}
 
+	/**
+	 * Replaces the in-memory tree with a packed set of RIDs. Called when the embedded set becomes too big, so the tree has never
+	 * been saved as separate records.
+	 * 
+	 * @return false if the set contains temporary RIDs: it will be packed once they are committed
+	 */
+	public boolean pack() {
+		if (packed != null)
+			return true;
+
+		final OMVRBTreeRIDPacked set = new OMVRBTreeRIDPacked(super.size() * 2);
+		for (OIdentifiable item : super.keySet()) {
+			if (item.getIdentity().isNew() || !OMVRBTreeRIDPacked.isPackable(item.getIdentity()))
+				return false;
+			set.add(item);
+		}
+
+		// RELEASE THE NODES
+		packed = set;
+		super.clear();
+		setSize(packed.size());
+		return true;
+	}
+
+	public boolean isPacked() {
+		return packed != null;
+	}
+
+	/**
+	 * Returns the packed RIDs to stream, including the records added during the current transaction.
+	 */
+	public OMVRBTreeRIDPacked getPackedSet() {
+		if (!hasNewItems())
+			return packed;
+
+		final OMVRBTreeRIDPacked set = new OMVRBTreeRIDPacked(packed.size() + newItems.size());
+		set.merge(packed);
+		for (ORecord<?> record : newItems.keySet())
+			if (OMVRBTreeRIDPacked.isPackable(record.getIdentity()))
+				set.add(record);
+		return set;
+	}
+
+	public void setPackedSet(final OMVRBTreeRIDPacked iPacked) {
+		packed = iPacked;
+	}
+
 	public boolean hasNewItems() {
 		return newItems != null && !newItems.isEmpty();
 	}
@@ -337,7 +422,7 @@ public class OMVRBTreeRID extends OMVRBTreePersistent<OIdentifiable, OIdentifiab
 	@Override
 	public String toString() {
 		((OMVRBTreeRIDProvider) dataProvider).lazyUnmarshall();
-		final StringBuilder buffer = new StringBuilder(super.toString());
+		final StringBuilder buffer = new StringBuilder(packed != null ? "packed RIDs (" + packed.size() + ")" : super.toString());
 		if (hasNewItems()) {
 			buffer.append(" + new items (");
 			buffer.append(newItems.size());
@@ -362,7 +447,8 @@ public class OMVRBTreeRID extends OMVRBTreePersistent<OIdentifiable, OIdentifiab
 	protected <RET> RET setDirty() {
 		((OMVRBTreeRIDProvider) getProvider()).setDirty();
 
-		if (((OMVRBTreeRIDProvider) getProvider()).isEmbeddedStreaming())
+		if (((OMVRBTreeRIDProvider) getProvider()).isEmbeddedStreaming() || packed != null)
+			// THE CONTENT IS STREAMED WITH THE OWNER
 			setDirtyOwner();
 		else if (ODatabaseRecordThreadLocal.INSTANCE.get().getTransaction().getStatus() != OTransaction.TXSTATUS.BEGUN)
 			// SAVE IT RIGHT NOW SINCE IT'S DISCONNECTED FROM OWNER
@@ -371,6 +457,33 @@ public class OMVRBTreeRID extends OMVRBTreePersistent<OIdentifiable, OIdentifiab
 		return (RET) this;
 	}
 
+	/**
+	 * Aligns the size to the packed set after a change and notifies it.
+	 */
+	private void packedChanged() {
+		setSize(packed.size());
+		setDirty();
+	}
+
+	/**
+	 * Returns the new item, searching it also by RID when the set is packed: in this case the records saved in a transaction stay
+	 * in the new items also after the commit, until the next save.
+	 */
+	private ORecord<?> getNewItem(final Object o) {
+		if (!hasNewItems())
+			return null;
+
+		if (newItems.containsKey(o))
+			return (ORecord<?>) o;
+
+		if (packed != null && o instanceof OIdentifiable)
+			for (ORecord<?> record : newItems.keySet())
+				if (record.getIdentity().equals(((OIdentifiable) o).getIdentity()))
+					return record;
+
+		return null;
+	}
+
 	protected boolean updateSize() {
 		if (!((OMVRBTreeRIDProvider) getProvider()).isEmbeddedStreaming()) {
 			if (root != null) {
@@ -0,0 +1,300 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.type.tree;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OSerializationException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.serialization.OMemoryStream;
+
+/**
+ * Compact set of RIDs used by big sets of links in place of the MVRB-Tree. Every RID is packed in a long with the cluster id in
+ * the highest 16 bits and the cluster position in the lowest 48 bits, and the longs are kept sorted in one array. A million RIDs
+ * take 8Mb of heap and no ORecordId object: contains() is a binary search, addAll() of another packed set is a linear merge and
+ * {@link #getPacked(int)} browses the items without creating objects. ORecordId instances are created only by the iterator.<br>
+ * It's streamed as the number of items followed by the deltas between the sorted values as varints, usually 1-3 bytes per RID.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OMVRBTreeRIDPacked extends AbstractSet<OIdentifiable> {
+	private static final int	CLUSTER_SHIFT	= 48;
+	private static final long	POSITION_MASK	= (1L << CLUSTER_SHIFT) - 1;
+	private static final long	MAX_POSITION	= 1L << (CLUSTER_SHIFT - 1);
+
+	private long[]						items;
+	private int								size;
+	private int								modCount;
+
+	public OMVRBTreeRIDPacked() {
+		this(16);
+	}
+
+	public OMVRBTreeRIDPacked(final int iCapacity) {
+		items = new long[Math.max(iCapacity, 1)];
+	}
+
+	/**
+	 * Tells if the RID can be packed: temporary RIDs with negative positions can, while RIDs of records never saved cannot.
+	 */
+	public static boolean isPackable(final ORID iRID) {
+		return iRID.getClusterId() >= 0 && iRID.getClusterId() <= Short.MAX_VALUE && iRID.getClusterPosition() >= -MAX_POSITION
+				&& iRID.getClusterPosition() < MAX_POSITION;
+	}
+
+	public static long pack(final int iClusterId, final long iClusterPosition) {
+		return ((long) iClusterId << CLUSTER_SHIFT) | (iClusterPosition & POSITION_MASK);
+	}
+
+	public static int getClusterId(final long iPacked) {
+		return (int) (iPacked >>> CLUSTER_SHIFT);
+	}
+
+	public static long getClusterPosition(final long iPacked) {
+		// EXTEND THE SIGN OF THE 48 BITS
+		return (iPacked << (64 - CLUSTER_SHIFT)) >> (64 - CLUSTER_SHIFT);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the packed RID at the position, in the sort order.
+	 */
+	public long getPacked(final int iIndex) {
+		if (iIndex >= size)
+			throw new IndexOutOfBoundsException("Index " + iIndex + " out of bounds (size=" + size + ")");
+		return items[iIndex];
+	}
+
+	@Override
+	public boolean contains(final Object o) {
+		if (!(o instanceof OIdentifiable))
+			return false;
+
+		final ORID rid = ((OIdentifiable) o).getIdentity();
+		return isPackable(rid) && containsPacked(pack(rid.getClusterId(), rid.getClusterPosition()));
+	}
+
+	public boolean containsPacked(final long iPacked) {
+		return Arrays.binarySearch(items, 0, size, iPacked) >= 0;
+	}
+
+	@Override
+	public boolean add(final OIdentifiable iValue) {
+		final ORID rid = iValue.getIdentity();
+		if (!isPackable(rid))
+			throw new IllegalArgumentException("Cannot pack the RID " + rid);
+
+		return addPacked(pack(rid.getClusterId(), rid.getClusterPosition()));
+	}
+
+	public boolean addPacked(final long iPacked) {
+		final int index;
+		if (size == 0 || iPacked > items[size - 1])
+			// NEW RECORDS HAVE HIGHER POSITIONS: APPEND IT
+			index = size;
+		else {
+			final int found = Arrays.binarySearch(items, 0, size, iPacked);
+			if (found >= 0)
+				return false;
+			index = -(found + 1);
+		}
+
+		if (size == items.length) {
+			final long[] newItems = new long[items.length + (items.length >> 1) + 1];
+			System.arraycopy(items, 0, newItems, 0, size);
+			items = newItems;
+		}
+
+		if (index < size)
+			System.arraycopy(items, index, items, index + 1, size - index);
+
+		items[index] = iPacked;
+		size++;
+		modCount++;
+		return true;
+	}
+
+	@Override
+	public boolean addAll(final Collection<? extends OIdentifiable> c) {
+		if (c instanceof OMVRBTreeRIDPacked)
+			return merge((OMVRBTreeRIDPacked) c);
+		return super.addAll(c);
+	}
+
+	/**
+	 * Adds all the items of another packed set merging the two sorted arrays.
+	 */
+	public boolean merge(final OMVRBTreeRIDPacked iOther) {
+		if (iOther.size == 0)
+			return false;
+
+		final long[] merged = new long[size + iOther.size];
+		int i = 0, j = 0, k = 0;
+		while (i < size && j < iOther.size) {
+			final long a = items[i];
+			final long b = iOther.items[j];
+			if (a < b) {
+				merged[k++] = a;
+				i++;
+			} else if (a > b) {
+				merged[k++] = b;
+				j++;
+			} else {
+				merged[k++] = a;
+				i++;
+				j++;
+			}
+		}
+		while (i < size)
+			merged[k++] = items[i++];
+		while (j < iOther.size)
+			merged[k++] = iOther.items[j++];
+
+		final boolean changed = k > size;
+		items = merged;
+		size = k;
+		modCount++;
+		return changed;
+	}
+
+	@Override
+	public boolean remove(final Object o) {
+		if (!(o instanceof OIdentifiable))
+			return false;
+
+		final ORID rid = ((OIdentifiable) o).getIdentity();
+		return isPackable(rid) && removePacked(pack(rid.getClusterId(), rid.getClusterPosition()));
+	}
+
+	public boolean removePacked(final long iPacked) {
+		final int index = Arrays.binarySearch(items, 0, size, iPacked);
+		if (index < 0)
+			return false;
+
+		removeAt(index);
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		size = 0;
+		modCount++;
+	}
+
+	@Override
+	public Iterator<OIdentifiable> iterator() {
+		return new Iterator<OIdentifiable>() {
+			private int	next							= 0;
+			private int	expectedModCount	= modCount;
+
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			public OIdentifiable next() {
+				if (modCount != expectedModCount)
+					throw new ConcurrentModificationException();
+				if (next >= size)
+					throw new NoSuchElementException();
+
+				final long packed = items[next++];
+				return new ORecordId(getClusterId(packed), getClusterPosition(packed));
+			}
+
+			public void remove() {
+				if (next == 0)
+					throw new IllegalStateException();
+				if (modCount != expectedModCount)
+					throw new ConcurrentModificationException();
+
+				removeAt(--next);
+				expectedModCount = modCount;
+			}
+		};
+	}
+
+	public byte[] toStream() {
+		final OMemoryStream stream = new OMemoryStream(size * 3 + 5);
+		writeVarLong(stream, size);
+
+		long last = 0;
+		for (int i = 0; i < size; ++i) {
+			writeVarLong(stream, items[i] - last);
+			last = items[i];
+		}
+		return stream.toByteArray();
+	}
+
+	public OMVRBTreeRIDPacked fromStream(final byte[] iStream) {
+		final int[] position = new int[1];
+		final int count = (int) readVarLong(iStream, position);
+
+		if (items.length < count)
+			items = new long[count];
+
+		long last = 0;
+		for (int i = 0; i < count; ++i) {
+			last += readVarLong(iStream, position);
+			items[i] = last;
+		}
+
+		if (position[0] != iStream.length)
+			throw new OSerializationException("Invalid stream of packed RIDs: read " + position[0] + " bytes of " + iStream.length);
+
+		size = count;
+		modCount++;
+		return this;
+	}
+
+	private void removeAt(final int iIndex) {
+		if (iIndex < size - 1)
+			System.arraycopy(items, iIndex + 1, items, iIndex, size - iIndex - 1);
+		size--;
+		modCount++;
+	}
+
+	private static void writeVarLong(final OMemoryStream iOutput, long iValue) {
+		while ((iValue & ~0x7FL) != 0) {
+			iOutput.write((int) ((iValue & 0x7F) | 0x80));
+			iValue >>>= 7;
+		}
+		iOutput.write((int) iValue);
+	}
+
+	private static long readVarLong(final byte[] iInput, final int[] iPosition) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = iInput[iPosition[0]++];
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+}
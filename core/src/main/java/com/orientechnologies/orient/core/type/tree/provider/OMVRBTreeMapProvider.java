@@ -56,6 +56,14 @@ public class OMVRBTreeMapProvider<K, V> extends OMVRBTreeProviderAbstract<K, V>
 		valueSerializer = iValueSerializer;
 	}
 
+	public OStreamSerializer getKeySerializer() {
+		return keySerializer;
+	}
+
+	public OStreamSerializer getValueSerializer() {
+		return valueSerializer;
+	}
+
 	public OMVRBTreeEntryDataProvider<K, V> getEntry(final ORID iRid) {
 		return new OMVRBTreeMapEntryProvider<K, V>(this, iRid);
 	}
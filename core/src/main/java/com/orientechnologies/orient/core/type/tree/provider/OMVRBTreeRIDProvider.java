@@ -32,16 +32,19 @@ import com.orientechnologies.orient.core.serialization.serializer.string.OString
 import com.orientechnologies.orient.core.storage.OStorage;
 import com.orientechnologies.orient.core.type.tree.OMVRBTreePersistent;
 import com.orientechnologies.orient.core.type.tree.OMVRBTreeRID;
+import com.orientechnologies.orient.core.type.tree.OMVRBTreeRIDPacked;
 
 /**
  * MVRB-Tree implementation to handle a set of RID. It's serialized as embedded or external binary. Once external cannot come back
- * to the embedded mode.
+ * to the embedded mode. Sets that exceed the binary threshold are packed (see {@link OMVRBTreeRIDPacked}) and streamed as binary
+ * inside the owner, while the sets saved as external trees by previous versions are still loaded as trees.
  * 
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
  */
 public class OMVRBTreeRIDProvider extends OMVRBTreeProviderAbstract<OIdentifiable, OIdentifiable> implements
 		OStringBuilderSerializable {
 	private static final long		serialVersionUID	= 1L;
+	private static final String	FIELD_PACKED			= "packed";
 
 	private OMVRBTreeRID				tree;
 	private boolean							embeddedStreaming	= true;								// KEEP THE STREAMING MODE
@@ -151,7 +154,16 @@ public class OMVRBTreeRIDProvider extends OMVRBTreeProviderAbstract<OIdentifiabl
 				embeddedStreaming = false;
 				value = firstChar == OStringSerializerHelper.EMBEDDED_BEGIN ? value.substring(1, value.length() - 1) : value.toString();
 				fromStream(value.getBytes());
-				tree.load();
+
+				final byte[] packed = ((ODocument) record).field(FIELD_PACKED, OType.BINARY);
+				if (packed != null) {
+					final OMVRBTreeRIDPacked set = new OMVRBTreeRIDPacked().fromStream(packed);
+					tree.setPackedSet(set);
+					// SET THE SIZE WITHOUT MARKING THE SET AS DIRTY: THE STREAMED BUFFER IS STILL VALID
+					size = set.size();
+					((ODocument) record).removeField(FIELD_PACKED);
+				} else
+					tree.load();
 			}
 		} finally {
 			marshalling = false;
@@ -178,8 +190,13 @@ public class OMVRBTreeRIDProvider extends OMVRBTreeProviderAbstract<OIdentifiabl
 	}
 
 	public ODocument toDocument() {
-		// SERIALIZE AS LINK TO THE TREE STRUCTURE
 		((ODocument) record).setClassName("ORIDs");
+
+		if (tree.isPacked())
+			// SERIALIZE THE SORTED RIDS AS DELTAS
+			return ((ODocument) record).field(FIELD_PACKED, tree.getPackedSet().toStream(), OType.BINARY);
+
+		// SERIALIZE AS LINK TO THE TREE STRUCTURE
 		return ((ODocument) record).field("root", root != null ? root : null);
 	}
 
@@ -191,8 +208,8 @@ public class OMVRBTreeRIDProvider extends OMVRBTreeProviderAbstract<OIdentifiabl
 	public boolean isEmbeddedStreaming() {
 		if (embeddedStreaming) {
 			final int binaryThreshold = OGlobalConfiguration.MVRBTREE_RID_BINARY_THRESHOLD.getValueAsInteger();
-			if (binaryThreshold > 0 && size > binaryThreshold) {
-				// CHANGE TO EXTERNAL BINARY
+			if (binaryThreshold > 0 && size > binaryThreshold && tree.pack()) {
+				// CHANGE TO PACKED BINARY
 				tree.setDirtyOwner();
 				embeddedStreaming = false;
 			}
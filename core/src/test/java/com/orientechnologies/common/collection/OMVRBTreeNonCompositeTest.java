@@ -4,9 +4,14 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+
 @Test
 public class OMVRBTreeNonCompositeTest {
 	protected OMVRBTree<Double, Double>	tree;
@@ -29,6 +34,86 @@ public class OMVRBTreeNonCompositeTest {
 		assertNull(tree.get(10.0));
 	}
 
+	@Test
+	public void testGetConcurrent() {
+		for (double i = 1; i < 10; i++)
+			assertEquals(tree.getConcurrent(i), i);
+
+		assertNull(tree.getConcurrent(0.5));
+		assertNull(tree.getConcurrent(4.5));
+		assertNull(tree.getConcurrent(10.0));
+	}
+
+	@Test
+	public void testGetConcurrentMultipleThreads() throws Exception {
+		final Thread[] threads = new Thread[4];
+		final AtomicInteger errors = new AtomicInteger();
+
+		// PERSISTENT TREES LOAD THE NODES THROUGH THE DATABASE OF THE CURRENT THREAD
+		final ODatabaseRecord db = ODatabaseRecordThreadLocal.INSTANCE.check() ? ODatabaseRecordThreadLocal.INSTANCE.get() : null;
+
+		for (int t = 0; t < threads.length; ++t) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					if (db != null)
+						ODatabaseRecordThreadLocal.INSTANCE.set(db);
+
+					try {
+						for (int k = 0; k < 1000; ++k)
+							for (double i = 1; i < 10; i++)
+								if (!Double.valueOf(i).equals(tree.getConcurrent(i)))
+									errors.incrementAndGet();
+					} catch (Throwable e) {
+						e.printStackTrace();
+						errors.incrementAndGet();
+					}
+				}
+			};
+			threads[t].start();
+		}
+
+		for (Thread t : threads)
+			t.join();
+
+		assertEquals(errors.get(), 0);
+	}
+
+	@Test
+	public void testSequentialAppendKeepsNodesFull() {
+		for (double i = 10; i < 100; i++)
+			tree.put(i, i);
+
+		// THE KEYS APPENDED AFTER THE LAST ONE START A NEW NODE: ALL THE NODES BUT THE LAST ARE FULL
+		int nodes = 0;
+		for (OMVRBTreeEntry<Double, Double> node = tree.getFirstEntry(); node != null; node = OMVRBTree.successor(node)) {
+			if (OMVRBTree.successor(node) != null)
+				assertEquals(node.getSize(), node.getPageSize());
+			++nodes;
+		}
+		assertEquals(nodes, 25);
+
+		for (double i = 1; i < 100; i++)
+			assertEquals(tree.get(i), i);
+	}
+
+	@Test
+	public void testInsertInFullNodeSplitsInHalf() {
+		// THE FIRST NODE [1-4] IS FULL AND IS NOT THE LAST ONE
+		tree.put(2.5, 2.5);
+
+		final OMVRBTreeEntry<Double, Double> first = tree.getFirstEntry();
+		assertTrue(first.getSize() < first.getPageSize());
+		assertTrue(OMVRBTree.successor(first).getSize() < first.getPageSize());
+		assertEquals(OMVRBTree.successor(OMVRBTree.successor(first)).getFirstKey(), 5.0);
+
+		final double[] keys = { 1, 2, 2.5, 3, 4, 5, 6, 7, 8, 9 };
+		int i = 0;
+		for (Double key : tree.keySet())
+			assertEquals(key, keys[i++]);
+		assertEquals(i, keys.length);
+	}
+
 	@Test
 	public void testSubMapInclusive() {
 		final ONavigableMap<Double, Double> navigableMap = tree.subMap(2.0, true, 7.0, true);
@@ -143,6 +228,22 @@ public class OMVRBTreeNonCompositeTest {
 		assertEquals(entry.getKey(), 1.0);
 	}
 
+	@Test
+	public void testGetCeilingEntryBetweenNodes() {
+		// THE KEYS ARE APPENDED IN ORDER: THE NODES ARE [1-4] [5-8] [9]
+		OMVRBTreeEntry<Double, Double> entry = tree.getCeilingEntry(4.5, OMVRBTree.PartialSearchMode.NONE);
+		assertEquals(entry.getKey(), 5.0);
+
+		entry = tree.getCeilingEntry(8.5, OMVRBTree.PartialSearchMode.NONE);
+		assertEquals(entry.getKey(), 9.0);
+
+		entry = tree.getCeilingEntry(8.5, OMVRBTree.PartialSearchMode.HIGHEST_BOUNDARY);
+		assertEquals(entry.getKey(), 9.0);
+
+		entry = tree.getCeilingEntry(9.5, OMVRBTree.PartialSearchMode.NONE);
+		assertNull(entry);
+	}
+
 	@Test
 	public void testGetFloorEntryKeyExist() {
 		OMVRBTreeEntry<Double, Double> entry = tree.getFloorEntry(4.0, OMVRBTree.PartialSearchMode.NONE);
@@ -182,6 +283,24 @@ public class OMVRBTreeNonCompositeTest {
 		assertEquals(entry.getKey(), 5.0);
 	}
 
+	@Test
+	public void testHigherEntryBetweenNodes() {
+		// THE KEYS ARE APPENDED IN ORDER: THE NODES ARE [1-4] [5-8] [9]
+		OMVRBTreeEntry<Double, Double> entry = tree.getHigherEntry(4.0);
+		assertEquals(entry.getKey(), 5.0);
+
+		entry = tree.getHigherEntry(4.5);
+		assertEquals(entry.getKey(), 5.0);
+
+		entry = tree.getHigherEntry(8.5);
+		assertEquals(entry.getKey(), 9.0);
+
+		entry = tree.getHigherEntry(8.0);
+		assertEquals(entry.getKey(), 9.0);
+
+		assertNull(tree.getHigherEntry(9.0));
+	}
+
 	@Test
 	public void testHigherEntryNullResult() {
 		OMVRBTreeEntry<Double, Double> entry = tree.getHigherEntry(12.0);
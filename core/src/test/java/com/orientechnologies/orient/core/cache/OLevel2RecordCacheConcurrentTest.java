@@ -0,0 +1,81 @@
+package com.orientechnologies.orient.core.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+@Test
+public class OLevel2RecordCacheConcurrentTest {
+	private ODatabaseDocumentTx	database;
+	private List<ODocument>			records;
+
+	@BeforeClass
+	public void beforeClass() {
+		database = new ODatabaseDocumentTx("memory:level2cachetest").create();
+
+		records = new ArrayList<ODocument>();
+		for (int i = 0; i < 100; ++i)
+			records.add((ODocument) new ODocument(database).field("id", i).save());
+	}
+
+	@AfterClass
+	public void afterClass() {
+		database.delete();
+	}
+
+	public void testRetrieve() {
+		final OLevel2RecordCacheConcurrent cache = new OLevel2RecordCacheConcurrent(database.getStorage());
+
+		for (ODocument record : records)
+			cache.updateRecord(record);
+
+		Assert.assertEquals(cache.getSize(), records.size());
+
+		for (ODocument record : records) {
+			Assert.assertTrue(cache.existsRecord(record.getIdentity()));
+			Assert.assertEquals(((ODocument) cache.retrieveRecord(record.getIdentity())).field("id"), record.field("id"));
+		}
+
+		// DEFAULT STRATEGY POPS THE RECORDS
+		Assert.assertEquals(cache.getSize(), 0);
+		Assert.assertNull(cache.retrieveRecord(records.get(0).getIdentity()));
+
+		Assert.assertEquals(cache.getHits(), records.size());
+		Assert.assertEquals(cache.getMisses(), 1);
+		Assert.assertEquals(cache.getMemory(), 0);
+	}
+
+	public void testMaxSize() {
+		final OLevel2RecordCacheConcurrent cache = new OLevel2RecordCacheConcurrent(database.getStorage());
+		cache.setMaxSize(32);
+
+		for (ODocument record : records)
+			cache.updateRecord(record);
+
+		Assert.assertTrue(cache.getSize() <= 32);
+		Assert.assertEquals(cache.getEvictions(), records.size() - cache.getSize());
+	}
+
+	public void testMaxMemory() {
+		final OLevel2RecordCacheConcurrent cache = new OLevel2RecordCacheConcurrent(database.getStorage());
+		cache.setMaxMemory(4096);
+
+		for (ODocument record : records)
+			cache.updateRecord(record);
+
+		Assert.assertTrue(cache.getMemory() <= 4096);
+		Assert.assertTrue(cache.getSize() < records.size());
+		Assert.assertEquals(cache.getEvictions(), records.size() - cache.getSize());
+
+		cache.clear();
+		Assert.assertEquals(cache.getSize(), 0);
+		Assert.assertEquals(cache.getMemory(), 0);
+	}
+}
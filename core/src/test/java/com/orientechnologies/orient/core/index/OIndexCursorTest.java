@@ -0,0 +1,126 @@
+package com.orientechnologies.orient.core.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.collection.OCompositeKey;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+@Test
+public class OIndexCursorTest {
+	private ODatabaseDocumentTx	database;
+	private OIndex<?>						index;
+	private OIndex<?>						compositeIndex;
+	private int									prefetch;
+
+	@BeforeClass
+	public void beforeClass() {
+		prefetch = OGlobalConfiguration.MVRBTREE_CURSOR_PREFETCH.getValueAsInteger();
+		// FORCE MANY FETCHES
+		OGlobalConfiguration.MVRBTREE_CURSOR_PREFETCH.setValue(3);
+
+		database = new ODatabaseDocumentTx("memory:indexcursortest").create();
+
+		final OClass cls = database.getMetadata().getSchema().createClass("CursorTest");
+		cls.createProperty("value", OType.INTEGER);
+		cls.createProperty("group", OType.INTEGER);
+		index = cls.createIndex("CursorTest.value", OClass.INDEX_TYPE.NOTUNIQUE, "value");
+		compositeIndex = cls.createIndex("CursorTest.groupValue", OClass.INDEX_TYPE.UNIQUE, "group", "value");
+
+		// TWO RECORDS PER KEY
+		for (int i = 0; i < 20; ++i)
+			new ODocument(database, "CursorTest").field("value", i / 2).field("group", i % 2).save();
+	}
+
+	@AfterClass
+	public void afterClass() {
+		database.close();
+		OGlobalConfiguration.MVRBTREE_CURSOR_PREFETCH.setValue(prefetch);
+	}
+
+	public void testAscendingInclusive() {
+		final List<Object> keys = browse(index.cursor(2, true, 5, true, true));
+		Assert.assertEquals(keys.toString(), "[2, 2, 3, 3, 4, 4, 5, 5]");
+	}
+
+	public void testAscendingExclusive() {
+		final List<Object> keys = browse(index.cursor(2, false, 5, false, true));
+		Assert.assertEquals(keys.toString(), "[3, 3, 4, 4]");
+	}
+
+	public void testDescending() {
+		final List<Object> keys = browse(index.cursor(null, true, 7, false, false));
+		Assert.assertEquals(keys.toString(), "[6, 6, 5, 5, 4, 4, 3, 3, 2, 2, 1, 1, 0, 0]");
+
+		Assert.assertEquals(browse(index.cursor(7, true, null, true, false)).toString(), "[9, 9, 8, 8, 7, 7]");
+	}
+
+	public void testUnbounded() {
+		Assert.assertEquals(browse(index.cursor(null, true, null, true, true)).size(), 20);
+		Assert.assertEquals(browse(index.cursor(8, true, null, true, true)).toString(), "[8, 8, 9, 9]");
+		Assert.assertTrue(browse(index.cursor(10, true, null, true, true)).isEmpty());
+	}
+
+	public void testResume() {
+		final OIndexCursor cursor = index.cursor(null, true, null, true, true);
+		for (int i = 0; i < 4; ++i)
+			cursor.next();
+		Assert.assertEquals(cursor.getLastKey(), 1);
+
+		final List<Object> keys = browse(index.cursor(cursor.getLastKey(), false, 3, true, true));
+		Assert.assertEquals(keys.toString(), "[2, 2, 3, 3]");
+	}
+
+	public void testPartialCompositeKey() {
+		final List<Object> keys = browse(compositeIndex.cursor(new OCompositeKey(1), true, new OCompositeKey(1), true, true));
+		Assert.assertEquals(keys.size(), 10);
+		for (Object key : keys)
+			Assert.assertEquals(((OCompositeKey) key).getKeys().get(0), 1);
+
+		Assert.assertTrue(browse(compositeIndex.cursor(new OCompositeKey(0), false, new OCompositeKey(1), false, true)).isEmpty());
+	}
+
+	public void testRemote() {
+		// THE REMOTE INDEX EXECUTES THE QUERIES AGAINST THE DATABASE OF THE CURRENT THREAD
+		final OIndex<?> remote = new OIndexRemoteMultiValue(index.getName(), index.getType(), index.getIdentity(),
+				index.getDefinition(), index.getConfiguration());
+
+		Assert.assertEquals(browse(remote.cursor(2, true, 5, true, true)).toString(), "[2, 2, 3, 3, 4, 4, 5, 5]");
+		Assert.assertEquals(browse(remote.cursor(2, false, 5, false, true)).toString(), "[3, 3, 4, 4]");
+		Assert.assertEquals(browse(remote.cursor(null, true, 3, false, false)).toString(), "[2, 2, 1, 1, 0, 0]");
+		Assert.assertEquals(browse(remote.cursor(8, true, null, true, true)).toString(), "[8, 8, 9, 9]");
+		Assert.assertEquals(browse(remote.cursor(null, true, null, true, true)).size(), 20);
+		Assert.assertTrue(browse(remote.cursor(10, true, null, true, true)).isEmpty());
+
+		final OIndexCursor cursor = remote.cursor(null, true, null, true, true);
+		Assert.assertNull(cursor.getLastKey());
+		for (int i = 0; i < 4; ++i)
+			cursor.next();
+		Assert.assertEquals(cursor.getLastKey(), 1);
+
+		final OIndex<?> compositeRemote = new OIndexRemoteOneValue(compositeIndex.getName(), compositeIndex.getType(),
+				compositeIndex.getIdentity(), compositeIndex.getDefinition(), compositeIndex.getConfiguration());
+		Assert.assertEquals(browse(compositeRemote.cursor(new OCompositeKey(1), true, new OCompositeKey(1), true, true)).size(), 10);
+		Assert.assertTrue(browse(compositeRemote.cursor(new OCompositeKey(0), false, new OCompositeKey(1), false, true)).isEmpty());
+	}
+
+	private List<Object> browse(final OIndexCursor iCursor) {
+		final List<Object> keys = new ArrayList<Object>();
+		for (Entry<Object, OIdentifiable> entry : iCursor) {
+			Assert.assertNotNull(entry.getValue());
+			keys.add(entry.getKey());
+		}
+		return keys;
+	}
+}
@@ -0,0 +1,51 @@
+package com.orientechnologies.orient.core.index;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerLiteral;
+
+@Test
+public class OIndexEntrySorterTest {
+
+	public void testInMemory() throws Exception {
+		checkSorted(1000, 10000);
+	}
+
+	public void testMergeOfRuns() throws Exception {
+		// FORCE MANY TEMPORARY FILES
+		checkSorted(10000, 777);
+	}
+
+	private void checkSorted(final int iEntries, final int iBufferSize) throws Exception {
+		final OIndexEntrySorter sorter = new OIndexEntrySorter(OStreamSerializerLiteral.INSTANCE, iBufferSize);
+		try {
+			final Random random = new Random(7);
+			for (int i = 0; i < iEntries; ++i)
+				sorter.add("k" + random.nextInt(iEntries / 4), new ORecordId(1 + random.nextInt(3), i));
+
+			Assert.assertEquals(sorter.getEntries(), iEntries);
+
+			int count = 0;
+			Entry<Object, ORID> prev = null;
+			for (Iterator<Entry<Object, ORID>> it = sorter.iterator(); it.hasNext();) {
+				final Entry<Object, ORID> entry = it.next();
+				if (prev != null) {
+					final int cmp = ((String) prev.getKey()).compareTo((String) entry.getKey());
+					Assert.assertTrue(cmp < 0 || cmp == 0 && prev.getValue().compareTo(entry.getValue()) < 0);
+				}
+				prev = entry;
+				count++;
+			}
+			Assert.assertEquals(count, iEntries);
+		} finally {
+			sorter.close();
+		}
+	}
+}
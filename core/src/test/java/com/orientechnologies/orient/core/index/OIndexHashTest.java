@@ -0,0 +1,201 @@
+package com.orientechnologies.orient.core.index;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class OIndexHashTest {
+	private static final int		RECORDS	= 2000;
+	private static final int		KEYS		= 100;
+
+	private String							url;
+	private ODatabaseDocumentTx	database;
+	private int									bucketSize;
+	private boolean							keepOpen;
+
+	@BeforeClass
+	public void beforeClass() {
+		bucketSize = OGlobalConfiguration.HASHTABLE_BUCKET_SIZE.getValueAsInteger();
+		keepOpen = OGlobalConfiguration.STORAGE_KEEP_OPEN.getValueAsBoolean();
+		// FORCE MANY SPLITS OF THE BUCKETS AND THE DIRECTORY
+		OGlobalConfiguration.HASHTABLE_BUCKET_SIZE.setValue(8);
+		OGlobalConfiguration.STORAGE_KEEP_OPEN.setValue(false);
+
+		final String path = System.getProperty("java.io.tmpdir") + "/hashindextest";
+		url = "local:" + path;
+		database = new ODatabaseDocumentTx(url);
+		if (new File(path).exists() && database.exists())
+			database.open("admin", "admin").delete();
+		database = new ODatabaseDocumentTx(url).create();
+
+		final OClass cls = database.getMetadata().getSchema().createClass("HashTest");
+		cls.createProperty("id", OType.INTEGER);
+		cls.createProperty("group", OType.INTEGER);
+		cls.createProperty("name", OType.STRING);
+
+		for (int i = 0; i < RECORDS; ++i)
+			new ODocument(database, "HashTest").field("id", i).field("group", i % KEYS).field("name", "name" + i).save();
+
+		cls.createIndex("HashTest.id", OClass.INDEX_TYPE.UNIQUE_HASH, "id");
+		cls.createIndex("HashTest.group", OClass.INDEX_TYPE.NOTUNIQUE_HASH, "group");
+		cls.createIndex("HashTest.groupName", OClass.INDEX_TYPE.UNIQUE_HASH, "group", "name");
+	}
+
+	@AfterClass
+	public void afterClass() {
+		database.delete();
+		OGlobalConfiguration.HASHTABLE_BUCKET_SIZE.setValue(bucketSize);
+		OGlobalConfiguration.STORAGE_KEEP_OPEN.setValue(keepOpen);
+	}
+
+	public void testBuild() {
+		final OIndex<?> unique = database.getMetadata().getIndexManager().getIndex("HashTest.id");
+		Assert.assertEquals(unique.getType(), OClass.INDEX_TYPE.UNIQUE_HASH.toString());
+		Assert.assertEquals(unique.getSize(), RECORDS);
+		Assert.assertTrue(((OIndexHashAbstract<?>) unique.getInternal()).map.getDepth() > 4);
+
+		final OIndex<?> notUnique = database.getMetadata().getIndexManager().getIndex("HashTest.group");
+		Assert.assertEquals(notUnique.getSize(), KEYS);
+
+		checkIndexes();
+	}
+
+	@Test(dependsOnMethods = "testBuild")
+	public void testQueries() {
+		List<ODocument> result = database.query(new OSQLSynchQuery<ODocument>("select from HashTest where id = 1234"));
+		Assert.assertEquals(result.size(), 1);
+		Assert.assertEquals(result.get(0).field("name"), "name1234");
+
+		result = database.query(new OSQLSynchQuery<ODocument>("select from HashTest where id in [3, 5, 7, " + RECORDS + "]"));
+		Assert.assertEquals(result.size(), 3);
+
+		result = database.query(new OSQLSynchQuery<ODocument>("select from HashTest where group = 12"));
+		Assert.assertEquals(result.size(), RECORDS / KEYS);
+
+		result = database.query(new OSQLSynchQuery<ODocument>("select from HashTest where group = 12 and name = 'name112'"));
+		Assert.assertEquals(result.size(), 1);
+
+		// RANGES ARE NOT SUPPORTED BY THE INDEX: THE CLASS IS SCANNED
+		result = database.query(new OSQLSynchQuery<ODocument>("select from HashTest where id < 10"));
+		Assert.assertEquals(result.size(), 10);
+
+		// THE RANGES OF THE API SCAN THE WHOLE TABLE
+		final OIndex<?> unique = database.getMetadata().getIndexManager().getIndex("HashTest.id");
+		Assert.assertEquals(unique.getValuesMinor(10, false).size(), 10);
+		Assert.assertEquals(unique.getValuesBetween(5, true, 15, false).size(), 10);
+		Assert.assertEquals(unique.getEntriesMajor(RECORDS - 5, false, 3).size(), 3);
+
+		final OIndexCursor cursor = unique.cursor(5, true, 7, true, false);
+		Assert.assertEquals(cursor.next().getKey(), 7);
+		Assert.assertEquals(cursor.next().getKey(), 6);
+		Assert.assertEquals(cursor.next().getKey(), 5);
+		Assert.assertFalse(cursor.hasNext());
+		Assert.assertEquals(cursor.getLastKey(), 5);
+
+		Assert.assertEquals(database.getMetadata().getIndexManager().getIndex("HashTest.group").getValuesBetween(3, 4).size(),
+				2 * RECORDS / KEYS);
+	}
+
+	@Test(dependsOnMethods = "testQueries")
+	public void testIndexQueries() {
+		List<ODocument> result = database.query(new OSQLSynchQuery<ODocument>("select from index:HashTest.id where key = 1234"));
+		Assert.assertEquals(result.size(), 1);
+
+		result = database.query(new OSQLSynchQuery<ODocument>("select from index:HashTest.groupName where key = [12, 'name112']"));
+		Assert.assertEquals(result.size(), 1);
+
+		try {
+			database.query(new OSQLSynchQuery<ODocument>("select from index:HashTest.id where key < 10"));
+			Assert.fail();
+		} catch (OCommandExecutionException e) {
+		}
+
+		try {
+			database.query(new OSQLSynchQuery<ODocument>("select from index:HashTest.groupName where key = 12"));
+			Assert.fail();
+		} catch (OCommandExecutionException e) {
+		}
+	}
+
+	@Test(dependsOnMethods = "testIndexQueries")
+	public void testUniqueViolation() {
+		try {
+			new ODocument(database, "HashTest").field("id", 5).field("group", -1).field("name", "duplicated").save();
+			Assert.fail();
+		} catch (OIndexException e) {
+		}
+
+		Assert.assertEquals(database.getMetadata().getIndexManager().getIndex("HashTest.id").getSize(), RECORDS);
+	}
+
+	@Test(dependsOnMethods = "testUniqueViolation")
+	public void testUpdateAndDelete() {
+		final List<ODocument> result = database.query(new OSQLSynchQuery<ODocument>("select from HashTest where id = 10"));
+		final ODocument doc = result.get(0);
+		doc.field("id", RECORDS).field("group", KEYS).save();
+
+		final OIndex<?> unique = database.getMetadata().getIndexManager().getIndex("HashTest.id");
+		final OIndex<?> notUnique = database.getMetadata().getIndexManager().getIndex("HashTest.group");
+		Assert.assertNull(unique.get(10));
+		Assert.assertEquals(unique.get(RECORDS), doc.getIdentity());
+		Assert.assertEquals(((Collection<?>) notUnique.get(10)).size(), RECORDS / KEYS - 1);
+		Assert.assertEquals(((Collection<?>) notUnique.get(KEYS)).size(), 1);
+
+		doc.delete();
+		Assert.assertNull(unique.get(RECORDS));
+		Assert.assertTrue(((Collection<?>) notUnique.get(KEYS)).isEmpty());
+		Assert.assertEquals(notUnique.getSize(), KEYS);
+
+		// RESTORE THE DELETED RECORD
+		new ODocument(database, "HashTest").field("id", 10).field("group", 10).field("name", "name10").save();
+		checkIndexes();
+	}
+
+	@Test(dependsOnMethods = "testUpdateAndDelete")
+	public void testReopen() {
+		database.close();
+		database = new ODatabaseDocumentTx(url).open("admin", "admin");
+
+		checkIndexes();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void checkIndexes() {
+		final OIndex<OIdentifiable> unique = (OIndex<OIdentifiable>) database.getMetadata().getIndexManager().getIndex("HashTest.id");
+		final OIndex<Set<OIdentifiable>> notUnique = (OIndex<Set<OIdentifiable>>) database.getMetadata().getIndexManager()
+				.getIndex("HashTest.group");
+
+		Assert.assertEquals(unique.getSize(), RECORDS);
+		Assert.assertEquals(notUnique.getSize(), KEYS);
+
+		for (int i = 0; i < RECORDS; ++i) {
+			final OIdentifiable rid = unique.get(i);
+			Assert.assertNotNull(rid, "Key " + i + " not found");
+			Assert.assertEquals(((ODocument) rid.getRecord()).field("id"), i);
+		}
+
+		for (int i = 0; i < KEYS; ++i)
+			Assert.assertEquals(notUnique.get(i).size(), RECORDS / KEYS);
+
+		Assert.assertNull(unique.get(-1));
+		Assert.assertTrue(notUnique.get(-1).isEmpty());
+		Assert.assertEquals(unique.getValues(Arrays.asList(1, 2, -1)).size(), 2);
+	}
+}
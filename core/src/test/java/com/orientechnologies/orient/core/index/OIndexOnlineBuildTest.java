@@ -0,0 +1,191 @@
+package com.orientechnologies.orient.core.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.listener.OProgressListener;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+@Test
+public class OIndexOnlineBuildTest {
+	private static final String	URL		= "memory:indexonlinebuildtest";
+	private static final int		KEYS	= 100;
+
+	private ODatabaseDocumentTx	database;
+	private OClass							cls;
+	private boolean							onlineBuild;
+	private int									sortBuffer;
+
+	@BeforeClass
+	public void beforeClass() {
+		onlineBuild = OGlobalConfiguration.INDEX_ONLINE_BUILD.getValueAsBoolean();
+		sortBuffer = OGlobalConfiguration.INDEX_REBUILD_SORT_BUFFER.getValueAsInteger();
+		OGlobalConfiguration.INDEX_ONLINE_BUILD.setValue(true);
+		// FORCE THE MERGE OF TEMPORARY FILES
+		OGlobalConfiguration.INDEX_REBUILD_SORT_BUFFER.setValue(1000);
+
+		database = new ODatabaseDocumentTx(URL).create();
+
+		cls = database.getMetadata().getSchema().createClass("OnlineTest");
+		cls.createProperty("value", OType.INTEGER);
+
+		for (int i = 0; i < 5000; ++i)
+			new ODocument(database, "OnlineTest").field("value", i % KEYS).save();
+	}
+
+	@AfterClass
+	public void afterClass() {
+		database.close();
+		OGlobalConfiguration.INDEX_ONLINE_BUILD.setValue(onlineBuild);
+		OGlobalConfiguration.INDEX_REBUILD_SORT_BUFFER.setValue(sortBuffer);
+	}
+
+	public void testCreateWithConcurrentWrites() throws Exception {
+		final OIndex<?> index = writeWhile(new Runnable() {
+			public void run() {
+				cls.createIndex("OnlineTest.value", OClass.INDEX_TYPE.NOTUNIQUE, "value");
+			}
+		});
+
+		Assert.assertFalse(index.isRebuilding());
+		checkIndex(index);
+	}
+
+	@Test(dependsOnMethods = "testCreateWithConcurrentWrites")
+	public void testRebuildWithConcurrentWrites() throws Exception {
+		final OIndex<?> index = writeWhile(new Runnable() {
+			public void run() {
+				database.getMetadata().getIndexManager().getIndex("OnlineTest.value").rebuild();
+			}
+		});
+
+		Assert.assertFalse(index.isRebuilding());
+		checkIndex(index);
+	}
+
+	@Test(dependsOnMethods = "testRebuildWithConcurrentWrites")
+	public void testRebuildCollectionWithChangedRecord() {
+		final OClass tagsClass = database.getMetadata().getSchema().createClass("OnlineTags");
+		tagsClass.createProperty("tags", OType.EMBEDDEDSET, OType.STRING);
+
+		final List<ORID> rids = new ArrayList<ORID>();
+		for (int i = 0; i < 10; ++i) {
+			final Set<String> tags = new HashSet<String>();
+			tags.add("a" + i);
+			tags.add("b" + i);
+			rids.add(new ODocument(database, "OnlineTags").field("tags", tags).save().getIdentity().copy());
+		}
+
+		final OIndex<?> index = tagsClass.createIndex("OnlineTags.tags", OClass.INDEX_TYPE.NOTUNIQUE, "tags");
+
+		// ADD A TAG TO THE FIRST RECORD WHEN IT HAS ALREADY BEEN COLLECTED: ITS OTHER ENTRIES MUST BE KEPT
+		index.rebuild(new OProgressListener() {
+			public void onBegin(final Object iTask, final long iTotal) {
+			}
+
+			public boolean onProgress(final Object iTask, final long iCounter, final float iPercent) {
+				if (iCounter == 1) {
+					final ODocument doc = database.load(rids.get(0));
+					final Set<String> tags = new HashSet<String>(doc.<Set<String>> field("tags"));
+					tags.add("c0");
+					doc.field("tags", tags).save();
+				}
+				return true;
+			}
+
+			public void onCompletition(final Object iTask, final boolean iSucceed) {
+			}
+		});
+
+		Assert.assertFalse(index.isRebuilding());
+		for (String key : new String[] { "a0", "b0", "c0" })
+			Assert.assertEquals(((Collection<?>) index.get(key)).size(), 1, "Key " + key);
+
+		for (int i = 1; i < 10; ++i) {
+			Assert.assertEquals(((Collection<?>) index.get("a" + i)).size(), 1, "Key a" + i);
+			Assert.assertEquals(((Collection<?>) index.get("b" + i)).size(), 1, "Key b" + i);
+		}
+	}
+
+	/**
+	 * Creates, updates and deletes records from another database instance while the build runs.
+	 */
+	private OIndex<?> writeWhile(final Runnable iBuild) throws Exception {
+		final AtomicBoolean stop = new AtomicBoolean();
+		final AtomicReference<Exception> error = new AtomicReference<Exception>();
+
+		final Thread writer = new Thread() {
+			@Override
+			public void run() {
+				final ODatabaseDocumentTx db = new ODatabaseDocumentTx(URL).open("admin", "admin");
+				try {
+					final Random random = new Random(7);
+					final List<ORID> created = new ArrayList<ORID>();
+					int ops = 0;
+					while (!stop.get() || ops < 500) {
+						final int op = random.nextInt(3);
+						if (op == 0 || created.isEmpty())
+							created.add(new ODocument(db, "OnlineTest").field("value", random.nextInt(KEYS)).save().getIdentity().copy());
+						else if (op == 1) {
+							final ODocument doc = db.load(created.get(random.nextInt(created.size())));
+							doc.field("value", random.nextInt(KEYS)).save();
+						} else
+							((ODocument) db.load(created.remove(random.nextInt(created.size())))).delete();
+						ops++;
+					}
+				} catch (Exception e) {
+					error.set(e);
+				} finally {
+					db.close();
+				}
+			}
+		};
+
+		writer.start();
+		try {
+			iBuild.run();
+		} finally {
+			stop.set(true);
+			writer.join();
+		}
+
+		if (error.get() != null)
+			throw error.get();
+
+		return database.getMetadata().getIndexManager().getIndex("OnlineTest.value");
+	}
+
+	private void checkIndex(final OIndex<?> iIndex) {
+		final List<Set<ORID>> expected = new ArrayList<Set<ORID>>();
+		for (int i = 0; i < KEYS; ++i)
+			expected.add(new HashSet<ORID>());
+
+		for (ODocument doc : database.browseClass("OnlineTest"))
+			expected.get((Integer) doc.field("value")).add(doc.getIdentity().copy());
+
+		for (int i = 0; i < KEYS; ++i) {
+			final Set<ORID> found = new HashSet<ORID>();
+			for (OIdentifiable id : (Collection<OIdentifiable>) iIndex.get(i))
+				found.add(id.getIdentity());
+
+			Assert.assertEquals(found, expected.get(i), "Key " + i);
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package com.orientechnologies.orient.core.record.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class ODocumentPartialDeserializationTest {
+	private ODatabaseDocumentTx	database;
+
+	@BeforeClass
+	public void beforeClass() {
+		database = new ODatabaseDocumentTx("memory:partialdeserializationtest").create();
+
+		final OClass cls = database.getMetadata().getSchema().createClass("Account");
+		cls.createProperty("name", OType.STRING);
+		cls.createProperty("id", OType.INTEGER);
+	}
+
+	@AfterClass
+	public void afterClass() {
+		database.close();
+	}
+
+	public void testCsv() {
+		checkPartial(createDocument().toStream());
+	}
+
+	public void testBinary() {
+		OGlobalConfiguration.DB_DOCUMENT_SERIALIZER.setValue("binary");
+		try {
+			checkPartial(createDocument().toStream());
+		} finally {
+			OGlobalConfiguration.DB_DOCUMENT_SERIALIZER.setValue("csv");
+		}
+	}
+
+	public void testChangesAreKept() {
+		final ODocument doc = new ODocument().fromStream(createDocument().toStream());
+		doc.deserializeFields("tags");
+
+		final List<String> tags = doc.field("tags");
+		tags.add("c");
+
+		// THE CHANGE UNMARSHALLED THE OTHER FIELDS
+		Assert.assertEquals(doc.fields(), 5);
+		Assert.assertSame(doc.field("tags"), tags);
+		Assert.assertEquals(doc.field("tags"), Arrays.asList("a", "b", "c"));
+		Assert.assertEquals(doc.field("name"), "Jay");
+	}
+
+	public void testQuery() {
+		for (int i = 0; i < 10; ++i)
+			createDocument().field("id", i).save();
+
+		List<ODocument> result = database.query(new OSQLSynchQuery<ODocument>("select from Account where id = 3"));
+		Assert.assertEquals(result.size(), 1);
+		Assert.assertEquals(result.get(0).field("surname"), "Garulli");
+
+		result = database.query(new OSQLSynchQuery<ODocument>("select name, id from Account where id < 3 order by id"));
+		Assert.assertEquals(result.size(), 3);
+		Assert.assertEquals(result.get(2).field("id"), 2);
+		Assert.assertEquals(result.get(2).field("name"), "Jay");
+		Assert.assertFalse(result.get(2).containsField("surname"));
+
+		result = database.query(new OSQLSynchQuery<ODocument>("select count(*) from Account where tags contains 'b'"));
+		Assert.assertEquals(result.get(0).field("count"), 10l);
+	}
+
+	private void checkPartial(final byte[] iContent) {
+		final ODocument doc = new ODocument().fromStream(iContent);
+		doc.deserializeFields("id", "missing");
+
+		Assert.assertEquals(doc.getClassName(), "Account");
+		Assert.assertEquals(doc.fields(), 1);
+		Assert.assertEquals(doc.field("id"), 10);
+		Assert.assertNull(doc.field("missing"));
+		Assert.assertEquals(doc.fields(), 1);
+
+		// ANY OTHER FIELD UNMARSHALLS ALL OF THEM
+		Assert.assertEquals(doc.field("surname"), "Garulli");
+		Assert.assertEquals(doc.fields(), 5);
+		Assert.assertEquals(doc.field("name"), "Jay");
+	}
+
+	private ODocument createDocument() {
+		final ODocument doc = new ODocument(database, "Account");
+		doc.field("name", "Jay");
+		doc.field("surname", "Garulli");
+		doc.field("id", 10);
+		doc.field("address", new ODocument().field("city", "Rome"), OType.EMBEDDED);
+		doc.field("tags", new ArrayList<String>(Arrays.asList("a", "b")));
+		return doc;
+	}
+}
@@ -0,0 +1,197 @@
+package com.orientechnologies.orient.core.serialization.serializer.record.binary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OSerializationException;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
+
+@Test
+public class ORecordSerializerBinaryTest {
+	private ODatabaseDocumentTx	database;
+	private ODocument						linked;
+	private String							format;
+
+	@BeforeClass
+	public void beforeClass() {
+		format = OGlobalConfiguration.DB_DOCUMENT_SERIALIZER.getValueAsString();
+
+		database = new ODatabaseDocumentTx("memory:binaryserializertest").create();
+
+		final OClass cls = database.getMetadata().getSchema().createClass("Account");
+		cls.createProperty("name", OType.STRING);
+		cls.createProperty("id", OType.INTEGER);
+		cls.createProperty("birthDate", OType.DATE);
+
+		linked = (ODocument) new ODocument(database).field("name", "linked").save();
+	}
+
+	@AfterClass
+	public void afterClass() {
+		database.close();
+		OGlobalConfiguration.DB_DOCUMENT_SERIALIZER.setValue(format);
+	}
+
+	public void testRoundTrip() {
+		final ODocument doc = createDocument();
+
+		final byte[] content = ORecordSerializerBinary.INSTANCE.toStream(doc, false);
+		Assert.assertTrue(ORecordSerializerBinary.isBinary(content));
+
+		final ODocument loaded = new ODocument().fromStream(content);
+		Assert.assertEquals(loaded.getClassName(), "Account");
+		Assert.assertEquals(loaded.field("name"), "Jay");
+		Assert.assertEquals(loaded.field("id"), 10);
+		Assert.assertEquals(((Date) loaded.field("birthDate")).getTime(), 1000L);
+		Assert.assertEquals(loaded.field("salary"), -3000.5f);
+		Assert.assertEquals(loaded.field("balance"), Long.MIN_VALUE);
+		Assert.assertEquals(loaded.field("rate"), 0.25d);
+		Assert.assertEquals(loaded.field("active"), Boolean.TRUE);
+		Assert.assertNull(loaded.field("nothing"));
+		Assert.assertTrue(loaded.containsField("nothing"));
+		Assert.assertEquals((byte[]) loaded.field("data"), new byte[] { 1, 2, 3 });
+		Assert.assertEquals(((OIdentifiable) loaded.field("link")).getIdentity(), linked.getIdentity());
+
+		final ODocument address = loaded.field("address");
+		Assert.assertEquals(address.field("city"), "Rome");
+		Assert.assertEquals(address.field("zip"), 100);
+
+		final List<Object> tags = loaded.field("tags");
+		Assert.assertEquals(tags, Arrays.asList((Object) "a", "b", null, 3));
+
+		final Set<String> codes = loaded.field("codes");
+		Assert.assertEquals(codes, new HashSet<String>(Arrays.asList("x", "y")));
+
+		final Map<String, Object> props = loaded.field("props");
+		Assert.assertEquals(props.get("k1"), "v1");
+		Assert.assertEquals(((ODocument) props.get("k2")).field("nested"), true);
+
+		final List<OIdentifiable> friends = loaded.field("friends");
+		Assert.assertEquals(friends.size(), 1);
+		Assert.assertEquals(friends.get(0).getIdentity(), linked.getIdentity());
+	}
+
+	public void testPropertyIds() {
+		final ODocument doc = new ODocument(database, "Account").field("name", "Jay").field("alias", "J");
+		final String content = OBinaryProtocol.bytes2string(ORecordSerializerBinary.INSTANCE.toStream(doc, false));
+
+		// SCHEMA PROPERTIES ARE WRITTEN BY ID, THE OTHERS BY NAME
+		Assert.assertFalse(content.contains("name"));
+		Assert.assertTrue(content.contains("alias"));
+	}
+
+	public void testSingleField() {
+		final byte[] content = ORecordSerializerBinary.INSTANCE.toStream(createDocument(), false);
+
+		final List<String> names = Arrays.asList(ORecordSerializerBinary.INSTANCE.fieldNamesFromStream(content));
+		Assert.assertTrue(names.contains("name"));
+		Assert.assertTrue(names.contains("tags"));
+		Assert.assertEquals(names.size(), 15);
+
+		final ODocument owner = new ODocument();
+		Assert.assertEquals(ORecordSerializerBinary.INSTANCE.fieldFromStream(owner, content, "salary"), -3000.5f);
+		Assert.assertEquals(((ODocument) ORecordSerializerBinary.INSTANCE.fieldFromStream(owner, content, "address")).field("city"),
+				"Rome");
+		Assert.assertNull(ORecordSerializerBinary.INSTANCE.fieldFromStream(owner, content, "missing"));
+	}
+
+	public void testDroppedProperty() {
+		final OClass cls = database.getMetadata().getSchema().createClass("Dropped");
+		cls.createProperty("code", OType.STRING);
+		final byte[] content = ORecordSerializerBinary.INSTANCE.toStream(new ODocument(database, "Dropped").field("code", "c1"), false);
+
+		cls.dropProperty("code");
+		Assert.assertNull(cls.getProperty("code"));
+		Assert.assertEquals(new ODocument().fromStream(content).field("code"), "c1");
+
+		// THE NAMES OF THE DROPPED PROPERTIES ARE SAVED WITH THE SCHEMA
+		database.getMetadata().getSchema().reload();
+		Assert.assertEquals(new ODocument().fromStream(content).field("code"), "c1");
+	}
+
+	public void testUnresolvablePropertyId() {
+		final byte[] content = ORecordSerializerBinary.INSTANCE.toStream(createDocument(), false);
+
+		ODatabaseRecordThreadLocal.INSTANCE.remove();
+		try {
+			ORecordSerializerBinary.INSTANCE.fieldNamesFromStream(content);
+			Assert.fail();
+		} catch (OSerializationException e) {
+			Assert.assertTrue(e.getMessage().contains("no database"), e.getMessage());
+		} finally {
+			ODatabaseRecordThreadLocal.INSTANCE.set(database);
+		}
+	}
+
+	public void testMigration() {
+		OGlobalConfiguration.DB_DOCUMENT_SERIALIZER.setValue("csv");
+		final ODocument doc = (ODocument) new ODocument(database, "Account").field("name", "Old").field("id", 1).save();
+		Assert.assertFalse(ORecordSerializerBinary.isBinary(doc.toStream()));
+
+		OGlobalConfiguration.DB_DOCUMENT_SERIALIZER.setValue("binary");
+		try {
+			// CSV RECORDS ARE STILL READ
+			database.getLevel1Cache().invalidate();
+			ODocument loaded = database.load(doc.getIdentity());
+			Assert.assertEquals(loaded.field("name"), "Old");
+
+			// AND CONVERTED ON SAVE
+			loaded.field("name", "New").save();
+			Assert.assertTrue(ORecordSerializerBinary.isBinary(loaded.toStream()));
+
+			database.getLevel1Cache().invalidate();
+			loaded = database.load(doc.getIdentity());
+			Assert.assertEquals(loaded.field("name"), "New");
+			Assert.assertEquals(loaded.field("id"), 1);
+		} finally {
+			OGlobalConfiguration.DB_DOCUMENT_SERIALIZER.setValue("csv");
+		}
+	}
+
+	private ODocument createDocument() {
+		final ODocument doc = new ODocument(database, "Account");
+		doc.field("name", "Jay");
+		doc.field("id", 10);
+		doc.field("birthDate", new Date(1000));
+		doc.field("salary", -3000.5f);
+		doc.field("balance", Long.MIN_VALUE);
+		doc.field("rate", 0.25d);
+		doc.field("active", true);
+		doc.field("nothing", (Object) null);
+		doc.field("data", new byte[] { 1, 2, 3 });
+		doc.field("link", linked);
+		doc.field("address", new ODocument().field("city", "Rome").field("zip", 100), OType.EMBEDDED);
+
+		final List<Object> tags = new ArrayList<Object>(Arrays.asList((Object) "a", "b", null, 3));
+		doc.field("tags", tags);
+		doc.field("codes", new HashSet<String>(Arrays.asList("x", "y")));
+
+		final Map<String, Object> props = new HashMap<String, Object>();
+		props.put("k1", "v1");
+		props.put("k2", new ODocument().field("nested", true));
+		doc.field("props", props, OType.EMBEDDEDMAP);
+
+		final List<OIdentifiable> friends = new ArrayList<OIdentifiable>();
+		friends.add(linked);
+		doc.field("friends", friends);
+		return doc;
+	}
+}
@@ -0,0 +1,165 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.profiler.OProfiler;
+import com.orientechnologies.orient.core.command.OCommandResultListener;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLAsynchQuery;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class OCommandExecutorSQLSelectTest {
+	private ODatabaseDocumentTx	database;
+	private boolean							recording;
+
+	@BeforeClass
+	public void beforeClass() {
+		database = new ODatabaseDocumentTx("memory:selectexecutortest").create();
+
+		final OClass cls = database.getMetadata().getSchema().createClass("Account");
+		cls.createProperty("id", OType.INTEGER);
+
+		for (int i = 0; i < 20; ++i)
+			new ODocument(database, "Account").field("id", i).save();
+
+		// 15 IN ROME, 10 IN LONDON AND 5 IN PARIS
+		final OClass person = database.getMetadata().getSchema().createClass("Person");
+		person.createProperty("city", OType.STRING);
+		person.createProperty("age", OType.INTEGER);
+		person.createIndex("Person.city", OClass.INDEX_TYPE.NOTUNIQUE, "city");
+		for (int i = 0; i < 30; ++i)
+			new ODocument(database, "Person").field("city", i < 15 ? "Rome" : i < 25 ? "London" : "Paris").field("age", i % 2).save();
+
+		final OClass visitor = database.getMetadata().getSchema().createClass("Visitor");
+		visitor.createProperty("city", OType.STRING);
+		visitor.createIndex("Visitor.city", OClass.INDEX_TYPE.NOTUNIQUE, "city");
+		new ODocument(database, "Visitor").field("city", "Rome").save();
+		new ODocument(database, "Visitor").field("city", "Rome").save();
+		new ODocument(database, "Visitor").save();
+
+		// THE INDEX HAS 3 ENTRIES LIKE THE RECORDS OF THE CLASS, BUT ONE PER TAG
+		final OClass tagged = database.getMetadata().getSchema().createClass("Tagged");
+		tagged.createProperty("tags", OType.EMBEDDEDLIST, OType.STRING);
+		tagged.createIndex("Tagged.tags", OClass.INDEX_TYPE.NOTUNIQUE, "tags");
+		new ODocument(database, "Tagged").field("tags", new ArrayList<String>(Arrays.asList("a", "b"))).save();
+		new ODocument(database, "Tagged").field("tags", new ArrayList<String>(Arrays.asList("c"))).save();
+		new ODocument(database, "Tagged").save();
+
+		recording = OProfiler.getInstance().isRecording();
+		OProfiler.getInstance().startRecording();
+	}
+
+	@AfterClass
+	public void afterClass() {
+		if (!recording)
+			OProfiler.getInstance().stopRecording();
+		database.close();
+	}
+
+	public void testListenerStops() {
+		final StopListener listener = new StopListener(3);
+		database.command(new OSQLAsynchQuery<ODocument>("select from Account", listener)).execute();
+		Assert.assertEquals(listener.ids.size(), 3);
+	}
+
+	public void testListenerStopsOrderedResults() {
+		final StopListener listener = new StopListener(3);
+		database.command(new OSQLAsynchQuery<ODocument>("select from Account order by id desc", listener)).execute();
+		Assert.assertEquals(listener.ids.toString(), "[19, 18, 17]");
+	}
+
+	public void testIsSelect() {
+		Assert.assertTrue(OSQLHelper.isSelect("select from Account"));
+		Assert.assertTrue(OSQLHelper.isSelect("SELECT from Account"));
+		Assert.assertTrue(OSQLHelper.isSelect("  \n\tSelect\nfrom Account"));
+		Assert.assertFalse(OSQLHelper.isSelect("selection"));
+		Assert.assertFalse(OSQLHelper.isSelect("insert into Account (id) values (1)"));
+		Assert.assertFalse(OSQLHelper.isSelect(" "));
+		Assert.assertFalse(OSQLHelper.isSelect(null));
+	}
+
+	public void testGroupByIndex() {
+		final long indexUsage = getGroupByIndexUsage();
+
+		final List<ODocument> result = database.query(new OSQLSynchQuery<ODocument>(
+				"select city, count(*) as total from Person group by city"));
+		Assert.assertEquals(getGroupByIndexUsage(), indexUsage + 1);
+		Assert.assertEquals(getGroups(result, "city"), "{London=10, Paris=5, Rome=15}");
+	}
+
+	public void testGroupByIndexWithNullFields() {
+		final long indexUsage = getGroupByIndexUsage();
+
+		final List<ODocument> result = database.query(new OSQLSynchQuery<ODocument>(
+				"select city, count(*) as total from Visitor group by city"));
+		Assert.assertEquals(getGroupByIndexUsage(), indexUsage);
+		Assert.assertEquals(getGroups(result, "city"), "{Rome=2, null=1}");
+	}
+
+	public void testGroupByIndexedCollection() {
+		final long indexUsage = getGroupByIndexUsage();
+
+		final List<ODocument> result = database.query(new OSQLSynchQuery<ODocument>(
+				"select tags, count(*) as total from Tagged group by tags"));
+		Assert.assertEquals(getGroupByIndexUsage(), indexUsage);
+		Assert.assertEquals(getGroups(result, "tags"), "{[a, b]=1, [c]=1, null=1}");
+	}
+
+	public void testGroupByTwoFields() {
+		final List<ODocument> result = database.query(new OSQLSynchQuery<ODocument>(
+				"select city, age, count(*) as total from Person group by city, age"));
+
+		final Map<String, Object> groups = new TreeMap<String, Object>();
+		for (ODocument d : result)
+			groups.put(d.field("city") + "/" + d.field("age"), ((Number) d.field("total")).intValue());
+		Assert.assertEquals(groups.toString(), "{London/0=5, London/1=5, Paris/0=2, Paris/1=3, Rome/0=8, Rome/1=7}");
+	}
+
+	public void testGroupByOrderAndLimit() {
+		final List<ODocument> result = database.query(new OSQLSynchQuery<ODocument>(
+				"select city, count(*) as total from Person group by city order by total desc limit 2"));
+		Assert.assertEquals(result.size(), 2);
+		Assert.assertEquals(result.get(0).field("city"), "Rome");
+		Assert.assertEquals(result.get(1).field("city"), "London");
+	}
+
+	private static long getGroupByIndexUsage() {
+		// -1 UNTIL THE FIRST UPDATE
+		return Math.max(OProfiler.getInstance().getCounter("Query.groupByIndexUsage"), 0);
+	}
+
+	private static String getGroups(final List<ODocument> iResult, final String iField) {
+		final Map<String, Object> groups = new TreeMap<String, Object>();
+		for (ODocument d : iResult)
+			groups.put(String.valueOf((Object) d.field(iField)), ((Number) d.field("total")).intValue());
+		return groups.toString();
+	}
+
+	private static class StopListener implements OCommandResultListener {
+		private final int						max;
+		private final List<Object>	ids	= new ArrayList<Object>();
+
+		private StopListener(final int iMax) {
+			max = iMax;
+		}
+
+		public boolean result(final Object iRecord) {
+			ids.add(((ODocument) ((OIdentifiable) iRecord).getRecord()).field("id"));
+			return ids.size() < max;
+		}
+	}
+}
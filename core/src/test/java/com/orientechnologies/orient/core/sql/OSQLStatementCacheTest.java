@@ -0,0 +1,158 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OSQLStatementCache.OStatementHandle;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class OSQLStatementCacheTest {
+	private static final String	QUERY	= "select from Account where id = ?";
+
+	private ODatabaseDocumentTx	database;
+	private OSQLStatementCache	cache;
+	private int									cacheSize;
+
+	@BeforeClass
+	public void beforeClass() {
+		cacheSize = OGlobalConfiguration.QUERY_STATEMENT_CACHE_SIZE.getValueAsInteger();
+		OGlobalConfiguration.QUERY_STATEMENT_CACHE_SIZE.setValue(100);
+
+		database = new ODatabaseDocumentTx("memory:statementcachetest").create();
+
+		final OClass cls = database.getMetadata().getSchema().createClass("Account");
+		cls.createProperty("id", OType.INTEGER);
+
+		for (int i = 0; i < 10; ++i)
+			new ODocument(database, "Account").field("id", i).save();
+
+		cache = OSQLEngine.getInstance().getStatementCache();
+	}
+
+	@AfterClass
+	public void afterClass() {
+		database.close();
+		OGlobalConfiguration.QUERY_STATEMENT_CACHE_SIZE.setValue(cacheSize);
+	}
+
+	@BeforeMethod
+	public void beforeMethod() {
+		ODatabaseRecordThreadLocal.INSTANCE.set(database);
+		cache.invalidate();
+	}
+
+	public void testMissAndHit() {
+		final OStatementHandle handle = cache.createHandle(database.getStorage().getURL(), QUERY);
+		Assert.assertNull(cache.borrow(handle));
+
+		// THE FIRST EXECUTION PARSES THE STATEMENT AND PUTS IT IN THE CACHE
+		Assert.assertEquals(query(QUERY, 3).size(), 1);
+		Assert.assertEquals(cache.size(), 1);
+
+		// THE SECOND EXECUTION REUSES IT WITH DIFFERENT PARAMETERS
+		Assert.assertEquals(query(QUERY, 5).get(0).field("id"), 5);
+		Assert.assertEquals(cache.size(), 1);
+
+		// A BORROWED STATEMENT IS NOT AVAILABLE TO OTHER EXECUTIONS UNTIL RELEASED
+		final OCommandExecutorSQLSelect statement = cache.borrow(handle);
+		Assert.assertNotNull(statement);
+		Assert.assertNull(cache.borrow(handle));
+		Assert.assertEquals(query(QUERY, 7).get(0).field("id"), 7);
+
+		// THE COPY PARSED BY THE CONCURRENT EXECUTION HAS BEEN CACHED IN THE MEANWHILE: THE BORROWED ONE IS DISCARDED
+		cache.release(handle, statement);
+		Assert.assertEquals(cache.size(), 1);
+		final OCommandExecutorSQLSelect copy = cache.borrow(handle);
+		Assert.assertNotNull(copy);
+		Assert.assertNotSame(copy, statement);
+
+		cache.release(handle, copy);
+		Assert.assertSame(cache.borrow(handle), copy);
+	}
+
+	public void testSameTextOfAnotherStorage() {
+		query(QUERY, 3);
+		Assert.assertNull(cache.borrow(cache.createHandle("memory:anotherstorage", QUERY)));
+		Assert.assertNotNull(cache.borrow(cache.createHandle(database.getStorage().getURL(), "  " + QUERY + " ")));
+	}
+
+	public void testEviction() {
+		OGlobalConfiguration.QUERY_STATEMENT_CACHE_SIZE.setValue(2);
+		try {
+			query("select from Account where id = ?", 1);
+			query("select from Account where id > ?", 1);
+			query("select from Account where id < ?", 1);
+			Assert.assertEquals(cache.size(), 2);
+
+			// THE LEAST RECENTLY USED STATEMENT HAS BEEN EVICTED
+			final String url = database.getStorage().getURL();
+			Assert.assertNull(cache.borrow(cache.createHandle(url, "select from Account where id = ?")));
+			Assert.assertNotNull(cache.borrow(cache.createHandle(url, "select from Account where id > ?")));
+			Assert.assertNotNull(cache.borrow(cache.createHandle(url, "select from Account where id < ?")));
+		} finally {
+			OGlobalConfiguration.QUERY_STATEMENT_CACHE_SIZE.setValue(100);
+		}
+	}
+
+	public void testInvalidatedBySchemaChange() {
+		query(QUERY, 3);
+		final OStatementHandle handle = cache.createHandle(database.getStorage().getURL(), QUERY);
+
+		database.getMetadata().getSchema().createClass("AnotherAccount");
+		Assert.assertEquals(cache.size(), 0);
+		Assert.assertNull(cache.borrow(handle));
+
+		// A STATEMENT PARSED BEFORE THE CHANGE IS NOT PUT BACK
+		query(QUERY, 3);
+		final OCommandExecutorSQLSelect statement = cache.borrow(handle);
+		database.getMetadata().getSchema().createClass("YetAnotherAccount");
+		cache.release(handle, statement);
+		Assert.assertEquals(cache.size(), 0);
+	}
+
+	public void testBoundToTheDatabaseOfTheHit() {
+		query(QUERY, 3);
+		final ODatabaseRecord first = ODatabaseRecordThreadLocal.INSTANCE.get();
+
+		final ODatabaseDocumentTx other = new ODatabaseDocumentTx(database.getURL()).open("admin", "admin");
+		try {
+			final ODatabaseRecord second = ODatabaseRecordThreadLocal.INSTANCE.get();
+			Assert.assertNotSame(second, first);
+
+			final OStatementHandle handle = cache.createHandle(other.getStorage().getURL(), QUERY);
+			final OCommandExecutorSQLSelect statement = cache.borrow(handle);
+			Assert.assertNotNull(statement);
+			Assert.assertNull(statement.getCompiledFilter().getDatabase());
+
+			statement.bind(new OSQLSynchQuery<ODocument>(QUERY));
+			Assert.assertSame(statement.getCompiledFilter().getDatabase(), second);
+
+			// THE CACHED STATEMENT DOESN'T KEEP THE DATABASE OF THE LAST EXECUTION
+			cache.release(handle, statement);
+			Assert.assertNull(statement.getCompiledFilter().getDatabase());
+
+			final List<ODocument> result = other.query(new OSQLSynchQuery<ODocument>(QUERY), 4);
+			Assert.assertEquals(result.get(0).field("id"), 4);
+			Assert.assertSame(result.get(0).getDatabase(), second);
+		} finally {
+			other.close();
+		}
+	}
+
+	private List<ODocument> query(final String iText, final Object iArg) {
+		return database.query(new OSQLSynchQuery<ODocument>(iText), iArg);
+	}
+}
@@ -0,0 +1,89 @@
+package com.orientechnologies.orient.core.sql.filter;
+
+import java.util.Date;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+@Test
+public class OSQLFilterConditionTest {
+	private ODatabaseDocumentTx	database;
+
+	@BeforeClass
+	public void beforeClass() {
+		database = new ODatabaseDocumentTx("memory:filterconditiontest").create();
+
+		final OClass cls = database.getMetadata().getSchema().createClass("Account");
+		cls.createProperty("id", OType.INTEGER);
+		cls.createProperty("name", OType.STRING);
+		cls.createProperty("birthDate", OType.DATE);
+	}
+
+	@AfterClass
+	public void afterClass() {
+		database.close();
+	}
+
+	public void testCheapestSideFirst() {
+		final OSQLFilter filter = new OSQLFilter("Account where name matches 'L.*' and id = 3");
+		Assert.assertTrue(filter.getRootCondition().rightFirst);
+
+		Assert.assertTrue(filter.evaluate(account(3, "Luca")));
+		Assert.assertFalse(filter.evaluate(account(3, "Jay")));
+		Assert.assertFalse(filter.evaluate(account(4, "Luca")));
+	}
+
+	public void testShortCircuit() {
+		// THE RIGHT SIDE CANNOT BE EVALUATED: THE DATE IS INVALID
+		final OSQLFilter filter = new OSQLFilter("Account where id = 3 or birthDate > 'invalid'");
+		Assert.assertFalse(filter.getRootCondition().rightFirst);
+
+		final ODocument doc = account(3, "Luca").field("birthDate", new Date());
+		Assert.assertTrue(filter.evaluate(doc));
+		Assert.assertTrue(filter.evaluate(doc));
+
+		final OSQLFilter and = new OSQLFilter("Account where id = 3 and birthDate > 'invalid'");
+		Assert.assertFalse(and.evaluate(account(4, "Luca").field("birthDate", new Date())));
+	}
+
+	public void testConstantConvertedByType() {
+		final OSQLFilter filter = new OSQLFilter("Account where value = '10'");
+
+		// ALTERNATE THE TYPES TO CHECK THE CONVERSIONS KEPT FOR EACH TYPE
+		for (int i = 0; i < 2; ++i) {
+			Assert.assertTrue(filter.evaluate(account(1, "a").field("value", 10)));
+			Assert.assertFalse(filter.evaluate(account(1, "a").field("value", 11)));
+			Assert.assertTrue(filter.evaluate(account(1, "a").field("value", "10")));
+			Assert.assertTrue(filter.evaluate(account(1, "a").field("value", 10f)));
+			Assert.assertFalse(filter.evaluate(account(1, "a").field("value", 10.5f)));
+		}
+
+		final OSQLFilter number = new OSQLFilter("Account where value = 10");
+		for (int i = 0; i < 2; ++i) {
+			Assert.assertTrue(number.evaluate(account(1, "a").field("value", "10")));
+			Assert.assertFalse(number.evaluate(account(1, "a").field("value", "11")));
+			Assert.assertTrue(number.evaluate(account(1, "a").field("value", 10)));
+		}
+	}
+
+	public void testPatternReused() {
+		final OSQLFilter filter = new OSQLFilter("Account where name matches 'L.*'");
+		final OSQLFilterCondition condition = filter.getRootCondition();
+
+		Assert.assertTrue(filter.evaluate(account(1, "Luca")));
+		Assert.assertFalse(filter.evaluate(account(1, "Jay")));
+		Assert.assertSame(condition.getPattern("L.*"), condition.getPattern("L.*"));
+		Assert.assertEquals(condition.getPattern("J.*").pattern(), "J.*");
+	}
+
+	private ODocument account(final int iId, final String iName) {
+		return new ODocument(database, "Account").field("id", iId).field("name", iName);
+	}
+}
@@ -0,0 +1,143 @@
+package com.orientechnologies.orient.core.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+@Test
+public class OStorageParallelBrowserTest {
+	private static final int		RECORDS	= 1000;
+
+	private ODatabaseDocumentTx	database;
+	private int									threads;
+	private int									range;
+
+	@BeforeClass
+	public void beforeClass() {
+		threads = OGlobalConfiguration.QUERY_PARALLEL_SCAN_THREADS.getValueAsInteger();
+		range = OGlobalConfiguration.QUERY_PARALLEL_SCAN_RANGE.getValueAsInteger();
+		OGlobalConfiguration.QUERY_PARALLEL_SCAN_THREADS.setValue(4);
+		OGlobalConfiguration.QUERY_PARALLEL_SCAN_RANGE.setValue(50);
+
+		database = new ODatabaseDocumentTx("memory:parallelbrowsertest").create();
+
+		final OClass cls = database.getMetadata().getSchema().createClass("Account");
+		cls.createProperty("id", OType.INTEGER);
+
+		for (int i = 0; i < RECORDS; ++i)
+			new ODocument(database, "Account").field("id", i).save();
+	}
+
+	@AfterClass
+	public void afterClass() {
+		database.close();
+		OGlobalConfiguration.QUERY_PARALLEL_SCAN_THREADS.setValue(threads);
+		OGlobalConfiguration.QUERY_PARALLEL_SCAN_RANGE.setValue(range);
+	}
+
+	public void testFilteredOnceByWorkerDatabases() {
+		final ODatabaseRecord caller = ODatabaseRecordThreadLocal.INSTANCE.get();
+		final TestListener listener = new TestListener(-1);
+
+		browse(listener);
+
+		Assert.assertEquals(listener.filtered.get(), RECORDS);
+		Assert.assertEquals(listener.accepted.size(), RECORDS / 2);
+		Assert.assertFalse(listener.sharedDatabase);
+		Assert.assertTrue(listener.workerDatabases.size() > 0);
+
+		// ACCEPTED RECORDS ARRIVE IN CLUSTER ORDER
+		for (int i = 0; i < listener.accepted.size(); ++i)
+			Assert.assertEquals(listener.accepted.get(i).intValue(), i * 2);
+
+		Assert.assertSame(ODatabaseRecordThreadLocal.INSTANCE.get(), caller);
+	}
+
+	public void testStop() {
+		final ODatabaseRecord caller = ODatabaseRecordThreadLocal.INSTANCE.get();
+		final TestListener listener = new TestListener(10);
+
+		browse(listener);
+
+		Assert.assertEquals(listener.accepted.size(), 10);
+		Assert.assertSame(ODatabaseRecordThreadLocal.INSTANCE.get(), caller);
+	}
+
+	public void testThreadsChanged() {
+		OGlobalConfiguration.QUERY_PARALLEL_SCAN_THREADS.setValue(2);
+		try {
+			final TestListener listener = new TestListener(-1);
+			browse(listener);
+
+			Assert.assertEquals(listener.accepted.size(), RECORDS / 2);
+			Assert.assertTrue(listener.threads.size() <= 2);
+		} finally {
+			OGlobalConfiguration.QUERY_PARALLEL_SCAN_THREADS.setValue(4);
+		}
+	}
+
+	public void testQuery() {
+		final List<ODocument> result = database.query(new OSQLSynchQuery<ODocument>("select from Account where id < 100"));
+		Assert.assertEquals(result.size(), 100);
+		for (int i = 0; i < result.size(); ++i)
+			Assert.assertEquals(result.get(i).field("id"), i);
+	}
+
+	private void browse(final ORecordBrowsingParallelListener iListener) {
+		final int[] clusterIds = database.getMetadata().getSchema().getClass("Account").getClusterIds();
+		((OStorageEmbedded) database.getStorage()).browseParallel(clusterIds, null, null, iListener);
+	}
+
+	private class TestListener implements ORecordBrowsingParallelListener {
+		private final int						limit;
+		private final AtomicInteger	filtered				= new AtomicInteger();
+		private final List<Integer>	accepted				= new ArrayList<Integer>();
+		private final Set<Object>		workerDatabases	= Collections.synchronizedSet(new HashSet<Object>());
+		private final Set<String>		threads					= Collections.synchronizedSet(new HashSet<String>());
+		private volatile boolean		sharedDatabase;
+
+		private TestListener(final int iLimit) {
+			limit = iLimit;
+		}
+
+		public boolean filter(final ORecordInternal<?> iRecord) {
+			filtered.incrementAndGet();
+			threads.add(Thread.currentThread().getName());
+
+			final ODatabaseRecord db = ODatabaseRecordThreadLocal.INSTANCE.get();
+			if (db == database.getUnderlying())
+				sharedDatabase = true;
+			workerDatabases.add(db);
+
+			return ((Integer) ((ODocument) iRecord).field("id")) % 2 == 0;
+		}
+
+		public boolean foreachAccepted(final ORecordInternal<?> iRecord) {
+			accepted.add((Integer) ((ODocument) iRecord).field("id"));
+			return limit < 0 || accepted.size() < limit;
+		}
+
+		public boolean foreach(final ORecordInternal<?> iRecord) {
+			Assert.fail("Accepted records must not be filtered again");
+			return false;
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.orientechnologies.orient.core.storage.fs;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.storage.fs.OMMapManager.ALLOC_STRATEGY;
+import com.orientechnologies.orient.core.storage.fs.OMMapManager.OPERATION_TYPE;
+
+@Test
+public class OMMapManagerTest {
+	private OFileMMap	file;
+
+	@BeforeMethod
+	public void beforeMethod() throws IOException {
+		final File osFile = new File(System.getProperty("java.io.tmpdir") + "/mmapmanagertest.odt");
+		if (osFile.exists())
+			osFile.delete();
+
+		file = new OFileMMap(osFile.getAbsolutePath(), "rw");
+		file.create(-1);
+		file.allocateSpace(1000);
+	}
+
+	@AfterMethod
+	public void afterMethod() throws IOException {
+		file.delete();
+	}
+
+	public void testRemoveFileClosesReleasedBuffers() throws IOException {
+		final OMMapBufferEntry entry = OMMapManager.request(file, 0, 100, OPERATION_TYPE.WRITE, ALLOC_STRATEGY.MMAP_ALWAYS);
+		Assert.assertNotNull(entry);
+		entry.release();
+
+		final long memory = OMMapManager.getTotalMemory();
+		OMMapManager.removeFile(file);
+
+		Assert.assertFalse(entry.isValid());
+		Assert.assertEquals(OMMapManager.getTotalMemory(), memory - entry.size);
+	}
+
+	public void testRemoveFileDefersBuffersInUse() throws IOException {
+		final OMMapBufferEntry entry = OMMapManager.request(file, 0, 100, OPERATION_TYPE.WRITE, ALLOC_STRATEGY.MMAP_ALWAYS);
+		Assert.assertNotNull(entry);
+		// ACQUIRED TWICE: BY TWO THREADS
+		Assert.assertTrue(entry.acquire());
+
+		OMMapManager.removeFile(file);
+
+		// STILL USABLE BY THE THREADS THAT ACQUIRED IT
+		Assert.assertTrue(entry.isValid());
+		entry.buffer.put(0, (byte) 1);
+		Assert.assertEquals(entry.buffer.get(0), (byte) 1);
+
+		entry.release();
+		Assert.assertTrue(entry.isValid());
+
+		// THE LAST RELEASE CLOSES IT
+		entry.release();
+		Assert.assertFalse(entry.isValid());
+		Assert.assertFalse(entry.acquire());
+	}
+}
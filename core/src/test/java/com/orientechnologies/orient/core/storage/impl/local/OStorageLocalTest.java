@@ -1,6 +1,14 @@
 package com.orientechnologies.orient.core.storage.impl.local;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
@@ -9,6 +17,14 @@ import org.testng.annotations.Test;
 
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.core.tx.OTransaction.TXTYPE;
 
 @Test
 public class OStorageLocalTest {
@@ -82,6 +98,340 @@ public class OStorageLocalTest {
 		System.out.println("Delete OK!");
 	}
 
+	public void groupCommit() throws Exception {
+		final boolean oldCommitSynch = OGlobalConfiguration.TX_COMMIT_SYNCH.getValueAsBoolean();
+		final boolean oldCommitGroup = OGlobalConfiguration.TX_COMMIT_GROUP.getValueAsBoolean();
+		OGlobalConfiguration.TX_COMMIT_SYNCH.setValue(true);
+		OGlobalConfiguration.TX_COMMIT_GROUP.setValue(true);
+
+		try {
+			final String dbPath = getDatabasePath();
+			delTree(new File(dbPath));
+			final ODatabaseDocumentTx db = new ODatabaseDocumentTx("local:" + dbPath);
+			db.create();
+			db.getMetadata().getSchema().createClass("GroupCommit");
+
+			final Thread[] threads = new Thread[4];
+			final AtomicInteger errors = new AtomicInteger();
+
+			for (int t = 0; t < threads.length; ++t) {
+				threads[t] = new Thread() {
+					@Override
+					public void run() {
+						final ODatabaseDocumentTx threadDb = new ODatabaseDocumentTx("local:" + dbPath).open("admin", "admin");
+						try {
+							for (int i = 0; i < 25; ++i) {
+								threadDb.begin(TXTYPE.OPTIMISTIC);
+								new ODocument(threadDb, "GroupCommit").field("thread", getName()).field("i", i).save();
+								threadDb.commit();
+							}
+						} catch (Throwable e) {
+							e.printStackTrace();
+							errors.incrementAndGet();
+						} finally {
+							threadDb.close();
+						}
+					}
+				};
+				threads[t].start();
+			}
+
+			for (Thread t : threads)
+				t.join();
+
+			Assert.assertEquals(errors.get(), 0);
+			Assert.assertEquals(db.countClass("GroupCommit"), threads.length * 25);
+
+			db.delete();
+
+		} finally {
+			OGlobalConfiguration.TX_COMMIT_SYNCH.setValue(oldCommitSynch);
+			OGlobalConfiguration.TX_COMMIT_GROUP.setValue(oldCommitGroup);
+		}
+	}
+
+	public void bulkScan() {
+		final int oldRange = OGlobalConfiguration.QUERY_SCAN_RANGE.getValueAsInteger();
+		final int oldBuffer = OGlobalConfiguration.QUERY_SCAN_BUFFER_SIZE.getValueAsInteger();
+		final boolean oldBulk = OGlobalConfiguration.QUERY_SCAN_BULK.getValueAsBoolean();
+		OGlobalConfiguration.QUERY_SCAN_RANGE.setValue(50);
+		OGlobalConfiguration.QUERY_SCAN_BUFFER_SIZE.setValue(1024);
+		OGlobalConfiguration.QUERY_SCAN_BULK.setValue(true);
+
+		try {
+			final String dbPath = getDatabasePath();
+			delTree(new File(dbPath));
+			final ODatabaseDocumentTx db = new ODatabaseDocumentTx("local:" + dbPath);
+			db.create();
+			db.getMetadata().getSchema().createClass("Scan");
+
+			final StringBuilder big = new StringBuilder();
+			for (int i = 0; i < 2000; ++i)
+				big.append('x');
+
+			final Map<Integer, String> expected = new HashMap<Integer, String>();
+			final ODocument[] docs = new ODocument[300];
+			for (int i = 0; i < docs.length; ++i) {
+				// SOME RECORDS ARE BIGGER THAN THE BUFFER
+				final String name = i % 10 == 0 ? big.toString() + i : "name" + i;
+				docs[i] = new ODocument(db, "Scan").field("id", i).field("name", name);
+				docs[i].save();
+				expected.put(i, name);
+			}
+
+			for (int i = 0; i < docs.length; i += 7) {
+				// MOVE THE RECORDS IN THE DATA SEGMENT TO BREAK THE PHYSICAL ORDER
+				docs[i].field("name", big.toString() + "updated" + i).save();
+				expected.put(i, big.toString() + "updated" + i);
+			}
+
+			for (int i = 3; i < docs.length; i += 11) {
+				docs[i].delete();
+				expected.remove(i);
+			}
+
+			final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from Scan"));
+			Assert.assertEquals(result.size(), expected.size());
+			for (ODocument d : result)
+				Assert.assertEquals(d.field("name"), expected.get(d.field("id")));
+
+			Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>("select from Scan where id > 100 and id <= 110")).size(), 9);
+
+			db.delete();
+
+		} finally {
+			OGlobalConfiguration.QUERY_SCAN_RANGE.setValue(oldRange);
+			OGlobalConfiguration.QUERY_SCAN_BUFFER_SIZE.setValue(oldBuffer);
+			OGlobalConfiguration.QUERY_SCAN_BULK.setValue(oldBulk);
+		}
+	}
+
+	public void batchLoad() {
+		final String dbPath = getDatabasePath();
+		delTree(new File(dbPath));
+		final ODatabaseDocumentTx db = new ODatabaseDocumentTx("local:" + dbPath);
+		db.create();
+		db.getMetadata().getSchema().createClass("Batch");
+
+		final List<ODocument> docs = new ArrayList<ODocument>();
+		for (int i = 0; i < 20; ++i) {
+			final ODocument doc = new ODocument(db, "Batch").field("id", i);
+			doc.save();
+			docs.add(doc);
+		}
+
+		final ODocument owner = new ODocument(db, "Batch").field("id", -1);
+		owner.field("links", new ArrayList<ODocument>(docs));
+		owner.save();
+
+		// MOVE A RECORD IN THE DATA SEGMENT AND DELETE ANOTHER ONE
+		docs.get(2).field("name", "moved").save();
+		docs.get(5).delete();
+
+		db.getLevel1Cache().invalidate();
+		final ODocument cached = db.load(docs.get(7).getIdentity());
+
+		// IN REVERSE ORDER WITH A DUPLICATE AND A RECORD OUTSIDE THE CLUSTER
+		final List<OIdentifiable> rids = new ArrayList<OIdentifiable>();
+		for (int i = docs.size() - 1; i > -1; --i)
+			rids.add(docs.get(i).getIdentity());
+		rids.add(docs.get(0).getIdentity());
+		rids.add(new ORecordId(docs.get(0).getIdentity().getClusterId(), 1000));
+
+		final List<ORecordInternal<?>> records = db.loadAll(rids, null);
+		Assert.assertEquals(records.size(), rids.size());
+		for (int i = 0; i < docs.size(); ++i) {
+			final ODocument loaded = (ODocument) records.get(docs.size() - 1 - i);
+			if (i == 5)
+				Assert.assertNull(loaded);
+			else {
+				Assert.assertEquals(loaded.getIdentity(), docs.get(i).getIdentity());
+				Assert.assertEquals(loaded.field("id"), i);
+			}
+		}
+		Assert.assertEquals(((ODocument) records.get(docs.size() - 3)).field("name"), "moved");
+		Assert.assertSame(records.get(docs.size() - 1 - 7), cached);
+		Assert.assertSame(records.get(docs.size()), records.get(docs.size() - 1));
+		Assert.assertNull(records.get(docs.size() + 1));
+
+		// THE LINKS ARE CONVERTED WITH ONE CALL
+		db.getLevel1Cache().invalidate();
+		final ODocument loadedOwner = db.load(owner.getIdentity());
+		final List<ODocument> links = loadedOwner.field("links");
+		Assert.assertEquals(links.size(), docs.size());
+		for (int i = 0; i < docs.size(); ++i)
+			if (i != 5)
+				Assert.assertEquals(links.get(i).field("id"), i);
+
+		db.delete();
+	}
+
+	public void txLogRecovery() throws IOException {
+		final String dbPath = getDatabasePath();
+		final String crashedPath = dbPath + "Crashed";
+		delTree(new File(dbPath));
+		delTree(new File(crashedPath));
+
+		final ODatabaseDocumentTx db = new ODatabaseDocumentTx("local:" + dbPath);
+		db.create();
+		db.getMetadata().getSchema().createClass("Recovery");
+
+		final ODocument updated = new ODocument(db, "Recovery").field("name", "toUpdate");
+		updated.save();
+		final ODocument deleted = new ODocument(db, "Recovery").field("name", "toDelete");
+		deleted.save();
+
+		// SNAPSHOT OF THE SEGMENTS AT THE CHECKPOINT
+		db.getStorage().synch();
+		copyFiles(new File(dbPath), new File(crashedPath));
+
+		db.begin(TXTYPE.OPTIMISTIC);
+		for (int i = 0; i < 10; ++i)
+			new ODocument(db, "Recovery").field("name", "new" + i).save();
+		updated.field("name", "updated").save();
+		deleted.delete();
+		db.commit();
+
+		// THE CRASH LOST THE CHANGES IN THE SEGMENTS, BUT NOT THE LOG
+		final String logFile = "txlog.owl";
+		copyFile(new File(dbPath, logFile), new File(crashedPath, logFile));
+		db.delete();
+
+		final ODatabaseDocumentTx recovered = new ODatabaseDocumentTx("local:" + crashedPath).open("admin", "admin");
+		try {
+			Assert.assertEquals(recovered.countClass("Recovery"), 11);
+			Assert.assertEquals(recovered.query(new OSQLSynchQuery<ODocument>("select from Recovery where name = 'updated'")).size(), 1);
+			Assert.assertEquals(recovered.query(new OSQLSynchQuery<ODocument>("select from Recovery where name like 'new%'")).size(), 10);
+			Assert.assertTrue(recovered.query(new OSQLSynchQuery<ODocument>("select from Recovery where name = 'toDelete'")).isEmpty());
+			Assert.assertTrue(((OStorageLocal) recovered.getStorage()).getTxManager().getTxLog().isEmpty());
+		} finally {
+			recovered.delete();
+		}
+	}
+
+	public void txLogRecoveryAfterNoTxChanges() throws IOException {
+		final String dbPath = getDatabasePath();
+		final String snapshotPath = dbPath + "Snapshot";
+		final String crashedPath = dbPath + "Crashed";
+		delTree(new File(dbPath));
+		delTree(new File(snapshotPath));
+		delTree(new File(crashedPath));
+
+		final ODatabaseDocumentTx db = new ODatabaseDocumentTx("local:" + dbPath);
+		db.create();
+		db.getMetadata().getSchema().createClass("Recovery");
+
+		final ODocument updated = new ODocument(db, "Recovery").field("name", "toUpdate");
+		updated.save();
+		final ODocument deleted = new ODocument(db, "Recovery").field("name", "toDelete");
+		deleted.save();
+
+		// SNAPSHOT OF THE SEGMENTS AT THE CHECKPOINT
+		db.getStorage().synch();
+		copyFiles(new File(dbPath), new File(snapshotPath));
+
+		db.begin(TXTYPE.OPTIMISTIC);
+		updated.field("name", "updatedInTx").save();
+		deleted.field("name", "updatedInTx").save();
+		final ODocument reused = new ODocument(db, "Recovery").field("name", "createdInTx");
+		reused.save();
+		db.commit();
+
+		// CHANGES OUT OF TRANSACTION TO THE LOGGED RECORDS: THE DELETED POSITION IS REUSED BY A NEW RECORD
+		updated.field("name", "updatedNoTx").save();
+		deleted.delete();
+		final ORecordId reusedRid = (ORecordId) reused.getIdentity().copy();
+		reused.delete();
+		final ODocument created = new ODocument(db, "Recovery").field("name", "createdNoTx");
+		created.save();
+		Assert.assertEquals(created.getIdentity(), reusedRid);
+
+		// THE PROCESS CRASHED WITH THE SEGMENTS UP TO DATE
+		copyFiles(new File(dbPath), new File(crashedPath));
+		// THE SYSTEM CRASHED LOSING THE CHANGES IN THE SEGMENTS, BUT NOT THE LOG
+		final String logFile = "txlog.owl";
+		copyFile(new File(dbPath, logFile), new File(snapshotPath, logFile));
+		db.delete();
+
+		for (String path : new String[] { crashedPath, snapshotPath }) {
+			final ODatabaseDocumentTx recovered = new ODatabaseDocumentTx("local:" + path).open("admin", "admin");
+			try {
+				Assert.assertEquals(recovered.countClass("Recovery"), 2);
+				Assert.assertEquals(recovered.query(new OSQLSynchQuery<ODocument>("select from Recovery where name = 'updatedNoTx'"))
+						.size(), 1);
+				Assert.assertEquals(((ODocument) recovered.load(reusedRid)).field("name"), "createdNoTx");
+				Assert.assertTrue(recovered.query(new OSQLSynchQuery<ODocument>("select from Recovery where name like '%InTx'")).isEmpty());
+			} finally {
+				recovered.delete();
+			}
+		}
+	}
+
+	public void compressedCluster() {
+		final String dbPath = getDatabasePath() + "-compressed";
+		delTree(new File(dbPath));
+
+		ODatabaseDocumentTx db = new ODatabaseDocumentTx("local:" + dbPath).create();
+		final List<ORecordId> rids = new ArrayList<ORecordId>();
+		final List<String> contents = new ArrayList<String>();
+		try {
+			db.addCluster("Compressed", OStorage.CLUSTER_TYPE.PHYSICAL);
+
+			for (int i = 0; i < 200; ++i) {
+				if (i == 100)
+					// THE FIRST HALF STAYS UNCOMPRESSED
+					db.command(new OCommandSQL("alter cluster Compressed compression lzf")).execute();
+
+				final ODocument doc = new ODocument(db);
+				doc.field("name", "Customer " + i);
+				doc.field("notes", "A note long enough to be compressed, with some repetitions: a note long enough to be compressed, a note long enough to be compressed");
+				doc.save("Compressed");
+				rids.add((ORecordId) doc.getIdentity().copy());
+				contents.add(doc.toString());
+			}
+
+			// UPDATE AN UNCOMPRESSED RECORD: IT'S WRITTEN COMPRESSED
+			final ODocument doc = db.load(rids.get(0));
+			doc.field("name", "Updated");
+			doc.save();
+			contents.set(0, doc.toString());
+
+		} finally {
+			db.close();
+		}
+
+		db = new ODatabaseDocumentTx("local:" + dbPath).open("admin", "admin");
+		try {
+			final OClusterLocal cluster = (OClusterLocal) db.getStorage().getClusterById(db.getClusterIdByName("Compressed"));
+			Assert.assertTrue(cluster.isCompressed());
+
+			for (int i = 0; i < rids.size(); ++i)
+				Assert.assertEquals(db.load(rids.get(i)).toString(), contents.get(i));
+		} finally {
+			db.delete();
+		}
+	}
+
+	private void copyFiles(final File iSource, final File iDestination) throws IOException {
+		iDestination.mkdirs();
+		for (File f : iSource.listFiles())
+			copyFile(f, new File(iDestination, f.getName()));
+	}
+
+	private void copyFile(final File iSource, final File iDestination) throws IOException {
+		final FileInputStream in = new FileInputStream(iSource);
+		final FileOutputStream out = new FileOutputStream(iDestination);
+		try {
+			final byte[] buffer = new byte[65536];
+			int read;
+			while ((read = in.read(buffer)) > -1)
+				out.write(buffer, 0, read);
+		} finally {
+			in.close();
+			out.close();
+		}
+	}
+
 	private boolean delTree(File directory) {
 		if (directory.exists()) {
 			File[] files = directory.listFiles();
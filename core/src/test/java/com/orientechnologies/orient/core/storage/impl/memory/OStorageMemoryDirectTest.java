@@ -0,0 +1,117 @@
+package com.orientechnologies.orient.core.storage.impl.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.exception.OConcurrentModificationException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+@Test
+public class OStorageMemoryDirectTest {
+	private ODatabaseDocumentTx	database;
+
+	@BeforeClass
+	public void beforeClass() {
+		database = new ODatabaseDocumentTx("directmemory:directmemorytest").create();
+	}
+
+	@AfterClass
+	public void afterClass() {
+		database.close();
+	}
+
+	public void testStorage() {
+		Assert.assertTrue(database.getStorage() instanceof OStorageMemoryDirect);
+	}
+
+	public void testCrud() {
+		final List<ORID> rids = new ArrayList<ORID>();
+		for (int i = 0; i < 1000; ++i)
+			rids.add(new ODocument(database).field("id", i).field("name", "record" + i).save().getIdentity());
+
+		database.getLevel1Cache().invalidate();
+		for (int i = 0; i < rids.size(); ++i)
+			Assert.assertEquals(((ODocument) database.load(rids.get(i))).field("name"), "record" + i);
+
+		// GROW AND SHRINK THE CONTENTS TO MOVE THEM TO OTHER CHUNKS
+		final StringBuilder big = new StringBuilder();
+		for (int i = 0; i < 500; ++i)
+			big.append("big");
+
+		for (int i = 0; i < rids.size(); i += 2)
+			((ODocument) database.load(rids.get(i))).field("name", big.toString()).save();
+		for (int i = 0; i < rids.size(); i += 4)
+			((ODocument) database.load(rids.get(i))).field("name", "small").save();
+
+		database.getLevel1Cache().invalidate();
+		for (int i = 0; i < rids.size(); ++i) {
+			final ODocument doc = database.load(rids.get(i));
+			Assert.assertEquals(doc.field("id"), i);
+			Assert.assertEquals(doc.field("name"), i % 4 == 0 ? "small" : i % 2 == 0 ? big.toString() : "record" + i);
+		}
+
+		final long count = database.countClusterElements(rids.get(0).getClusterId());
+		for (int i = 0; i < rids.size(); i += 3)
+			((ODocument) database.load(rids.get(i))).delete();
+		Assert.assertEquals(database.countClusterElements(rids.get(0).getClusterId()), count - 334);
+
+		// THE LAST DELETED POSITION IS RECYCLED
+		final ORID rid = new ODocument(database).field("name", "recycled").save().getIdentity();
+		Assert.assertEquals(rid.getClusterPosition(), rids.get(999).getClusterPosition());
+		database.getLevel1Cache().invalidate();
+		Assert.assertEquals(((ODocument) database.load(rid)).field("name"), "recycled");
+	}
+
+	public void testUpdateBiggerThanSlab() {
+		final int slabSize = OGlobalConfiguration.MEMORY_DIRECT_SLAB_SIZE.getValueAsInteger();
+		OGlobalConfiguration.MEMORY_DIRECT_SLAB_SIZE.setValue(1024);
+		try {
+			final ODataSegmentMemoryDirect data = new ODataSegmentMemoryDirect();
+
+			// SAME CHUNK SIZE OF THE DEDICATED BUFFER, BUT BIGGER THAN IT
+			final byte[] content = new byte[2010];
+			Arrays.fill(content, (byte) 7);
+			final long position = data.updateRecord(data.createRecord(new byte[2000]), content);
+			Assert.assertEquals(data.readRecord(position), content);
+
+			// SMALLER: OVERWRITTEN IN PLACE
+			final byte[] smaller = new byte[1500];
+			Arrays.fill(smaller, (byte) 8);
+			Assert.assertEquals(data.updateRecord(position, smaller), position);
+			Assert.assertEquals(data.readRecord(position), smaller);
+			Assert.assertEquals(data.getSize(), 1500);
+		} finally {
+			OGlobalConfiguration.MEMORY_DIRECT_SLAB_SIZE.setValue(slabSize);
+		}
+	}
+
+	public void testMvcc() {
+		final ODocument doc = (ODocument) new ODocument(database).field("name", "v0").save();
+		Assert.assertEquals(doc.getVersion(), 0);
+
+		final ODocument copy = doc.copy();
+
+		doc.field("name", "v1").save();
+		Assert.assertEquals(doc.getVersion(), 1);
+
+		try {
+			copy.field("name", "conflict").save();
+			Assert.fail();
+		} catch (OConcurrentModificationException e) {
+		}
+
+		database.getLevel1Cache().invalidate();
+		final ODocument loaded = database.load(doc.getIdentity());
+		Assert.assertEquals(loaded.getVersion(), 1);
+		Assert.assertEquals(loaded.field("name"), "v1");
+	}
+}
@@ -0,0 +1,146 @@
+package com.orientechnologies.orient.core.type.tree;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+@Test
+public class OMVRBTreeRIDPackedTest {
+	private ODatabaseDocumentTx	database;
+
+	@BeforeClass
+	public void beforeClass() {
+		database = new ODatabaseDocumentTx("memory:ridpackedtest").create();
+	}
+
+	@AfterClass
+	public void afterClass() {
+		database.close();
+	}
+
+	public void testPacking() {
+		final long packed = OMVRBTreeRIDPacked.pack(12, 123456789012l);
+		Assert.assertEquals(OMVRBTreeRIDPacked.getClusterId(packed), 12);
+		Assert.assertEquals(OMVRBTreeRIDPacked.getClusterPosition(packed), 123456789012l);
+
+		final long temporary = OMVRBTreeRIDPacked.pack(5, -2);
+		Assert.assertEquals(OMVRBTreeRIDPacked.getClusterId(temporary), 5);
+		Assert.assertEquals(OMVRBTreeRIDPacked.getClusterPosition(temporary), -2);
+
+		Assert.assertTrue(OMVRBTreeRIDPacked.pack(1, 1000) < OMVRBTreeRIDPacked.pack(2, 0));
+		Assert.assertFalse(OMVRBTreeRIDPacked.isPackable(new ORecordId()));
+	}
+
+	public void testSetOperations() {
+		final OMVRBTreeRIDPacked set = new OMVRBTreeRIDPacked(2);
+		Assert.assertTrue(set.add(new ORecordId(3, 10)));
+		Assert.assertTrue(set.add(new ORecordId(1, 20)));
+		Assert.assertTrue(set.add(new ORecordId(3, 5)));
+		Assert.assertFalse(set.add(new ORecordId(1, 20)));
+
+		Assert.assertEquals(set.size(), 3);
+		Assert.assertTrue(set.contains(new ORecordId(3, 5)));
+		Assert.assertFalse(set.contains(new ORecordId(3, 6)));
+
+		final List<OIdentifiable> items = new ArrayList<OIdentifiable>(set);
+		Assert.assertEquals(items.get(0), new ORecordId(1, 20));
+		Assert.assertEquals(items.get(1), new ORecordId(3, 5));
+		Assert.assertEquals(items.get(2), new ORecordId(3, 10));
+
+		Assert.assertTrue(set.remove(new ORecordId(3, 5)));
+		Assert.assertFalse(set.remove(new ORecordId(3, 5)));
+
+		final Iterator<OIdentifiable> it = set.iterator();
+		it.next();
+		it.remove();
+		Assert.assertEquals(set.size(), 1);
+		Assert.assertEquals(set.iterator().next(), new ORecordId(3, 10));
+	}
+
+	public void testMergeAndStream() {
+		final OMVRBTreeRIDPacked a = new OMVRBTreeRIDPacked();
+		final OMVRBTreeRIDPacked b = new OMVRBTreeRIDPacked();
+		for (int i = 0; i < 1000; ++i) {
+			a.add(new ORecordId(4, i * 2));
+			b.add(new ORecordId(4, i * 3));
+		}
+
+		Assert.assertTrue(a.addAll(b));
+		Assert.assertFalse(a.addAll(b));
+
+		final Set<OIdentifiable> expected = new HashSet<OIdentifiable>();
+		for (int i = 0; i < 1000; ++i) {
+			expected.add(new ORecordId(4, i * 2));
+			expected.add(new ORecordId(4, i * 3));
+		}
+		Assert.assertEquals(a.size(), expected.size());
+		for (int i = 1; i < a.size(); ++i)
+			Assert.assertTrue(a.getPacked(i - 1) < a.getPacked(i));
+
+		final byte[] stream = a.toStream();
+		// SMALL DELTAS TAKE ONE BYTE EACH
+		Assert.assertTrue(stream.length < a.size() + 16);
+
+		final OMVRBTreeRIDPacked loaded = new OMVRBTreeRIDPacked().fromStream(stream);
+		Assert.assertEquals(loaded, expected);
+	}
+
+	public void testBigLinkSet() {
+		final List<ODocument> items = new ArrayList<ODocument>();
+		for (int i = 0; i < 100; ++i)
+			items.add((ODocument) new ODocument(database).field("id", i).save());
+
+		final ODocument owner = new ODocument(database);
+		final OMVRBTreeRIDSet set = new OMVRBTreeRIDSet(owner);
+		for (ODocument item : items)
+			set.add(item);
+		owner.field("items", set, OType.LINKSET);
+		owner.save();
+
+		Assert.assertTrue(new String(set.toStream()).startsWith("(ORIDs@"));
+
+		database.getLevel1Cache().invalidate();
+		database.getLevel2Cache().clear();
+
+		ODocument loaded = database.load(owner.getIdentity());
+		OMVRBTreeRIDSet loadedSet = loaded.field("items");
+		Assert.assertEquals(loadedSet.size(), 100);
+		for (ODocument item : items)
+			Assert.assertTrue(loadedSet.contains(item.getIdentity()));
+
+		// CHANGE THE PACKED SET AND RELOAD IT
+		loadedSet.remove(items.get(10).getIdentity());
+		final ODocument added = (ODocument) new ODocument(database).field("id", 100).save();
+		loadedSet.add(added);
+		loaded.save();
+
+		database.getLevel1Cache().invalidate();
+		database.getLevel2Cache().clear();
+
+		loaded = database.load(owner.getIdentity());
+		loadedSet = loaded.field("items");
+		Assert.assertEquals(loadedSet.size(), 100);
+		Assert.assertFalse(loadedSet.contains(items.get(10).getIdentity()));
+		Assert.assertTrue(loadedSet.contains(added.getIdentity()));
+
+		int count = 0;
+		for (OIdentifiable item : loadedSet) {
+			Assert.assertNotNull(item.getRecord());
+			count++;
+		}
+		Assert.assertEquals(count, 100);
+	}
+}
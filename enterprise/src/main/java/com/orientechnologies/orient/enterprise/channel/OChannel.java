@@ -38,6 +38,26 @@ public abstract class OChannel extends OSharedResourceExternalTimeout {
 		socketBufferSize = iConfig.getValueAsInteger(OGlobalConfiguration.NETWORK_SOCKET_BUFFER_SIZE);
 	}
 
+	/**
+	 * Returns the stream to read from the socket. The sockets of the NIO listeners are in non-blocking mode and are read through
+	 * their channel.
+	 */
+	protected InputStream getSocketInputStream() throws IOException {
+		if (socket.getChannel() != null && !socket.getChannel().isBlocking())
+			return new OSocketChannelInputStream(socket, socketBufferSize);
+		return socket.getInputStream();
+	}
+
+	/**
+	 * Returns the stream to write to the socket. The sockets of the NIO listeners are in non-blocking mode and are written through
+	 * their channel.
+	 */
+	protected OutputStream getSocketOutputStream() throws IOException {
+		if (socket.getChannel() != null && !socket.getChannel().isBlocking())
+			return new OSocketChannelOutputStream(socket);
+		return socket.getOutputStream();
+	}
+
 	public void flush() throws IOException {
 		outStream.flush();
 	}
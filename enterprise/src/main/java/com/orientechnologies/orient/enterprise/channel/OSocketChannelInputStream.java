@@ -0,0 +1,132 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.enterprise.channel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Reads from a socket in non-blocking mode, such as the sockets of the NIO listeners. Reads block the caller until some data is
+ * available by waiting on a selector owned by the current thread, honoring the socket timeout.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OSocketChannelInputStream extends InputStream {
+	private static final ThreadLocal<Selector>	selectors	= new ThreadLocal<Selector>();
+
+	private final Socket												socket;
+	private final SocketChannel									channel;
+	private final ByteBuffer										buffer;
+
+	public OSocketChannelInputStream(final Socket iSocket, final int iBufferSize) {
+		socket = iSocket;
+		channel = iSocket.getChannel();
+		buffer = ByteBuffer.allocate(iBufferSize);
+		buffer.flip();
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!buffer.hasRemaining() && fill(true) == -1)
+			return -1;
+		return buffer.get() & 0xFF;
+	}
+
+	@Override
+	public int read(final byte[] iBuffer, final int iOffset, final int iLength) throws IOException {
+		if (iLength == 0)
+			return 0;
+
+		if (!buffer.hasRemaining() && fill(true) == -1)
+			return -1;
+
+		final int read = Math.min(iLength, buffer.remaining());
+		buffer.get(iBuffer, iOffset, read);
+		return read;
+	}
+
+	/**
+	 * Returns the bytes that can be read without blocking, reading what the socket has already received.
+	 */
+	@Override
+	public int available() throws IOException {
+		if (!buffer.hasRemaining())
+			fill(false);
+		return buffer.remaining();
+	}
+
+	@Override
+	public void close() throws IOException {
+		socket.close();
+	}
+
+	private int fill(final boolean iWait) throws IOException {
+		buffer.clear();
+		try {
+			int read;
+			while ((read = channel.read(buffer)) == 0 && iWait)
+				waitFor(channel, SelectionKey.OP_READ, socket.getSoTimeout());
+			return read;
+		} finally {
+			buffer.flip();
+		}
+	}
+
+	/**
+	 * Waits until the channel is ready for the operation.
+	 * 
+	 * @param iChannel
+	 *          Channel in non-blocking mode
+	 * @param iOperation
+	 *          SelectionKey.OP_READ or SelectionKey.OP_WRITE
+	 * @param iTimeout
+	 *          Timeout in ms, 0 to wait forever
+	 * @throws SocketTimeoutException
+	 *           if the timeout is reached
+	 */
+	static void waitFor(final SocketChannel iChannel, final int iOperation, final int iTimeout) throws IOException {
+		Selector selector = selectors.get();
+		if (selector == null || !selector.isOpen()) {
+			selector = Selector.open();
+			selectors.set(selector);
+		}
+
+		final long deadline = iTimeout > 0 ? System.currentTimeMillis() + iTimeout : 0;
+
+		final SelectionKey key = iChannel.register(selector, iOperation);
+		try {
+			while (selector.select(iTimeout > 0 ? Math.max(1, deadline - System.currentTimeMillis()) : 0) == 0) {
+				if (!iChannel.isOpen())
+					throw new ClosedChannelException();
+
+				if (iTimeout > 0 && System.currentTimeMillis() >= deadline)
+					throw new SocketTimeoutException("Timeout on waiting for the socket " + iChannel.socket().getRemoteSocketAddress());
+			}
+		} finally {
+			key.cancel();
+			// DEREGISTER THE CHANNEL TO REUSE THE SELECTOR
+			selector.selectNow();
+		}
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.enterprise.channel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Writes to a socket in non-blocking mode, such as the sockets of the NIO listeners. Writes block the caller until all the bytes
+ * have been passed to the socket.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OSocketChannelOutputStream extends OutputStream {
+	private final Socket				socket;
+	private final SocketChannel	channel;
+
+	public OSocketChannelOutputStream(final Socket iSocket) {
+		socket = iSocket;
+		channel = iSocket.getChannel();
+	}
+
+	@Override
+	public void write(final int iByte) throws IOException {
+		write(new byte[] { (byte) iByte }, 0, 1);
+	}
+
+	@Override
+	public void write(final byte[] iBuffer, final int iOffset, final int iLength) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.wrap(iBuffer, iOffset, iLength);
+		while (buffer.hasRemaining())
+			if (channel.write(buffer) == 0)
+				// SOCKET BUFFER FULL: WAIT FOR THE CLIENT TO READ, AS A BLOCKING SOCKET WOULD DO
+				OSocketChannelInputStream.waitFor(channel, SelectionKey.OP_WRITE, 0);
+	}
+
+	@Override
+	public void close() throws IOException {
+		socket.close();
+	}
+}
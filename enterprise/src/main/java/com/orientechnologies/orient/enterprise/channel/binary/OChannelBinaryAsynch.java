@@ -17,12 +17,15 @@ package com.orientechnologies.orient.enterprise.channel.binary;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 import com.orientechnologies.orient.core.config.OContextConfiguration;
 
 /**
- * Implementation that supports multiple client requests.
+ * Implementation that supports multiple client requests. Responses are matched to the requesters by the request id: the thread
+ * that reads a response header not directed to it wakes up the waiting threads and waits for the next one, so many requests can
+ * be in flight on the same connection.
  * 
  * @author Luca Garulli (l.garulli--at--orientechnologies.com)
  * 
@@ -30,6 +33,7 @@ import com.orientechnologies.orient.core.config.OContextConfiguration;
 public class OChannelBinaryAsynch extends OChannelBinary {
 	private final ReentrantLock	lockRead		= new ReentrantLock();
 	private final ReentrantLock	lockWrite		= new ReentrantLock();
+	private final Condition			readNext		= lockRead.newCondition();
 	private boolean							channelRead	= false;
 	private byte								currentStatus;
 	private int									currentTxId;
@@ -49,9 +53,8 @@ public class OChannelBinaryAsynch extends OChannelBinary {
 
 	public int beginResponse(final int iRequesterId) throws IOException {
 		// WAIT FOR THE RESPONSE
+		lockRead.lock();
 		do {
-			lockRead.lock();
-
 			if (!channelRead) {
 				channelRead = true;
 
@@ -60,7 +63,9 @@ public class OChannelBinaryAsynch extends OChannelBinary {
 					currentTxId = readInt();
 
 				} catch (IOException e) {
-					// UNLOCK THE RESOURCE AND PROPAGATES THE EXCEPTION
+					// UNLOCK THE RESOURCE, WAKE UP THE WAITING THREADS AND PROPAGATES THE EXCEPTION
+					channelRead = false;
+					readNext.signalAll();
 					lockRead.unlock();
 					throw e;
 				}
@@ -70,30 +75,34 @@ public class OChannelBinaryAsynch extends OChannelBinary {
 				// IT'S FOR ME
 				break;
 
-			lockRead.unlock();
-
-			synchronized (this) {
-				try {
-					wait(1000);
-				} catch (InterruptedException e) {
-					Thread.currentThread().interrupt();
-				}
-			}
+			// WAKE UP THE OWNER OF THE RESPONSE AND WAIT FOR THE NEXT ONE
+			readNext.signalAll();
+			readNext.awaitUninterruptibly();
 		} while (true);
 
-		handleStatus(currentStatus, currentTxId);
+		try {
+			handleStatus(currentStatus, currentTxId);
+		} catch (IOException e) {
+			endResponse();
+			throw e;
+		} catch (RuntimeException e) {
+			endResponse();
+			throw e;
+		}
 
 		return iRequesterId;
 	}
 
 	public void endResponse() {
+		if (!lockRead.isHeldByCurrentThread())
+			// ALREADY RELEASED ON ERROR
+			return;
+
 		channelRead = false;
-		lockRead.unlock();
 
 		// WAKE UP ALL THE WAITING THREADS
-		synchronized (this) {
-			notifyAll();
-		}
+		readNext.signalAll();
+		lockRead.unlock();
 	}
 
 	public ReentrantLock getLockRead() {
@@ -106,11 +115,16 @@ public class OChannelBinaryAsynch extends OChannelBinary {
 
 	@Override
 	public void close() {
-		synchronized (this) {
-			notifyAll();
-		}
-
 		super.close();
+
+		// WAKE UP THE WAITING THREADS: THEY WILL RECEIVE THE ERROR OF THE CLOSED SOCKET
+		if (lockRead.tryLock())
+			try {
+				channelRead = false;
+				readNext.signalAll();
+			} finally {
+				lockRead.unlock();
+			}
 	}
 
 	@Override
@@ -17,6 +17,7 @@ package com.orientechnologies.orient.enterprise.channel.binary;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -28,7 +29,11 @@ import com.orientechnologies.orient.core.config.OContextConfiguration;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 
 public class OChannelBinaryClient extends OChannelBinaryAsynch {
-	final protected int	timeout;	// IN MS
+	final protected int							timeout;				// IN MS
+	private final ByteArrayOutputStream	contentBuffer	= new ByteArrayOutputStream();
+	private final DataOutputStream			contentOut		= new DataOutputStream(contentBuffer);
+	private DataOutputStream						socketOut;
+	private int													writeHolds;
 
 	public OChannelBinaryClient(final String remoteHost, final int remotePort, final OContextConfiguration iConfig)
 			throws IOException {
@@ -49,6 +54,61 @@ public class OChannelBinaryClient extends OChannelBinaryAsynch {
 		out = new DataOutputStream(outStream);
 	}
 
+	/**
+	 * Starts buffering the content of the request: it will be sent as a chunk of bytes by {@link #endContent()}. Must be called
+	 * after the request header has been written while holding the write lock.
+	 */
+	public void beginContent() {
+		contentBuffer.reset();
+		socketOut = out;
+		out = contentOut;
+	}
+
+	/**
+	 * Sends the content buffered since the call to {@link #beginContent()} as [int length][bytes]. Does nothing if no content is
+	 * being buffered.
+	 */
+	public void endContent() throws IOException {
+		if (socketOut == null)
+			return;
+
+		out = socketOut;
+		socketOut = null;
+
+		out.writeInt(contentBuffer.size());
+		contentBuffer.writeTo(out);
+	}
+
+	/**
+	 * Tells if the content of the request is being buffered since the call to {@link #beginContent()}.
+	 */
+	public boolean isBufferingContent() {
+		return socketOut != null;
+	}
+
+	/**
+	 * Keeps the write lock acquired for the request just sent until its response has been read by {@link #releaseWriteHold()}. Used
+	 * for the requests not framed by {@link #beginContent()}: if the server fails reading one of them it discards the input
+	 * received, so no other request must be sent after it in the meanwhile.
+	 */
+	public void holdWriteLock() {
+		++writeHolds;
+	}
+
+	/**
+	 * Releases the write lock kept by {@link #holdWriteLock()}, if any.
+	 * 
+	 * @return true if the lock has been released, otherwise false
+	 */
+	public boolean releaseWriteHold() {
+		if (writeHolds == 0 || !getLockWrite().isHeldByCurrentThread())
+			return false;
+
+		--writeHolds;
+		getLockWrite().unlock();
+		return true;
+	}
+
 	public void reconnect() throws IOException {
 		SocketAddress address = socket.getRemoteSocketAddress();
 		socket.close();
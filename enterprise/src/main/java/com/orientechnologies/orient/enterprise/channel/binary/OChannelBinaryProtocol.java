@@ -48,6 +48,7 @@ public class OChannelBinaryProtocol {
 	public static final byte	REQUEST_RECORD_CREATE					= 31;
 	public static final byte	REQUEST_RECORD_UPDATE					= 32;
 	public static final byte	REQUEST_RECORD_DELETE					= 33;
+	public static final byte	REQUEST_RECORD_LOAD_MULTI			= 34;
 
 	public static final byte	REQUEST_COUNT									= 40;
 	public static final byte	REQUEST_COMMAND								= 41;
@@ -70,7 +71,37 @@ public class OChannelBinaryProtocol {
 	// CONSTANTS
 	public static final short	RECORD_NULL										= -2;
 	public static final short	RECORD_RID										= -3;
-	public static final int		CURRENT_PROTOCOL_VERSION			= 6;	// SENT AS SHORT AS FIRST PACKET AFTER SOCKET CONNECTION
+	public static final int		CURRENT_PROTOCOL_VERSION			= 8;	// SENT AS SHORT AS FIRST PACKET AFTER SOCKET CONNECTION
+
+	/**
+	 * Tells if the request can be pipelined, namely executed by the server concurrently with the requests of the other sessions
+	 * sharing the same connection. The requests are sent as [byte request type][int session id][int request id] followed by the
+	 * content as a chunk of bytes, so the server can read the next request without waiting for the execution of the current one.
+	 * Responses carry the request id, so the client can match them in any order. All the other requests are sent without framing
+	 * and are executed in order.
+	 * 
+	 * @param iRequestType
+	 *          Request type
+	 * @return true if the request content is framed and can be executed concurrently, otherwise false
+	 */
+	public static boolean isPipelined(final byte iRequestType) {
+		switch (iRequestType) {
+		case REQUEST_DB_SIZE:
+		case REQUEST_DB_COUNTRECORDS:
+		case REQUEST_DATACLUSTER_COUNT:
+		case REQUEST_DATACLUSTER_DATARANGE:
+		case REQUEST_RECORD_LOAD:
+		case REQUEST_RECORD_CREATE:
+		case REQUEST_RECORD_UPDATE:
+		case REQUEST_RECORD_DELETE:
+		case REQUEST_RECORD_LOAD_MULTI:
+		case REQUEST_COUNT:
+		case REQUEST_COMMAND:
+		case REQUEST_TX_COMMIT:
+			return true;
+		}
+		return false;
+	}
 
 	public static void checkProtocolVersion(final OChannelBinary iNetwork) throws IOException {
 		// SEND PROTOCOL VERSION
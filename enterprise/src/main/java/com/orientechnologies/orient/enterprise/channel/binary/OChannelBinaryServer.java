@@ -32,22 +32,84 @@ package com.orientechnologies.orient.enterprise.channel.binary;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.Socket;
 
+import com.orientechnologies.common.concur.OTimeoutException;
 import com.orientechnologies.orient.core.config.OContextConfiguration;
 
 public class OChannelBinaryServer extends OChannelBinary {
+	private final OChannelBinaryServer	parent;
 
 	public OChannelBinaryServer(final Socket iSocket, final OContextConfiguration iConfig) throws IOException {
 		super(iSocket, iConfig);
+		parent = null;
 
-		inStream = new BufferedInputStream(socket.getInputStream(), socketBufferSize);
-		outStream = new BufferedOutputStream(socket.getOutputStream(), socketBufferSize);
+		inStream = new BufferedInputStream(getSocketInputStream(), socketBufferSize);
+		outStream = new BufferedOutputStream(getSocketOutputStream(), socketBufferSize);
 
 		out = new DataOutputStream(outStream);
 		in = new DataInputStream(inStream);
 	}
+
+	/**
+	 * Creates a view of the parent channel to execute pipelined requests: the request is read from the content set with
+	 * {@link #setRequest(byte[])}, while the response is written to the parent's socket under the parent's locks.
+	 */
+	public OChannelBinaryServer(final OChannelBinaryServer iParent, final OContextConfiguration iConfig) throws IOException {
+		super(iParent.socket, iConfig);
+		parent = iParent;
+
+		outStream = iParent.outStream;
+		out = iParent.out;
+	}
+
+	public void setRequest(final byte[] iContent) {
+		inStream = new ByteArrayInputStream(iContent);
+		in = new DataInputStream(inStream);
+	}
+
+	@Override
+	public void acquireExclusiveLock() throws OTimeoutException {
+		if (parent != null)
+			parent.acquireExclusiveLock();
+		else
+			super.acquireExclusiveLock();
+	}
+
+	@Override
+	public void releaseExclusiveLock() {
+		if (parent != null)
+			parent.releaseExclusiveLock();
+		else
+			super.releaseExclusiveLock();
+	}
+
+	@Override
+	public void acquireSharedLock() throws OTimeoutException {
+		if (parent != null)
+			parent.acquireSharedLock();
+		else
+			super.acquireSharedLock();
+	}
+
+	@Override
+	public void releaseSharedLock() {
+		if (parent != null)
+			parent.releaseSharedLock();
+		else
+			super.releaseSharedLock();
+	}
+
+	@Override
+	public void close() {
+		if (parent != null)
+			// THE SOCKET IS OWNED BY THE PARENT CHANNEL
+			return;
+
+		super.close();
+	}
 }
\ No newline at end of file
@@ -31,7 +31,7 @@ public class OChannelTextServer extends OChannelText {
 		socket.setSendBufferSize(socketBufferSize);
 		socket.setReceiveBufferSize(socketBufferSize);
 
-		inStream = new BufferedInputStream(socket.getInputStream(), socketBufferSize);
-		outStream = new BufferedOutputStream(socket.getOutputStream(), socketBufferSize);
+		inStream = new BufferedInputStream(getSocketInputStream(), socketBufferSize);
+		outStream = new BufferedOutputStream(getSocketOutputStream(), socketBufferSize);
 	}
 }
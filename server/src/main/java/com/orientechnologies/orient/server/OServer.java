@@ -147,7 +147,7 @@ public class OServer {
 		// STARTUP LISTENERS
 		for (OServerNetworkListenerConfiguration l : configuration.network.listeners)
 			listeners.add(new OServerNetworkListener(this, l.ipAddress, l.portRange, l.protocol, protocols.get(l.protocol), l.parameters,
-					l.commands));
+					l.commands, l.nio));
 
 		registerHandlers();
 
@@ -115,6 +115,7 @@ public class OServerShutdownMain {
 
 		channel.writeByte(OChannelBinaryProtocol.REQUEST_SHUTDOWN);
 		channel.writeInt(0);
+		channel.writeInt(0); // REQUEST ID
 		channel.writeString(OServerConfiguration.SRV_ROOT_ADMIN);
 		channel.writeString(rootPassword);
 		channel.flush();
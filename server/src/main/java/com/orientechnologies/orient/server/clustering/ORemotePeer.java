@@ -87,6 +87,7 @@ public class ORemotePeer {
 		// CONNECT TO THE SERVER
 		channel.writeByte(OChannelDistributedProtocol.REQUEST_DISTRIBUTED_LEADER_CONNECT);
 		channel.writeInt(clientTxId);
+		channel.writeInt(clientTxId); // REQUEST ID
 
 		final ODocument doc = new ODocument();
 		doc.field("clusterName", iClusterName);
@@ -157,6 +158,7 @@ public class ORemotePeer {
 
 				channel.writeByte(OChannelDistributedProtocol.REQUEST_DISTRIBUTED_DB_CONFIG);
 				channel.writeInt(sessionId);
+				channel.writeInt(sessionId); // REQUEST ID
 				channel.writeBytes(iConfiguration.toStream());
 
 			} finally {
@@ -190,6 +192,7 @@ public class ORemotePeer {
 			try {
 				channel.writeByte(OChannelDistributedProtocol.REQUEST_DISTRIBUTED_HEARTBEAT);
 				channel.writeInt(clientTxId);
+				channel.writeInt(clientTxId); // REQUEST ID
 			} finally {
 				channel.endRequest();
 			}
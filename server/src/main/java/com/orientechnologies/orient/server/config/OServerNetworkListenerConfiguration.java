@@ -23,7 +23,7 @@ import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlType;
 
 @XmlRootElement(name = "listener")
-@XmlType(propOrder = { "commands", "parameters", "protocol", "portRange", "ipAddress" })
+@XmlType(propOrder = { "commands", "parameters", "nio", "protocol", "portRange", "ipAddress" })
 public class OServerNetworkListenerConfiguration {
 
 	@XmlAttribute(name = "ip-address", required = true)
@@ -35,6 +35,12 @@ public class OServerNetworkListenerConfiguration {
 	@XmlAttribute
 	public String														protocol	= "binary";
 
+	/**
+	 * Serves the connections with a few selector threads and a bounded pool of workers instead of one thread per connection.
+	 */
+	@XmlAttribute
+	public boolean													nio				= false;
+
 	@XmlElementWrapper
 	@XmlElementRef(type = OServerParameterConfiguration.class)
 	public OServerParameterConfiguration[]	parameters;
@@ -23,8 +23,13 @@ import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.channels.ServerSocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.config.OContextConfiguration;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
@@ -46,11 +51,24 @@ public class OServerNetworkListener extends Thread {
 	private OContextConfiguration							configuration;
 	private OServer														server;
 
-	@SuppressWarnings("unchecked")
+	// NIO MODE: THE SELECTORS WATCH THE CONNECTIONS AND THE WORKERS EXECUTE THEIR REQUESTS
+	private boolean														nio;
+	private OServerNetworkSelector[]					selectors;
+	private ExecutorService										workers;
+	private int																nextSelector;
+
 	public OServerNetworkListener(final OServer iServer, final String iHostName, final String iHostPortRange,
 			final String iProtocolName, final Class<? extends ONetworkProtocol> iProtocol,
 			final OServerParameterConfiguration[] iParameters, final OServerCommandConfiguration[] iCommands) {
+		this(iServer, iHostName, iHostPortRange, iProtocolName, iProtocol, iParameters, iCommands, false);
+	}
+
+	@SuppressWarnings("unchecked")
+	public OServerNetworkListener(final OServer iServer, final String iHostName, final String iHostPortRange,
+			final String iProtocolName, final Class<? extends ONetworkProtocol> iProtocol,
+			final OServerParameterConfiguration[] iParameters, final OServerCommandConfiguration[] iCommands, final boolean iNIO) {
 		server = iServer;
+		nio = iNIO;
 
 		if (iProtocol == null)
 			throw new IllegalArgumentException("Cannot start listener: protocol not found");
@@ -60,6 +78,9 @@ public class OServerNetworkListener extends Thread {
 
 		readParameters(iServer.getContextConfiguration(), iParameters);
 
+		if (nio)
+			startSelectors(iProtocolName);
+
 		if (iCommands != null) {
 			// CREATE COMMANDS
 			commands = new OServerCommand[iCommands.length];
@@ -84,6 +105,44 @@ public class OServerNetworkListener extends Thread {
 				serverSocket.close();
 			} catch (IOException e) {
 			}
+
+		if (selectors != null) {
+			for (OServerNetworkSelector s : selectors)
+				s.sendShutdown();
+			workers.shutdown();
+		}
+	}
+
+	public boolean isNIO() {
+		return nio;
+	}
+
+	/**
+	 * Creates the selector threads and the bounded pool of workers that serve the connections in NIO mode.
+	 */
+	private void startSelectors(final String iProtocolName) {
+		final int workerCount = configuration.getValueAsInteger(OGlobalConfiguration.NETWORK_NIO_WORKERS);
+		workers = Executors.newFixedThreadPool(workerCount, new ThreadFactory() {
+			private int	created	= 0;
+
+			public synchronized Thread newThread(final Runnable iTask) {
+				final Thread t = new Thread(Orient.getThreadGroup(), iTask, "IO-NIO-" + iProtocolName + "-Worker-" + (++created));
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		selectors = new OServerNetworkSelector[configuration.getValueAsInteger(OGlobalConfiguration.NETWORK_NIO_SELECTORS)];
+		try {
+			for (int i = 0; i < selectors.length; ++i)
+				selectors[i] = new OServerNetworkSelector("IO-NIO-" + iProtocolName + "-Selector-" + i, workers);
+		} catch (IOException e) {
+			OLogManager.instance().error(this, "Unable to open the selectors of the NIO listener", e);
+			System.exit(1);
+		}
+
+		OLogManager.instance().info(this, "NIO mode enabled for %s connections: %d selectors, %d workers", iProtocolName,
+				selectors.length, workerCount);
 	}
 
 	/**
@@ -98,7 +157,12 @@ public class OServerNetworkListener extends Thread {
 		for (int port : ports) {
 			inboundAddr = new InetSocketAddress(iHostName, port);
 			try {
-				serverSocket = new java.net.ServerSocket(port, 0, InetAddress.getByName(iHostName));
+				if (nio) {
+					// ACCEPTED SOCKETS HAVE A CHANNEL TO BE USED IN NON-BLOCKING MODE
+					serverSocket = ServerSocketChannel.open().socket();
+					serverSocket.bind(new InetSocketAddress(InetAddress.getByName(iHostName), port));
+				} else
+					serverSocket = new java.net.ServerSocket(port, 0, InetAddress.getByName(iHostName));
 
 				if (serverSocket.isBound()) {
 					OLogManager.instance().info(this,
@@ -141,8 +205,12 @@ public class OServerNetworkListener extends Thread {
 					socket.setSendBufferSize(socketBufferSize);
 					socket.setReceiveBufferSize(socketBufferSize);
 
+					if (nio)
+						socket.getChannel().configureBlocking(false);
+
 					// CREATE A NEW PROTOCOL INSTANCE
 					protocol = protocolType.newInstance();
+					protocol.setNonBlocking(nio);
 
 					// CREATE THE CLIENT CONNECTION
 					connection = OClientConnectionManager.instance().connect(socket, protocol);
@@ -156,6 +224,10 @@ public class OServerNetworkListener extends Thread {
 							protocol.registerCommand(c);
 						}
 
+					if (nio)
+						// FROM NOW ON THE CONNECTION IS SERVED ONLY WHEN IT HAS SOMETHING TO READ
+						selectors[nextSelector++ % selectors.length].register(protocol);
+
 				} catch (Throwable e) {
 					if (active)
 						OLogManager.instance().error(this, "Error on client connection", e);
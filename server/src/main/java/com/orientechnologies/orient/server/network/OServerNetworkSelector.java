@@ -0,0 +1,156 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.thread.OSoftThread;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.server.network.protocol.ONetworkProtocol;
+
+/**
+ * Waits for the requests of the connections of a NIO listener. When a connection has something to read it's passed to the
+ * worker pool, that executes all the requests already received, and then it's given back to be watched again. Idle connections
+ * don't hold any thread, while the protocols read with the socket timeout to not hold a worker forever on a client that stops
+ * sending in the middle of a request.
+ * 
+ * @author Luca Garulli
+ * 
+ */
+public class OServerNetworkSelector extends OSoftThread {
+	private final Selector											selector;
+	private final ExecutorService								workers;
+	private final Queue<ONetworkProtocol>				newConnections	= new ConcurrentLinkedQueue<ONetworkProtocol>();
+	private final Queue<SelectionKey>						servedConnections	= new ConcurrentLinkedQueue<SelectionKey>();
+
+	public OServerNetworkSelector(final String iName, final ExecutorService iWorkers) throws IOException {
+		super(Orient.getThreadGroup(), iName);
+		selector = Selector.open();
+		workers = iWorkers;
+		start();
+	}
+
+	/**
+	 * Watches the connection served by the protocol. Its socket must be in non-blocking mode.
+	 */
+	public void register(final ONetworkProtocol iProtocol) {
+		newConnections.offer(iProtocol);
+		selector.wakeup();
+	}
+
+	@Override
+	protected void execute() throws Exception {
+		selector.select();
+
+		if (!isRunning())
+			return;
+
+		ONetworkProtocol protocol;
+		while ((protocol = newConnections.poll()) != null)
+			try {
+				protocol.getChannel().socket.getChannel().register(selector, SelectionKey.OP_READ, protocol);
+			} catch (ClosedChannelException e) {
+				protocol.shutdown();
+			}
+
+		// WATCH AGAIN THE CONNECTIONS GIVEN BACK BY THE WORKERS
+		SelectionKey key;
+		while ((key = servedConnections.poll()) != null)
+			if (key.isValid())
+				key.interestOps(SelectionKey.OP_READ);
+
+		for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext();) {
+			key = it.next();
+			it.remove();
+
+			if (!key.isValid())
+				continue;
+
+			// STOP WATCHING THE CONNECTION UNTIL THE WORKER HAS READ ITS REQUESTS
+			key.interestOps(0);
+
+			final SelectionKey readyKey = key;
+			try {
+				workers.execute(new Runnable() {
+					public void run() {
+						serve(readyKey);
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				// SHUTDOWN
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Executes the requests received by the connection. Called by the worker threads.
+	 */
+	private void serve(final SelectionKey iKey) {
+		final ONetworkProtocol protocol = (ONetworkProtocol) iKey.attachment();
+		try {
+			do {
+				if (!protocol.executeNext())
+					// CONNECTION CLOSED
+					return;
+			} while (protocol.getChannel().inStream.available() > 0);
+
+		} catch (IOException e) {
+			OLogManager.instance().debug(this, "Error on reading from the connection %s", e, protocol.getChannel());
+			protocol.sendShutdown();
+			protocol.shutdown();
+			return;
+		}
+
+		servedConnections.offer(iKey);
+		selector.wakeup();
+	}
+
+	@Override
+	public void sendShutdown() {
+		super.sendShutdown();
+		selector.wakeup();
+	}
+
+	@Override
+	public void shutdown() {
+		super.shutdown();
+
+		// CLEAR THE INTERRUPTION SENT BY sendShutdown(): CLOSING THE CHANNELS NEEDS THEIR LOCKS
+		Thread.interrupted();
+
+		try {
+			for (SelectionKey key : selector.keys()) {
+				final ONetworkProtocol protocol = (ONetworkProtocol) key.attachment();
+				protocol.sendShutdown();
+				protocol.shutdown();
+			}
+			selector.close();
+		} catch (Exception e) {
+			OLogManager.instance().debug(this, "Error on closing the selector", e);
+		}
+	}
+}
@@ -18,6 +18,7 @@ package com.orientechnologies.orient.server.network.protocol;
 import java.io.IOException;
 import java.net.Socket;
 
+import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.thread.OSoftThread;
 import com.orientechnologies.orient.core.config.OContextConfiguration;
 import com.orientechnologies.orient.enterprise.channel.OChannel;
@@ -27,11 +28,56 @@ import com.orientechnologies.orient.server.OServer;
 public abstract class ONetworkProtocol extends OSoftThread {
 	protected ONetworkProtocolData	data	= new ONetworkProtocolData();
 	protected OServer								server;
+	private boolean									nonBlocking;
 
 	public ONetworkProtocol(ThreadGroup group, String name) {
 		super(group, name);
 	}
 
+	/**
+	 * Executes the next request in the caller's thread. Used by the NIO listeners to serve the connection from their worker pool
+	 * only when the client sent something.
+	 * 
+	 * @return true if the connection is still open, otherwise false
+	 */
+	public boolean executeNext() {
+		if (isRunning())
+			try {
+				beforeExecution();
+				execute();
+				afterExecution();
+			} catch (Throwable t) {
+				OLogManager.instance().error(this, "Error on executing request", t);
+			}
+
+		if (isRunning())
+			return true;
+
+		shutdown();
+		return false;
+	}
+
+	/**
+	 * Tells if the connection is served by the worker pool of a NIO listener instead of by this thread.
+	 */
+	public boolean isNonBlocking() {
+		return nonBlocking;
+	}
+
+	public void setNonBlocking(final boolean iNonBlocking) {
+		nonBlocking = iNonBlocking;
+	}
+
+	/**
+	 * Starts serving the connection: starts this thread, or only prepares the protocol if the connection is non-blocking.
+	 */
+	protected void startService() {
+		if (nonBlocking)
+			startup();
+		else
+			start();
+	}
+
 	public abstract void config(OServer iServer, Socket iSocket, OClientConnection iConnection, OContextConfiguration iConfiguration)
 			throws IOException;
 
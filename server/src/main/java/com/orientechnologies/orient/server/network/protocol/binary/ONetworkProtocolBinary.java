@@ -19,11 +19,17 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.net.Socket;
 import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import com.orientechnologies.common.concur.lock.OLockException;
 import com.orientechnologies.common.exception.OException;
@@ -43,6 +49,7 @@ import com.orientechnologies.orient.core.db.record.ODatabaseRecordTx;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.engine.local.OEngineLocal;
 import com.orientechnologies.orient.core.engine.memory.OEngineMemory;
+import com.orientechnologies.orient.core.engine.memory.OEngineMemoryDirect;
 import com.orientechnologies.orient.core.exception.ODatabaseException;
 import com.orientechnologies.orient.core.exception.ORecordNotFoundException;
 import com.orientechnologies.orient.core.exception.OSecurityAccessException;
@@ -83,15 +90,37 @@ import com.orientechnologies.orient.server.network.protocol.ONetworkProtocol;
 import com.orientechnologies.orient.server.tx.OTransactionOptimisticProxy;
 
 public class ONetworkProtocolBinary extends ONetworkProtocol {
-	protected OClientConnection				connection;
-	protected OChannelBinaryServer		channel;
-	protected OUser										account;
-
-	protected String									user;
-	protected String									passwd;
-	protected int											lastRequestType;
-	protected int											lastClientTxId;
-	private OServerUserConfiguration	serverUser;
+	protected OClientConnection										connection;
+	protected OChannelBinaryServer								channel;
+	protected OUser																account;
+
+	protected String															user;
+	protected String															passwd;
+	protected int																	lastRequestType;
+	protected int																	lastClientTxId;
+	protected int																	lastRequestId;
+	private OServerUserConfiguration							serverUser;
+	private OContextConfiguration									configuration;
+
+	// PIPELINED REQUESTS: THE SOCKET'S THREAD PASSES THEM TO ONE WORKER PER SESSION
+	private ONetworkProtocolBinary								parent;
+	private final Map<Integer, ONetworkProtocolBinary>	sessionWorkers		= new HashMap<Integer, ONetworkProtocolBinary>();
+	private final BlockingQueue<OPipelinedRequest>			pipelinedRequests	= new LinkedBlockingQueue<OPipelinedRequest>();
+	private int																		pendingRequests;
+
+	private static class OPipelinedRequest {
+		private final byte		type;
+		private final int			sessionId;
+		private final int			requestId;
+		private final byte[]	content;
+
+		private OPipelinedRequest(final byte iType, final int iSessionId, final int iRequestId, final byte[] iContent) {
+			type = iType;
+			sessionId = iSessionId;
+			requestId = iRequestId;
+			content = iContent;
+		}
+	}
 
 	public ONetworkProtocolBinary() {
 		super(Orient.getThreadGroup(), "IO-Binary");
@@ -106,27 +135,87 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 			final OContextConfiguration iConfig) throws IOException {
 		server = iServer;
 		channel = new OChannelBinaryServer(iSocket, iConfig);
+		configuration = iConfig;
 		connection = iConnection;
 
+		if (isNonBlocking())
+			// THE WORKERS READ ONLY WHEN A REQUEST IS ARRIVING: A CLIENT THAT STOPS IN THE MIDDLE OF IT IS DISCONNECTED INSTEAD OF
+			// HOLDING THE WORKER FOREVER
+			iSocket.setSoTimeout(iConfig.getValueAsInteger(OGlobalConfiguration.NETWORK_SOCKET_TIMEOUT));
+
 		// SEND PROTOCOL VERSION
 		channel.writeShort((short) OChannelBinaryProtocol.CURRENT_PROTOCOL_VERSION);
 		channel.flush();
 
-		start();
+		startService();
 	}
 
 	@Override
 	protected void execute() throws Exception {
+		if (parent != null) {
+			executePipelinedRequest();
+			return;
+		}
+
 		lastRequestType = -1;
 		data.commandInfo = "Listening";
 		data.commandDetail = "-";
 
 		lastClientTxId = 0;
+		lastRequestId = 0;
 
 		try {
 			lastRequestType = channel.readByte();
 			lastClientTxId = channel.readInt();
+			lastRequestId = channel.readInt();
+
+			if (lastClientTxId > -1 && OChannelBinaryProtocol.isPipelined((byte) lastRequestType)) {
+				// READ THE WHOLE REQUEST AND PASS IT TO THE SESSION'S WORKER: IN THE MEANWHILE THE NEXT REQUEST CAN BE READ
+				final byte[] content = new byte[channel.readInt()];
+				channel.in.readFully(content);
+
+				final OPipelinedRequest request = new OPipelinedRequest((byte) lastRequestType, lastClientTxId, lastRequestId, content);
+				if (isNonBlocking())
+					// NIO LISTENER: THIS IS ALREADY A POOLED THREAD, EXECUTE IT HERE WITH THE SESSION'S STATE
+					getSessionWorker(lastClientTxId).executePipelinedRequest(request);
+				else
+					getSessionWorker(lastClientTxId).enqueueRequest(request);
+				return;
+			}
 
+			// ANY OTHER REQUEST IS EXECUTED BY THIS THREAD AFTER THE PENDING REQUESTS OF THE SAME SESSION
+			final ONetworkProtocolBinary worker = sessionWorkers.get(lastClientTxId);
+			if (worker != null)
+				worker.waitForPendingRequests();
+
+		} catch (EOFException e) {
+			handleConnectionError(e);
+			sendShutdown();
+			return;
+		} catch (SocketException e) {
+			handleConnectionError(e);
+			sendShutdown();
+			return;
+		} catch (SocketTimeoutException e) {
+			handleConnectionError(e);
+			sendShutdown();
+			return;
+		}
+
+		executeRequest();
+
+		if (lastRequestType == OChannelBinaryProtocol.REQUEST_DB_CLOSE) {
+			final ONetworkProtocolBinary worker = sessionWorkers.remove(lastClientTxId);
+			if (worker != null)
+				worker.sendShutdown();
+		}
+	}
+
+	/**
+	 * Executes the current request. The request type, session and request id have already been read.
+	 */
+	protected void executeRequest() throws IOException, InterruptedException {
+		try {
 			if (lastClientTxId > -1)
 				connection = OClientConnectionManager.instance().getConnection(lastClientTxId);
 			else {
@@ -156,13 +245,16 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 		} catch (SocketException e) {
 			handleConnectionError(e);
 			sendShutdown();
+		} catch (SocketTimeoutException e) {
+			handleConnectionError(e);
+			sendShutdown();
 		} catch (OException e) {
-			sendError(lastClientTxId, e);
+			sendError(lastRequestId, e);
 		} catch (RuntimeException e) {
-			sendError(lastClientTxId, e);
+			sendError(lastRequestId, e);
 		} catch (Throwable t) {
 			OLogManager.instance().error(this, "Error on executing request", t);
-			sendError(lastClientTxId, t);
+			sendError(lastRequestId, t);
 		} finally {
 			try {
 				channel.flush();
@@ -180,6 +272,79 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 		}
 	}
 
+	/**
+	 * Executes the next pipelined request of the session. Called by the session's worker thread.
+	 */
+	private void executePipelinedRequest() throws IOException, InterruptedException {
+		final OPipelinedRequest request;
+		try {
+			request = pipelinedRequests.take();
+		} catch (InterruptedException e) {
+			// SHUTDOWN
+			return;
+		}
+
+		try {
+			executePipelinedRequest(request);
+		} finally {
+			synchronized (pipelinedRequests) {
+				--pendingRequests;
+				pipelinedRequests.notifyAll();
+			}
+		}
+	}
+
+	private void executePipelinedRequest(final OPipelinedRequest request) throws IOException, InterruptedException {
+		data.commandInfo = "Listening";
+		data.commandDetail = "-";
+
+		channel.setRequest(request.content);
+		lastRequestType = request.type;
+		lastClientTxId = request.sessionId;
+		lastRequestId = request.requestId;
+
+		executeRequest();
+	}
+
+	private void enqueueRequest(final OPipelinedRequest iRequest) {
+		synchronized (pipelinedRequests) {
+			++pendingRequests;
+		}
+		pipelinedRequests.offer(iRequest);
+	}
+
+	private void waitForPendingRequests() throws InterruptedException {
+		synchronized (pipelinedRequests) {
+			while (pendingRequests > 0)
+				pipelinedRequests.wait();
+		}
+	}
+
+	/**
+	 * Returns the worker that executes the pipelined requests of the session, creating it at the first request.
+	 */
+	private ONetworkProtocolBinary getSessionWorker(final int iSessionId) throws IOException {
+		ONetworkProtocolBinary worker = sessionWorkers.get(iSessionId);
+		if (worker == null) {
+			try {
+				worker = getClass().newInstance();
+			} catch (Exception e) {
+				throw new ONetworkProtocolException("Cannot create the worker for the pipelined requests of session " + iSessionId, e);
+			}
+
+			worker.server = server;
+			worker.parent = this;
+			worker.channel = new OChannelBinaryServer(channel, configuration);
+			worker.setName(getName() + "-session-" + iSessionId);
+			worker.setNonBlocking(isNonBlocking());
+			if (!isNonBlocking())
+				worker.start();
+
+			sessionWorkers.put(iSessionId, worker);
+		}
+		return worker;
+	}
+
 	@SuppressWarnings("unchecked")
 	protected void parseCommand() throws IOException, InterruptedException {
 		switch (lastRequestType) {
@@ -199,7 +364,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 				channel.acquireExclusiveLock();
 				try {
-					sendOk(lastClientTxId);
+					sendOk(lastRequestId);
 				} finally {
 					channel.releaseExclusiveLock();
 				}
@@ -213,7 +378,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 			OLogManager.instance().error(this, "Authentication error of remote client %s:%d: shutdown is aborted.",
 					channel.socket.getInetAddress(), channel.socket.getPort());
 
-			sendError(lastClientTxId, new OSecurityAccessException("Invalid user/password to shutdown the server"));
+			sendError(lastRequestId, new OSecurityAccessException("Invalid user/password to shutdown the server"));
 			break;
 		}
 
@@ -224,7 +389,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 				channel.writeInt(connection.id);
 			} finally {
 				channel.releaseExclusiveLock();
@@ -239,7 +404,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 				channel.writeBytes(doc.toStream());
 			} finally {
 				channel.releaseExclusiveLock();
@@ -258,13 +423,13 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 			openDatabase(dbURL, user, passwd);
 
 			if (!(connection.database.getStorage() instanceof OStorageEmbedded) && !loadUserFromSchema(user, passwd)) {
-				sendError(lastClientTxId, new OSecurityAccessException(connection.database.getName(),
+				sendError(lastRequestId, new OSecurityAccessException(connection.database.getName(),
 						"User or password not valid for database: '" + connection.database.getName() + "'"));
 			} else {
 
 				channel.acquireExclusiveLock();
 				try {
-					sendOk(lastClientTxId);
+					sendOk(lastRequestId);
 					channel.writeInt(connection.id);
 
 					sendDatabaseInformation();
@@ -287,7 +452,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 
 				sendDatabaseInformation();
 
@@ -310,7 +475,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 			} finally {
 				channel.releaseExclusiveLock();
 			}
@@ -329,7 +494,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 			} finally {
 				channel.releaseExclusiveLock();
 			}
@@ -345,7 +510,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 				channel.writeByte((byte) (connection.database.exists() ? 1 : 0));
 			} finally {
 				channel.releaseExclusiveLock();
@@ -367,7 +532,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 			} finally {
 				channel.releaseExclusiveLock();
 			}
@@ -381,7 +546,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 				channel.writeLong(connection.database.getStorage().getSize());
 			} finally {
 				channel.releaseExclusiveLock();
@@ -396,7 +561,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 				channel.writeLong(connection.database.getStorage().countRecords());
 			} finally {
 				channel.releaseExclusiveLock();
@@ -417,7 +582,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 				channel.writeLong(count);
 			} finally {
 				channel.releaseExclusiveLock();
@@ -434,7 +599,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 				channel.writeLong(pos[0]);
 				channel.writeLong(pos[1]);
 			} finally {
@@ -472,7 +637,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 				channel.writeShort((short) num);
 			} finally {
 				channel.releaseExclusiveLock();
@@ -491,7 +656,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 				channel.writeByte((byte) (result ? 1 : 0));
 			} finally {
 				channel.releaseExclusiveLock();
@@ -510,11 +675,12 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 				OFetchHelper.checkFetchPlanValid(fetchPlanString);
 				channel.acquireExclusiveLock();
 				try {
-					sendOk(lastClientTxId);
+					sendOk(lastRequestId);
 					channel.writeByte((byte) 1);
 					channel.writeBytes(connection.database.getStorage().getConfiguration().toStream());
 					channel.writeInt(0);
 					channel.writeByte(ORecordBytes.RECORD_TYPE);
+					channel.writeByte((byte) 0); // NO MORE RECORDS
 				} finally {
 					channel.releaseExclusiveLock();
 				}
@@ -523,7 +689,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 				channel.acquireExclusiveLock();
 				try {
-					sendOk(lastClientTxId);
+					sendOk(lastRequestId);
 
 					if (record != null) {
 						channel.writeByte((byte) 1);
@@ -534,51 +700,57 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 						if (fetchPlanString.length() > 0) {
 							// BUILD THE SERVER SIDE RECORD TO ACCES TO THE FETCH
 							// PLAN
-							if (record instanceof ODocument) {
-								final Map<String, Integer> fetchPlan = OFetchHelper.buildFetchPlan(fetchPlanString);
-
-								final Set<ODocument> recordsToSend = new HashSet<ODocument>();
-								final ODocument doc = (ODocument) record;
-								OFetchHelper.fetch(doc, doc, doc.fieldNames(), fetchPlan, null, 0, -1, new OFetchListener() {
-									@Override
-									public int size() {
-										return recordsToSend.size();
-									}
-
-									// ADD TO THE SET OF OBJECTS TO SEND
-									@Override
-									public Object fetchLinked(final ODocument iRoot, final Object iUserObject, final String iFieldName,
-											final Object iLinked) {
-										if (iLinked instanceof ODocument) {
-											if (((ODocument) iLinked).getIdentity().isValid())
-												return recordsToSend.add((ODocument) iLinked) ? iLinked : null;
-											return null;
-										} else if (iLinked instanceof Collection<?>)
-											return recordsToSend.addAll((Collection<? extends ODocument>) iLinked) ? iLinked : null;
-										else if (iLinked instanceof Map<?, ?>)
-											return recordsToSend.addAll(((Map<String, ? extends ODocument>) iLinked).values()) ? iLinked : null;
-										else
-											throw new IllegalArgumentException("Unrecognized type while fetching records: " + iLinked);
-									}
-								});
-
-								// SEND RECORDS TO LOAD IN CLIENT CACHE
-								for (ODocument d : recordsToSend) {
-									if (d.getIdentity().isValid()) {
-										channel.writeByte((byte) 2); // CLIENT CACHE
-										// RECORD. IT ISN'T PART OF THE RESULT SET
-										writeIdentifiable(d);
-									}
-								}
-							}
-
+							final Set<ODocument> recordsToSend = new HashSet<ODocument>();
+							fetchRecords(record, OFetchHelper.buildFetchPlan(fetchPlanString), recordsToSend);
+							sendRecordsToCache(recordsToSend);
 						}
 					}
+					channel.writeByte((byte) 0); // NO MORE RECORDS
 				} finally {
 					channel.releaseExclusiveLock();
 				}
 			}
-			channel.writeByte((byte) 0); // NO MORE RECORDS
+			break;
+		}
+
+		case OChannelBinaryProtocol.REQUEST_RECORD_LOAD_MULTI: {
+			data.commandInfo = "Load records";
+
+			final List<ORecordId> rids = new ArrayList<ORecordId>();
+			for (int i = channel.readInt(); i > 0; --i)
+				rids.add(channel.readRID());
+			final String fetchPlanString = channel.readString();
+
+			// THE STORAGE READS THE RECORDS NOT CACHED WITH ONE CALL, GROUPED BY CLUSTER AND DATA OFFSET
+			final List<ORecordInternal<?>> records = connection.database.loadAll(rids, fetchPlanString);
+
+			channel.acquireExclusiveLock();
+			try {
+				sendOk(lastRequestId);
+
+				for (ORecordInternal<?> record : records) {
+					if (record != null) {
+						channel.writeByte((byte) 1);
+						channel.writeBytes(record.toStream());
+						channel.writeInt(record.getVersion());
+						channel.writeByte(record.getRecordType());
+					} else
+						channel.writeByte((byte) 0);
+				}
+
+				if (fetchPlanString.length() > 0) {
+					final Map<String, Integer> fetchPlan = OFetchHelper.buildFetchPlan(fetchPlanString);
+					final Set<ODocument> recordsToSend = new HashSet<ODocument>();
+					for (ORecordInternal<?> record : records)
+						if (record != null)
+							fetchRecords(record, fetchPlan, recordsToSend);
+					sendRecordsToCache(recordsToSend);
+				}
+
+				channel.writeByte((byte) 0); // NO MORE RECORDS
+			} finally {
+				channel.releaseExclusiveLock();
+			}
 			break;
 		}
 
@@ -595,7 +767,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 				channel.writeLong(clusterPosition);
 			} finally {
 				channel.releaseExclusiveLock();
@@ -623,7 +795,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 				channel.writeInt(newVersion);
 			} finally {
 				channel.releaseExclusiveLock();
@@ -643,7 +815,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 				channel.writeByte((byte) result); // TODO: REMOV SINCE IT'S NOT MORE NECESSARY
 			} finally {
 				channel.releaseExclusiveLock();
@@ -661,7 +833,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 				channel.writeLong(size);
 			} finally {
 				channel.releaseExclusiveLock();
@@ -683,13 +855,12 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 			data.commandDetail = command.getText();
 
-			channel.acquireExclusiveLock();
-			try {
-				if (asynch) {
-					// ASYNCHRONOUS
-					final StringBuilder empty = new StringBuilder();
+			if (asynch) {
+				// ASYNCHRONOUS: THE CHANNEL IS LOCKED AT THE FIRST RESULT UNTIL THE END OF THE COMMAND
+				final StringBuilder empty = new StringBuilder();
+				try {
 					final Set<ODocument> recordsToSend = new HashSet<ODocument>();
-					final int txId = lastClientTxId;
+					final int txId = lastRequestId;
 
 					final Map<String, Integer> fetchPlan = query != null ? OFetchHelper.buildFetchPlan(query.getFetchPlan()) : null;
 					command.setResultListener(new OCommandResultListener() {
@@ -697,8 +868,9 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 						public boolean result(final Object iRecord) {
 							if (empty.length() == 0)
 								try {
-									sendOk(txId);
+									channel.acquireExclusiveLock();
 									empty.append("-");
+									sendOk(txId);
 								} catch (IOException e1) {
 								}
 
@@ -741,11 +913,11 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 					((OCommandRequestInternal) connection.database.command(command)).execute();
 
-					if (empty.length() == 0)
-						try {
-							sendOk(lastClientTxId);
-						} catch (IOException e1) {
-						}
+					if (empty.length() == 0) {
+						channel.acquireExclusiveLock();
+						empty.append("-");
+						sendOk(lastRequestId);
+					}
 
 					// SEND RECORDS TO LOAD IN CLIENT CACHE
 					for (ODocument doc : recordsToSend) {
@@ -756,11 +928,17 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 					}
 
 					channel.writeByte((byte) 0); // NO MORE RECORDS
-				} else {
-					// SYNCHRONOUS
-					final Object result = ((OCommandRequestInternal) connection.database.command(command)).execute();
+				} finally {
+					if (empty.length() > 0)
+						channel.releaseExclusiveLock();
+				}
+			} else {
+				// SYNCHRONOUS
+				final Object result = ((OCommandRequestInternal) connection.database.command(command)).execute();
 
-					sendOk(lastClientTxId);
+				channel.acquireExclusiveLock();
+				try {
+					sendOk(lastRequestId);
 
 					if (result == null) {
 						// NULL VALUE
@@ -783,9 +961,9 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 						ORecordSerializerStringAbstract.fieldTypeToString(value, OType.getTypeByClass(result.getClass()), result);
 						channel.writeString(value.toString());
 					}
+				} finally {
+					channel.releaseExclusiveLock();
 				}
-			} finally {
-				channel.releaseExclusiveLock();
 			}
 			break;
 		}
@@ -803,7 +981,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 				connection.database.commit();
 				channel.acquireExclusiveLock();
 				try {
-					sendOk(lastClientTxId);
+					sendOk(lastRequestId);
 
 					// SEND BACK ALL THE RECORD IDS FOR THE CREATED RECORDS
 					channel.writeInt(tx.getCreatedRecords().size());
@@ -827,7 +1005,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 				}
 			} catch (Exception e) {
 				connection.database.rollback();
-				sendError(lastClientTxId, e);
+				sendError(lastRequestId, e);
 			}
 
 			break;
@@ -844,7 +1022,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 				channel.writeString(cfgValue);
 			} finally {
 				channel.releaseExclusiveLock();
@@ -865,7 +1043,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 			} finally {
 				channel.releaseExclusiveLock();
 			}
@@ -879,7 +1057,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 
 				channel.writeShort((short) OGlobalConfiguration.values().length);
 				for (OGlobalConfiguration cfg : OGlobalConfiguration.values()) {
@@ -897,7 +1075,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 			data.commandInfo = "Command not supported";
 			OLogManager.instance().error(this, "Request not supported. Code: " + lastRequestType);
 			channel.clearInput();
-			sendError(lastClientTxId, new ONetworkProtocolException("Request not supported. Code: " + lastRequestType));
+			sendError(lastRequestId, new ONetworkProtocolException("Request not supported. Code: " + lastRequestType));
 		}
 	}
 
@@ -962,12 +1140,25 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 
 	@Override
 	public void startup() {
+		if (parent != null)
+			// SESSION WORKER
+			return;
+
 		OServerHandlerHelper.invokeHandlerCallbackOnClientConnection(connection);
 	}
 
 	@Override
 	public void shutdown() {
 		sendShutdown();
+
+		if (parent != null)
+			// SESSION WORKER: THE SOCKET AND THE CONNECTIONS ARE OWNED BY THE PARENT
+			return;
+
+		for (ONetworkProtocolBinary worker : sessionWorkers.values())
+			worker.sendShutdown();
+		sessionWorkers.clear();
+
 		channel.close();
 
 		if (connection == null)
@@ -986,17 +1177,22 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 		return channel;
 	}
 
-	protected void sendOk(final int iClientTxId) throws IOException {
+	protected void sendOk(final int iRequestId) throws IOException {
 		channel.writeByte(OChannelBinaryProtocol.RESPONSE_STATUS_OK);
-		channel.writeInt(iClientTxId);
+		channel.writeInt(iRequestId);
 	}
 
-	protected void sendError(final int iClientTxId, final Throwable t) throws IOException, InterruptedException {
+	/**
+	 * Sends the exception to the client and discards the rest of the request. The pipelined requests are read from their own
+	 * content, while the client doesn't send anything else after a not framed request until it receives the response, so the
+	 * input can be discarded without losing the requests of other sessions.
+	 */
+	protected void sendError(final int iRequestId, final Throwable t) throws IOException, InterruptedException {
 		channel.acquireExclusiveLock();
 
 		try {
 			channel.writeByte(OChannelBinaryProtocol.RESPONSE_STATUS_ERROR);
-			channel.writeInt(iClientTxId);
+			channel.writeInt(iRequestId);
 
 			Throwable current;
 			if (t instanceof OLockException && t.getCause() instanceof ODatabaseException)
@@ -1075,6 +1271,53 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 		}
 	}
 
+	/**
+	 * Collects the records linked by the record according to the fetch plan.
+	 */
+	@SuppressWarnings("unchecked")
+	private void fetchRecords(final ORecordInternal<?> iRecord, final Map<String, Integer> iFetchPlan,
+			final Set<ODocument> iRecordsToSend) {
+		if (!(iRecord instanceof ODocument))
+			return;
+
+		final ODocument doc = (ODocument) iRecord;
+		OFetchHelper.fetch(doc, doc, doc.fieldNames(), iFetchPlan, null, 0, -1, new OFetchListener() {
+			@Override
+			public int size() {
+				return iRecordsToSend.size();
+			}
+
+			// ADD TO THE SET OF OBJECTS TO SEND
+			@Override
+			public Object fetchLinked(final ODocument iRoot, final Object iUserObject, final String iFieldName,
+					final Object iLinked) {
+				if (iLinked instanceof ODocument) {
+					if (((ODocument) iLinked).getIdentity().isValid())
+						return iRecordsToSend.add((ODocument) iLinked) ? iLinked : null;
+					return null;
+				} else if (iLinked instanceof Collection<?>)
+					return iRecordsToSend.addAll((Collection<? extends ODocument>) iLinked) ? iLinked : null;
+				else if (iLinked instanceof Map<?, ?>)
+					return iRecordsToSend.addAll(((Map<String, ? extends ODocument>) iLinked).values()) ? iLinked : null;
+				else
+					throw new IllegalArgumentException("Unrecognized type while fetching records: " + iLinked);
+			}
+		});
+	}
+
+	/**
+	 * Sends the records to put in the client cache. They aren't part of the result.
+	 */
+	private void sendRecordsToCache(final Set<ODocument> iRecordsToSend) throws IOException {
+		for (ODocument d : iRecordsToSend) {
+			if (d.getIdentity().isValid()) {
+				channel.writeByte((byte) 2); // CLIENT CACHE
+				// RECORD. IT ISN'T PART OF THE RESULT SET
+				writeIdentifiable(d);
+			}
+		}
+	}
+
 	private void writeRecord(final ORecordInternal<?> iRecord) throws IOException {
 		channel.writeShort((short) 0);
 		channel.writeByte(iRecord.getRecordType());
@@ -1177,7 +1420,7 @@ public class ONetworkProtocolBinary extends ONetworkProtocol {
 			path = stg.getURL();
 		else if (iStorageMode.equals(OEngineLocal.NAME)) {
 			path = iStorageMode + ":${ORIENTDB_HOME}/databases/" + iDbName;
-		} else if (iStorageMode.equals(OEngineMemory.NAME)) {
+		} else if (iStorageMode.equals(OEngineMemory.NAME) || iStorageMode.equals(OEngineMemoryDirect.NAME)) {
 			path = iStorageMode + ":" + iDbName;
 		} else
 			throw new IllegalArgumentException("Cannot create database: storage mode '" + iStorageMode + "' is not supported.");
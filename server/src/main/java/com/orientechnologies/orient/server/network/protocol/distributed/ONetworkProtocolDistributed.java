@@ -72,7 +72,7 @@ public class ONetworkProtocolDistributed extends ONetworkProtocolBinary implemen
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 				channel.writeInt(connection.id);
 
 				if (manager.isLeader()) {
@@ -121,7 +121,7 @@ public class ONetworkProtocolDistributed extends ONetworkProtocolBinary implemen
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 			} finally {
 				channel.releaseExclusiveLock();
 			}
@@ -166,7 +166,7 @@ public class ONetworkProtocolDistributed extends ONetworkProtocolBinary implemen
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 				channel.writeLong(result);
 			} finally {
 				channel.releaseExclusiveLock();
@@ -195,7 +195,7 @@ public class ONetworkProtocolDistributed extends ONetworkProtocolBinary implemen
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 			} finally {
 				channel.releaseExclusiveLock();
 			}
@@ -237,7 +237,7 @@ public class ONetworkProtocolDistributed extends ONetworkProtocolBinary implemen
 
 					OLogManager.instance().info(this, "Database imported correctly", dbName);
 
-					sendOk(lastClientTxId);
+					sendOk(lastRequestId);
 					channel.writeInt(connection.id);
 				} finally {
 					channel.releaseExclusiveLock();
@@ -260,7 +260,7 @@ public class ONetworkProtocolDistributed extends ONetworkProtocolBinary implemen
 
 			channel.acquireExclusiveLock();
 			try {
-				sendOk(lastClientTxId);
+				sendOk(lastRequestId);
 			} finally {
 				channel.releaseExclusiveLock();
 			}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.server.network.protocol.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
+
+/**
+ * Writes the HTTP content using the "chunked" transfer encoding. The content is buffered and sent in chunks of the configured size.
+ * Closing the stream sends the last chunk but leaves the underlying stream open to keep alive the connection.
+ *
+ * @author Luca Garulli
+ *
+ */
+public class OHttpChunkedOutputStream extends OutputStream {
+	private static final byte[]	LAST_CHUNK	= { (byte) '0', (byte) '\r', (byte) '\n', (byte) '\r', (byte) '\n' };
+
+	private final OutputStream	out;
+	private final byte[]				buffer;
+	private int									count				= 0;
+	private boolean							closed			= false;
+
+	public OHttpChunkedOutputStream(final OutputStream iOutput, final int iChunkSize) {
+		out = iOutput;
+		buffer = new byte[iChunkSize];
+	}
+
+	@Override
+	public void write(final int iByte) throws IOException {
+		if (count == buffer.length)
+			flushBuffer();
+		buffer[count++] = (byte) iByte;
+	}
+
+	@Override
+	public void write(final byte[] iBuffer, int iOffset, int iLength) throws IOException {
+		if (iLength >= buffer.length) {
+			// BIG CONTENT: SEND IT AS A CHUNK WITHOUT COPYING IT
+			flushBuffer();
+			writeChunk(iBuffer, iOffset, iLength);
+			return;
+		}
+
+		if (iLength > buffer.length - count)
+			flushBuffer();
+
+		System.arraycopy(iBuffer, iOffset, buffer, count, iLength);
+		count += iLength;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		flushBuffer();
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+
+		closed = true;
+		flushBuffer();
+		out.write(LAST_CHUNK);
+		out.flush();
+	}
+
+	private void flushBuffer() throws IOException {
+		writeChunk(buffer, 0, count);
+		count = 0;
+	}
+
+	private void writeChunk(final byte[] iBuffer, final int iOffset, final int iLength) throws IOException {
+		if (iLength == 0)
+			// AN EMPTY CHUNK WOULD TERMINATE THE CONTENT
+			return;
+
+		out.write(OBinaryProtocol.string2bytes(Integer.toHexString(iLength)));
+		out.write(OHttpUtils.EOL);
+		out.write(iBuffer, iOffset, iLength);
+		out.write(OHttpUtils.EOL);
+	}
+}
@@ -40,6 +40,7 @@ public class OHttpRequest {
 	public String													databaseName;
 	public boolean												isMultipart;
 	public String													ifMatch;
+	public String													acceptEncoding;
 
 	public ONetworkProtocolData						data;
 	public ONetworkProtocolHttpAbstract		executor;
@@ -38,6 +38,11 @@ public class OHttpUtils {
 	public static final String	HEADER_AUTHORIZATION								= "Authorization: ";
 	public static final String	HEADER_IF_MATCH											= "If-Match: ";
 	public static final String	HEADER_X_FORWARDED_FOR							= "X-Forwarded-For: ";
+	public static final String	HEADER_ACCEPT_ENCODING							= "Accept-Encoding: ";
+	public static final String	HEADER_CONTENT_ENCODING							= "Content-Encoding: ";
+	public static final String	HEADER_TRANSFER_ENCODING						= "Transfer-Encoding: ";
+	public static final String	ENCODING_GZIP												= "gzip";
+	public static final String	ENCODING_CHUNKED										= "chunked";
 
 	public static final String	AUTHORIZATION_BASIC									= "Basic";
 	public static final String	OSESSIONID													= "OSESSIONID";
@@ -83,7 +83,7 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
 
 		data.caller = channel.toString();
 
-		start();
+		startService();
 	}
 
 	public void service() throws ONetworkProtocolException, IOException {
@@ -282,6 +282,7 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
 
 	protected void readAllContent(final OHttpRequest iRequest) throws IOException {
 		iRequest.content = null;
+		iRequest.acceptEncoding = null;
 
 		int in;
 		char currChar;
@@ -337,6 +338,9 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
 					else if (OStringSerializerHelper.startsWithIgnoreCase(line, OHttpUtils.HEADER_X_FORWARDED_FOR))
 						getData().caller = line.substring(OHttpUtils.HEADER_X_FORWARDED_FOR.length());
 
+					else if (OStringSerializerHelper.startsWithIgnoreCase(line, OHttpUtils.HEADER_ACCEPT_ENCODING))
+						iRequest.acceptEncoding = line.substring(OHttpUtils.HEADER_ACCEPT_ENCODING.length());
+
 				}
 
 				// CONSUME /r or /n
@@ -391,6 +395,7 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
 		data.commandInfo = "Listening";
 		data.commandDetail = null;
 
+		long timer = OProfiler.NOT_RECORDING;
 		try {
 			channel.socket.setSoTimeout(socketTimeout);
 			data.lastCommandReceived = -1;
@@ -403,7 +408,8 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
 			}
 
 			channel.socket.setSoTimeout(socketTimeout);
-			data.lastCommandReceived = OProfiler.getInstance().startChrono();
+			data.lastCommandReceived = System.currentTimeMillis();
+			timer = OProfiler.getInstance().startChrono();
 
 			requestContent.setLength(0);
 			request.isMultipart = false;
@@ -468,8 +474,8 @@ public abstract class ONetworkProtocolHttpAbstract extends ONetworkProtocol {
 
 			readAllContent(request);
 		} finally {
-			if (data.lastCommandReceived > -1)
-				OProfiler.getInstance().stopChrono("ONetworkProtocolHttp.execute", data.lastCommandReceived);
+			if (timer != OProfiler.NOT_RECORDING)
+				OProfiler.getInstance().stopChrono("ONetworkProtocolHttp.execute", timer);
 		}
 	}
 
@@ -17,18 +17,26 @@ package com.orientechnologies.orient.server.network.protocol.http.command;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.util.Date;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.command.OCommandResultListener;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OProperty;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
 import com.orientechnologies.orient.core.serialization.serializer.OJSONWriter;
+import com.orientechnologies.orient.server.network.protocol.http.OHttpChunkedOutputStream;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpRequest;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpRequestException;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpUtils;
@@ -57,14 +65,10 @@ public abstract class OServerCommandAbstract implements OServerCommand {
 			final String iContentType, final Object iContent, final boolean iKeepAlive) throws IOException {
 		final String content;
 		final String contentType;
-		if (iRequest.url.indexOf('?') > 0 && iRequest.url.indexOf(OHttpUtils.CALLBACK_PARAMETER_NAME, iRequest.url.indexOf('?')) > 0) {
-			String callbackFunction = iRequest.url.substring(iRequest.url.indexOf(OHttpUtils.CALLBACK_PARAMETER_NAME,
-					iRequest.url.indexOf('?'))
-					+ OHttpUtils.CALLBACK_PARAMETER_NAME.length());
-			if (callbackFunction.indexOf('&') > -1)
-				callbackFunction = callbackFunction.substring(0, callbackFunction.indexOf('&'));
+		final String callbackFunction = getCallbackFunction(iRequest);
+		if (callbackFunction != null) {
 			content = callbackFunction + "(" + iContent + ")";
-			contentType = "text/javascript";
+			contentType = OHttpUtils.CONTENT_JAVASCRIPT;
 		} else {
 			content = iContent != null ? iContent.toString() : null;
 			contentType = iContentType;
@@ -92,6 +96,24 @@ public abstract class OServerCommandAbstract implements OServerCommand {
 		iRequest.channel.flush();
 	}
 
+	/**
+	 * Returns the JSONP callback function passed in the URL, if any.
+	 */
+	protected String getCallbackFunction(final OHttpRequest iRequest) {
+		final int parametersPos = iRequest.url.indexOf('?');
+		if (parametersPos < 0)
+			return null;
+
+		final int callbackPos = iRequest.url.indexOf(OHttpUtils.CALLBACK_PARAMETER_NAME, parametersPos);
+		if (callbackPos < 0)
+			return null;
+
+		String callbackFunction = iRequest.url.substring(callbackPos + OHttpUtils.CALLBACK_PARAMETER_NAME.length());
+		if (callbackFunction.indexOf('&') > -1)
+			callbackFunction = callbackFunction.substring(0, callbackFunction.indexOf('&'));
+		return callbackFunction;
+	}
+
 	protected void sendStatus(final OHttpRequest iRequest, final int iStatus, final String iReason) throws IOException {
 		writeLine(iRequest, iRequest.httpVersion + " " + iStatus + " " + iReason);
 	}
@@ -148,47 +170,149 @@ public abstract class OServerCommandAbstract implements OServerCommand {
 
 	protected void sendRecordsContent(final OHttpRequest iRequest, final List<ORecord<?>> iRecords, final String iFetchPlan)
 			throws IOException {
-		final StringWriter buffer = new StringWriter();
-		final OJSONWriter json = new OJSONWriter(buffer, JSON_FORMAT);
-		json.beginObject();
-
-		// WRITE ENTITY SCHEMA IF ANY
-		if (iRecords != null && iRecords.size() > 0) {
-			ORecord<?> first = iRecords.get(0);
-			if (first != null && first instanceof ODocument) {
-				ODatabaseRecord db = ((ODocument) first).getDatabase();
-
-				final String className = ((ODocument) first).getClassName();
-				exportClassSchema(db, json, db.getMetadata().getSchema().getClass(className));
-			}
+		final ORecordsContentStream stream = new ORecordsContentStream(iRequest, iFetchPlan);
+		if (iRecords != null)
+			for (ORecord<?> rec : iRecords)
+				stream.result(rec);
+		stream.close();
+	}
+
+	/**
+	 * Command listener that sends the records as JSON while they are received, without collecting them in memory. The response is
+	 * sent with the "chunked" transfer encoding and compressed with gzip if the client accepts it. HTTP/1.0 clients don't support
+	 * chunks, so in this case the content is sent all at once on close.
+	 */
+	protected class ORecordsContentStream implements OCommandResultListener {
+		private final OHttpRequest	request;
+		private final String				format;
+		private final boolean				chunked;
+		private String							callbackFunction;
+		private Writer							out;
+		private OJSONWriter					json;
+		private int									counter	= 0;
+		private boolean							broken	= false;
+
+		public ORecordsContentStream(final OHttpRequest iRequest, final String iFetchPlan) {
+			request = iRequest;
+			format = iFetchPlan != null ? JSON_FORMAT + ",fetchPlan:" + iFetchPlan : JSON_FORMAT;
+			chunked = !"HTTP/1.0".equals(iRequest.httpVersion);
 		}
 
-		final String format = iFetchPlan != null ? JSON_FORMAT + ",fetchPlan:" + iFetchPlan : JSON_FORMAT;
+		public boolean result(final Object iRecord) {
+			if (broken)
+				return false;
 
-		// WRITE RECORDS
-		json.beginCollection(1, true, "result");
-		if (iRecords != null) {
-			int counter = 0;
-			String objectJson;
-			for (ORecord<?> rec : iRecords) {
-				if (rec != null)
-					try {
-						objectJson = rec.toJSON(format);
+			final ORecord<?> rec = iRecord instanceof OIdentifiable ? ((OIdentifiable) iRecord).getRecord() : null;
 
-						if (counter++ > 0)
-							buffer.append(", ");
+			try {
+				if (json == null)
+					begin(rec);
 
-						buffer.append(objectJson);
+				if (rec != null) {
+					final String objectJson;
+					try {
+						objectJson = rec.toJSON(format);
 					} catch (Exception e) {
 						OLogManager.instance().error(this, "Error transforming record " + rec.getIdentity() + " to JSON", e);
+						return true;
 					}
+
+					if (counter++ > 0)
+						out.append(", ");
+
+					out.append(objectJson);
+				}
+			} catch (IOException e) {
+				// THE CLIENT HAS CLOSED THE CONNECTION: STOP THE COMMAND
+				OLogManager.instance().debug(this, "Error on sending records to the client, the response has been interrupted", e);
+				broken = true;
+				return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Returns true if the response has been already started, so an error can't be sent to the client anymore.
+		 */
+		public boolean isStarted() {
+			return json != null && chunked;
+		}
+
+		/**
+		 * Terminates the response.
+		 */
+		public void close() throws IOException {
+			if (broken) {
+				request.executor.sendShutdown();
+				return;
 			}
+
+			if (json == null)
+				begin(null);
+
+			json.endCollection(1, true);
+			json.endObject();
+
+			if (chunked) {
+				if (callbackFunction != null)
+					out.append(')');
+				out.close();
+				request.channel.flush();
+			} else
+				sendTextContent(request, OHttpUtils.STATUS_OK_CODE, "OK", null, OHttpUtils.CONTENT_JSON, out.toString());
 		}
-		json.endCollection(1, true);
 
-		json.endObject();
+		/**
+		 * Interrupts a started response because of an error: the connection is closed since the client can't receive a valid
+		 * response anymore.
+		 */
+		public void abort(final Exception iError) {
+			OLogManager.instance().error(this, "Error on executing the command, the response has been interrupted", iError);
+			broken = true;
+			request.executor.sendShutdown();
+		}
 
-		sendTextContent(iRequest, OHttpUtils.STATUS_OK_CODE, "OK", null, OHttpUtils.CONTENT_JSON, buffer.toString());
+		private void begin(final ORecord<?> iFirst) throws IOException {
+			if (chunked) {
+				callbackFunction = getCallbackFunction(request);
+
+				final boolean gzip = request.configuration.getValueAsBoolean(OGlobalConfiguration.NETWORK_HTTP_GZIP)
+						&& request.acceptEncoding != null && request.acceptEncoding.toLowerCase().indexOf(OHttpUtils.ENCODING_GZIP) > -1;
+				final int chunkSize = request.configuration.getValueAsInteger(OGlobalConfiguration.NETWORK_HTTP_CHUNK_SIZE);
+
+				sendStatus(request, OHttpUtils.STATUS_OK_CODE, "OK");
+				sendResponseHeaders(request, callbackFunction != null ? OHttpUtils.CONTENT_JAVASCRIPT : OHttpUtils.CONTENT_JSON);
+				writeLine(request, "Set-Cookie: OSESSIONID=" + (request.sessionId != null ? request.sessionId : "-") + "; Path=/; HttpOnly");
+				writeLine(request, OHttpUtils.HEADER_TRANSFER_ENCODING + OHttpUtils.ENCODING_CHUNKED);
+				if (gzip)
+					writeLine(request, OHttpUtils.HEADER_CONTENT_ENCODING + OHttpUtils.ENCODING_GZIP);
+				writeLine(request, null);
+
+				OutputStream stream = new OHttpChunkedOutputStream(request.channel.outStream, chunkSize);
+				if (gzip)
+					stream = new GZIPOutputStream(stream, chunkSize);
+				out = new OutputStreamWriter(stream, request.executor.getResponseCharSet());
+
+				if (callbackFunction != null)
+					out.append(callbackFunction).append('(');
+			} else
+				// THE JSONP CALLBACK IS APPLIED BY sendTextContent()
+				out = new StringWriter();
+
+			json = new OJSONWriter(out, JSON_FORMAT);
+			json.beginObject();
+
+			// WRITE ENTITY SCHEMA IF ANY
+			if (iFirst instanceof ODocument) {
+				final ODatabaseRecord db = ((ODocument) iFirst).getDatabase();
+				final String className = ((ODocument) iFirst).getClassName();
+				if (db != null)
+					exportClassSchema(db, json, db.getMetadata().getSchema().getClass(className));
+			}
+
+			// WRITE RECORDS
+			json.beginCollection(1, true, "result");
+		}
 	}
 
 	protected void sendRecordContent(final OHttpRequest iRequest, final ORecord<?> iRecord) throws IOException {
@@ -39,7 +39,7 @@ import com.orientechnologies.orient.core.storage.OStorageEmbedded;
 import com.orientechnologies.orient.core.storage.impl.local.OClusterLocal;
 import com.orientechnologies.orient.core.storage.impl.local.ODataLocal;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageLocal;
-import com.orientechnologies.orient.core.storage.impl.local.OTxSegment;
+import com.orientechnologies.orient.core.storage.impl.local.OWriteAheadLog;
 import com.orientechnologies.orient.server.db.OSharedDocumentDatabase;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpRequest;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpUtils;
@@ -147,12 +147,12 @@ public class OServerCommandGetConnect extends OServerCommandAuthenticatedDbAbstr
 
 			if (db.getStorage() instanceof OStorageLocal) {
 				json.beginCollection(1, false, "txSegment");
-				final OTxSegment txSegment = ((OStorageLocal) db.getStorage()).getTxManager().getTxSegment();
+				final OWriteAheadLog txLog = ((OStorageLocal) db.getStorage()).getTxManager().getTxLog();
 				json.beginObject(2, true, null);
-				json.writeAttribute(3, false, "size", txSegment.getSize());
-				json.writeAttribute(3, false, "filled", txSegment.getFilledUpTo());
-				json.writeAttribute(3, false, "maxSize", txSegment.getConfig().maxSize);
-				json.writeAttribute(3, false, "file", txSegment.getConfig().path);
+				json.writeAttribute(3, false, "size", txLog.getSize());
+				json.writeAttribute(3, false, "filled", txLog.getFilledUpTo());
+				json.writeAttribute(3, false, "maxSize", txLog.getConfig().maxSize);
+				json.writeAttribute(3, false, "file", txLog.getConfig().path);
 				json.endObject(2, false);
 				json.endCollection(1, true);
 			}
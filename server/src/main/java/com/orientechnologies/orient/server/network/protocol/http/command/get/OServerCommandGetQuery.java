@@ -15,12 +15,10 @@
  */
 package com.orientechnologies.orient.server.network.protocol.http.command.get;
 
-import java.util.List;
-
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
-import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordSchemaAware;
-import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.core.sql.OSQLHelper;
+import com.orientechnologies.orient.core.sql.query.OSQLAsynchQuery;
 import com.orientechnologies.orient.server.db.OSharedDocumentDatabase;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpRequest;
 import com.orientechnologies.orient.server.network.protocol.http.command.OServerCommandAuthenticatedDbAbstract;
@@ -29,7 +27,6 @@ public class OServerCommandGetQuery extends OServerCommandAuthenticatedDbAbstrac
 	private static final String[]	NAMES	= { "GET|query/*" };
 
 	@Override
-	@SuppressWarnings("unchecked")
 	public boolean execute(final OHttpRequest iRequest) throws Exception {
 		String[] urlParts = checkSyntax(
 				iRequest.url,
@@ -45,25 +42,32 @@ public class OServerCommandGetQuery extends OServerCommandAuthenticatedDbAbstrac
 		iRequest.data.commandInfo = "Query";
 		iRequest.data.commandDetail = text;
 
-		if (!text.toLowerCase().startsWith("select"))
+		if (!OSQLHelper.isSelect(text))
 			throw new IllegalArgumentException("Only SQL Select commands are valid using Query command");
 
 		ODatabaseDocumentTx db = null;
 
-		final List<ORecord<?>> response;
+		// SEND THE RECORDS WHILE THEY ARE FOUND
+		final ORecordsContentStream response = new ORecordsContentStream(iRequest, fetchPlan);
 
 		try {
 			db = getProfiledDatabaseInstance(iRequest);
 
-			response = (List<ORecord<?>>) db.command(new OSQLSynchQuery<ORecordSchemaAware<?>>(text, limit).setFetchPlan(fetchPlan))
-					.execute();
+			db.command(new OSQLAsynchQuery<ORecordSchemaAware<?>>(text, limit, response).setFetchPlan(fetchPlan)).execute();
+
+		} catch (Exception e) {
+			if (!response.isStarted())
+				throw e;
+
+			response.abort(e);
+			return false;
 
 		} finally {
 			if (db != null)
 				OSharedDocumentDatabase.release(db);
 		}
 
-		sendRecordsContent(iRequest, response, fetchPlan);
+		response.close();
 		return false;
 	}
 
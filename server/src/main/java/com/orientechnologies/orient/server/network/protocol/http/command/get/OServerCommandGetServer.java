@@ -150,6 +150,9 @@ public class OServerCommandGetServer extends OServerCommandAuthenticatedServerAb
 			json.beginCollection(2, true, "stats");
 			for (String s : OProfiler.getInstance().getStats()) {
 				pEntry = OProfiler.getInstance().getStat(s);
+				if (pEntry == null)
+					// RESET IN THE MEANTIME
+					continue;
 
 				json.beginObject(3);
 				writeField(json, 3, "name", s);
@@ -159,6 +162,9 @@ public class OServerCommandGetServer extends OServerCommandAuthenticatedServerAb
 				writeField(json, 3, "maxElapsed", pEntry.max);
 				writeField(json, 3, "lastElapsed", pEntry.last);
 				writeField(json, 3, "totalElapsed", pEntry.total);
+				writeField(json, 3, "p50", pEntry.p50);
+				writeField(json, 3, "p99", pEntry.p99);
+				writeField(json, 3, "p999", pEntry.p999);
 				json.endObject(3);
 			}
 			json.endCollection(2, false);
@@ -166,6 +172,9 @@ public class OServerCommandGetServer extends OServerCommandAuthenticatedServerAb
 			json.beginCollection(2, true, "chronos");
 			for (String c : OProfiler.getInstance().getChronos()) {
 				pEntry = OProfiler.getInstance().getChrono(c);
+				if (pEntry == null)
+					// RESET IN THE MEANTIME
+					continue;
 
 				json.beginObject(3);
 				writeField(json, 3, "name", c);
@@ -175,6 +184,9 @@ public class OServerCommandGetServer extends OServerCommandAuthenticatedServerAb
 				writeField(json, 3, "maxElapsed", pEntry.max);
 				writeField(json, 3, "lastElapsed", pEntry.last);
 				writeField(json, 3, "totalElapsed", pEntry.total);
+				writeField(json, 3, "p50", pEntry.p50);
+				writeField(json, 3, "p99", pEntry.p99);
+				writeField(json, 3, "p999", pEntry.p999);
 				json.endObject(3);
 			}
 			json.endCollection(2, false);
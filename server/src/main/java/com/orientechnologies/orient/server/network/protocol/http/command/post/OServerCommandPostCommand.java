@@ -21,6 +21,7 @@ import com.orientechnologies.orient.core.command.OCommandManager;
 import com.orientechnologies.orient.core.command.OCommandRequestText;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.sql.OSQLHelper;
 import com.orientechnologies.orient.server.db.OSharedDocumentDatabase;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpRequest;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpUtils;
@@ -44,6 +45,10 @@ public class OServerCommandPostCommand extends OServerCommandAuthenticatedDbAbst
 
 		ODatabaseDocumentTx db = null;
 
+		// SQL QUERIES SEND THE RECORDS WHILE THEY ARE FOUND
+		final ORecordsContentStream stream = "sql".equalsIgnoreCase(language) && OSQLHelper.isSelect(text) ? new ORecordsContentStream(
+				iRequest, null) : null;
+
 		final Object response;
 
 		try {
@@ -52,14 +57,25 @@ public class OServerCommandPostCommand extends OServerCommandAuthenticatedDbAbst
 			final OCommandRequestText cmd = (OCommandRequestText) OCommandManager.instance().getRequester(language);
 			cmd.setText(text);
 			cmd.setLimit(limit);
+			if (stream != null)
+				cmd.setResultListener(stream);
 			response = db.command(cmd).execute();
 
+		} catch (Exception e) {
+			if (stream == null || !stream.isStarted())
+				throw e;
+
+			stream.abort(e);
+			return false;
+
 		} finally {
 			if (db != null)
 				OSharedDocumentDatabase.release(db);
 		}
 
-		if (response instanceof List<?>)
+		if (stream != null)
+			stream.close();
+		else if (response instanceof List<?>)
 			sendRecordsContent(iRequest, (List<ORecord<?>>) response);
 		else if (response == null || response instanceof Integer)
 			sendTextContent(iRequest, OHttpUtils.STATUS_OK_CODE, "OK", null, OHttpUtils.CONTENT_TEXT_PLAIN, response);
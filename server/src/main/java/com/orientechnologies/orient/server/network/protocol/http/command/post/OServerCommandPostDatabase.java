@@ -28,6 +28,7 @@ import com.orientechnologies.orient.core.config.OStorageEntryConfiguration;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.engine.local.OEngineLocal;
 import com.orientechnologies.orient.core.engine.memory.OEngineMemory;
+import com.orientechnologies.orient.core.engine.memory.OEngineMemoryDirect;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.exception.ODatabaseException;
 import com.orientechnologies.orient.core.exception.OSecurityAccessException;
@@ -45,7 +46,7 @@ import com.orientechnologies.orient.core.storage.OStorageEmbedded;
 import com.orientechnologies.orient.core.storage.impl.local.OClusterLocal;
 import com.orientechnologies.orient.core.storage.impl.local.ODataLocal;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageLocal;
-import com.orientechnologies.orient.core.storage.impl.local.OTxSegment;
+import com.orientechnologies.orient.core.storage.impl.local.OWriteAheadLog;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpRequest;
 import com.orientechnologies.orient.server.network.protocol.http.OHttpUtils;
 import com.orientechnologies.orient.server.network.protocol.http.command.OServerCommandAuthenticatedServerAbstract;
@@ -91,7 +92,7 @@ public class OServerCommandPostDatabase extends OServerCommandAuthenticatedServe
 		final String path;
 		if (storageMode.equals(OEngineLocal.NAME)) {
 			path = storageMode + ":${ORIENTDB_HOME}/databases/" + databaseName;
-		} else if (storageMode.equals(OEngineMemory.NAME)) {
+		} else if (storageMode.equals(OEngineMemory.NAME) || storageMode.equals(OEngineMemoryDirect.NAME)) {
 			path = storageMode + ":" + databaseName;
 		} else {
 			return null;
@@ -167,12 +168,12 @@ public class OServerCommandPostDatabase extends OServerCommandAuthenticatedServe
 
 		if (db.getStorage() instanceof OStorageLocal) {
 			json.beginCollection(1, false, "txSegment");
-			final OTxSegment txSegment = ((OStorageLocal) db.getStorage()).getTxManager().getTxSegment();
+			final OWriteAheadLog txLog = ((OStorageLocal) db.getStorage()).getTxManager().getTxLog();
 			json.beginObject(2, true, null);
-			json.writeAttribute(3, false, "size", txSegment.getSize());
-			json.writeAttribute(3, false, "filled", txSegment.getFilledUpTo());
-			json.writeAttribute(3, false, "maxSize", txSegment.getConfig().maxSize);
-			json.writeAttribute(3, false, "file", txSegment.getConfig().path);
+			json.writeAttribute(3, false, "size", txLog.getSize());
+			json.writeAttribute(3, false, "filled", txLog.getFilledUpTo());
+			json.writeAttribute(3, false, "maxSize", txLog.getConfig().maxSize);
+			json.writeAttribute(3, false, "file", txLog.getConfig().path);
 			json.endObject(2, false);
 			json.endCollection(1, true);
 		}
@@ -83,9 +83,10 @@ public class ODistributedStorage extends OStorageRemote {
 						endResponse(network);
 					}
 				else {
+					final int requestId = getRequestId();
 					Callable<Object> response = new Callable<Object>() {
 						public Object call() throws Exception {
-							beginResponse(network);
+							beginResponse(network, requestId);
 							try {
 								handleRemoteResponse(iRequest.status, iRequestType, iRecord, network.readLong());
 							} finally {
@@ -0,0 +1,163 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.auto;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Parameters;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OContextConfiguration;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.exception.OSecurityAccessException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryClient;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
+
+/**
+ * Tests the requests of different sessions pipelined over the same connection of a remote database.
+ */
+@Test
+public class RemotePipelinedRequestsTest {
+	private static final int	THREADS	= 8;
+	private static final int	RECORDS	= 100;
+
+	private final String			url;
+
+	@Parameters(value = "url")
+	public RemotePipelinedRequestsTest(final String iURL) {
+		url = iURL;
+	}
+
+	public void testConcurrentSessions() throws InterruptedException {
+		final ODatabaseDocumentTx database = new ODatabaseDocumentTx(url).open("admin", "admin");
+		try {
+			database.getMetadata().getSchema().createClass("Pipelined");
+		} finally {
+			database.close();
+		}
+
+		// EVERY THREAD HAS ITS OWN SESSION, BUT THEY SHARE THE CONNECTIONS OF THE STORAGE
+		final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+		final Thread[] threads = new Thread[THREADS];
+		for (int t = 0; t < THREADS; ++t) {
+			final int thread = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url).open("admin", "admin");
+					try {
+						final List<ORID> rids = new ArrayList<ORID>();
+						for (int i = 0; i < RECORDS; ++i)
+							rids.add(new ODocument(db, "Pipelined").field("thread", thread).field("id", i).save().getIdentity().copy());
+
+						db.getLevel1Cache().invalidate();
+						for (int i = 0; i < RECORDS; ++i) {
+							final ODocument doc = db.load(rids.get(i));
+							Assert.assertEquals(doc.field("thread"), thread);
+							Assert.assertEquals(doc.field("id"), i);
+						}
+
+						Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>("select from Pipelined where thread = " + thread)).size(),
+								RECORDS);
+					} catch (Throwable e) {
+						errors.add(e);
+					} finally {
+						db.close();
+					}
+				}
+			};
+			threads[t].start();
+		}
+
+		for (Thread t : threads)
+			t.join();
+
+		Assert.assertTrue(errors.isEmpty(), errors.toString());
+
+		final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url).open("admin", "admin");
+		try {
+			Assert.assertEquals(db.countClass("Pipelined"), THREADS * RECORDS);
+		} finally {
+			db.close();
+		}
+	}
+
+	/**
+	 * Sends a request not framed that fails before its content has been read: the next request on the same connection must be
+	 * read from its beginning.
+	 */
+	public void testErrorInNotFramedRequest() throws IOException {
+		if (!url.startsWith("remote:"))
+			return;
+
+		final String address = url.substring("remote:".length(), url.indexOf('/'));
+		final String dbName = url.substring(url.indexOf('/') + 1);
+		final int portPos = address.indexOf(':');
+
+		final OChannelBinaryClient channel = new OChannelBinaryClient(portPos > -1 ? address.substring(0, portPos) : address,
+				portPos > -1 ? Integer.parseInt(address.substring(portPos + 1)) : 2424, new OContextConfiguration());
+		try {
+			// FAIL INSTEAD OF WAITING FOREVER FOR A RESPONSE THE SERVER WON'T SEND
+			channel.socket.setSoTimeout(OGlobalConfiguration.NETWORK_SOCKET_TIMEOUT.getValueAsInteger());
+			OChannelBinaryProtocol.checkProtocolVersion(channel);
+
+			// NO DATABASE IS OPEN: THE SERVER FAILS BEFORE TO READ THE CLUSTER
+			channel.beginRequest();
+			try {
+				channel.writeByte(OChannelBinaryProtocol.REQUEST_DATACLUSTER_ADD);
+				channel.writeInt(-1);
+				channel.writeInt(1);
+				channel.writeString("PHYSICAL").writeString("pipelined").writeString("").writeInt(-1);
+			} finally {
+				channel.endRequest();
+			}
+
+			try {
+				channel.beginResponse(1);
+				Assert.fail();
+			} catch (OSecurityAccessException e) {
+			} finally {
+				channel.endResponse();
+			}
+
+			channel.beginRequest();
+			try {
+				channel.writeByte(OChannelBinaryProtocol.REQUEST_DB_OPEN);
+				channel.writeInt(-1);
+				channel.writeInt(2);
+				channel.writeString(dbName).writeString("admin").writeString("admin");
+			} finally {
+				channel.endRequest();
+			}
+
+			// READ THE HEADER DIRECTLY: A RESPONSE WITH ANOTHER ID MUST FAIL THE TEST, NOT WAIT FOR THE NEXT ONE
+			Assert.assertEquals(channel.readByte(), OChannelBinaryProtocol.RESPONSE_STATUS_OK);
+			Assert.assertEquals(channel.readInt(), 2);
+			Assert.assertTrue(channel.readInt() > -1);
+
+		} finally {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.auto;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+import org.testng.Assert;
+import org.testng.annotations.Parameters;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.enterprise.channel.binary.OChannelBinaryProtocol;
+
+/**
+ * Tests that the clients that stop sending in the middle of a request don't prevent the server from serving the others.
+ */
+@Test
+public class RemoteStalledClientsTest {
+	private final String	url;
+
+	@Parameters(value = "url")
+	public RemoteStalledClientsTest(final String iURL) {
+		url = iURL;
+	}
+
+	public void testStalledRequests() throws Exception {
+		if (!url.startsWith("remote:"))
+			return;
+
+		final String address = url.substring("remote:".length(), url.indexOf('/'));
+		final int portPos = address.indexOf(':');
+		final String host = portPos > -1 ? address.substring(0, portPos) : address;
+		final int port = portPos > -1 ? Integer.parseInt(address.substring(portPos + 1)) : 2424;
+
+		// MORE STALLED CLIENTS THAN THE WORKERS OF A NIO LISTENER: EACH ONE SENDS ONLY THE FIRST BYTE OF ITS REQUEST
+		final Socket[] stalled = new Socket[OGlobalConfiguration.NETWORK_NIO_WORKERS.getValueAsInteger() + 8];
+		try {
+			for (int i = 0; i < stalled.length; ++i) {
+				stalled[i] = new Socket(host, port);
+				new DataInputStream(stalled[i].getInputStream()).readShort();
+				stalled[i].getOutputStream().write(OChannelBinaryProtocol.REQUEST_DB_OPEN);
+				stalled[i].getOutputStream().flush();
+			}
+
+			final Thread client = new Thread() {
+				@Override
+				public void run() {
+					final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url).open("admin", "admin");
+					db.close();
+				}
+			};
+			client.start();
+
+			// THE STALLED CLIENTS ARE DISCONNECTED AFTER THE SOCKET TIMEOUT
+			client.join(3 * OGlobalConfiguration.NETWORK_SOCKET_TIMEOUT.getValueAsInteger());
+			Assert.assertFalse(client.isAlive(), "The server is not serving the clients");
+
+		} finally {
+			for (Socket s : stalled)
+				if (s != null)
+					try {
+						s.close();
+					} catch (IOException e) {
+					}
+		}
+	}
+}
@@ -191,6 +191,32 @@ public class SQLFunctionsTest {
 		database.close();
 	}
 
+	@Test
+	public void queryGroupBy() {
+		database.open("admin", "admin");
+		List<ODocument> result = database.command(new OSQLSynchQuery<ODocument>("select count(*) as total from Account")).execute();
+		final long total = ((Number) result.get(0).field("total")).longValue();
+
+		result = database.command(
+				new OSQLSynchQuery<ODocument>("select name, count(*) as total, max(id) as max from Account group by name")).execute();
+
+		Assert.assertTrue(result.size() > 1);
+
+		long groupTotal = 0;
+		Set<String> names = new HashSet<String>();
+		for (ODocument d : result) {
+			Assert.assertFalse(names.contains(d.field("name")));
+			names.add((String) d.field("name"));
+
+			Assert.assertNotNull(d.field("max"));
+			groupTotal += ((Number) d.field("total")).longValue();
+		}
+
+		Assert.assertEquals(groupTotal, total);
+
+		database.close();
+	}
+
 	@Test
 	public void queryFormat() {
 		database.open("admin", "admin");
@@ -0,0 +1,131 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.test.database.base.OrientMultiThreadTest;
+import com.orientechnologies.orient.test.database.base.OrientThreadTest;
+
+/**
+ * Looks up random keys of an UNIQUE index by concurrent threads to measure how the throughput scales with the number of cores.
+ * Execute the main to run the test with 1, 2, 4... threads up to twice the available processors, with and without the concurrent
+ * lookups (mvrbtree.concurrentLookups). The database is created the first time under the temporary directory.
+ */
+@Test(enabled = false)
+public class IndexLookupMultiThreadSpeedTest extends OrientMultiThreadTest {
+	private static final int		RECORDS	= 200000;
+	private static final String	URL			= "local:" + System.getProperty("java.io.tmpdir") + "/indexlookupspeedtest";
+
+	private static AtomicLong		found		= new AtomicLong();
+	private ODatabaseDocumentTx	database;
+	private long								started;
+
+	public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+		final int cores = Runtime.getRuntime().availableProcessors();
+
+		for (boolean concurrent : new boolean[] { false, true }) {
+			OGlobalConfiguration.MVRBTREE_CONCURRENT_LOOKUPS.setValue(concurrent);
+			for (int threads = 1; threads <= cores * 2; threads *= 2) {
+				final IndexLookupMultiThreadSpeedTest test = new IndexLookupMultiThreadSpeedTest(threads);
+				test.data.go(test);
+			}
+		}
+	}
+
+	public IndexLookupMultiThreadSpeedTest() {
+		this(Integer.parseInt(System.getProperty("threads", String.valueOf(Runtime.getRuntime().availableProcessors()))));
+	}
+
+	public IndexLookupMultiThreadSpeedTest(final int iThreads) {
+		super(2000000, iThreads, LookupThread.class);
+	}
+
+	@Override
+	public void init() {
+		database = new ODatabaseDocumentTx(URL);
+		if (new File(URL.substring("local:".length())).exists() && database.exists())
+			database.open("admin", "admin");
+		else {
+			database.create();
+
+			final OClass account = database.getMetadata().getSchema().createClass("Account");
+			account.createProperty("id", OType.INTEGER);
+			account.createProperty("name", OType.STRING);
+
+			for (int i = 0; i < RECORDS; ++i)
+				new ODocument(database, "Account").field("id", i).field("name", "name" + i).save();
+
+			account.createIndex("Account.id", OClass.INDEX_TYPE.UNIQUE, "id");
+		}
+
+		// START WITH THE NODES NOT LOADED YET TO MEASURE THE LAZY LOADING TOO
+		database.close();
+		database.open("admin", "admin");
+
+		found.set(0);
+		started = System.currentTimeMillis();
+	}
+
+	@Test(enabled = false)
+	public static class LookupThread extends OrientThreadTest {
+		private ODatabaseDocumentTx	database;
+		private OIndex<?>						index;
+		private Random							random	= new Random();
+
+		@Override
+		public void init() {
+			database = new ODatabaseDocumentTx(URL).open("admin", "admin");
+			index = database.getMetadata().getIndexManager().getIndex("Account.id");
+		}
+
+		public void cycle() {
+			if (index.get(random.nextInt(RECORDS)) != null)
+				found.incrementAndGet();
+		}
+
+		@Override
+		public void deinit() throws Exception {
+			if (database != null)
+				database.close();
+			super.deinit();
+		}
+	}
+
+	@Override
+	public void deinit() {
+		final long elapsed = System.currentTimeMillis() - started;
+
+		System.out.println("\nThreads: " + threads + ", concurrent lookups: "
+				+ OGlobalConfiguration.MVRBTREE_CONCURRENT_LOOKUPS.getValueAsBoolean() + ", lookups per second: " + found.get() * 1000
+				/ Math.max(elapsed, 1));
+		Assert.assertEquals(found.get(), threadCycles / threads * threads);
+
+		if (database != null)
+			database.close();
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.fs.OMMapManager;
+import com.orientechnologies.orient.test.database.base.OrientMultiThreadTest;
+import com.orientechnologies.orient.test.database.base.OrientThreadTest;
+
+/**
+ * Reads random records of the Account cluster by concurrent threads to measure the contention on the memory mapped buffers. Run
+ * LocalCreateDocumentMultiThreadSpeedTest before to fill the database.
+ */
+@Test(enabled = false)
+public class LocalReadDocumentMultiThreadSpeedTest extends OrientMultiThreadTest {
+	private static int				clusterId;
+	private static long				records;
+	private static AtomicLong	found	= new AtomicLong();
+	private ODatabaseDocument	database;
+
+	public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+		// System.setProperty("url", "local:database/test");
+		LocalReadDocumentMultiThreadSpeedTest test = new LocalReadDocumentMultiThreadSpeedTest();
+		test.data.go(test);
+	}
+
+	public LocalReadDocumentMultiThreadSpeedTest() {
+		super(1000000, 16, ReadObjectsThread.class);
+	}
+
+	@Override
+	public void init() {
+		database = new ODatabaseDocumentTx(System.getProperty("url")).open("admin", "admin");
+
+		clusterId = database.getClusterIdByName("Account");
+		records = database.countClusterElements("Account");
+		found.set(0);
+
+		System.out.println("\nTotal objects in Account cluster before the test: " + records);
+	}
+
+	@Test(enabled = false)
+	public static class ReadObjectsThread extends OrientThreadTest {
+		private ODatabaseDocument	database;
+		private Random						random	= new Random();
+
+		@Override
+		public void init() {
+			database = new ODatabaseDocumentTx(System.getProperty("url")).open("admin", "admin");
+		}
+
+		public void cycle() {
+			final ODocument record = database.load(new ORecordId(clusterId, (long) (random.nextDouble() * records)));
+			if (record != null)
+				found.incrementAndGet();
+		}
+
+		@Override
+		public void deinit() throws Exception {
+			if (database != null)
+				database.close();
+			super.deinit();
+		}
+	}
+
+	@Override
+	public void deinit() {
+		System.out.println("\nRead " + found.get() + " records, mmap memory used: " + OMMapManager.getTotalMemory());
+		Assert.assertEquals(found.get(), threadCycles);
+
+		if (database != null)
+			database.close();
+	}
+}
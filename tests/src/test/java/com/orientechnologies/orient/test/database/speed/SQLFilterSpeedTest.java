@@ -0,0 +1,95 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.Date;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.test.SpeedTestMonoThread;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilter;
+
+/**
+ * Evaluates the conditions passed as "where" system property against 1,000,000 documents kept in memory. Execute the main to
+ * compare some common kinds of conditions.
+ */
+public class SQLFilterSpeedTest extends SpeedTestMonoThread {
+	private static final int		DOCUMENTS	= 1000000;
+
+	private final String				where;
+	private ODatabaseDocumentTx	database;
+	private ODocument[]					documents;
+	private OSQLFilter					filter;
+	private int									matched;
+
+	public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+		new SQLFilterSpeedTest("id = '1000'").test();
+		new SQLFilterSpeedTest("salary > '1500.5'").test();
+		new SQLFilterSpeedTest("birthDate < '2010-06-01'").test();
+		new SQLFilterSpeedTest("name matches 'name1.*'").test();
+		new SQLFilterSpeedTest("name like 'name1%'").test();
+		new SQLFilterSpeedTest("name matches 'name1.*' and id = '1000'").test();
+		new SQLFilterSpeedTest("id = '1000' or salary > '1500.5'").test();
+	}
+
+	public SQLFilterSpeedTest() {
+		this(System.getProperty("where", "name matches 'name1.*' and id = '1000'"));
+	}
+
+	public SQLFilterSpeedTest(final String iWhere) {
+		super(10);
+		where = iWhere;
+	}
+
+	@Override
+	public void init() {
+		database = new ODatabaseDocumentTx("memory:filterspeed").create();
+
+		final OClass account = database.getMetadata().getSchema().createClass("Account");
+		account.createProperty("id", OType.INTEGER);
+		account.createProperty("name", OType.STRING);
+		account.createProperty("salary", OType.FLOAT);
+		account.createProperty("birthDate", OType.DATE);
+
+		final long now = System.currentTimeMillis();
+		documents = new ODocument[DOCUMENTS];
+		for (int i = 0; i < DOCUMENTS; ++i)
+			documents[i] = new ODocument(database, "Account").field("id", i).field("name", "name" + i).field("salary", i % 3000 + 0.5f)
+					.field("birthDate", new Date(now - i * 60000l));
+
+		filter = new OSQLFilter("Account where " + where);
+		System.out.println("Evaluating: " + where);
+	}
+
+	@Override
+	@Test(enabled = false)
+	public void cycle() {
+		matched = 0;
+		for (ODocument doc : documents)
+			if (filter.evaluate(doc))
+				matched++;
+	}
+
+	@Override
+	public void deinit() {
+		System.out.println("Matched " + matched + " documents");
+		database.delete();
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 1999-2010 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.java.serialization;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.test.SpeedTestMonoThread;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.record.ORecordSerializerFactory;
+import com.orientechnologies.orient.core.serialization.serializer.record.binary.ORecordSerializerBinary;
+import com.orientechnologies.orient.core.serialization.serializer.record.string.ORecordSerializerSchemaAware2CSV;
+
+/**
+ * Marshalls and unmarshalls the same document with the format passed as "format" system property (CSV by default). Execute the
+ * main to compare the CSV and binary formats.
+ */
+public class DocumentSerializationSpeedTest extends SpeedTestMonoThread {
+	private final String			formatName;
+	private ORecordSerializer	format;
+	private ODatabaseDocumentTx	database;
+	private ODocument					record;
+
+	public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+		new DocumentSerializationSpeedTest(ORecordSerializerSchemaAware2CSV.NAME).test();
+		new DocumentSerializationSpeedTest(ORecordSerializerBinary.NAME).test();
+	}
+
+	public DocumentSerializationSpeedTest() {
+		this(System.getProperty("format", ORecordSerializerSchemaAware2CSV.NAME));
+	}
+
+	public DocumentSerializationSpeedTest(final String iFormatName) {
+		super(200000);
+		formatName = iFormatName;
+	}
+
+	@Override
+	public void init() {
+		format = ORecordSerializerFactory.instance().getFormat(formatName);
+
+		database = new ODatabaseDocumentTx("memory:serialization" + formatName).create();
+
+		final OClass account = database.getMetadata().getSchema().createClass("Account");
+		account.createProperty("id", OType.INTEGER);
+		account.createProperty("name", OType.STRING);
+		account.createProperty("surname", OType.STRING);
+		account.createProperty("birthDate", OType.DATE);
+		account.createProperty("salary", OType.FLOAT);
+
+		final List<String> tags = new ArrayList<String>();
+		for (int i = 0; i < 10; ++i)
+			tags.add("tag" + i);
+
+		final Map<String, Object> properties = new HashMap<String, Object>();
+		properties.put("height", 180);
+		properties.put("weight", 75.5d);
+
+		record = new ODocument(database, "Account");
+		record.field("id", 1000);
+		record.field("name", "Luca");
+		record.field("surname", "Garulli");
+		record.field("birthDate", new Date());
+		record.field("salary", 3000f);
+		record.field("active", true);
+		record.field("visits", 1234567890123l);
+		record.field("tags", tags);
+		record.field("properties", properties, OType.EMBEDDEDMAP);
+		record.field("address", new ODocument().field("city", "Rome").field("street", "Via Roma").field("number", 10), OType.EMBEDDED);
+
+		System.out.println(formatName + ": " + format.toStream(record, false).length + " bytes");
+	}
+
+	@Override
+	@Test(enabled = false)
+	public void cycle() {
+		final ODocument loaded = new ODocument();
+		format.fromStream(format.toStream(record, false), loaded);
+		loaded.field("salary");
+	}
+
+	@Override
+	public void deinit() {
+		database.close();
+	}
+}